@@ -0,0 +1,47 @@
+package org.activiti.engine.impl.cmd;
+
+import org.activiti.engine.ActivitiException;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.activiti.engine.impl.pvm.process.ActivityImpl;
+
+import java.util.Map;
+
+/**
+ * complete a task and move its execution to the given activity instead of following the outgoing transitions.
+ * the execution is pointed at a detour copy of its activity,so the deployed process definition,which may be shared
+ * by other process instances,is never rewired.
+ */
+public class JumpTaskCmd extends NeedsActiveTaskCmd<Void> {
+
+    private static final long serialVersionUID = 1L;
+    protected String targetActivityId;
+    protected Map<String, Object> variables;
+
+    public JumpTaskCmd(String taskId, String targetActivityId, Map<String, Object> variables) {
+        super(taskId);
+        this.targetActivityId = targetActivityId;
+        this.variables = variables;
+    }
+
+    @Override
+    protected Void execute(CommandContext commandContext, TaskEntity task) {
+        ExecutionEntity execution = task.getExecution();
+        if (execution == null) {
+            throw new ActivitiException("task " + taskId + " has no execution");
+        }
+        ActivityImpl currActivity = execution.getActivity();
+        ActivityImpl targetActivity = execution.getProcessDefinition().findActivity(targetActivityId);
+        if (targetActivity == null) {
+            throw new ActivitiException("activity " + targetActivityId + " not found");
+        }
+        ActivityImpl detour = currActivity.detourTo(targetActivity);
+        //a multi instance node is left by its parent execution once the last instance is done
+        for (ExecutionEntity current = execution; current != null && currActivity.getId().equals(current.getActivityId());
+             current = current.getParent()) {
+            current.setActivity(detour);
+        }
+        return new CompleteTaskCmd(taskId, variables).execute(commandContext);
+    }
+}
@@ -1,6 +1,7 @@
 package org.activiti.engine.impl.cmd;
 
 import org.activiti.engine.HistoryService;
+import org.activiti.engine.ManagementService;
 import org.activiti.engine.RepositoryService;
 import org.activiti.engine.RuntimeService;
 import org.activiti.engine.TaskService;
@@ -37,6 +38,8 @@ public class ProcessNodeJump {
     private RuntimeService runtimeService;
     @Autowired
     private RepositoryService repositoryService;
+    @Autowired
+    private ManagementService managementService;
 
     public void jumpTransAction(String taskId, String endActivityId) throws Exception {
         HistoricTaskInstance currTask = historyService.createHistoricTaskInstanceQuery()
@@ -87,27 +90,8 @@ public class ProcessNodeJump {
     private void jumpToActivity(String taskId, String targetActivityId) throws Exception {
         ActivityImpl targetActivity = findActivitiImpl(taskId, targetActivityId);
 
-        // **获取当前任务**
-        TaskEntity task = (TaskEntity) taskService.createTaskQuery().taskId(taskId).singleResult();
-
-        // **获取当前任务的活动**
-        ActivityImpl currActivity = findActivitiImpl(taskId, null);
-
-        // **清除原始流向**
-        List<PvmTransition> originalTransitions = clearTransition(currActivity);
-
-        // **创建新流向**
-        TransitionImpl newTransition = currActivity.createOutgoingTransition();
-        newTransition.setDestination(targetActivity);
-
-        // **强制完成当前任务**
-        taskService.complete(taskId);
-
-        // **删除新创建的流向**
-        targetActivity.getIncomingTransitions().remove(newTransition);
-
-        // **恢复原始流向**
-        restoreTransition(currActivity, originalTransitions);
+        // **强制完成当前任务,流向目标节点**
+        managementService.executeCommand(new JumpTaskCmd(taskId, targetActivity.getId(), null));
     }
     /**
      * @param taskId     current task id
@@ -143,25 +127,11 @@ public class ProcessNodeJump {
      */
     private void turnTransition(String taskId, String activityId,
                                 Map<String, Object> variables) throws Exception {
-        // 当前节点
-        ActivityImpl currActivity = findActivitiImpl(taskId, null);
-        // 清空当前流向
-        List<PvmTransition> oriPvmTransitionList = clearTransition(currActivity);
-
-        // 创建新流向
-        TransitionImpl newTransition = currActivity.createOutgoingTransition();
         // 目标节点
         ActivityImpl pointActivity = findActivitiImpl(taskId, activityId);
-        // 设置新流向的目标节点
-        newTransition.setDestination(pointActivity);
 
-        // 执行转向任务
-        taskService.complete(taskId, variables);
-        // 删除目标节点新流入
-        pointActivity.getIncomingTransitions().remove(newTransition);
-
-        // 还原以前流向
-        restoreTransition(currActivity, oriPvmTransitionList);
+        // 执行转向任务,流程定义可能被多个实例共享,不修改其流向
+        managementService.executeCommand(new JumpTaskCmd(taskId, pointActivity.getId(), variables));
     }
     private void deleteCompletedTasks(String processInstanceId, HistoricTaskInstance historicTaskInstance) {
         List<HistoricTaskInstance> finishedTasks = historyService.createHistoricTaskInstanceQuery()
@@ -206,10 +176,6 @@ public class ProcessNodeJump {
      */
     private void turnTransitionV2(String taskId, String activityId,
                                 Map<String, Object> variables) throws Exception {
-        // 当前节点
-        ActivityImpl currActivity = findActivitiImpl(taskId, null);
-
-
         // 获取目标活动节点
         ActivityImpl targetActivity = findActivitiImpl(taskId, activityId);
         // 如果目标节点是并行网关，则找到对应的起始网关
@@ -220,38 +186,8 @@ public class ProcessNodeJump {
             }
         }
 
-        // 清空当前流向
-        List<PvmTransition> oriPvmTransitionList = clearTransition(currActivity);
-
-        // 创建新流向
-        TransitionImpl newTransition = currActivity.createOutgoingTransition();
-
-        // 设置新流向的目标节点
-        newTransition.setDestination(targetActivity);
-
         // 执行转向任务
-        taskService.complete(taskId, variables);
-        // 删除目标节点新流入
-        targetActivity.getIncomingTransitions().remove(newTransition);
-
-        // 还原以前流向
-        restoreTransition(currActivity, oriPvmTransitionList);
-    }
-
-    /**
-     * @param activityImpl
-     * @param oriPvmTransitionList
-     */
-    private void restoreTransition(ActivityImpl activityImpl,
-                                   List<PvmTransition> oriPvmTransitionList) {
-
-        List<PvmTransition> pvmTransitionList = activityImpl
-                .getOutgoingTransitions();
-        pvmTransitionList.clear();
-        // 还原以前流向
-        for (PvmTransition pvmTransition : oriPvmTransitionList) {
-            pvmTransitionList.add(pvmTransition);
-        }
+        managementService.executeCommand(new JumpTaskCmd(taskId, targetActivity.getId(), variables));
     }
 
     /**
@@ -323,23 +259,6 @@ public class ProcessNodeJump {
         return processDefinition;
     }
 
-    /**
-     *
-     * @param activityImpl
-     * @return
-     */
-    private List<PvmTransition> clearTransition(ActivityImpl activityImpl) {
-
-        List<PvmTransition> oriPvmTransitionList = new ArrayList<PvmTransition>();
-        List<PvmTransition> pvmTransitionList = activityImpl
-                .getOutgoingTransitions();
-        for (PvmTransition pvmTransition : pvmTransitionList) {
-            oriPvmTransitionList.add(pvmTransition);
-        }
-        pvmTransitionList.clear();
-
-        return oriPvmTransitionList;
-    }
     /**
      * 迭代循环流程树结构，查询当前节点可驳回的任务节点
      *
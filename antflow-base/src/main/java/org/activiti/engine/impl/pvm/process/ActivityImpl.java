@@ -91,6 +91,38 @@ public class ActivityImpl extends ScopeImpl implements PvmActivity, HasDIBounds
     return "Activity("+id+")";
   }
   
+  /**
+   * copy of this activity whose only outgoing transition leads to the given destination.
+   * neither this activity nor the destination is changed,so an execution can be moved elsewhere
+   * without rewiring a deployed process definition which may be shared by other process instances.
+   */
+  public ActivityImpl detourTo(ActivityImpl destination) {
+    ActivityImpl detour = new ActivityImpl(id, processDefinition);
+    detour.properties = properties;
+    detour.activities = activities;
+    detour.namedActivities = namedActivities;
+    detour.executionListeners = executionListeners;
+    detour.ioSpecification = ioSpecification;
+    detour.variables = variables;
+    detour.incomingTransitions = incomingTransitions;
+    detour.activityBehavior = activityBehavior;
+    detour.parent = parent;
+    detour.isScope = isScope;
+    detour.isAsync = isAsync;
+    detour.isExclusive = isExclusive;
+    detour.failedJobRetryTimeCycleValue = failedJobRetryTimeCycleValue;
+    detour.x = x;
+    detour.y = y;
+    detour.width = width;
+    detour.height = height;
+    TransitionImpl transition = new TransitionImpl("detour_" + destination.getId(), null, processDefinition);
+    transition.setSource(detour);
+    // not added to the incoming transitions of the destination
+    transition.destination = destination;
+    detour.outgoingTransitions.add(transition);
+    return detour;
+  }
+
   public ActivityImpl getParentActivity() {
     if (parent instanceof ActivityImpl) {
       return (ActivityImpl) parent;
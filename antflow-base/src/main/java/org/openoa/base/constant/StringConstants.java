@@ -40,6 +40,10 @@ public class StringConstants {
     public static final String DEFAULT_TENANT="default";
     public static final String TENANT_ID="tenantId";
     public static final String TENANT_USER="tenantUser";
+    //thread local key of the bpmn confs(form code -> conf) shared by the operations of a batch button operation
+    public static final String BATCH_BPMN_CONFS="batchBpmnConfs";
+    //thread local key of the hold key the notices of a batch button operation are held back under
+    public static final String NOTICE_OUTBOX_HOLD_KEY="noticeOutboxHoldKey";
     public static final String LOWCODE_FLOW_DICT_TYPE="lowcodeflow";
     public static final String DYNAMIC_CONDITION_NODE="af_syslabel_dynamiccondition";
     public static final String COPY_NODE="af_syslabel_copynode";
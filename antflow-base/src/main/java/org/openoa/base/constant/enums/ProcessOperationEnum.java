@@ -35,6 +35,19 @@ public enum ProcessOperationEnum {
     @Getter
     private String desc;
 
+    //operation types are small numbers,they index an array looked up on every button operation
+    private static final ProcessOperationEnum[] BY_CODE;
+
+    static {
+        int maxCode = 0;
+        for (ProcessOperationEnum operation : values()) {
+            maxCode = Math.max(maxCode, operation.code);
+        }
+        BY_CODE = new ProcessOperationEnum[maxCode + 1];
+        for (ProcessOperationEnum operation : values()) {
+            BY_CODE[operation.code] = operation;
+        }
+    }
 
     ProcessOperationEnum(Integer code, String desc) {
         this.code = code;
@@ -49,13 +62,10 @@ public enum ProcessOperationEnum {
      * @return
      */
     public static ProcessOperationEnum getEnumByCode(Integer code) {
-
-        for (ProcessOperationEnum operation : ProcessOperationEnum.values()) {
-            if (operation.getCode().equals(code)) {
-                return operation;
-            }
+        if (code == null || code < 0 || code >= BY_CODE.length) {
+            return null;
         }
-        return null;
+        return BY_CODE[code];
     }
 
     /**
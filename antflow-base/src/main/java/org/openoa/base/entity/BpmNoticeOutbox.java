@@ -0,0 +1,69 @@
+package org.openoa.base.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * outbox of process notices and business callbacks,written in the same transaction as the process changes
+ * and delivered by a background dispatcher after commit
+ *
+ * @author AntFlow
+ */
+@Data
+@TableName("t_bpm_notice_outbox")
+public class BpmNoticeOutbox implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int STATUS_PENDING = 0;
+    public static final int STATUS_DISPATCHING = 1;
+    public static final int STATUS_SENT = 2;
+    public static final int STATUS_FAILED = 3;
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+    /**
+     * name of a {@link org.openoa.base.constant.enums.MessageSendTypeEnum} or a callback channel
+     */
+    @TableField("channel")
+    private String channel;
+    /**
+     * json payload
+     */
+    @TableField("payload")
+    private String payload;
+    /**
+     * 0 pending,1 dispatching,2 sent,3 failed
+     */
+    @TableField("status")
+    private Integer status;
+    /**
+     * delivery attempts so far
+     */
+    @TableField("attempts")
+    private Integer attempts;
+    @TableField("next_attempt_time")
+    private Date nextAttemptTime;
+    /**
+     * dispatch round which claimed the row
+     */
+    @TableField("claim_owner")
+    private String claimOwner;
+    @TableField("claim_time")
+    private Date claimTime;
+    /**
+     * the row is not dispatched while a batch operation holds it back under this key,see claim timeout
+     */
+    @TableField("hold_key")
+    private String holdKey;
+    @TableField("last_error")
+    private String lastError;
+    @TableField("tenant_id")
+    private String tenantId;
+    @TableField(value = "create_time", fill = FieldFill.INSERT)
+    private Date createTime;
+    @TableField(value = "update_time", fill = FieldFill.INSERT_UPDATE)
+    private Date updateTime;
+}
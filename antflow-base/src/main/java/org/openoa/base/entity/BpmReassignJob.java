@@ -0,0 +1,78 @@
+package org.openoa.base.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * bulk reassignment job,moves the open tasks and future approvals of a user to another one in chunks,
+ * its progress is kept with the job so it can be resumed by any node after a crash
+ *
+ * @author AntFlow
+ */
+@Data
+@TableName("t_bpm_reassign_job")
+public class BpmReassignJob implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int STATUS_PENDING = 0;
+    public static final int STATUS_RUNNING = 1;
+    public static final int STATUS_DONE = 2;
+    public static final int STATUS_FAILED = 3;
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+    @TableField("from_user")
+    private String fromUser;
+    @TableField("from_user_name")
+    private String fromUserName;
+    @TableField("to_user")
+    private String toUser;
+    @TableField("to_user_name")
+    private String toUserName;
+    /**
+     * only the processes of this form code are reassigned if it is not empty
+     */
+    @TableField("form_code")
+    private String formCode;
+    /**
+     * 0 pending,1 running,2 done,3 failed
+     */
+    @TableField("status")
+    private Integer status;
+    /**
+     * tasks and future approvals to be reassigned,counted when the job is first run
+     */
+    @TableField("total_count")
+    private Integer totalCount;
+    @TableField("task_count")
+    private Integer taskCount;
+    @TableField("future_count")
+    private Integer futureCount;
+    /**
+     * run of the job which claimed it
+     */
+    @TableField("claim_owner")
+    private String claimOwner;
+    /**
+     * refreshed after every chunk,a running job whose heartbeat is too old is taken over by another run
+     */
+    @TableField("heartbeat_time")
+    private Date heartbeatTime;
+    @TableField("start_time")
+    private Date startTime;
+    @TableField("end_time")
+    private Date endTime;
+    @TableField("last_error")
+    private String lastError;
+    @TableField("tenant_id")
+    private String tenantId;
+    @TableField("create_user")
+    private String createUser;
+    @TableField(value = "create_time", fill = FieldFill.INSERT)
+    private Date createTime;
+    @TableField(value = "update_time", fill = FieldFill.INSERT_UPDATE)
+    private Date updateTime;
+}
@@ -0,0 +1,31 @@
+package org.openoa.base.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * searchable text of a process,the process number,description,digest,applicant and current assignee names.
+ * its bigrams are indexed in t_bpm_search_token,the text itself verifies the candidates found by them
+ *
+ * @author AntFlow
+ */
+@Data
+@TableName("t_bpm_search_doc")
+public class BpmSearchDoc implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+    @TableField("process_number")
+    private String processNumber;
+    /**
+     * lower cased texts separated by line breaks
+     */
+    @TableField("content")
+    private String content;
+    @TableField(value = "update_time", fill = FieldFill.INSERT_UPDATE)
+    private Date updateTime;
+}
@@ -0,0 +1,74 @@
+package org.openoa.base.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * task inbox of a user,one row per assignee per task and one per started process.
+ * it is the read model of the todo,done and started lists,kept in sync by the process engine events
+ *
+ * @author AntFlow
+ */
+@Data
+@TableName("t_bpm_task_inbox")
+public class BpmTaskInbox implements Serializable {
+    private static final long serialVersionUID = 1L;
+    /**
+     * row of a task
+     */
+    public static final int KIND_TASK = 1;
+    /**
+     * row of a process started by the user
+     */
+    public static final int KIND_STARTED = 2;
+    public static final int STATE_TODO = 0;
+    public static final int STATE_DONE = 1;
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+    /**
+     * assignee of the task,or the start user of the process
+     */
+    @TableField("assignee")
+    private String assignee;
+    @TableField("kind")
+    private Integer kind;
+    /**
+     * 0 todo,1 done
+     */
+    @TableField("state")
+    private Integer state;
+    @TableField("task_id")
+    private String taskId;
+    @TableField("proc_inst_id")
+    private String procInstId;
+    /**
+     * process definition of the instance,kept on the row so the lists do not join the engine history
+     */
+    @TableField("proc_def_id")
+    private String procDefId;
+    @TableField("process_number")
+    private String processNumber;
+    @TableField("form_code")
+    private String formCode;
+    @TableField("node_key")
+    private String nodeKey;
+    @TableField("node_name")
+    private String nodeName;
+    /**
+     * time the lists are ordered by,task create time for todo tasks,end time for done tasks and start time for processes
+     */
+    @TableField("sort_time")
+    private Date sortTime;
+    @TableField("end_time")
+    private Date endTime;
+    @TableField("tenant_id")
+    private String tenantId;
+    @TableField(value = "create_time", fill = FieldFill.INSERT)
+    private Date createTime;
+    @TableField(value = "update_time", fill = FieldFill.INSERT_UPDATE)
+    private Date updateTime;
+}
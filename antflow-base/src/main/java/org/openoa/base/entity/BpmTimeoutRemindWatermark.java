@@ -0,0 +1,33 @@
+package org.openoa.base.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * watermark of a periodic reminder job,tasks whose remind thresholds were crossed before it have already been handled
+ *
+ * @author AntFlow
+ */
+@Data
+@TableName("t_bpm_timeout_remind_watermark")
+public class BpmTimeoutRemindWatermark implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+    /**
+     * job code
+     */
+    @TableField("job_code")
+    private String jobCode;
+    /**
+     * the job has handled every threshold crossed before this time
+     */
+    @TableField("last_time")
+    private Date lastTime;
+    @TableField(value = "update_time", fill = FieldFill.INSERT_UPDATE)
+    private Date updateTime;
+}
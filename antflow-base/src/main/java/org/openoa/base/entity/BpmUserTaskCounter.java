@@ -0,0 +1,52 @@
+package org.openoa.base.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * home page task counters of a user,adjusted by the process engine events and reconciled from the engine tables
+ *
+ * @author AntFlow
+ */
+@Data
+@TableName("t_bpm_user_task_counter")
+public class BpmUserTaskCounter implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+    @TableField("user_id")
+    private String userId;
+    /**
+     * pending tasks assigned to the user
+     */
+    @TableField("todo_count")
+    private Integer todoCount;
+    /**
+     * processes the user approved on count date
+     */
+    @TableField("done_today_count")
+    private Integer doneTodayCount;
+    /**
+     * processes the user started on count date
+     */
+    @TableField("created_today_count")
+    private Integer createdTodayCount;
+    /**
+     * the day the daily counts belong to
+     */
+    @TableField("count_date")
+    private Date countDate;
+    /**
+     * last time the counts were recomputed from the engine tables
+     */
+    @TableField("reconcile_time")
+    private Date reconcileTime;
+    @TableField("tenant_id")
+    private String tenantId;
+    @TableField(value = "update_time", fill = FieldFill.INSERT_UPDATE)
+    private Date updateTime;
+}
@@ -2,7 +2,9 @@ package org.openoa.base.interf;
 
 import com.google.common.collect.Lists;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -14,6 +16,8 @@ import java.util.concurrent.ConcurrentHashMap;
 public interface AdaptorService {
     //used to store supported business objects
     ConcurrentHashMap<String, List<Enum<?>>> SUPPORTED_BUSINESS =new ConcurrentHashMap<>();
+    //adaptor classes whose business objects have been set by getSupportBusinessObjects
+    Set<String> REGISTERED_ADAPTORS = ConcurrentHashMap.newKeySet();
     void setSupportBusinessObjects();
     default void  addSupportBusinessObjects(Enum<?>... businessObjects) {
         addSupportBusinessObjects("", businessObjects);
@@ -30,6 +34,17 @@ public interface AdaptorService {
             }
         }
     }
+    /**
+     * business objects supported under the given marker,they are set the first time an adaptor class is asked,
+     * unlike isSupportBusinessObject it does not set them again when an object is not supported
+     */
+    default List<Enum<?>> getSupportBusinessObjects(String marker) {
+        if (REGISTERED_ADAPTORS.add(this.getClass().getName())) {
+            setSupportBusinessObjects();
+        }
+        List<Enum<?>> enums = SUPPORTED_BUSINESS.get(this.getClass().getName() + marker);
+        return enums == null ? Collections.emptyList() : enums;
+    }
     /**
      * check whether given business object is supported
      */
@@ -5,7 +5,9 @@ import org.openoa.base.entity.BpmBusinessProcess;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface BpmBusinessProcessService extends IService<BpmBusinessProcess> {
     BpmBusinessProcess findBpmBusinessProcess(String businessId, String businessNumber);
@@ -23,6 +25,10 @@ public interface BpmBusinessProcessService extends IService<BpmBusinessProcess>
 
     boolean updateBpmBusinessProcess(String procInstId);
 
+    String getProcessKey(String procInstId);
+
+    Map<String, String> getProcessKeys(Collection<String> procInstIds);
+
     List<BpmBusinessProcess> listBpmBusinessProcess(List<String> processNumbers);
 
     boolean checkData(String processNumber);
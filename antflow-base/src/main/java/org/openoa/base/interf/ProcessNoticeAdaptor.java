@@ -2,8 +2,30 @@ package org.openoa.base.interf;
 
 import org.openoa.base.vo.UserMsgVo;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public interface ProcessNoticeAdaptor extends AdaptorService{
     void sendMessageBatchByType(List<UserMsgVo> userMsgVos);
+
+    /**
+     * send messages and wait for them,called by the notice outbox dispatcher,which retries the failed messages only.
+     * by default every message is sent on its own with {@link #sendMessageBatchByType(List)}
+     *
+     * @param userMsgVos messages
+     * @return indexes of the messages which were not sent
+     */
+    default Set<Integer> sendMessagesNow(List<UserMsgVo> userMsgVos) {
+        Set<Integer> failedIndexes = new HashSet<>();
+        for (int i = 0; i < userMsgVos.size(); i++) {
+            try {
+                sendMessageBatchByType(Collections.singletonList(userMsgVos.get(i)));
+            } catch (Exception e) {
+                failedIndexes.add(i);
+            }
+        }
+        return failedIndexes;
+    }
 }
@@ -5,6 +5,7 @@ import org.apache.ibatis.annotations.Param;
 import org.openoa.base.entity.Role;
 import org.openoa.base.entity.User;
 import org.openoa.base.vo.BaseIdTranStruVo;
+import org.openoa.base.vo.RoleUserVo;
 import org.springframework.stereotype.Repository;
 
 import java.util.Collection;
@@ -21,5 +22,7 @@ public interface RoleMapper {
     List<BaseIdTranStruVo> queryRoleByIds(@Param("roleIds") Collection<String> roleIds);
     List<BaseIdTranStruVo> queryUserByRoleIds(@Param("roleIds") Collection<String> roleIds);
 
+    List<RoleUserVo> queryRoleUsersByRoleIds(@Param("roleIds") Collection<String> roleIds);
+
     LinkedList<BaseIdTranStruVo> selectAll();
 }
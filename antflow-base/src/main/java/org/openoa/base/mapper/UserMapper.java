@@ -5,6 +5,7 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.openoa.base.entity.Employee;
 import org.openoa.base.vo.BaseIdTranStruVo;
+import org.openoa.base.vo.OrgNodeVo;
 import org.openoa.base.vo.TaskMgmtVO;
 
 import java.util.Collection;
@@ -25,6 +26,8 @@ public interface UserMapper {
     //must be implemented
     List<Employee> getEmployeeDetailByIds(@Param("employeeIds")Collection<String> ids);
     long checkEmployeeEffective(@Param("employeeId") String id);
+    //batch version of checkEmployeeEffective,returns ids of the effective employees among the given ones
+    List<String> queryEffectiveEmployeeIds(@Param("employeeIds") Collection<String> ids);
 
     //if you want to use level leader sign functions,you must implement it
     List<BaseIdTranStruVo> getLevelLeadersByEmployeeIdAndTier(@Param("employeeId") String employeeId,@Param("tier") Integer tier);
@@ -38,4 +41,10 @@ public interface UserMapper {
 
     BaseIdTranStruVo getLeaderByLeventDepartment(@Param("startUserId") String startUserId,@Param("assignLevelGrade")Integer departmentLevel);
 
+    //used by the organization index(OrgTreeIndex),the leader lookups above are served from it when antflow.org-index.enabled=true
+    List<OrgNodeVo> selectOrgDepartments();
+    List<OrgNodeVo> selectOrgEmployees();
+    //changes whenever a department or an employee the index loads is changed
+    String selectOrgVersion();
+
 }
@@ -5,10 +5,28 @@ import org.openoa.base.entity.User;
 import org.openoa.base.vo.BaseIdTranStruVo;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public interface AfRoleService {
     List<BaseIdTranStruVo> queryRoleByIds(Collection<String> roleIds);
 
     List<BaseIdTranStruVo> queryUserByRoleIds(Collection<String> roleIds);
+
+    /**
+     * members of every given role,
+     * override it with a single query when processes have many role nodes
+     *
+     * @param roleIds role ids
+     * @return role id -> members,every given role is a key
+     */
+    default Map<String, List<BaseIdTranStruVo>> queryUsersGroupByRoleIds(Collection<String> roleIds) {
+        Map<String, List<BaseIdTranStruVo>> roleUsers = new LinkedHashMap<>();
+        for (String roleId : roleIds) {
+            roleUsers.computeIfAbsent(roleId, id -> queryUserByRoleIds(Collections.singletonList(id)));
+        }
+        return roleUsers;
+    }
 }
@@ -4,11 +4,15 @@ import org.openoa.base.entity.Role;
 import org.openoa.base.entity.User;
 import org.openoa.base.mapper.RoleMapper;
 import org.openoa.base.vo.BaseIdTranStruVo;
+import org.openoa.base.vo.RoleUserVo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * used to provide role employee info by role ids
@@ -28,4 +32,19 @@ public class AfRoleServiceImpl implements AfRoleService{
     public List<BaseIdTranStruVo> queryUserByRoleIds(Collection<String> roleIds) {
         return rolesMapper.queryUserByRoleIds(roleIds);
     }
+    @Override
+    public Map<String, List<BaseIdTranStruVo>> queryUsersGroupByRoleIds(Collection<String> roleIds) {
+        Map<String, List<BaseIdTranStruVo>> roleUsers = new LinkedHashMap<>();
+        if (roleIds == null || roleIds.isEmpty()) {
+            return roleUsers;
+        }
+        for (String roleId : roleIds) {
+            roleUsers.put(roleId, new ArrayList<>());
+        }
+        for (RoleUserVo roleUser : rolesMapper.queryRoleUsersByRoleIds(roleIds)) {
+            roleUsers.computeIfAbsent(roleUser.getRoleId(), id -> new ArrayList<>())
+                    .add(BaseIdTranStruVo.builder().id(roleUser.getUserId()).name(roleUser.getUserName()).build());
+        }
+        return roleUsers;
+    }
 }
@@ -5,6 +5,7 @@ import org.openoa.base.vo.BaseIdTranStruVo;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public interface AfUserService {
     List<BaseIdTranStruVo> queryByNameFuzzy(String userName);
@@ -31,4 +32,15 @@ public interface AfUserService {
     List<Employee> getEmployeeDetailByIds(Collection<String> ids);
 
     long checkEmployeeEffective(String id);
+
+    /**
+     * batch version of {@link #checkEmployeeEffective(String)},
+     * override it with a single query when the recipients of a message are many
+     *
+     * @param ids employee ids
+     * @return ids of the effective employees
+     */
+    default List<String> queryEffectiveEmployeeIds(Collection<String> ids) {
+        return ids.stream().filter(id -> checkEmployeeEffective(id) > 0).collect(Collectors.toList());
+    }
 }
@@ -15,5 +15,13 @@ import java.util.Map;
  **/
 public interface BpmVariableSignUpPersonnelService extends IService<BpmVariableSignUpPersonnel> {
     List<BaseIdTranStruVo> getSignUpInfoByVariableAndElementId(Long variableId, String elementId);
+
+    /**
+     * sign up assignees of all the elements of a process variable,read at once instead of element by element
+     *
+     * @param variableId process variable id
+     * @return element id -> assignees
+     */
+    Map<String, List<BaseIdTranStruVo>> getSignUpInfoByVariableId(Long variableId);
     Map<String,String> getByProcessNumAndElementId(String processNumber, String elementId);
 }
@@ -0,0 +1,307 @@
+package org.openoa.base.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.openoa.base.mapper.UserMapper;
+import org.openoa.base.util.MultiTenantUtil;
+import org.openoa.base.vo.BaseIdTranStruVo;
+import org.openoa.base.vo.OrgNodeVo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * in memory index of the organization(t_department,t_user) used by the leader lookups of {@link UserServiceImpl}.
+ * <p>
+ * departments and employees are numbered,the ancestors of every department(taken from its path,nearest first) are
+ * kept as an int array and the leader,direct leader and hrbp of departments and employees as the numbers of the
+ * employees,so a level,loop,hrbp or direct leader lookup is a walk over arrays instead of splitting paths in sql,
+ * and the depth of the organization is no longer limited.
+ * there is one index per tenant(the default one is loaded on startup),it is reloaded when a lookup finds the
+ * organization changed,which is checked at most once every change-check-seconds;call {@link #refresh()} after
+ * changing the organization to see it at once.
+ * it is off by default(antflow.org-index.enabled),as it loads the organization with its own sql(selectOrgDepartments,
+ * selectOrgEmployees,selectOrgVersion of UserMapper) which has to be rewritten together with the leader queries when
+ * the user tables are replaced.if the index can not be loaded the lookups fall back to the leader queries.
+ */
+@Slf4j
+@Component
+public class OrgTreeIndex {
+    private static final int NONE = -1;
+    /**
+     * level of the departments without one,they are skipped by the lookups comparing levels
+     */
+    private static final int NO_LEVEL = Integer.MIN_VALUE;
+
+    @Value("${antflow.org-index.enabled:false}")
+    private boolean enabled;
+    @Value("${antflow.org-index.change-check-seconds:60}")
+    private long changeCheckSeconds;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    /**
+     * tenantId -> index
+     */
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    /**
+     * tenantId -> time the index failed to load,it is not tried again within change-check-seconds
+     */
+    private final Map<String, Long> loadFailures = new ConcurrentHashMap<>();
+
+    /**
+     * leaders of the departments from the department of the employee upwards
+     *
+     * @param employeeId employee id
+     * @param tier       max number of leaders
+     * @return leaders,nearest first
+     */
+    public List<BaseIdTranStruVo> getLeadersByTier(String employeeId, int tier) {
+        Snapshot snapshot = getSnapshot();
+        List<BaseIdTranStruVo> leaders = new ArrayList<>();
+        for (int department : snapshot.ancestorsOf(employeeId)) {
+            if (leaders.size() >= tier) {
+                break;
+            }
+            snapshot.addEmployee(leaders, snapshot.departmentLeaders[department]);
+        }
+        return leaders;
+    }
+
+    /**
+     * leaders of the departments from the department of the employee upwards whose level is greater than endGrade
+     *
+     * @param employeeId employee id
+     * @param endGrade   the level the lookup ends at(exclusive)
+     * @return leaders,nearest first
+     */
+    public List<BaseIdTranStruVo> getLeadersAboveGrade(String employeeId, int endGrade) {
+        Snapshot snapshot = getSnapshot();
+        List<BaseIdTranStruVo> leaders = new ArrayList<>();
+        for (int department : snapshot.ancestorsOf(employeeId)) {
+            int departmentLevel = snapshot.departmentLevels[department];
+            if (departmentLevel != NO_LEVEL && departmentLevel > endGrade) {
+                snapshot.addEmployee(leaders, snapshot.departmentLeaders[department]);
+            }
+        }
+        return leaders;
+    }
+
+    /**
+     * leader of the department of the given level above the employee,of the nearest level below it if there is none
+     *
+     * @param employeeId employee id
+     * @param level      department level
+     * @return leader,null if not found
+     */
+    public BaseIdTranStruVo getLeaderByLevel(String employeeId, int level) {
+        Snapshot snapshot = getSnapshot();
+        int leader = NONE;
+        int leaderLevel = NO_LEVEL;
+        for (int department : snapshot.ancestorsOf(employeeId)) {
+            int departmentLevel = snapshot.departmentLevels[department];
+            int departmentLeader = snapshot.departmentLeaders[department];
+            if (departmentLeader != NONE && departmentLevel <= level && departmentLevel > leaderLevel) {
+                leader = departmentLeader;
+                leaderLevel = departmentLevel;
+            }
+        }
+        return snapshot.toVo(leader);
+    }
+
+    /**
+     * @return hrbp of the employee,null if not found
+     */
+    public BaseIdTranStruVo getHrbp(String employeeId) {
+        Snapshot snapshot = getSnapshot();
+        Integer employee = snapshot.employeeNumbers.get(employeeId);
+        return employee == null ? null : snapshot.toVo(snapshot.employeeHrbps[employee]);
+    }
+
+    /**
+     * @return direct leader of the employee,null if not found
+     */
+    public BaseIdTranStruVo getDirectLeader(String employeeId) {
+        Snapshot snapshot = getSnapshot();
+        Integer employee = snapshot.employeeNumbers.get(employeeId);
+        return employee == null ? null : snapshot.toVo(snapshot.employeeLeaders[employee]);
+    }
+
+    /**
+     * load the index of the default tenant,the others are loaded on their first lookup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            getSnapshot();
+        } catch (Exception e) {
+            log.warn("failed to load the organization index,it will be loaded on first lookup", e);
+        }
+    }
+
+    /**
+     * drop the indexes of all tenants,they are reloaded on next lookup
+     */
+    public void refresh() {
+        snapshots.clear();
+        loadFailures.clear();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * whether the lookups can be served from the index,false if it is off or failed to load,the callers use the
+     * leader queries then
+     */
+    public boolean isAvailable() {
+        if (!enabled) {
+            return false;
+        }
+        String tenantId = StringUtils.defaultString(MultiTenantUtil.getCurrentTenantId());
+        Long failedAt = loadFailures.get(tenantId);
+        if (failedAt != null && System.currentTimeMillis() - failedAt < changeCheckSeconds * 1000) {
+            return false;
+        }
+        try {
+            getSnapshot();
+            loadFailures.remove(tenantId);
+            return true;
+        } catch (Exception e) {
+            log.error("failed to load the organization index of tenant {},the leader queries are used instead", tenantId, e);
+            loadFailures.put(tenantId, System.currentTimeMillis());
+            return false;
+        }
+    }
+
+    private Snapshot getSnapshot() {
+        String tenantId = StringUtils.defaultString(MultiTenantUtil.getCurrentTenantId());
+        Snapshot snapshot = snapshots.get(tenantId);
+        long now = System.currentTimeMillis();
+        if (snapshot != null && now - snapshot.checkedAt < changeCheckSeconds * 1000) {
+            return snapshot;
+        }
+        synchronized (this) {
+            snapshot = snapshots.get(tenantId);
+            if (snapshot != null && now - snapshot.checkedAt < changeCheckSeconds * 1000) {
+                return snapshot;
+            }
+            String version = StringUtils.defaultString(userMapper.selectOrgVersion());
+            if (snapshot != null && snapshot.version.equals(version)) {
+                snapshot.checkedAt = now;
+                return snapshot;
+            }
+            snapshot = load(version);
+            snapshot.checkedAt = now;
+            snapshots.put(tenantId, snapshot);
+            return snapshot;
+        }
+    }
+
+    private Snapshot load(String version) {
+        List<OrgNodeVo> departments = userMapper.selectOrgDepartments();
+        List<OrgNodeVo> employees = userMapper.selectOrgEmployees();
+        Snapshot snapshot = new Snapshot(version, departments.size(), employees.size());
+        for (int i = 0; i < employees.size(); i++) {
+            OrgNodeVo employee = employees.get(i);
+            snapshot.employeeIds[i] = employee.getId();
+            snapshot.employeeNames[i] = employee.getName();
+            snapshot.employeeNumbers.put(employee.getId(), i);
+        }
+        Map<String, Integer> departmentNumbers = new HashMap<>(departments.size() * 2);
+        for (int i = 0; i < departments.size(); i++) {
+            OrgNodeVo department = departments.get(i);
+            departmentNumbers.putIfAbsent(department.getId(), i);
+            snapshot.departmentLevels[i] = department.getLevel() == null ? NO_LEVEL : department.getLevel();
+            snapshot.departmentLeaders[i] = snapshot.numberOf(department.getLeaderId());
+        }
+        for (int i = 0; i < departments.size(); i++) {
+            String[] pathIds = StringUtils.split(StringUtils.defaultString(departments.get(i).getPath()), '/');
+            int[] ancestors = new int[pathIds.length];
+            int count = 0;
+            for (int j = pathIds.length - 1; j >= 0; j--) {
+                Integer ancestor = departmentNumbers.get(pathIds[j].trim());
+                if (ancestor != null) {
+                    ancestors[count++] = ancestor;
+                }
+            }
+            snapshot.departmentAncestors[i] = Arrays.copyOf(ancestors, count);
+        }
+        for (int i = 0; i < employees.size(); i++) {
+            OrgNodeVo employee = employees.get(i);
+            Integer department = employee.getDepartmentId() == null ? null : departmentNumbers.get(employee.getDepartmentId());
+            snapshot.employeeDepartments[i] = department == null ? NONE : department;
+            snapshot.employeeLeaders[i] = snapshot.numberOf(employee.getLeaderId());
+            snapshot.employeeHrbps[i] = snapshot.numberOf(employee.getHrbpId());
+        }
+        log.info("organization index loaded with {} departments and {} employees", departments.size(), employees.size());
+        return snapshot;
+    }
+
+    private static final class Snapshot {
+        private static final int[] NO_DEPARTMENTS = new int[0];
+
+        private final String version;
+        private volatile long checkedAt;
+
+        private final String[] employeeIds;
+        private final String[] employeeNames;
+        private final Map<String, Integer> employeeNumbers;
+        private final int[] employeeDepartments;
+        private final int[] employeeLeaders;
+        private final int[] employeeHrbps;
+
+        /**
+         * the department itself and its ancestors,nearest first
+         */
+        private final int[][] departmentAncestors;
+        private final int[] departmentLevels;
+        private final int[] departmentLeaders;
+
+        Snapshot(String version, int departmentCount, int employeeCount) {
+            this.version = version;
+            this.employeeIds = new String[employeeCount];
+            this.employeeNames = new String[employeeCount];
+            this.employeeNumbers = new HashMap<>(employeeCount * 2);
+            this.employeeDepartments = new int[employeeCount];
+            this.employeeLeaders = new int[employeeCount];
+            this.employeeHrbps = new int[employeeCount];
+            this.departmentAncestors = new int[departmentCount][];
+            this.departmentLevels = new int[departmentCount];
+            this.departmentLeaders = new int[departmentCount];
+        }
+
+        int numberOf(String employeeId) {
+            Integer number = employeeId == null ? null : employeeNumbers.get(employeeId);
+            return number == null ? NONE : number;
+        }
+
+        int[] ancestorsOf(String employeeId) {
+            Integer employee = employeeNumbers.get(employeeId);
+            if (employee == null || employeeDepartments[employee] == NONE) {
+                return NO_DEPARTMENTS;
+            }
+            return departmentAncestors[employeeDepartments[employee]];
+        }
+
+        void addEmployee(List<BaseIdTranStruVo> employees, int employee) {
+            if (employee != NONE) {
+                employees.add(toVo(employee));
+            }
+        }
+
+        BaseIdTranStruVo toVo(int employee) {
+            return employee == NONE ? null : BaseIdTranStruVo.builder().id(employeeIds[employee]).name(employeeNames[employee]).build();
+        }
+    }
+}
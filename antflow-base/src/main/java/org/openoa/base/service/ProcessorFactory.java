@@ -1,23 +1,57 @@
 package org.openoa.base.service;
 
+import lombok.Getter;
 import org.openoa.base.adp.OrderedBean;
 import org.openoa.base.util.SpringBeanUtils;
+import org.openoa.base.vo.ProcessorMetricsVo;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.List;
-
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+/**
+ * runs the ordered pre and post processors of an entity.
+ * <p>
+ * the processors of a (processor interface,entity class) are looked up from the bean factory,ordered and matched by
+ * their generic entity type only once,the chain is kept in a {@link ClassValue} of the processor interface and dropped
+ * when the application context is refreshed.the time taken by every processor is recorded,see {@link #getMetrics()}.
+ */
+@Component
 public class ProcessorFactory {
+    private static final ChainLink[] EMPTY_CHAIN = new ChainLink[0];
+    /**
+     * processor interfaces with resolved chains,to drop them on refresh
+     */
+    private static final Set<Class<?>> RESOLVED_PROCESSOR_TYPES = ConcurrentHashMap.newKeySet();
+    /**
+     * processor interface -> entity class -> ordered chain
+     */
+    private static final ClassValue<Map<Class<?>, ChainLink[]>> CHAINS = new ClassValue<Map<Class<?>, ChainLink[]>>() {
+        @Override
+        protected Map<Class<?>, ChainLink[]> computeValue(Class<?> type) {
+            RESOLVED_PROCESSOR_TYPES.add(type);
+            return new ConcurrentHashMap<>();
+        }
+    };
+    /**
+     * processor class name -> metrics,kept across refreshes
+     */
+    private static final Map<String, ProcessorMetrics> METRICS = new ConcurrentHashMap<>();
+
     public static <TEntity> void executePostProcessors(TEntity entity){
         executePostProcessors(AntFlowOrderPostProcessor.class,entity);
     }
     public static  <TProcessor extends AntFlowOrderPostProcessor<TEntity>,TEntity> void executePostProcessors(Class<TProcessor> processorClass,TEntity entity){
-        List<TProcessor> orderedPostProcessors = getOrderedPostProcessors(processorClass, entity.getClass());
-        for (TProcessor orderedPostProcessor : orderedPostProcessors) {
-            orderedPostProcessor.postProcess(entity);
-        }
+        execute(processorClass, entity, processor -> processor.postProcess(entity));
     }
     public static <TEntity> void  executePreReadProcessors(TEntity entity){
         executePreReadProcessors(AntFlowOrderPreProcessor.class,entity);
@@ -26,38 +60,147 @@ public class ProcessorFactory {
         executePreWriteProcessors(AntFlowOrderPreProcessor.class,entity);
     }
     public static  <TProcessor extends AntFlowOrderPreProcessor<TEntity>,TEntity> void executePreWriteProcessors(Class<TProcessor> processorClass, TEntity entity){
-        List<TProcessor> orderedPostProcessors = getOrderedPostProcessors(processorClass, entity.getClass());
-        for (TProcessor orderedPostProcessor : orderedPostProcessors) {
-            orderedPostProcessor.preWriteProcess(entity);
-        }
+        execute(processorClass, entity, processor -> processor.preWriteProcess(entity));
     }
     public static  <TProcessor extends AntFlowOrderPreProcessor<TEntity>,TEntity> void executePreReadProcessors(Class<TProcessor> processorClass, TEntity entity){
-        List<TProcessor> orderedPostProcessors = getOrderedPostProcessors(processorClass, entity.getClass());
-        for (TProcessor orderedPostProcessor : orderedPostProcessors) {
-            orderedPostProcessor.preReadProcess(entity);
+        execute(processorClass, entity, processor -> processor.preReadProcess(entity));
+    }
+
+    /**
+     * time taken by the processors
+     *
+     * @return processor class name -> metrics
+     */
+    public static Map<String, ProcessorMetrics> getMetrics() {
+        return Collections.unmodifiableMap(METRICS);
+    }
+
+    /**
+     * the processors which took the most time in total
+     *
+     * @param limit max number of processors returned
+     * @return processors in descending order of total time
+     */
+    public static List<ProcessorMetricsVo> getSlowestProcessors(int limit) {
+        return METRICS.entrySet()
+                .stream()
+                .map(entry -> entry.getValue().toVo(entry.getKey()))
+                .sorted(Comparator.comparing(ProcessorMetricsVo::getTotalMillis).reversed())
+                .limit(Math.max(limit, 0))
+                .collect(Collectors.toList());
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void onContextRefreshed() {
+        for (Class<?> processorType : RESOLVED_PROCESSOR_TYPES) {
+            CHAINS.remove(processorType);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <TProcessor extends OrderedBean> void execute(Class<TProcessor> processorCls, Object entity, Consumer<TProcessor> action) {
+        for (ChainLink link : getOrderedProcessors(processorCls, entity.getClass())) {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                action.accept((TProcessor) link.processor);
+                success = true;
+            } finally {
+                link.metrics.record(System.nanoTime() - start, success);
+            }
         }
     }
-    private static  <TProcessor extends OrderedBean,TEntity> List<TProcessor> getOrderedPostProcessors(Class<TProcessor> processorCls, Class<TEntity> cls){
-        List<TProcessor> orderedBeans = SpringBeanUtils.getOrderedBeans(processorCls);
-        List<TProcessor> processorsOfType=new ArrayList<>();
+
+    private static ChainLink[] getOrderedProcessors(Class<?> processorCls, Class<?> entityCls) {
+        return CHAINS.get(processorCls).computeIfAbsent(entityCls, cls -> resolveChain(processorCls, cls));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChainLink[] resolveChain(Class<?> processorCls, Class<?> cls) {
+        List<? extends OrderedBean> orderedBeans = SpringBeanUtils.getOrderedBeans((Class<OrderedBean>) processorCls);
+        List<OrderedBean> processorsOfType = new ArrayList<>();
         //if only one element gotten,it is a specified type bean,no need to do checks
-        if(orderedBeans.size()==1){
-            return orderedBeans;
-        }
-        for (TProcessor bean : orderedBeans) {
-            Type[] genericInterfaces = bean.getClass().getGenericInterfaces();
-            for (Type genericInterface : genericInterfaces) {
-                if (genericInterface instanceof ParameterizedType) {
-                    ParameterizedType parameterizedType = (ParameterizedType) genericInterface;
-                    Type[] actualTypeArguments = parameterizedType.getActualTypeArguments();
-                    for (Type actualTypeArgument : actualTypeArguments) {
-                       if(((Class<TEntity>) actualTypeArgument).isAssignableFrom(cls)){
-                            processorsOfType.add(bean);
-                       }
+        if (orderedBeans.size() == 1) {
+            processorsOfType.addAll(orderedBeans);
+        } else {
+            for (OrderedBean bean : orderedBeans) {
+                if (isProcessorOf(bean, cls)) {
+                    processorsOfType.add(bean);
+                }
+            }
+        }
+        if (processorsOfType.isEmpty()) {
+            return EMPTY_CHAIN;
+        }
+        ChainLink[] chain = new ChainLink[processorsOfType.size()];
+        for (int i = 0; i < chain.length; i++) {
+            OrderedBean processor = processorsOfType.get(i);
+            chain[i] = new ChainLink(processor, METRICS.computeIfAbsent(ClassUtils.getUserClass(processor).getName(), k -> new ProcessorMetrics()));
+        }
+        return chain;
+    }
+
+    private static boolean isProcessorOf(OrderedBean bean, Class<?> cls) {
+        //the generic interfaces of a proxied processor are on its user class
+        for (Type genericInterface : ClassUtils.getUserClass(bean).getGenericInterfaces()) {
+            if (genericInterface instanceof ParameterizedType) {
+                for (Type actualTypeArgument : ((ParameterizedType) genericInterface).getActualTypeArguments()) {
+                    if (actualTypeArgument instanceof Class && ((Class<?>) actualTypeArgument).isAssignableFrom(cls)) {
+                        return true;
                     }
                 }
             }
         }
-        return processorsOfType;
+        return false;
+    }
+
+    private static final class ChainLink {
+        private final OrderedBean processor;
+        private final ProcessorMetrics metrics;
+
+        private ChainLink(OrderedBean processor, ProcessorMetrics metrics) {
+            this.processor = processor;
+            this.metrics = metrics;
+        }
+    }
+
+    /**
+     * counters of the runs of one processor
+     */
+    @Getter
+    public static class ProcessorMetrics {
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos, boolean success) {
+            invocations.increment();
+            if (!success) {
+                failures.increment();
+            }
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        /**
+         * average time of a run in milliseconds
+         */
+        public double getAverageMillis() {
+            long count = invocations.sum();
+            return count == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / count;
+        }
+
+        private ProcessorMetricsVo toVo(String processor) {
+            return ProcessorMetricsVo
+                    .builder()
+                    .processor(processor)
+                    .invocations(invocations.sum())
+                    .failures(failures.sum())
+                    .totalMillis(totalNanos.sum() / 1_000_000.0)
+                    .averageMillis(getAverageMillis())
+                    .maxMillis(maxNanos.get() / 1_000_000.0)
+                    .build();
+        }
     }
 }
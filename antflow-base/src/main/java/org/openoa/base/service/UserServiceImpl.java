@@ -9,6 +9,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -19,12 +20,15 @@ import java.util.List;
  * 此类为默认实现,用户可以将sql替换为自己系统的sql,也可以自己实现AfUserService(方法较多,但是非必须都实现,前四个必须要实现的,后面的等运行时报错了,再实现也不迟到,不然一下子会很懵逼,不知道要干什么)
  * 前四个实现以后,基本的流程流转就ok了,后面的可以用到指定的demo时报错了再看修改,这些都是相对高级一些的功能,等你用到这部分的,也大概有一些基本的概念了,这时候再改些也相对较快了
  * 用户也可以不重写sql,而是自己实现AfUserService,然后将自己的实现标为@Primary即可
+ * 配置antflow.org-index.enabled=true时,层级领导,汇报线领导,hrbp,直属领导从组织架构索引(OrgTreeIndex)中查找,替换用户表时需要一并改写它加载数据的sql,索引加载失败时仍然使用下面的sql
  * 这里可能有一个误区,用户信息不是必须查sql(但是一般情况下是),只需要实现指定方法将用户的id和名称拿到即可,至于你是怎么拿的antflow不关心.比如你的用户信息是调用三方Restful接口返回的,返回结果只要封装成BaseIdTranStruVo即可
  */
 @Service("afUserService")
 public class UserServiceImpl implements AfUserService{
     @Autowired
     UserMapper userMapper;
+    @Autowired
+    OrgTreeIndex orgTreeIndex;
     @Override
     public List<BaseIdTranStruVo> queryByNameFuzzy(String userName) {
         List<BaseIdTranStruVo> users = userMapper.queryByNameFuzzy(userName);
@@ -53,6 +57,9 @@ public class UserServiceImpl implements AfUserService{
     }
     @Override
     public  List<BaseIdTranStruVo> queryLeadersByEmployeeIdAndTier(String employeeId, Integer tier){
+        if(orgTreeIndex.isAvailable()&&tier!=null){
+            return orgTreeIndex.getLeadersByTier(employeeId,tier);
+        }
         List<BaseIdTranStruVo> users = userMapper.getLevelLeadersByEmployeeIdAndTier(employeeId,tier);
         return users;
     }
@@ -65,6 +72,9 @@ public class UserServiceImpl implements AfUserService{
      */
     @Override
     public  List<BaseIdTranStruVo> queryLeadersByEmployeeIdAndGrade(String employeeId, Integer grade){
+        if(orgTreeIndex.isAvailable()&&grade!=null){
+            return orgTreeIndex.getLeadersAboveGrade(employeeId,grade);
+        }
         List<BaseIdTranStruVo> users = userMapper.getLevelLeadersByEmployeeIdAndEndGrade(employeeId,grade);
         return users;
     }
@@ -76,16 +86,24 @@ public class UserServiceImpl implements AfUserService{
      */
     @Override
     public BaseIdTranStruVo queryLeaderByEmployeeIdAndLevel(String employeeId, Integer level){
-
+        if(orgTreeIndex.isAvailable()&&level!=null){
+            return orgTreeIndex.getLeaderByLevel(employeeId,level);
+        }
         return userMapper.getLeaderByLeventDepartment(employeeId,level);
     }
     @Override
     public BaseIdTranStruVo queryEmployeeHrpbByEmployeeId(String employeeId){
+        if(orgTreeIndex.isAvailable()){
+            return orgTreeIndex.getHrbp(employeeId);
+        }
         BaseIdTranStruVo baseIdTranStruVo = userMapper.getHrpbByEmployeeId(employeeId);
         return baseIdTranStruVo;
     }
     @Override
     public BaseIdTranStruVo queryEmployeeDirectLeaderById(String employeeId){
+        if(orgTreeIndex.isAvailable()){
+            return orgTreeIndex.getDirectLeader(employeeId);
+        }
         BaseIdTranStruVo baseIdTranStruVo = userMapper.getDirectLeaderByEmployeeId(employeeId);
         return baseIdTranStruVo;
     }
@@ -120,4 +138,17 @@ public class UserServiceImpl implements AfUserService{
     public long checkEmployeeEffective(String id){
         return userMapper.checkEmployeeEffective(id);
     }
+
+    /**
+     * 批量检查员工是否有效,返回有效的员工id
+     * @param ids
+     * @return
+     */
+    @Override
+    public List<String> queryEffectiveEmployeeIds(Collection<String> ids){
+        if(ids==null||ids.isEmpty()){
+            return new ArrayList<>();
+        }
+        return userMapper.queryEffectiveEmployeeIds(ids);
+    }
 }
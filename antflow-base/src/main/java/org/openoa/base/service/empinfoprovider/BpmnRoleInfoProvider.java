@@ -10,6 +10,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -43,4 +44,15 @@ public class BpmnRoleInfoProvider implements BpmnRoleInfoProviderService{
         }
         return users.stream().collect(Collectors.toMap(a->a.getId().toString(),BaseIdTranStruVo::getName,(k1,k2)->k1));
     }
+
+    @Override
+    public Map<String, Map<String, String>> provideRoleEmployeeInfoByRole(Collection<String> roleIds) {
+        Map<String, Map<String, String>> roleEmployees = new LinkedHashMap<>();
+        if(CollectionUtils.isEmpty(roleIds)){
+            return roleEmployees;
+        }
+        roleService.queryUsersGroupByRoleIds(roleIds).forEach((roleId, users) -> roleEmployees.put(roleId,
+                users.stream().collect(Collectors.toMap(a -> a.getId().toString(), BaseIdTranStruVo::getName, (k1, k2) -> k1))));
+        return roleEmployees;
+    }
 }
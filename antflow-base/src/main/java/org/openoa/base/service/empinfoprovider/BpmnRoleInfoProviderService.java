@@ -1,6 +1,8 @@
 package org.openoa.base.service.empinfoprovider;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -11,4 +13,19 @@ import java.util.Map;
 public interface BpmnRoleInfoProviderService {
     Map<String,String> provideRoleInfo(Collection<String> roleIds);
     Map<String,String> provideRoleEmployeeInfo(Collection<String> roleIds);
+
+    /**
+     * batch version of {@link #provideRoleEmployeeInfo(Collection)} keeping the members of every role apart,
+     * override it with a single query when processes have many role nodes
+     *
+     * @param roleIds role ids
+     * @return role id -> (employee id -> employee name),every given role is a key
+     */
+    default Map<String,Map<String,String>> provideRoleEmployeeInfoByRole(Collection<String> roleIds){
+        Map<String,Map<String,String>> roleEmployees=new LinkedHashMap<>();
+        for (String roleId : roleIds) {
+            roleEmployees.computeIfAbsent(roleId,id->provideRoleEmployeeInfo(Collections.singletonList(id)));
+        }
+        return roleEmployees;
+    }
 }
@@ -14,8 +14,10 @@ import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Slf4j
 @Component
@@ -93,6 +95,32 @@ public class MailUtils {
         session.close();
     }
 
+    /**
+     * 批量发送邮件,逐封发送,一封失败不影响其他邮件
+     * send emails in one session,a failed one does not stop the others
+     *
+     * @param mailInfos
+     * @return indexes of the mails which were not sent
+     */
+    public Set<Integer> sendMailEach(List<MailInfo> mailInfos) {
+        Set<Integer> failedIndexes = new HashSet<>();
+        SendMailSession session = createSendMailSession();
+        session.open();
+        try {
+            for (int i = 0; i < mailInfos.size(); i++) {
+                try {
+                    session.sendMail(createEmail(mailInfos.get(i)));
+                } catch (Exception e) {
+                    log.error("failed to send mail to {}", mailInfos.get(i).getReceiver(), e);
+                    failedIndexes.add(i);
+                }
+            }
+        } finally {
+            session.close();
+        }
+        return failedIndexes;
+    }
+
     /**
      * 创建邮件服务
      *
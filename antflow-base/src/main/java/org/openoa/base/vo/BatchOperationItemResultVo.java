@@ -0,0 +1,31 @@
+package org.openoa.base.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * result of one operation of a batch button operation
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOperationItemResultVo implements Serializable {
+    /**
+     * position of the operation in the request
+     */
+    private Integer index;
+    private String processNumber;
+    private String taskId;
+    private Integer operationType;
+    private Boolean success;
+    /**
+     * error message if failed
+     */
+    private String message;
+    private Long costMillis;
+}
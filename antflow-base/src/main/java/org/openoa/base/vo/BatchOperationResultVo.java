@@ -0,0 +1,30 @@
+package org.openoa.base.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * result of a batch button operation
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOperationResultVo implements Serializable {
+    private Integer total;
+    private Integer succeeded;
+    private Integer failed;
+    /**
+     * wall clock time of the whole batch
+     */
+    private Long costMillis;
+    /**
+     * results in the order of the request
+     */
+    private List<BatchOperationItemResultVo> items;
+}
@@ -0,0 +1,52 @@
+package org.openoa.base.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * request of a bulk reassignment job,and its progress
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkReassignJobVo implements Serializable {
+    private Long id;
+    /**
+     * user whose tasks are reassigned
+     */
+    private String fromUserId;
+    private String fromUserName;
+    /**
+     * user the tasks are reassigned to
+     */
+    private String toUserId;
+    private String toUserName;
+    /**
+     * optional,only the processes of this form code are reassigned
+     */
+    private String formCode;
+    /**
+     * 0 pending,1 running,2 done,3 failed
+     */
+    private Integer status;
+    /**
+     * tasks and future approvals found when the job was first run
+     */
+    private Integer totalCount;
+    private Integer processedCount;
+    private Integer taskCount;
+    private Integer futureCount;
+    /**
+     * reassigned items per second since the job was started
+     */
+    private Double throughput;
+    private Date startTime;
+    private Date endTime;
+    private String lastError;
+}
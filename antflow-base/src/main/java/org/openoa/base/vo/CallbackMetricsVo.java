@@ -0,0 +1,37 @@
+package org.openoa.base.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * counters of the callbacks of one type to the business parties since the application was started
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CallbackMetricsVo implements Serializable {
+    /**
+     * callback type mark
+     */
+    private String callbackType;
+    private String callbackTypeDesc;
+    private Long requests;
+    private Long successes;
+    private Long failures;
+    private Long retries;
+    /**
+     * rejected because the business party or the transport was saturated
+     */
+    private Long rejected;
+    /**
+     * dropped because the circuit of the url was open
+     */
+    private Long shortCircuited;
+    private Double averageLatencyMillis;
+    private Double maxLatencyMillis;
+}
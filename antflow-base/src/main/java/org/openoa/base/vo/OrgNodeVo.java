@@ -0,0 +1,23 @@
+package org.openoa.base.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * a department or an employee as loaded into the organization index,
+ * departments have path,level and leaderId,employees have name,departmentId,leaderId and hrbpId
+ */
+@Data
+public class OrgNodeVo implements Serializable {
+    private String id;
+    private String name;
+    /**
+     * department path,ids of the departments from the root to this one,like /1/2/3
+     */
+    private String path;
+    private Integer level;
+    private String departmentId;
+    private String leaderId;
+    private String hrbpId;
+}
@@ -0,0 +1,27 @@
+package org.openoa.base.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * time taken by a pre or post processor since the application was started
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessorMetricsVo implements Serializable {
+    /**
+     * processor class name
+     */
+    private String processor;
+    private Long invocations;
+    private Long failures;
+    private Double totalMillis;
+    private Double averageMillis;
+    private Double maxMillis;
+}
@@ -0,0 +1,32 @@
+package org.openoa.base.vo;
+
+import lombok.Data;
+
+/**
+ * a running task or a future approval found by a bulk reassignment job
+ */
+@Data
+public class ReassignItemVo {
+    public static final int KIND_TASK = 0;
+    public static final int KIND_SINGLE = 1;
+    public static final int KIND_MULTIPLAYER = 2;
+    public static final int KIND_SIGN_UP = 3;
+
+    private Integer kind;
+    /**
+     * task id of a task,row id of a future approval
+     */
+    private String id;
+    private String procInstId;
+    private String processNumber;
+    private String formCode;
+    /**
+     * node id of a future approval,recorded in the entrust instead of the task id which does not exist yet
+     */
+    private String nodeId;
+    /**
+     * name of the process variable holding the assignees of a future approval
+     */
+    private String varName;
+    private String assigneeName;
+}
@@ -0,0 +1,32 @@
+package org.openoa.base.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * a member of a role
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoleUserVo implements Serializable {
+    /**
+     * role id
+     */
+    private String roleId;
+
+    /**
+     * user id
+     */
+    private String userId;
+
+    /**
+     * user name
+     */
+    private String userName;
+}
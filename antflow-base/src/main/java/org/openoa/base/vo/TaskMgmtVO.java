@@ -289,4 +289,18 @@ public class TaskMgmtVO implements Serializable {
      * version process keys
      */
     private List<String> versionProcessKeys;
+    /**
+     * tokens of the search text looked up in the process search index,set by the list service when the text has any
+     */
+    private List<String> searchTokens;
+    /**
+     * keyset paging cursor,as a search condition it is the cursor of the last record of the previous page and the
+     * records after it are returned,so deep pages cost the same as the first one.
+     * it is set on every todo,done and started record and is to be passed back as it is
+     */
+    private String cursor;
+    /**
+     * id of the inbox row a todo,done or started record is read from
+     */
+    private Long inboxId;
 }
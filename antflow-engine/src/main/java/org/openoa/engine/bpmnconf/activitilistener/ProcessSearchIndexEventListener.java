@@ -0,0 +1,60 @@
+package org.openoa.engine.bpmnconf.activitilistener;
+
+import org.activiti.engine.delegate.VariableScope;
+import org.activiti.engine.delegate.event.ActivitiEntityEvent;
+import org.activiti.engine.delegate.event.ActivitiEvent;
+import org.activiti.engine.delegate.event.ActivitiEventListener;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.openoa.engine.bpmnconf.common.ProcessSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * reindexes the processes whose tasks or assignees change,see {@link ProcessSearchIndex}
+ */
+@Component
+public class ProcessSearchIndexEventListener implements ActivitiEventListener {
+    @Autowired
+    @Lazy
+    private ProcessSearchIndex processSearchIndex;
+
+    @Override
+    public void onEvent(ActivitiEvent event) {
+        if (!processSearchIndex.isEnabled()) {
+            return;
+        }
+        switch (event.getType()) {
+            case TASK_CREATED:
+            case TASK_ASSIGNED:
+            case ENTITY_DELETED:
+                if (event instanceof ActivitiEntityEvent && ((ActivitiEntityEvent) event).getEntity() instanceof TaskEntity) {
+                    touch(((TaskEntity) ((ActivitiEntityEvent) event).getEntity()).getExecution());
+                }
+                break;
+            case PROCESS_STARTED:
+            case PROCESS_COMPLETED:
+                if (event instanceof ActivitiEntityEvent && ((ActivitiEntityEvent) event).getEntity() instanceof VariableScope) {
+                    touch((VariableScope) ((ActivitiEntityEvent) event).getEntity());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * the process number is a start variable of every process,see BpmnCreateBpmnAndStartImpl
+     */
+    private void touch(VariableScope variableScope) {
+        Object processNumber = variableScope == null ? null : variableScope.getVariable("processNumber");
+        if (processNumber != null) {
+            processSearchIndex.touch(processNumber.toString());
+        }
+    }
+
+    @Override
+    public boolean isFailOnException() {
+        return false;
+    }
+}
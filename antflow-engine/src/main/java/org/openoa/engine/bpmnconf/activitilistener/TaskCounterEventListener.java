@@ -0,0 +1,142 @@
+package org.openoa.engine.bpmnconf.activitilistener;
+
+import lombok.extern.slf4j.Slf4j;
+import org.activiti.engine.delegate.event.ActivitiEntityEvent;
+import org.activiti.engine.delegate.event.ActivitiEvent;
+import org.activiti.engine.delegate.event.ActivitiEventListener;
+import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.impl.identity.Authentication;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.openoa.base.constant.enums.ProcessNodeEnum;
+import org.openoa.base.vo.TaskMgmtVO;
+import org.openoa.engine.bpmnconf.common.UserTaskCounters;
+import org.openoa.engine.bpmnconf.mapper.BpmUserTaskCounterMapper;
+import org.openoa.engine.bpmnconf.mapper.TaskMgmtMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * keeps the home page task counters of users up to date,see {@link UserTaskCounters}.
+ * the counters are adjusted in the transaction of the engine command,so they are rolled back with it
+ */
+@Slf4j
+@Component
+public class TaskCounterEventListener implements ActivitiEventListener {
+    /**
+     * command context attribute holding the assignees the counters of the tasks touched by the command were moved to
+     */
+    private static final String COUNTED_ASSIGNEES = "antflow.taskCounter.countedAssignees";
+
+    @Autowired
+    @Lazy
+    private UserTaskCounters userTaskCounters;
+    @Autowired
+    @Lazy
+    private TaskMgmtMapper taskMgmtMapper;
+    @Autowired
+    @Lazy
+    private BpmUserTaskCounterMapper counterMapper;
+
+    @Override
+    public void onEvent(ActivitiEvent event) {
+        if (!userTaskCounters.isEnabled()) {
+            return;
+        }
+        switch (event.getType()) {
+            case TASK_CREATED:
+                //the create task listeners have run before,the assignee is final here
+                TaskEntity createdTask = getTask(event);
+                if (createdTask != null) {
+                    userTaskCounters.taskAssigned(createdTask.getAssignee());
+                    getCountedAssignees().put(createdTask.getId(), createdTask.getAssignee());
+                }
+                break;
+            case TASK_ASSIGNED:
+                onTaskAssigned(getTask(event));
+                break;
+            case TASK_COMPLETED:
+                onTaskCompleted(getTask(event));
+                break;
+            case ENTITY_DELETED:
+                //fired for completed tasks too
+                TaskEntity deletedTask = getTask(event);
+                if (deletedTask != null) {
+                    userTaskCounters.taskRemoved(deletedTask.getAssignee());
+                    getCountedAssignees().remove(deletedTask.getId());
+                }
+                break;
+            case PROCESS_STARTED:
+                userTaskCounters.processCreated(Authentication.getAuthenticatedUserId());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void onTaskAssigned(TaskEntity task) {
+        if (task == null) {
+            return;
+        }
+        Map<String, String> countedAssignees = getCountedAssignees();
+        String countedAssignee;
+        if (countedAssignees.containsKey(task.getId())) {
+            countedAssignee = countedAssignees.get(task.getId());
+        } else {
+            //not yet flushed,so the database still has the assignee before this command
+            TaskMgmtVO persisted = taskMgmtMapper.findTask(task.getId());
+            if (persisted == null) {
+                //the task is being created,it is counted on TASK_CREATED
+                return;
+            }
+            countedAssignee = persisted.getApplyUser();
+        }
+        if (Objects.equals(countedAssignee, task.getAssignee())) {
+            return;
+        }
+        userTaskCounters.taskReassigned(countedAssignee, task.getAssignee());
+        countedAssignees.put(task.getId(), task.getAssignee());
+    }
+
+    private void onTaskCompleted(TaskEntity task) {
+        if (task == null || ProcessNodeEnum.START_TASK_KEY.getDesc().equals(task.getTaskDefinitionKey())) {
+            return;
+        }
+        //done today counts processes,not tasks
+        int doneBefore = counterMapper.countDoneInProcessSince(task.getAssignee(), task.getProcessInstanceId(), task.getId(), userTaskCounters.today());
+        if (doneBefore == 0) {
+            userTaskCounters.processDone(task.getAssignee());
+        }
+    }
+
+    private TaskEntity getTask(ActivitiEvent event) {
+        if (event instanceof ActivitiEntityEvent && ((ActivitiEntityEvent) event).getEntity() instanceof TaskEntity) {
+            return (TaskEntity) ((ActivitiEntityEvent) event).getEntity();
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String> getCountedAssignees() {
+        CommandContext commandContext = Context.getCommandContext();
+        if (commandContext == null) {
+            return new HashMap<>();
+        }
+        Map<String, String> countedAssignees = (Map<String, String>) commandContext.getAttribute(COUNTED_ASSIGNEES);
+        if (countedAssignees == null) {
+            countedAssignees = new HashMap<>();
+            commandContext.addAttribute(COUNTED_ASSIGNEES, countedAssignees);
+        }
+        return countedAssignees;
+    }
+
+    @Override
+    public boolean isFailOnException() {
+        return false;
+    }
+}
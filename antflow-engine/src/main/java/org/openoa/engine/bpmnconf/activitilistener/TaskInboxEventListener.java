@@ -0,0 +1,100 @@
+package org.openoa.engine.bpmnconf.activitilistener;
+
+import org.activiti.engine.delegate.VariableScope;
+import org.activiti.engine.delegate.event.ActivitiEntityEvent;
+import org.activiti.engine.delegate.event.ActivitiEvent;
+import org.activiti.engine.delegate.event.ActivitiEventListener;
+import org.activiti.engine.impl.identity.Authentication;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.openoa.base.entity.BpmTaskInbox;
+import org.openoa.engine.bpmnconf.common.TaskInbox;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+
+/**
+ * keeps the task inbox of users up to date,see {@link TaskInbox}.
+ * the rows are written in the transaction of the engine command,so they are rolled back with it
+ */
+@Component
+public class TaskInboxEventListener implements ActivitiEventListener {
+    @Autowired
+    @Lazy
+    private TaskInbox taskInbox;
+
+    @Override
+    public void onEvent(ActivitiEvent event) {
+        if (!taskInbox.isEnabled()) {
+            return;
+        }
+        switch (event.getType()) {
+            case TASK_CREATED:
+            case TASK_ASSIGNED:
+                //a task created with an assignee is assigned before it is created,one created without one is assigned when claimed
+                TaskEntity task = getTask(event);
+                if (task != null) {
+                    BpmTaskInbox inbox = newInbox(task.getExecution(), task.getProcessInstanceId());
+                    inbox.setProcDefId(task.getProcessDefinitionId());
+                    inbox.setAssignee(task.getAssignee());
+                    inbox.setKind(BpmTaskInbox.KIND_TASK);
+                    inbox.setTaskId(task.getId());
+                    inbox.setNodeKey(task.getTaskDefinitionKey());
+                    inbox.setNodeName(task.getName());
+                    inbox.setSortTime(task.getCreateTime() != null ? task.getCreateTime() : new Date());
+                    taskInbox.assign(inbox);
+                }
+                break;
+            case ENTITY_DELETED:
+                //fired for completed tasks too
+                TaskEntity deletedTask = getTask(event);
+                if (deletedTask != null) {
+                    taskInbox.taskEnded(deletedTask.getId(), deletedTask.getTaskDefinitionKey(), new Date());
+                }
+                break;
+            case PROCESS_STARTED:
+                if (event instanceof ActivitiEntityEvent && ((ActivitiEntityEvent) event).getEntity() instanceof VariableScope) {
+                    BpmTaskInbox inbox = newInbox((VariableScope) ((ActivitiEntityEvent) event).getEntity(), event.getProcessInstanceId());
+                    inbox.setProcDefId(event.getProcessDefinitionId());
+                    inbox.setAssignee(Authentication.getAuthenticatedUserId());
+                    inbox.setKind(BpmTaskInbox.KIND_STARTED);
+                    inbox.setSortTime(new Date());
+                    taskInbox.add(inbox);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * the process number and form code are start variables of every process,see BpmnCreateBpmnAndStartImpl
+     */
+    private BpmTaskInbox newInbox(VariableScope variableScope, String procInstId) {
+        BpmTaskInbox inbox = new BpmTaskInbox();
+        inbox.setProcInstId(procInstId);
+        inbox.setState(BpmTaskInbox.STATE_TODO);
+        if (variableScope != null) {
+            inbox.setProcessNumber(toString(variableScope.getVariable("processNumber")));
+            inbox.setFormCode(toString(variableScope.getVariable("formCode")));
+        }
+        return inbox;
+    }
+
+    private static String toString(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private TaskEntity getTask(ActivitiEvent event) {
+        if (event instanceof ActivitiEntityEvent && ((ActivitiEntityEvent) event).getEntity() instanceof TaskEntity) {
+            return (TaskEntity) ((ActivitiEntityEvent) event).getEntity();
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isFailOnException() {
+        return false;
+    }
+}
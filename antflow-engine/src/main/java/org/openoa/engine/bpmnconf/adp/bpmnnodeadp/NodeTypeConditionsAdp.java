@@ -21,6 +21,7 @@ import org.openoa.engine.bpmnconf.mapper.BpmnNodeConditionsConfMapper;
 import org.openoa.engine.bpmnconf.service.BpmnConfLfFormdataFieldServiceImpl;
 import org.openoa.engine.bpmnconf.service.impl.BpmnNodeConditionsConfServiceImpl;
 import org.openoa.engine.bpmnconf.service.impl.BpmnNodeConditionsParamConfServiceImpl;
+import org.openoa.engine.lowflow.service.BpmnConfLFFormDataBizServiceImpl;
 import org.openoa.base.exception.AFBizException;
 import org.openoa.base.util.SpringBeanUtils;
 import org.openoa.engine.utils.BpmnConfNodePropertyConverter;
@@ -52,6 +53,8 @@ public class NodeTypeConditionsAdp extends BpmnNodeAdaptor {
     private BpmnNodeConditionsConfMapper confMapper;
     @Autowired
     private BpmnConfLfFormdataFieldServiceImpl lfFormdataFieldService;
+    @Autowired
+    private BpmnConfLFFormDataBizServiceImpl lfFormDataBizService;
 
     @Override
     public BpmnNodeVo formatToBpmnNodeVo(BpmnNodeVo bpmnNodeVo) {
@@ -341,6 +344,7 @@ public class NodeTypeConditionsAdp extends BpmnNodeAdaptor {
                         }
                         Long confId = bpmnNodeVo.getConfId();
                         lfFormdataFieldService.getBaseMapper().updateByConfIdAndFieldName(confId,columnDbname);
+                        lfFormDataBizService.refreshFieldConf(confId);
                     }
 
                 }
@@ -0,0 +1,161 @@
+package org.openoa.engine.bpmnconf.adp.conditionfilter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.openoa.base.constant.enums.ConditionRelationShipEnum;
+import org.openoa.base.exception.AFBizException;
+import org.openoa.base.util.SpringBeanUtils;
+import org.openoa.base.vo.BpmnNodeConditionsConfBaseVo;
+import org.openoa.base.vo.BpmnStartConditionsVo;
+import org.openoa.engine.bpmnconf.constant.enus.ConditionTypeEnum;
+import org.springframework.util.CollectionUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * a node's conditions conf compiled into an evaluation plan.
+ * condition types are already deduplicated and bound to their judge beans,group relations resolved to booleans,
+ * so evaluating it for a request is just walking arrays with and/or short circuit.
+ * a plan only depends on the structure of the conf,the configured values are still read by the judges from the conf passed in.
+ *
+ * @author AntFlow
+ * @since 0.5
+ */
+@Slf4j
+public final class ConditionEvaluationPlan {
+
+    private static final ConditionEvaluationPlan ALWAYS_FALSE = new ConditionEvaluationPlan(0, new Group[0], null);
+
+    /**
+     * structural signature of the conf the plan was compiled from
+     */
+    private final int signature;
+    private final Group[] groups;
+    /**
+     * relation between groups
+     */
+    private final boolean groupAnd;
+    private final boolean groupOr;
+
+    private ConditionEvaluationPlan(int signature, Group[] groups, Integer groupRelation) {
+        this.signature = signature;
+        this.groups = groups;
+        this.groupAnd = Objects.equals(groupRelation, ConditionRelationShipEnum.AND.getCode());
+        this.groupOr = Objects.equals(groupRelation, ConditionRelationShipEnum.OR.getCode());
+    }
+
+    public static int signatureOf(BpmnNodeConditionsConfBaseVo conditionsConf) {
+        return Objects.hash(conditionsConf.getGroupedConditionParamTypes(), conditionsConf.getGroupedCondRelations(),
+                conditionsConf.getGroupRelation());
+    }
+
+    public static ConditionEvaluationPlan compile(BpmnNodeConditionsConfBaseVo conditionsConf) {
+        Map<Integer, List<Integer>> groupedConditionParamTypes = conditionsConf.getGroupedConditionParamTypes();
+        if (CollectionUtils.isEmpty(groupedConditionParamTypes)) {
+            return ALWAYS_FALSE;
+        }
+        Map<Integer, Integer> groupedCondRelations = conditionsConf.getGroupedCondRelations();
+        Group[] groups = new Group[groupedConditionParamTypes.size()];
+        int index = 0;
+        for (Map.Entry<Integer, List<Integer>> conditionTypeEntry : groupedConditionParamTypes.entrySet()) {
+            Integer currentGroup = conditionTypeEntry.getKey();
+            Integer condRelation = groupedCondRelations == null ? null : groupedCondRelations.get(currentGroup);
+            List<Integer> conditionParamTypeList = conditionTypeEntry.getValue();
+            ConditionJudge[] judges = null;
+            Integer unknownType = null;
+            if (!CollectionUtils.isEmpty(conditionParamTypeList)) {
+                List<Integer> distinctTypes = conditionParamTypeList.stream().distinct().collect(Collectors.toList());
+                judges = new ConditionJudge[distinctTypes.size()];
+                for (int i = 0; i < distinctTypes.size(); i++) {
+                    ConditionTypeEnum conditionTypeEnum = ConditionTypeEnum.getEnumByCode(distinctTypes.get(i));
+                    if (conditionTypeEnum == null) {
+                        unknownType = distinctTypes.get(i);
+                        break;
+                    }
+                    judges[i] = SpringBeanUtils.getBean(conditionTypeEnum.getConditionJudgeCls());
+                }
+            }
+            groups[index++] = new Group(currentGroup == null ? 0 : currentGroup, condRelation, judges, unknownType);
+        }
+        return new ConditionEvaluationPlan(signatureOf(conditionsConf), groups, conditionsConf.getGroupRelation());
+    }
+
+    public int getSignature() {
+        return signature;
+    }
+
+    public boolean evaluate(String nodeId, BpmnNodeConditionsConfBaseVo conditionsConf, BpmnStartConditionsVo bpmnStartConditionsVo) {
+        if (groups.length == 0) {
+            return false;
+        }
+        boolean result = true;
+        for (Group group : groups) {
+            if (group.condRelation == null) {
+                throw new AFBizException("logic error,please contact the Administrator");
+            }
+            if (group.judges == null) {
+                result = false;
+                break;
+            }
+            if (group.unknownType != null) {
+                log.info("condition type is null,type:{}", group.unknownType);
+                throw new AFBizException("logic error,please contact the Administrator");
+            }
+            result = group.evaluate(nodeId, conditionsConf, bpmnStartConditionsVo);
+            //条件组之间如果为且关系,如果有一个条件组评估为false,则立刻返回false
+            if (groupAnd && !result) {
+                break;
+            }
+            //条件组之间如果为或关系,如果有一个条件组评估为true,则立刻返回true
+            if (groupOr && result) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private static final class Group {
+        private final int group;
+        private final Integer condRelation;
+        private final boolean and;
+        private final boolean or;
+        private final ConditionJudge[] judges;
+        private final Integer unknownType;
+
+        private Group(int group, Integer condRelation, ConditionJudge[] judges, Integer unknownType) {
+            this.group = group;
+            this.condRelation = condRelation;
+            this.and = ConditionRelationShipEnum.AND.getCode().equals(condRelation);
+            this.or = ConditionRelationShipEnum.OR.getCode().equals(condRelation);
+            this.judges = judges;
+            this.unknownType = unknownType;
+        }
+
+        private boolean evaluate(String nodeId, BpmnNodeConditionsConfBaseVo conditionsConf, BpmnStartConditionsVo bpmnStartConditionsVo) {
+            boolean currentGroupResult = true;
+            for (ConditionJudge judge : judges) {
+                try {
+                    if (!judge.judge(nodeId, conditionsConf, bpmnStartConditionsVo, group)) {
+                        currentGroupResult = false;
+                        //如果是且关系,有一个条件判断为false则终止判断
+                        if (and) {
+                            break;
+                        }
+                    } else {
+                        //如果是或关系,有一个条件判断为true则终止判断
+                        currentGroupResult = true;
+                        if (or) {
+                            break;
+                        }
+                    }
+                } catch (AFBizException e) {
+                    log.info("condition judge business exception:{}", e.getMessage());
+                    throw e;
+                }
+            }
+            return currentGroupResult;
+        }
+    }
+}
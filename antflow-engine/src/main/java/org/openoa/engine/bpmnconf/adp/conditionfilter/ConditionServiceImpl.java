@@ -2,24 +2,21 @@ package org.openoa.engine.bpmnconf.adp.conditionfilter;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.openoa.base.constant.StringConstants;
-import org.openoa.base.constant.enums.ConditionRelationShipEnum;
 import org.openoa.base.interf.ConditionService;
 import org.openoa.base.vo.BpmnNodeVo;
 import org.openoa.base.entity.BpmDynamicConditionChoosen;
-import org.openoa.engine.bpmnconf.constant.enus.ConditionTypeEnum;
 import org.openoa.base.vo.BpmnNodeConditionsConfBaseVo;
 import org.openoa.base.vo.BpmnStartConditionsVo;
 import org.openoa.base.exception.AFBizException;
-import org.openoa.base.util.SpringBeanUtils;
 import org.openoa.engine.bpmnconf.mapper.BpmDynamicConditionChoosenMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
 
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -32,70 +29,15 @@ public class ConditionServiceImpl implements ConditionService {
     @Autowired
     private BpmDynamicConditionChoosenMapper dynamicConditionChoosenMapper;
 
+    private final Cache<Long, ConditionEvaluationPlan> evaluationPlanCache = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .build();
+
     @Override
     public boolean checkMatchCondition(BpmnNodeVo bpmnNodeVo, BpmnNodeConditionsConfBaseVo conditionsConf
             , BpmnStartConditionsVo bpmnStartConditionsVo,boolean isDynamicConditionGateway) {
         String nodeId=bpmnNodeVo.getNodeId();
-        Map<Integer, List<Integer>> groupedConditionParamTypes = conditionsConf.getGroupedConditionParamTypes();
-        if(CollectionUtils.isEmpty(groupedConditionParamTypes)){
-            return false;
-        }
-        boolean result = true;
-        Integer groupRelation = conditionsConf.getGroupRelation();
-
-        for (Map.Entry<Integer, List<Integer>> conditionTypeEntry : groupedConditionParamTypes.entrySet()) {
-            Integer currentGroup = conditionTypeEntry.getKey();
-            Integer condRelation=conditionsConf.getGroupedCondRelations().get(currentGroup);
-            boolean currentGroupResult=true;
-            if(condRelation==null){
-                throw new AFBizException("logic error,please contact the Administrator");
-            }
-            List<Integer> conditionParamTypeList=conditionTypeEntry.getValue();
-            if (CollectionUtils.isEmpty(conditionParamTypeList)) {
-                result=false;
-                break;
-            }
-            conditionParamTypeList=conditionParamTypeList.stream().distinct().collect(Collectors.toList());
-
-
-            for (Integer integer : conditionParamTypeList) {
-                ConditionTypeEnum conditionTypeEnum = ConditionTypeEnum.getEnumByCode(integer);
-                if (conditionTypeEnum == null) {
-                    log.info("condition type is null,type:{}", integer);
-                    throw new AFBizException("logic error,please contact the Administrator");
-                }
-                try {
-                    if (!SpringBeanUtils.getBean(conditionTypeEnum.getConditionJudgeCls()).judge(nodeId, conditionsConf, bpmnStartConditionsVo,currentGroup)) {
-                        currentGroupResult = false;
-                        //如果是且关系,有一个条件判断为false则终止判断
-                        if(condRelation.equals(ConditionRelationShipEnum.AND.getCode())){
-
-                            break;
-                        }
-                    }else {
-                        //如果是或关系,有一个条件判断为true则终止判断
-                        currentGroupResult=true;
-                        if(condRelation.equals(ConditionRelationShipEnum.OR.getCode())){
-
-                            break;
-                        }
-                    }
-                } catch (AFBizException e) {
-                    log.info("condition judge business exception:{}", e.getMessage());
-                    throw e;
-                } catch (Exception e) {
-                    log.error("conditionJudgeClass instantiate failure", e);
-                    throw  e;
-                }
-            }
-            result = currentGroupResult;
-            if(groupRelation==ConditionRelationShipEnum.AND.getCode()&&!result){//条件组之间如果为且关系,如果有一个条件组评估为false,则立刻返回false
-               break;
-            }
-            if(groupRelation==ConditionRelationShipEnum.OR.getCode()&&result){//条件组之间如果为或关系,如果有一个条件组评估为true,则立刻返回true
-                break;
-            }
-        }
+        boolean result = getEvaluationPlan(bpmnNodeVo, conditionsConf).evaluate(nodeId, conditionsConf, bpmnStartConditionsVo);
 
         //关于默认条件,默认条件不记在表内,
         //1.如果之前是默认条件,本次不是默认,则迁移预校验会查不到,也能说明条件发生了变化,没问题.如果两次都是默认条件,则说明条件没有变化,没问题
@@ -133,4 +75,21 @@ public class ConditionServiceImpl implements ConditionService {
         }
         return result;
     }
+
+    /**
+     * get the compiled evaluation plan of a node's conditions,plans are cached by node's id,
+     * which never changes its conditions once saved,the structural signature guards against a mismatched conf anyway
+     */
+    private ConditionEvaluationPlan getEvaluationPlan(BpmnNodeVo bpmnNodeVo, BpmnNodeConditionsConfBaseVo conditionsConf) {
+        Long id = bpmnNodeVo.getId();
+        if (id == null) {
+            return ConditionEvaluationPlan.compile(conditionsConf);
+        }
+        ConditionEvaluationPlan plan = evaluationPlanCache.getIfPresent(id);
+        if (plan == null || plan.getSignature() != ConditionEvaluationPlan.signatureOf(conditionsConf)) {
+            plan = ConditionEvaluationPlan.compile(conditionsConf);
+            evaluationPlanCache.put(id, plan);
+        }
+        return plan;
+    }
 }
@@ -8,13 +8,17 @@ import org.openoa.base.vo.BpmnStartConditionsVo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Field;
 import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 为支持1<a<2这种类型的比较设计的,如果是普通的单值比较,请使用AbstractComparableJudge,第二个参数值为null即可
  */
 public abstract class AbstractBinaryComparableJudge extends AbstractComparableJudge{
     private static final Logger log = LoggerFactory.getLogger(AbstractBinaryComparableJudge.class);
+    private static final Map<String, Field> FIELD_CACHE = new ConcurrentHashMap<>();
 
     @Override
     public boolean judge(String nodeId, BpmnNodeConditionsConfBaseVo conditionsConf, BpmnStartConditionsVo bpmnStartConditionsVo, int group) {
@@ -30,8 +34,8 @@ public abstract class AbstractBinaryComparableJudge extends AbstractComparableJu
         //运算符类型
         Integer theOperatorType = conditionsConf.getNumberOperator();
         try {
-            Object varInDb = FieldUtils.readField(conditionsConf, fieldNameInDb, true);
-            Object varOfUser = FieldUtils.readField(bpmnStartConditionsVo, fieldNameActual, true);
+            Object varInDb = readField(conditionsConf, fieldNameInDb);
+            Object varOfUser = readField(bpmnStartConditionsVo, fieldNameActual);
             if(varInDb==null||varOfUser==null){
                 return false;
             }
@@ -58,6 +62,17 @@ public abstract class AbstractBinaryComparableJudge extends AbstractComparableJu
 
         return super.compareJudge(fieldValue1InDbbig,fieldValue2InDbBig,fieldValueActualbig,theOperatorType);
     }
+    /**
+     * same as FieldUtils.readField,but the resolved field is kept to avoid walking the class hierarchy on every judge
+     */
+    private static Object readField(Object target, String fieldName) throws IllegalAccessException {
+        Class<?> cls = target.getClass();
+        Field field = FIELD_CACHE.computeIfAbsent(cls.getName() + "#" + fieldName, k -> FieldUtils.getField(cls, fieldName, true));
+        if (field == null) {
+            throw new IllegalArgumentException("Cannot locate declared field " + cls.getName() + "." + fieldName);
+        }
+        return field.get(target);
+    }
     //数据库中配置的条件名称,即配置条件模板时使用的,一般情况下如果是单值,建议使用一样的名字
     //但是可能模板配置的是集合类型,实际中提供的是单值,比如模板中是省份集合,实际条件是某一个省份,这时候再使用同样的字段名就不便于理解
     protected abstract String fieldNameInDb();
@@ -1,5 +1,7 @@
 package org.openoa.engine.bpmnconf.adp.conditionfilter.conditionjudge;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.openoa.base.vo.BpmnNodeConditionsConfBaseVo;
@@ -12,38 +14,66 @@ import java.math.RoundingMode;
 @Service
 @Slf4j
 public class LFNumberFormatJudge extends AbstractLFConditionJudge{
+    private static final Cache<String, ConfNumber> CONF_NUMBER_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .build();
+
     @Override
     public boolean judge(String nodeId, BpmnNodeConditionsConfBaseVo conditionsConf, BpmnStartConditionsVo bpmnStartConditionsVo,int group) {
 
        return super.lfCommonJudge(conditionsConf,bpmnStartConditionsVo,(a,b,c)->{
-           String[] split = a.toString().split(",");
-           boolean isBooleanValue=false;
-           BigDecimal valueinDbBig1 = null;
-           try {
-               valueinDbBig1=new BigDecimal(split[0]);
-           }catch (Exception e){
-               boolean parsedBoolean = Boolean.parseBoolean(split[0]);
-               valueinDbBig1=parsedBoolean?new BigDecimal("1"):new BigDecimal("0");
-               isBooleanValue=true;
-           }
-           BigDecimal valueinDbBig2=null;
-           if (split.length>1){
-               if(isBooleanValue){
-                   boolean parsedBoolean = Boolean.parseBoolean(split[1]);
-                   valueinDbBig2=parsedBoolean?new BigDecimal("1"):new BigDecimal("0");
-               }else{
-                   valueinDbBig2=new BigDecimal(split[1]);
-               }
-           }
+           ConfNumber confNumber = parseConfNumber(a.toString());
            BigDecimal userValue =null;
-           if(isBooleanValue){
+           if(confNumber.isBooleanValue){
                boolean parsedBoolean = Boolean.parseBoolean(b.toString());
-               userValue=parsedBoolean?new BigDecimal("1"):new BigDecimal("0");
+               userValue=parsedBoolean?BigDecimal.ONE:BigDecimal.ZERO;
            }else{
                userValue= NumberUtils.toScaledBigDecimal(b.toString(), 2, RoundingMode.HALF_UP);;
            }
-           return super.compareJudge(valueinDbBig1,valueinDbBig2,userValue,c);
+           return super.compareJudge(confNumber.value1,confNumber.value2,userValue,c);
        },group);
     }
 
+    /**
+     * configured values are constants of a saved conf,parse each of them only once
+     */
+    private static ConfNumber parseConfNumber(String valueInDb) {
+        ConfNumber confNumber = CONF_NUMBER_CACHE.getIfPresent(valueInDb);
+        if (confNumber == null) {
+            confNumber = new ConfNumber(valueInDb);
+            CONF_NUMBER_CACHE.put(valueInDb, confNumber);
+        }
+        return confNumber;
+    }
+
+    private static final class ConfNumber {
+        private final BigDecimal value1;
+        private final BigDecimal value2;
+        private final boolean isBooleanValue;
+
+        private ConfNumber(String valueInDb) {
+            String[] split = valueInDb.split(",");
+            boolean isBooleanValue=false;
+            BigDecimal valueinDbBig1 = null;
+            try {
+                valueinDbBig1=new BigDecimal(split[0]);
+            }catch (Exception e){
+                boolean parsedBoolean = Boolean.parseBoolean(split[0]);
+                valueinDbBig1=parsedBoolean?BigDecimal.ONE:BigDecimal.ZERO;
+                isBooleanValue=true;
+            }
+            BigDecimal valueinDbBig2=null;
+            if (split.length>1){
+                if(isBooleanValue){
+                    boolean parsedBoolean = Boolean.parseBoolean(split[1]);
+                    valueinDbBig2=parsedBoolean?BigDecimal.ONE:BigDecimal.ZERO;
+                }else{
+                    valueinDbBig2=new BigDecimal(split[1]);
+                }
+            }
+            this.value1 = valueinDbBig1;
+            this.value2 = valueinDbBig2;
+            this.isBooleanValue = isBooleanValue;
+        }
+    }
 }
@@ -10,8 +10,8 @@ import org.springframework.util.CollectionUtils;
 
 import java.util.List;
 import java.util.Map;
-import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 public abstract class AbstractMessageSendAdaptor<T> implements ProcessNoticeAdaptor {
@@ -29,4 +29,11 @@ public abstract class AbstractMessageSendAdaptor<T> implements ProcessNoticeAdap
         }
         return map;
     }
+
+    /**
+     * receivers of the messages,in the order of the messages
+     */
+    protected List<String> userIds(List<UserMsgVo> userMsgVos) {
+        return userMsgVos.stream().map(UserMsgVo::getUserId).collect(Collectors.toList());
+    }
 }
@@ -8,6 +8,8 @@ import org.springframework.stereotype.Component;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Component
 public class AppPushAdaptor  extends AbstractMessageSendAdaptor<BaseMsgInfo>{
@@ -17,6 +19,12 @@ public class AppPushAdaptor  extends AbstractMessageSendAdaptor<BaseMsgInfo>{
         messageService.sendAppPushBatch(stringBaseMsgInfoMap);
     }
 
+    @Override
+    public Set<Integer> sendMessagesNow(List<UserMsgVo> userMsgVos) {
+        return messageService.sendAppPushNow(userIds(userMsgVos),
+                userMsgVos.stream().map(UserMsgUtils::buildBaseMsgInfo).collect(Collectors.toList()));
+    }
+
     @Override
     public void setSupportBusinessObjects() {
         addSupportBusinessObjects(MessageSendTypeEnum.PUSH);
@@ -9,6 +9,8 @@ import org.springframework.stereotype.Component;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
@@ -19,6 +21,12 @@ public class EmailSendAdaptor extends AbstractMessageSendAdaptor<MailInfo>{
         messageService.sendMailBatch(stringMailInfoMap);
     }
 
+    @Override
+    public Set<Integer> sendMessagesNow(List<UserMsgVo> userMsgVos) {
+        return messageService.sendMailsNow(userIds(userMsgVos),
+                userMsgVos.stream().map(UserMsgUtils::buildMailInfo).collect(Collectors.toList()));
+    }
+
     @Override
     public void setSupportBusinessObjects() {
         addSupportBusinessObjects(MessageSendTypeEnum.MAIL);
@@ -9,6 +9,8 @@ import org.springframework.stereotype.Component;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * 这里只实现了策略,并没有实现发送短信方法,可以自己引入短信sdk实现短信发送
@@ -22,6 +24,12 @@ public class SMSSendAdaptor  extends AbstractMessageSendAdaptor<MessageInfo>{
         messageService.sendSmsBatch(stringMessageInfoMap);
     }
 
+    @Override
+    public Set<Integer> sendMessagesNow(List<UserMsgVo> userMsgVos) {
+        return messageService.sendSmsNow(userIds(userMsgVos),
+                userMsgVos.stream().map(UserMsgUtils::buildMessageInfo).collect(Collectors.toList()));
+    }
+
     @Override
     public void setSupportBusinessObjects() {
         addSupportBusinessObjects(MessageSendTypeEnum.MESSAGE);
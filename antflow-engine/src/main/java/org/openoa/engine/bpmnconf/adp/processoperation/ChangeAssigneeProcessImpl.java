@@ -7,6 +7,9 @@ import org.openoa.base.interf.BpmBusinessProcessService;
 import org.openoa.base.interf.ProcessOperationAdaptor;
 import org.openoa.base.constant.enums.ProcessOperationEnum;
 import org.openoa.base.vo.BaseIdTranStruVo;
+import org.openoa.engine.bpmnconf.common.ProcessSearchIndex;
+import org.openoa.engine.bpmnconf.common.TaskInbox;
+import org.openoa.engine.bpmnconf.common.UserTaskCounters;
 import org.openoa.engine.bpmnconf.mapper.TaskMgmtMapper;
 import org.openoa.base.vo.BusinessDataVo;
 import org.openoa.base.vo.TaskMgmtVO;
@@ -34,6 +37,12 @@ public class ChangeAssigneeProcessImpl implements ProcessOperationAdaptor {
     @Autowired
     private TaskMgmtMapper taskMgmtMapper;
     @Autowired
+    private UserTaskCounters userTaskCounters;
+    @Autowired
+    private TaskInbox taskInbox;
+    @Autowired
+    private ProcessSearchIndex processSearchIndex;
+    @Autowired
     private BpmFlowrunEntrustService bpmFlowrunEntrustService;
 
     @Override
@@ -60,9 +69,12 @@ public class ChangeAssigneeProcessImpl implements ProcessOperationAdaptor {
                 taskMgmtMapper.updateaActinst(taskMgmtVO);
                 taskMgmtMapper.updateaTaskinst(taskMgmtVO);
                 taskMgmtMapper.updateTask(taskMgmtVO);
+                userTaskCounters.taskReassigned(assignee, user);
+                taskInbox.reassign(task.getId(), user);
             }
 
         }
+        processSearchIndex.touch(bpmBusinessProcess.getBusinessNumber());
     }
 
     @Override
@@ -10,6 +10,9 @@ import org.openoa.base.interf.ProcessOperationAdaptor;
 import org.openoa.base.vo.BaseIdTranStruVo;
 import org.openoa.base.vo.BusinessDataVo;
 import org.openoa.base.vo.TaskMgmtVO;
+import org.openoa.engine.bpmnconf.common.ProcessSearchIndex;
+import org.openoa.engine.bpmnconf.common.TaskInbox;
+import org.openoa.engine.bpmnconf.common.UserTaskCounters;
 import org.openoa.engine.bpmnconf.mapper.TaskMgmtMapper;
 import org.openoa.engine.bpmnconf.service.biz.BpmBusinessProcessServiceImpl;
 import org.openoa.engine.bpmnconf.service.impl.BpmFlowrunEntrustServiceImpl;
@@ -28,6 +31,12 @@ public class TransferAssigneeProcessImpl implements ProcessOperationAdaptor {
     @Autowired
     private TaskMgmtMapper taskMgmtMapper;
     @Autowired
+    private UserTaskCounters userTaskCounters;
+    @Autowired
+    private TaskInbox taskInbox;
+    @Autowired
+    private ProcessSearchIndex processSearchIndex;
+    @Autowired
     private BpmFlowrunEntrustServiceImpl bpmFlowrunEntrustService;
 
     @Override
@@ -58,10 +67,13 @@ public class TransferAssigneeProcessImpl implements ProcessOperationAdaptor {
                 taskMgmtMapper.updateaActinst(TaskMgmtVO.builder().applyUser(transferToUserId).applyUserName(transferToUserName).taskId(task.getId()).build());
                 taskMgmtMapper.updateaTaskinst(TaskMgmtVO.builder().applyUser(transferToUserId).applyUserName(transferToUserName).taskId(task.getId()).build());
                 taskMgmtMapper.updateTask(TaskMgmtVO.builder().applyUser(transferToUserId).applyUserName(transferToUserName).taskId(task.getId()).build());
+                userTaskCounters.taskReassigned(originalUserId, transferToUserId);
+                taskInbox.reassign(task.getId(), transferToUserId);
                 matched=true;
             }
 
         }
+        processSearchIndex.touch(bpmBusinessProcess.getBusinessNumber());
         if(!matched){
             throw new AFBizException("流程状态已变更,无当前办理人信息,转办失败!");
         }
@@ -137,4 +137,19 @@ public class ActivitiAdditionalInfoServiceImpl {
 
         return verifyUserName;
     }
+
+    /**
+     * get assignees of an element from the sign up assignees of its process,see {@link #getVerifyUserNameFromHis(String, Long)}
+     *
+     * @param elementId
+     * @param signUpAssignees element id -> sign up assignees,read by variable id beforehand
+     * @return
+     */
+    public String getVerifyUserNameFromHis(String elementId, Map<String, List<BaseIdTranStruVo>> signUpAssignees) {
+        List<BaseIdTranStruVo> assignees = signUpAssignees.get(elementId);
+        if(CollectionUtils.isEmpty(assignees)){
+            return StringUtils.EMPTY;
+        }
+        return StringUtils.join(assignees.stream().map(BaseIdTranStruVo::getName).collect(Collectors.toList()), ',');
+    }
 }
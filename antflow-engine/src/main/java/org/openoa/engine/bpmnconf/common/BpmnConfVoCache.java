@@ -0,0 +1,174 @@
+package org.openoa.engine.bpmnconf.common;
+
+import com.alibaba.fastjson2.JSON;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.apache.commons.lang3.StringUtils;
+import org.openoa.base.util.MultiTenantUtil;
+import org.openoa.base.vo.BpmnConfVo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * in memory cache of fully assembled {@link BpmnConfVo} graphs.
+ * <p>
+ * a conf is never modified in place once it was saved,every edit inserts a new conf with a new bpmnCode,
+ * so the bpmnCode is a version identifier of its own and the cached graph keyed by (tenant,bpmnCode) stays valid
+ * until its few mutable columns(effective status,app,type) are touched,which is when it is invalidated.
+ * the cached instance is never handed out,callers always get a deep copy they are free to mutate.
+ * an expiry is kept as a safety net for cluster deployments where another node changed the conf.
+ *
+ * @Author AntFlow
+ */
+@Component
+public class BpmnConfVoCache {
+
+    @Value("${antflow.bpmn.conf-cache.enabled:true}")
+    private boolean enabled;
+    @Value("${antflow.bpmn.conf-cache.maximum-size:500}")
+    private long maximumSize;
+    @Value("${antflow.bpmn.conf-cache.expire-seconds:600}")
+    private long expireSeconds;
+
+    /**
+     * tenantId:bpmnCode -> conf
+     */
+    private Cache<String, BpmnConfVo> confCache;
+    /**
+     * tenantId:formCode -> bpmnCode of the effective conf
+     */
+    private Cache<String, String> effectiveCodeCache;
+
+    @PostConstruct
+    public void init() {
+        confCache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        effectiveCodeCache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * get a private copy of the conf identified by bpmnCode
+     *
+     * @param bpmnCode bpmnCode
+     * @param loader   loads the conf from database on cache miss
+     * @return a deep copy of the cached conf
+     */
+    public BpmnConfVo getByBpmnCode(String bpmnCode, Supplier<BpmnConfVo> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        return copy(load(key(bpmnCode), loader));
+    }
+
+    /**
+     * get a private copy of the effective conf of the given formCode
+     *
+     * @param formCode formCode
+     * @param loader   loads the effective conf from database on cache miss
+     * @return a deep copy of the cached conf
+     */
+    public BpmnConfVo getEffectiveByFormCode(String formCode, Supplier<BpmnConfVo> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        String bpmnCode = effectiveCodeCache.getIfPresent(key(formCode));
+        if (bpmnCode != null) {
+            BpmnConfVo confVo = confCache.getIfPresent(key(bpmnCode));
+            if (confVo != null) {
+                return copy(confVo);
+            }
+        }
+        BpmnConfVo confVo = loader.get();
+        if (StringUtils.isNotBlank(confVo.getBpmnCode())) {
+            confCache.put(key(confVo.getBpmnCode()), confVo);
+            effectiveCodeCache.put(key(formCode), confVo.getBpmnCode());
+        }
+        return copy(confVo);
+    }
+
+    /**
+     * invalidate a conf,to be called whenever a column of an existing conf is updated
+     *
+     * @param bpmnCode bpmnCode
+     */
+    public void invalidate(String bpmnCode) {
+        String key = key(bpmnCode);
+        runNowAndAfterCommit(() -> confCache.invalidate(key));
+    }
+
+    /**
+     * invalidate all confs of a formCode and its effective conf mapping,
+     * to be called when a conf of the formCode is published or its form level settings are edited
+     *
+     * @param formCode formCode
+     */
+    public void invalidateByFormCode(String formCode) {
+        String formKey = key(formCode);
+        String tenantPrefix = key("");
+        runNowAndAfterCommit(() -> {
+            effectiveCodeCache.invalidate(formKey);
+            confCache.asMap().entrySet().removeIf(entry -> entry.getKey().startsWith(tenantPrefix)
+                    && Objects.equals(formCode, entry.getValue().getFormCode()));
+        });
+    }
+
+    public void invalidateAll() {
+        confCache.invalidateAll();
+        effectiveCodeCache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return confCache.stats();
+    }
+
+    private BpmnConfVo load(String key, Supplier<BpmnConfVo> loader) {
+        BpmnConfVo confVo = confCache.getIfPresent(key);
+        if (confVo != null) {
+            return confVo;
+        }
+        confVo = loader.get();
+        //a missing conf is not cached
+        if (StringUtils.isNotBlank(confVo.getBpmnCode())) {
+            confCache.put(key, confVo);
+        }
+        return confVo;
+    }
+
+    /**
+     * a reader running concurrently with the modifying transaction may have cached the old state again,
+     * so invalidate once more when the transaction is committed
+     */
+    private void runNowAndAfterCommit(Runnable invalidation) {
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    private BpmnConfVo copy(BpmnConfVo confVo) {
+        return JSON.copy(confVo);
+    }
+
+    private static String key(String code) {
+        return StringUtils.join(StringUtils.defaultString(MultiTenantUtil.getCurrentTenantId()), ":", code);
+    }
+}
@@ -0,0 +1,157 @@
+package org.openoa.engine.bpmnconf.common;
+
+import com.google.common.base.Strings;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.apache.commons.lang3.StringUtils;
+import org.openoa.base.entity.BpmnConfLfFormdataField;
+import org.openoa.base.exception.AFBizException;
+import org.openoa.base.util.MultiTenantUtil;
+import org.openoa.engine.bpmnconf.service.BpmnConfLfFormdataFieldServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * bounded per tenant cache of low code form field configs,keyed by conf id.
+ * field configs of a conf are written when the conf is published and only their condition flag is touched afterwards,
+ * both places refresh the cache through {@link org.openoa.engine.lowflow.service.BpmnConfLFFormDataBizServiceImpl}.
+ * cached maps and lists are immutable and safe to be shared by request threads.
+ * entries expire a fixed time after they are loaded,so a change missed by the refresh(e.g. made on another node)
+ * is seen within expire-seconds even for confs read all the time.a conf without fields is never cached.
+ *
+ * @Author AntFlow
+ */
+@Component
+public class LFFieldConfCache {
+
+    @Value("${antflow.lf.field-conf-cache.maximum-size:2000}")
+    private long maximumSize;
+    @Value("${antflow.lf.field-conf-cache.expire-seconds:1800}")
+    private long expireSeconds;
+
+    @Autowired
+    private BpmnConfLfFormdataFieldServiceImpl lfFormdataFieldService;
+
+    /**
+     * tenantId:confId -> field configs of the conf
+     */
+    private Cache<String, LFFieldConf> fieldConfCache;
+    /**
+     * time source of the expiry,replaced by tests
+     */
+    Ticker ticker = Ticker.systemTicker();
+
+    @PostConstruct
+    public void init() {
+        fieldConfCache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * get field id to field config map of a conf
+     *
+     * @param confId conf id
+     * @return immutable map,never empty,an exception is thrown if the conf has no field
+     */
+    public Map<String, BpmnConfLfFormdataField> getFieldConfMap(Long confId) {
+        return get(confId).getFieldConfMap();
+    }
+
+    /**
+     * get field ids of the condition fields of a conf
+     *
+     * @param confId conf id
+     * @return immutable list,empty if the conf has no condition field,an exception is thrown if the conf has no field
+     */
+    public List<String> getConditionFieldNames(Long confId) {
+        return get(confId).getConditionFieldNames();
+    }
+
+    /**
+     * drop the cached field configs of a conf,to be called when they are published or changed
+     *
+     * @param confId conf id
+     */
+    public void refresh(Long confId) {
+        String key = key(confId);
+        fieldConfCache.invalidate(key);
+        //a reader running concurrently with the publishing transaction may have cached the old state again
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    fieldConfCache.invalidate(key);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        fieldConfCache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return fieldConfCache.stats();
+    }
+
+    private LFFieldConf get(Long confId) {
+        String key = key(confId);
+        LFFieldConf fieldConf = fieldConfCache.getIfPresent(key);
+        if (fieldConf == null) {
+            Map<String, BpmnConfLfFormdataField> fieldConfMap = lfFormdataFieldService.qryFormDataFieldMap(confId);
+            if (fieldConfMap == null || fieldConfMap.isEmpty()) {
+                //not cached,the fields may be published later
+                throw new AFBizException(Strings.lenientFormat("lowcode form conf %s has no fields", confId));
+            }
+            fieldConf = new LFFieldConf(fieldConfMap);
+            fieldConfCache.put(key, fieldConf);
+        }
+        return fieldConf;
+    }
+
+    private static String key(Long confId) {
+        return StringUtils.join(StringUtils.defaultString(MultiTenantUtil.getCurrentTenantId()), ":", confId);
+    }
+
+    private static final class LFFieldConf {
+        private final Map<String, BpmnConfLfFormdataField> fieldConfMap;
+        private final List<String> conditionFieldNames;
+
+        private LFFieldConf(Map<String, BpmnConfLfFormdataField> fieldConfMap) {
+            List<String> condFieldNames = new ArrayList<>();
+            for (BpmnConfLfFormdataField field : fieldConfMap.values()) {
+                if (Objects.equals(field.getIsConditionField(), 1)) {
+                    condFieldNames.add(field.getFieldId());
+                }
+            }
+            this.fieldConfMap = Collections.unmodifiableMap(new HashMap<>(fieldConfMap));
+            this.conditionFieldNames = Collections.unmodifiableList(condFieldNames);
+        }
+
+        private Map<String, BpmnConfLfFormdataField> getFieldConfMap() {
+            return fieldConfMap;
+        }
+
+        private List<String> getConditionFieldNames() {
+            return conditionFieldNames;
+        }
+    }
+}
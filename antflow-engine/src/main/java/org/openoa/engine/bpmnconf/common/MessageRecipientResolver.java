@@ -0,0 +1,158 @@
+package org.openoa.engine.bpmnconf.common;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import org.apache.commons.lang3.StringUtils;
+import org.openoa.base.entity.UserMessageStatus;
+import org.openoa.base.service.AfUserService;
+import org.openoa.base.util.MultiTenantUtil;
+import org.openoa.engine.bpmnconf.mapper.UserMessageStatusMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * resolves whether message recipients are still effective employees and their message settings(t_user_message_status).
+ * <p>
+ * a whole recipient set is resolved with one employee query and one settings query(per chunk of ids) instead of two
+ * queries per recipient,which matters for copy-to-many nodes and mass reminders.
+ * results are kept in a short lived cache keyed by (tenant,userId),the settings of the current node are invalidated
+ * when a user changes them,the expiry covers changes made on other nodes and employees leaving.
+ */
+@Component
+public class MessageRecipientResolver {
+    private static final int QUERY_CHUNK_SIZE = 500;
+
+    @Value("${antflow.message.recipient-cache.expire-seconds:30}")
+    private long expireSeconds;
+    @Value("${antflow.message.recipient-cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Autowired
+    private AfUserService afUserService;
+    @Autowired
+    private UserMessageStatusMapper userMessageStatusMapper;
+
+    /**
+     * tenantId:userId -> recipient
+     */
+    private Cache<String, Recipient> recipientCache;
+
+    @PostConstruct
+    public void init() {
+        recipientCache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * resolve a set of recipients
+     *
+     * @param userIds user ids,empty ones are ignored
+     * @return userId -> recipient,in the iteration order of the given ids
+     */
+    public Map<String, Recipient> resolve(Collection<String> userIds) {
+        Map<String, Recipient> result = new LinkedHashMap<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return result;
+        }
+        List<String> missedIds = new ArrayList<>();
+        for (String userId : userIds) {
+            if (StringUtils.isEmpty(userId) || result.containsKey(userId)) {
+                continue;
+            }
+            Recipient recipient = recipientCache.getIfPresent(key(userId));
+            result.put(userId, recipient);
+            if (recipient == null) {
+                missedIds.add(userId);
+            }
+        }
+        for (List<String> chunk : Lists.partition(missedIds, QUERY_CHUNK_SIZE)) {
+            Set<String> effectiveIds = new HashSet<>(afUserService.queryEffectiveEmployeeIds(chunk));
+            Map<String, UserMessageStatus> statusMap = new HashMap<>();
+            for (UserMessageStatus status : userMessageStatusMapper.selectList(new QueryWrapper<UserMessageStatus>().in("user_id", chunk))) {
+                statusMap.putIfAbsent(status.getUserId(), status);
+            }
+            for (String userId : chunk) {
+                Recipient recipient = new Recipient(effectiveIds.contains(userId), statusMap.get(userId));
+                recipientCache.put(key(userId), recipient);
+                result.put(userId, recipient);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * resolve a single recipient
+     */
+    public Recipient resolve(String userId) {
+        Recipient recipient = resolve(Collections.singletonList(userId)).get(userId);
+        return recipient == null ? Recipient.NOT_EFFECTIVE : recipient;
+    }
+
+    /**
+     * ids of the effective employees among the given ones
+     */
+    public Set<String> filterEffective(Collection<String> userIds) {
+        Set<String> effectiveIds = new HashSet<>();
+        resolve(userIds).forEach((userId, recipient) -> {
+            if (recipient.isEffective()) {
+                effectiveIds.add(userId);
+            }
+        });
+        return effectiveIds;
+    }
+
+    /**
+     * to be called when the message settings of a user are changed
+     */
+    public void invalidate(String userId) {
+        if (StringUtils.isNotEmpty(userId)) {
+            recipientCache.invalidate(key(userId));
+        }
+    }
+
+    private String key(String userId) {
+        return StringUtils.defaultString(MultiTenantUtil.getCurrentTenantId()) + ":" + userId;
+    }
+
+    /**
+     * effective status and message settings of a recipient
+     */
+    public static final class Recipient {
+        static final Recipient NOT_EFFECTIVE = new Recipient(false, null);
+
+        private final boolean effective;
+        private final UserMessageStatus messageStatus;
+
+        Recipient(boolean effective, UserMessageStatus messageStatus) {
+            this.effective = effective;
+            this.messageStatus = messageStatus;
+        }
+
+        public boolean isEffective() {
+            return effective;
+        }
+
+        /**
+         * @return message settings of the user,null if the user has never changed them
+         */
+        public UserMessageStatus getMessageStatus() {
+            return messageStatus;
+        }
+
+        /**
+         * whether emails are to be sent,users without settings receive emails by default
+         */
+        public boolean acceptsMail() {
+            return messageStatus == null || Boolean.TRUE.equals(messageStatus.getMailStatus());
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package org.openoa.engine.bpmnconf.common;
+
+import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import lombok.extern.slf4j.Slf4j;
+import org.activiti.engine.impl.cfg.multitenant.TenantIdHolder;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.DateUtils;
+import org.openoa.base.constant.StringConstants;
+import org.openoa.base.constant.enums.BusinessCallbackEnum;
+import org.openoa.base.constant.enums.MessageSendTypeEnum;
+import org.openoa.base.constant.enums.ProcessBusinessCallBackTypeEnum;
+import org.openoa.base.entity.BpmNoticeOutbox;
+import org.openoa.base.interf.ProcessNoticeAdaptor;
+import org.openoa.base.util.MultiTenantUtil;
+import org.openoa.base.util.ThreadLocalContainer;
+import org.openoa.base.vo.BusinessDataVo;
+import org.openoa.base.vo.UserMsgVo;
+import org.openoa.engine.bpmnconf.mapper.BpmNoticeOutboxMapper;
+import org.openoa.engine.bpmnconf.service.biz.callback.BusinessCallBackFactory;
+import org.openoa.engine.factory.IAdaptorFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * transactional outbox of process notices(email,sms,app push...) and business callbacks.
+ * <p>
+ * notices are not sent while the process engine command is running,they are written to t_bpm_notice_outbox in the
+ * caller's transaction instead,so they are only delivered if the process changes are committed.
+ * a background dispatcher claims due rows in batches,fans them out through the {@link ProcessNoticeAdaptor} of their
+ * channel and records the delivery status of every row,failed rows are retried with backoff until the max attempts are
+ * used up.
+ * rows claimed by a node which died before finishing them are claimed again after the claim timeout.
+ */
+@Slf4j
+@Component
+public class ProcessNoticeOutbox {
+    public static final String CHANNEL_PROCESS_EVENT_CALLBACK = "PROCESS_EVENT_CALLBACK";
+
+    @Value("${antflow.outbox.dispatcher-enabled:true}")
+    private boolean dispatcherEnabled;
+    @Value("${antflow.outbox.batch-size:200}")
+    private Integer batchSize;
+    @Value("${antflow.outbox.poll-interval-millis:1000}")
+    private Long pollIntervalMillis;
+    @Value("${antflow.outbox.max-attempts:5}")
+    private Integer maxAttempts;
+    @Value("${antflow.outbox.retry-backoff-seconds:30}")
+    private Integer retryBackoffSeconds;
+    @Value("${antflow.outbox.claim-timeout-seconds:300}")
+    private Integer claimTimeoutSeconds;
+
+    @Autowired
+    private BpmNoticeOutboxMapper outboxMapper;
+    @Autowired
+    @Lazy
+    private IAdaptorFactory adaptorFactory;
+    @Autowired
+    private TenantIdHolder tenantIdHolder;
+
+    private ScheduledExecutorService dispatcher;
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+
+    /**
+     * add notices to the outbox
+     *
+     * @param userMsgVos           messages
+     * @param messageSendTypeEnum  send type of the messages
+     */
+    public void enqueueNotices(List<UserMsgVo> userMsgVos, MessageSendTypeEnum messageSendTypeEnum) {
+        if (userMsgVos == null || userMsgVos.isEmpty()) {
+            return;
+        }
+        List<BpmNoticeOutbox> rows = new ArrayList<>(userMsgVos.size());
+        for (UserMsgVo userMsgVo : userMsgVos) {
+            rows.add(buildRow(messageSendTypeEnum.name(), JSON.toJSONString(userMsgVo)));
+        }
+        insert(rows);
+    }
+
+    /**
+     * add a process event callback to the outbox
+     */
+    public void enqueueProcessEventCallback(BusinessDataVo businessDataVo) {
+        insert(Collections.singletonList(buildRow(CHANNEL_PROCESS_EVENT_CALLBACK, JSON.toJSONString(businessDataVo))));
+    }
+
+    /**
+     * hold back the notices of a batch of operations while it runs,so they are claimed together and sent with one
+     * adaptor call per tenant and channel instead of one per operation.
+     * the notices enqueued by threads with the returned key in {@link StringConstants#NOTICE_OUTBOX_HOLD_KEY} of
+     * {@link ThreadLocalContainer} are held back,the other notices are dispatched as usual.
+     * every call must be paired with {@link #releaseDispatch(String)} in a finally block
+     *
+     * @return hold key
+     */
+    public String holdDispatch() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * release a hold of {@link #holdDispatch()} and dispatch what was held back under it
+     */
+    public void releaseDispatch(String holdKey) {
+        if (outboxMapper.releaseHold(holdKey) > 0) {
+            wakeUp();
+        }
+    }
+
+    /**
+     * whether notices of a send type can be delivered
+     */
+    public boolean isSupported(MessageSendTypeEnum messageSendTypeEnum) {
+        return messageSendTypeEnum != null && adaptorFactory.getProcessNoticeAdaptor(messageSendTypeEnum) != null;
+    }
+
+    private BpmNoticeOutbox buildRow(String channel, String payload) {
+        BpmNoticeOutbox row = new BpmNoticeOutbox();
+        row.setChannel(channel);
+        row.setPayload(payload);
+        row.setStatus(BpmNoticeOutbox.STATUS_PENDING);
+        row.setAttempts(0);
+        row.setNextAttemptTime(new Date());
+        row.setHoldKey((String) ThreadLocalContainer.get(StringConstants.NOTICE_OUTBOX_HOLD_KEY));
+        row.setTenantId(StringUtils.defaultString(MultiTenantUtil.getCurrentTenantId()));
+        return row;
+    }
+
+    private void insert(List<BpmNoticeOutbox> rows) {
+        outboxMapper.insertBatch(rows);
+        if (rows.get(0).getHoldKey() != null) {
+            //dispatched when the hold is released
+            return;
+        }
+        //dispatch right after the rows are visible instead of waiting for the next poll
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            });
+        } else {
+            wakeUp();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!dispatcherEnabled) {
+            return;
+        }
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "process-notice-outbox-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.scheduleWithFixedDelay(this::dispatchAll, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void wakeUp() {
+        ScheduledExecutorService executor = dispatcher;
+        if (executor != null && !executor.isShutdown()) {
+            executor.execute(this::dispatchAll);
+        }
+    }
+
+    private void dispatchAll() {
+        if (!dispatching.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            //keep going while full batches are claimed
+            while (dispatchBatch() >= batchSize) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("process notice outbox dispatch failed", e);
+        } finally {
+            dispatching.set(false);
+        }
+    }
+
+    /**
+     * claim and deliver one batch
+     *
+     * @return number of rows claimed
+     */
+    private int dispatchBatch() {
+        Date now = new Date();
+        String claimOwner = UUID.randomUUID().toString();
+        int claimed = outboxMapper.claim(claimOwner, now, DateUtils.addSeconds(now, -claimTimeoutSeconds), batchSize);
+        if (claimed == 0) {
+            return 0;
+        }
+        List<BpmNoticeOutbox> rows = outboxMapper.selectList(Wrappers.<BpmNoticeOutbox>lambdaQuery()
+                .eq(BpmNoticeOutbox::getClaimOwner, claimOwner)
+                .eq(BpmNoticeOutbox::getStatus, BpmNoticeOutbox.STATUS_DISPATCHING)
+                .orderByAsc(BpmNoticeOutbox::getId));
+
+        //one adaptor call per tenant and channel
+        Map<String, List<BpmNoticeOutbox>> groups = rows.stream()
+                .collect(Collectors.groupingBy(row -> row.getTenantId() + "\u0000" + row.getChannel(), LinkedHashMap::new, Collectors.toList()));
+        for (List<BpmNoticeOutbox> group : groups.values()) {
+            BpmNoticeOutbox first = group.get(0);
+            tenantIdHolder.setCurrentTenantId(first.getTenantId());
+            try {
+                if (CHANNEL_PROCESS_EVENT_CALLBACK.equals(first.getChannel())) {
+                    for (BpmNoticeOutbox row : group) {
+                        deliver(Collections.singletonList(row));
+                    }
+                } else {
+                    deliver(group);
+                }
+            } finally {
+                tenantIdHolder.clearCurrentTenantId();
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * deliver rows and record the delivery of every row,only the rows which were not delivered are retried
+     */
+    private void deliver(List<BpmNoticeOutbox> rows) {
+        List<Long> ids = rows.stream().map(BpmNoticeOutbox::getId).collect(Collectors.toList());
+        String channel = rows.get(0).getChannel();
+        List<BpmNoticeOutbox> failedRows = new ArrayList<>();
+        try {
+            if (CHANNEL_PROCESS_EVENT_CALLBACK.equals(channel)) {
+                BusinessDataVo businessDataVo = JSON.parseObject(rows.get(0).getPayload(), BusinessDataVo.class);
+                BusinessCallBackFactory.build().doCallBack(businessDataVo, BusinessCallbackEnum.PROCESS_EVENT_CALLBACK, ProcessBusinessCallBackTypeEnum.Send_MQ_Message.getCode());
+            } else {
+                ProcessNoticeAdaptor processNoticeAdaptor = adaptorFactory.getProcessNoticeAdaptor(MessageSendTypeEnum.valueOf(channel));
+                if (processNoticeAdaptor == null) {
+                    throw new IllegalStateException("no notice adaptor for channel " + channel);
+                }
+                Set<Integer> failedIndexes = processNoticeAdaptor.sendMessagesNow(rows.stream()
+                        .map(row -> JSON.parseObject(row.getPayload(), UserMsgVo.class))
+                        .collect(Collectors.toList()));
+                for (Integer failedIndex : failedIndexes) {
+                    failedRows.add(rows.get(failedIndex));
+                }
+            }
+        } catch (Exception e) {
+            //nothing was sent
+            log.error("failed to deliver process notices {} of channel {}", ids, channel, e);
+            markFailed(rows, e.getMessage());
+            return;
+        }
+        if (!failedRows.isEmpty()) {
+            log.error("failed to deliver process notices {} of channel {}",
+                    failedRows.stream().map(BpmNoticeOutbox::getId).collect(Collectors.toList()), channel);
+            markFailed(failedRows, "not sent by the adaptor of channel " + channel);
+            ids.removeAll(failedRows.stream().map(BpmNoticeOutbox::getId).collect(Collectors.toSet()));
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        BpmNoticeOutbox sent = new BpmNoticeOutbox();
+        sent.setStatus(BpmNoticeOutbox.STATUS_SENT);
+        outboxMapper.update(sent, Wrappers.<BpmNoticeOutbox>lambdaUpdate().in(BpmNoticeOutbox::getId, ids));
+    }
+
+    private void markFailed(List<BpmNoticeOutbox> rows, String message) {
+        String error = StringUtils.abbreviate(String.valueOf(message), 500);
+        for (BpmNoticeOutbox row : rows) {
+            BpmNoticeOutbox failed = new BpmNoticeOutbox();
+            failed.setId(row.getId());
+            failed.setLastError(error);
+            if (row.getAttempts() >= maxAttempts) {
+                failed.setStatus(BpmNoticeOutbox.STATUS_FAILED);
+            } else {
+                failed.setStatus(BpmNoticeOutbox.STATUS_PENDING);
+                long backoffSeconds = (long) retryBackoffSeconds << Math.min(row.getAttempts() - 1, 10);
+                failed.setNextAttemptTime(new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(backoffSeconds)));
+            }
+            outboxMapper.updateById(failed);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (dispatcher != null) {
+            dispatcher.shutdownNow();
+        }
+    }
+}
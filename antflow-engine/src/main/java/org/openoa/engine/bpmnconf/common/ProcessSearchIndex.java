@@ -0,0 +1,228 @@
+package org.openoa.engine.bpmnconf.common;
+
+import com.google.common.collect.Lists;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.openoa.engine.bpmnconf.mapper.BpmSearchDocMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * inverted index over the searchable texts of processes(process number,description,digest,applicant name and the
+ * names of the current assignees),used by the search conditions of the process lists.
+ * <p>
+ * the texts are split into bigrams,every two adjacent characters(whitespace excluded) are a token,so the processes
+ * containing a search text of two or more characters are among the ones having all its tokens,which are found by
+ * the primary key of t_bpm_search_token;the stored text then filters out the few false candidates.
+ * a process is reindexed after the transaction touching it is committed,see
+ * {@link org.openoa.engine.bpmnconf.activitilistener.ProcessSearchIndexEventListener},processes existing before the
+ * index are indexed in background on startup.
+ */
+@Slf4j
+@Component
+public class ProcessSearchIndex {
+    private static final int QUERY_CHUNK_SIZE = 500;
+    private static final int BACKFILL_BATCH_SIZE = 200;
+
+    @Value("${antflow.search-index.enabled:true}")
+    private boolean enabled;
+    @Value("${antflow.search-index.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    @Autowired
+    private BpmSearchDocMapper searchDocMapper;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * the resources of the committed transaction are still bound when reindexing after commit,so it is done in a new one
+     */
+    private TransactionTemplate reindexTransaction;
+    private ExecutorService backfillExecutor;
+
+    @PostConstruct
+    public void init() {
+        reindexTransaction = new TransactionTemplate(transactionManager);
+        reindexTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * tokens of a search text
+     *
+     * @param search search text
+     * @return tokens,null if the index is disabled or the text is too short to be looked up,the caller then falls
+     * back to matching the texts directly
+     */
+    public List<String> queryTokens(String search) {
+        if (!enabled || StringUtils.isEmpty(search)) {
+            return null;
+        }
+        Set<String> tokens = tokenize(search);
+        return tokens.isEmpty() ? null : new ArrayList<>(tokens);
+    }
+
+    /**
+     * reindex a process after the current transaction is committed,or at once if there is none
+     *
+     * @param processNumber process number
+     */
+    @SuppressWarnings("unchecked")
+    public void touch(String processNumber) {
+        if (!enabled || StringUtils.isEmpty(processNumber)) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reindex(processNumber);
+            return;
+        }
+        Set<String> touched = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (touched == null) {
+            Set<String> numbers = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, numbers);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    numbers.forEach(ProcessSearchIndex.this::reindex);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ProcessSearchIndex.this);
+                }
+            });
+            touched = numbers;
+        }
+        touched.add(processNumber);
+    }
+
+    /**
+     * reindex the process of a task,see {@link #touch(String)}
+     *
+     * @param taskId running task id
+     */
+    public void touchTask(String taskId) {
+        if (!enabled || StringUtils.isEmpty(taskId)) {
+            return;
+        }
+        touch(searchDocMapper.selectProcessNumberByTaskId(taskId));
+    }
+
+    /**
+     * rebuild the index entries of a process from its current texts
+     *
+     * @param processNumber process number
+     * @return whether it succeeded
+     */
+    public boolean reindex(String processNumber) {
+        try {
+            reindexTransaction.execute(status -> doReindex(processNumber));
+            return true;
+        } catch (Exception e) {
+            //a stale entry only affects searching,it is fixed by the next change of the process
+            log.warn("failed to index process {}", processNumber, e);
+            return false;
+        }
+    }
+
+    private Void doReindex(String processNumber) {
+        Set<String> texts = new LinkedHashSet<>();
+        for (String text : searchDocMapper.selectSearchTexts(processNumber)) {
+            if (StringUtils.isNotBlank(text)) {
+                texts.add(text.toLowerCase());
+            }
+        }
+        String content = String.join("\n", texts);
+        Set<String> tokens = tokenize(content);
+        Set<String> indexed = new HashSet<>(searchDocMapper.selectTokens(processNumber));
+        List<String> removed = new ArrayList<>();
+        for (String token : indexed) {
+            if (!tokens.contains(token)) {
+                removed.add(token);
+            }
+        }
+        tokens.removeAll(indexed);
+        for (List<String> chunk : Lists.partition(removed, QUERY_CHUNK_SIZE)) {
+            searchDocMapper.deleteTokens(processNumber, chunk);
+        }
+        for (List<String> chunk : Lists.partition(new ArrayList<>(tokens), QUERY_CHUNK_SIZE)) {
+            searchDocMapper.insertTokens(processNumber, chunk);
+        }
+        searchDocMapper.upsertDoc(processNumber, content);
+        return null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || !backfillOnStartup) {
+            return;
+        }
+        backfillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "process-search-index-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+        backfillExecutor.execute(() -> {
+            int count = 0;
+            try {
+                List<String> numbers;
+                while (!Thread.currentThread().isInterrupted()
+                        && !(numbers = searchDocMapper.selectUnindexedNumbers(BACKFILL_BATCH_SIZE)).isEmpty()) {
+                    int indexed = 0;
+                    for (String number : numbers) {
+                        indexed += reindex(number) ? 1 : 0;
+                    }
+                    if (indexed == 0) {
+                        //the same batch would be read again
+                        break;
+                    }
+                    count += indexed;
+                }
+            } catch (Exception e) {
+                log.warn("failed to index existing processes", e);
+            }
+            if (count > 0) {
+                log.info("indexed {} existing processes for searching", count);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (backfillExecutor != null) {
+            backfillExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * bigrams of a lower cased text,pairs containing whitespace are skipped
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        int[] codePoints = text.toLowerCase().codePoints().toArray();
+        for (int i = 0; i + 1 < codePoints.length; i++) {
+            if (Character.isWhitespace(codePoints[i]) || Character.isWhitespace(codePoints[i + 1])) {
+                continue;
+            }
+            tokens.add(new String(codePoints, i, 2));
+        }
+        return tokens;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
@@ -0,0 +1,213 @@
+package org.openoa.engine.bpmnconf.common;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+import org.openoa.base.constant.enums.ProcessNodeEnum;
+import org.openoa.base.entity.BpmTaskInbox;
+import org.openoa.base.exception.AFBizException;
+import org.openoa.base.util.MultiTenantUtil;
+import org.openoa.base.vo.TaskMgmtVO;
+import org.openoa.engine.bpmnconf.mapper.BpmTaskInboxMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * task inbox of users(t_bpm_task_inbox),the read model of the todo,done and started process lists.
+ * <p>
+ * the rows are written in the transaction of the engine command changing the tasks,see
+ * {@link org.openoa.engine.bpmnconf.activitilistener.TaskInboxEventListener},so a list is a range scan of one index of
+ * a narrow table ordered like the list instead of a sorted join of the engine runtime and history tables.
+ * assignees changed by plain sql are to be passed to {@link #reassign(String, String)}.
+ */
+@Component
+public class TaskInbox {
+    @Value("${antflow.task-inbox.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    private BpmTaskInboxMapper taskInboxMapper;
+
+    /**
+     * add a row,a todo task or a started process
+     */
+    public void add(BpmTaskInbox inbox) {
+        if (!enabled || StringUtils.isEmpty(inbox.getAssignee())) {
+            return;
+        }
+        inbox.setTenantId(tenantId());
+        taskInboxMapper.insert(inbox);
+    }
+
+    /**
+     * a todo task was assigned,when it was created or later.
+     * the assignment event of a task created with an assignee fires before its creation event and a task created
+     * without one has no row until it is claimed,so the row is added if there is none
+     */
+    public void assign(BpmTaskInbox inbox) {
+        if (!enabled || StringUtils.isEmpty(inbox.getTaskId())) {
+            return;
+        }
+        if (StringUtils.isEmpty(inbox.getAssignee())) {
+            taskInboxMapper.delete(todoTask(inbox.getTaskId()));
+            return;
+        }
+        BpmTaskInbox update = new BpmTaskInbox();
+        update.setAssignee(inbox.getAssignee());
+        if (taskInboxMapper.update(update, todoTask(inbox.getTaskId())) == 0) {
+            add(inbox);
+        }
+    }
+
+    /**
+     * the assignee of a todo task was changed
+     */
+    public void reassign(String taskId, String assignee) {
+        if (!enabled || StringUtils.isEmpty(taskId)) {
+            return;
+        }
+        if (StringUtils.isEmpty(assignee)) {
+            taskInboxMapper.delete(todoTask(taskId));
+            return;
+        }
+        BpmTaskInbox update = new BpmTaskInbox();
+        update.setAssignee(assignee);
+        taskInboxMapper.update(update, todoTask(taskId));
+    }
+
+    /**
+     * the assignee of a number of todo tasks was changed at once
+     */
+    public void reassign(Collection<String> taskIds, String assignee) {
+        if (!enabled || taskIds == null || taskIds.isEmpty() || StringUtils.isEmpty(assignee)) {
+            return;
+        }
+        BpmTaskInbox update = new BpmTaskInbox();
+        update.setAssignee(assignee);
+        taskInboxMapper.update(update, Wrappers.<BpmTaskInbox>lambdaQuery()
+                .in(BpmTaskInbox::getTaskId, taskIds)
+                .eq(BpmTaskInbox::getKind, BpmTaskInbox.KIND_TASK)
+                .eq(BpmTaskInbox::getState, BpmTaskInbox.STATE_TODO));
+    }
+
+    /**
+     * a task was completed or deleted,it moves to the done list of its assignee.
+     * the start node task is not listed as done,its row is removed
+     */
+    public void taskEnded(String taskId, String nodeKey, Date endTime) {
+        if (!enabled || StringUtils.isEmpty(taskId)) {
+            return;
+        }
+        if (ProcessNodeEnum.START_TASK_KEY.getDesc().equals(nodeKey)) {
+            taskInboxMapper.delete(todoTask(taskId));
+            return;
+        }
+        BpmTaskInbox update = new BpmTaskInbox();
+        update.setState(BpmTaskInbox.STATE_DONE);
+        update.setSortTime(endTime);
+        update.setEndTime(endTime);
+        taskInboxMapper.update(update, todoTask(taskId));
+    }
+
+    /**
+     * todo tasks of the user in taskMgmtVO.applyUser
+     */
+    public List<TaskMgmtVO> todoList(Page<TaskMgmtVO> page, TaskMgmtVO taskMgmtVO) {
+        return list(page, BpmTaskInbox.KIND_TASK, BpmTaskInbox.STATE_TODO, taskMgmtVO);
+    }
+
+    /**
+     * done tasks of the user in taskMgmtVO.applyUser
+     */
+    public List<TaskMgmtVO> doneList(Page<TaskMgmtVO> page, TaskMgmtVO taskMgmtVO) {
+        return list(page, BpmTaskInbox.KIND_TASK, BpmTaskInbox.STATE_DONE, taskMgmtVO);
+    }
+
+    /**
+     * processes started by the user in taskMgmtVO.applyUser
+     */
+    public List<TaskMgmtVO> startedList(Page<TaskMgmtVO> page, TaskMgmtVO taskMgmtVO) {
+        return list(page, BpmTaskInbox.KIND_STARTED, BpmTaskInbox.STATE_TODO, taskMgmtVO);
+    }
+
+    /**
+     * a page of the list,see {@link TaskMgmtVO#getCursor()}.
+     * the records after a cursor are the first ones of the rest of the index range,the page number is no offset then
+     * and the total is not counted
+     */
+    private List<TaskMgmtVO> list(Page<TaskMgmtVO> page, int kind, int state, TaskMgmtVO taskMgmtVO) {
+        Cursor cursor = Cursor.parse(taskMgmtVO.getCursor());
+        Page<TaskMgmtVO> rangePage = cursor == null ? page : new Page<>(1, page.getSize(), false);
+        List<TaskMgmtVO> records = taskInboxMapper.inboxList(rangePage, tenantId(), kind, state, cursor, taskMgmtVO);
+        for (TaskMgmtVO record : records) {
+            if (record.getRunTime() != null && record.getInboxId() != null) {
+                record.setCursor(new Cursor(record.getRunTime().getTime(), record.getInboxId()).toString());
+            }
+        }
+        return records;
+    }
+
+    private LambdaQueryWrapper<BpmTaskInbox> todoTask(String taskId) {
+        return Wrappers.<BpmTaskInbox>lambdaQuery()
+                .eq(BpmTaskInbox::getTaskId, taskId)
+                .eq(BpmTaskInbox::getKind, BpmTaskInbox.KIND_TASK)
+                .eq(BpmTaskInbox::getState, BpmTaskInbox.STATE_TODO);
+    }
+
+    private String tenantId() {
+        return StringUtils.defaultString(MultiTenantUtil.getCurrentTenantId());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * position of a record in a list,the sort time in epoch milliseconds and the inbox id.
+     * it goes to the client as an opaque string,sort_time has milliseconds and the date format of the json output has not
+     */
+    @Getter
+    public static class Cursor {
+        private final Date sortTime;
+        private final long id;
+
+        public Cursor(long sortTimeMillis, long id) {
+            this.sortTime = new Date(sortTimeMillis);
+            this.id = id;
+        }
+
+        /**
+         * @param cursor cursor of a record,empty for the first page
+         * @return null for the first page
+         */
+        public static Cursor parse(String cursor) {
+            if (StringUtils.isBlank(cursor)) {
+                return null;
+            }
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII).split("_");
+                if (parts.length == 2) {
+                    return new Cursor(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+                }
+            } catch (IllegalArgumentException e) {
+                //not base64 or not numbers
+            }
+            throw new AFBizException("invalid cursor " + cursor);
+        }
+
+        @Override
+        public String toString() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((sortTime.getTime() + "_" + id).getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+}
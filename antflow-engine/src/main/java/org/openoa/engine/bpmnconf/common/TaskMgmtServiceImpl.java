@@ -47,6 +47,12 @@ public class TaskMgmtServiceImpl extends ServiceImpl<TaskMgmtMapper, TaskMgmtVO>
     @Autowired
     private TaskMgmtMapper taskMgmtMapper;
     @Autowired
+    private UserTaskCounters userTaskCounters;
+    @Autowired
+    private TaskInbox taskInbox;
+    @Autowired
+    private ProcessSearchIndex processSearchIndex;
+    @Autowired
     private TaskService taskService;
     @Autowired
     private BpmBusinessProcessServiceImpl processService;
@@ -103,6 +109,7 @@ public class TaskMgmtServiceImpl extends ServiceImpl<TaskMgmtMapper, TaskMgmtVO>
         }
         if (!ObjectUtils.isEmpty(taskMgmtVO.getTaskIds())) {
             taskMgmtVO.getTaskIds().forEach(o -> {
+                TaskMgmtVO currentTask = taskMgmtMapper.findTask(o);
                 taskMgmtMapper.updateaActinst(TaskMgmtVO.builder()
                         .applyUser(taskMgmtVO.getApplyUser())
                         .applyUserName(taskMgmtVO.getApplyUserName())
@@ -118,6 +125,11 @@ public class TaskMgmtServiceImpl extends ServiceImpl<TaskMgmtMapper, TaskMgmtVO>
                         .applyUserName(taskMgmtVO.getApplyUserName())
                         .taskId(o)
                         .build());
+                taskInbox.reassign(o, taskMgmtVO.getApplyUser());
+                processSearchIndex.touchTask(o);
+                if (currentTask != null) {
+                    userTaskCounters.taskReassigned(currentTask.getApplyUser(), taskMgmtVO.getApplyUser());
+                }
             });
 
         }
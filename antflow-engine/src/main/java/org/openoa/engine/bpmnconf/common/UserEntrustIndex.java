@@ -0,0 +1,255 @@
+package org.openoa.engine.bpmnconf.common;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.openoa.base.entity.UserEntrust;
+import org.openoa.base.util.DateUtil;
+import org.openoa.base.util.MultiTenantUtil;
+import org.openoa.base.vo.BaseIdTranStruVo;
+import org.openoa.engine.bpmnconf.mapper.UserEntrustMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * in memory index of the user entrust(delegation) rules,looked up for every created task.
+ * <p>
+ * rules are grouped by tenant,sender and formCode(powerId),the validity intervals of a group are split at their
+ * bounds into sorted,non overlapping segments each holding the receiver of the rule that wins there(the one with
+ * the lowest id,like the first row of the former query),so the receiver at a time is found by a binary search.
+ * the index is rebuilt after entrusts are edited on this node,edits on other nodes(or directly in the database) are
+ * picked up by a periodic check of the row count and last update time of t_user_entrust.
+ */
+@Slf4j
+@Component
+public class UserEntrustIndex {
+    private static final String ALL_TENANTS = "\u0000all";
+
+    @Value("${antflow.entrust-index.change-check-seconds:30}")
+    private long changeCheckSeconds;
+
+    @Autowired
+    private UserEntrustMapper userEntrustMapper;
+
+    private volatile Snapshot snapshot;
+    private ScheduledExecutorService changeChecker;
+
+    /**
+     * get the receiver a task of the sender is delegated to at present
+     *
+     * @param sender   sender employee id
+     * @param powerId  formCode
+     * @return receiver,null if the task is not delegated
+     */
+    public BaseIdTranStruVo getReceiver(String sender, String powerId) {
+        return getReceiver(sender, powerId, System.currentTimeMillis());
+    }
+
+    public BaseIdTranStruVo getReceiver(String sender, String powerId, long now) {
+        Snapshot current = getSnapshot();
+        String key = groupKey(sender, powerId);
+        String tenantId = MultiTenantUtil.getCurrentTenantId();
+        EntrustGroup group;
+        if (StringUtils.isEmpty(tenantId)) {
+            group = current.get(ALL_TENANTS, key);
+        } else {
+            group = current.get(tenantId, key);
+            //如果当前租户有添加,则取当前租户的,如果没有,则尝试取全局的
+            if (group == null && !MultiTenantUtil.strictTenantMode()) {
+                group = current.get("", key);
+            }
+        }
+        return group == null ? null : group.receiverAt(now);
+    }
+
+    /**
+     * rebuild the index,after the current transaction is committed if there is one
+     */
+    public void refresh() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    rebuild();
+                }
+            });
+        } else {
+            rebuild();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        changeChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-entrust-index-checker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        changeChecker.scheduleWithFixedDelay(() -> {
+            try {
+                Snapshot current = snapshot;
+                if (current != null && !current.version.equals(queryVersion())) {
+                    rebuild();
+                }
+            } catch (Exception e) {
+                log.warn("failed to check user entrust changes", e);
+            }
+        }, changeCheckSeconds, changeCheckSeconds, TimeUnit.SECONDS);
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = rebuild();
+                }
+            }
+        }
+        return current;
+    }
+
+    private synchronized Snapshot rebuild() {
+        //the version is read first,so changes made while loading are picked up by the next check
+        String version = queryVersion();
+        List<UserEntrust> entrusts = userEntrustMapper.selectList(Wrappers.<UserEntrust>lambdaQuery()
+                .eq(UserEntrust::getIsDel, 0)
+                .orderByAsc(UserEntrust::getId));
+        Map<String, Map<String, List<UserEntrust>>> grouped = new HashMap<>();
+        for (UserEntrust entrust : entrusts) {
+            if (StringUtils.isEmpty(entrust.getSender()) || StringUtils.isEmpty(entrust.getPowerId())) {
+                continue;
+            }
+            String key = groupKey(entrust.getSender(), entrust.getPowerId());
+            grouped.computeIfAbsent(StringUtils.defaultString(entrust.getTenantId()), k -> new HashMap<>())
+                    .computeIfAbsent(key, k -> new ArrayList<>()).add(entrust);
+            grouped.computeIfAbsent(ALL_TENANTS, k -> new HashMap<>())
+                    .computeIfAbsent(key, k -> new ArrayList<>()).add(entrust);
+        }
+        Map<String, Map<String, EntrustGroup>> groups = new HashMap<>(grouped.size());
+        grouped.forEach((tenantId, tenantGroups) -> {
+            Map<String, EntrustGroup> built = new HashMap<>(tenantGroups.size());
+            tenantGroups.forEach((key, rules) -> built.put(key, EntrustGroup.build(rules)));
+            groups.put(tenantId, built);
+        });
+        Snapshot rebuilt = new Snapshot(version, groups);
+        snapshot = rebuilt;
+        log.debug("user entrust index rebuilt with {} rules", entrusts.size());
+        return rebuilt;
+    }
+
+    private String queryVersion() {
+        List<Map<String, Object>> rows = userEntrustMapper.selectMaps(new QueryWrapper<UserEntrust>()
+                .select("count(1) as cnt", "max(update_time) as last_update"));
+        return rows.isEmpty() || rows.get(0) == null ? "" : rows.get(0).values().toString();
+    }
+
+    private static String groupKey(String sender, String powerId) {
+        return sender + "\u0000" + powerId;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (changeChecker != null) {
+            changeChecker.shutdownNow();
+        }
+    }
+
+    private static final class Snapshot {
+        private final String version;
+        /**
+         * tenantId -> sender,powerId -> group
+         */
+        private final Map<String, Map<String, EntrustGroup>> groups;
+
+        Snapshot(String version, Map<String, Map<String, EntrustGroup>> groups) {
+            this.version = version;
+            this.groups = groups;
+        }
+
+        EntrustGroup get(String tenantId, String key) {
+            Map<String, EntrustGroup> tenantGroups = groups.get(tenantId);
+            return tenantGroups == null ? null : tenantGroups.get(key);
+        }
+    }
+
+    /**
+     * the rules of one sender and formCode as sorted segments,segment i starts at starts[i] and ends before starts[i+1]
+     */
+    static final class EntrustGroup {
+        private final long[] starts;
+        private final BaseIdTranStruVo[] receivers;
+
+        private EntrustGroup(long[] starts, BaseIdTranStruVo[] receivers) {
+            this.starts = starts;
+            this.receivers = receivers;
+        }
+
+        /**
+         * @param rules rules ordered by priority
+         */
+        static EntrustGroup build(List<UserEntrust> rules) {
+            int size = rules.size();
+            long[] froms = new long[size];
+            long[] tos = new long[size];
+            TreeSet<Long> bounds = new TreeSet<>();
+            for (int i = 0; i < size; i++) {
+                UserEntrust rule = rules.get(i);
+                Date beginTime = rule.getBeginTime();
+                Date endTime = rule.getEndTime();
+                froms[i] = beginTime == null ? Long.MIN_VALUE : DateUtil.getDayStart(beginTime).getTime();
+                if (endTime == null) {
+                    tos[i] = Long.MAX_VALUE;
+                } else if (beginTime == null) {
+                    tos[i] = DateUtil.getDayStart(endTime).getTime();
+                } else {
+                    tos[i] = DateUtil.getDayEnd(endTime).getTime();
+                }
+                bounds.add(froms[i]);
+                if (tos[i] != Long.MAX_VALUE) {
+                    bounds.add(tos[i] + 1);
+                }
+            }
+            long[] starts = new long[bounds.size()];
+            BaseIdTranStruVo[] receivers = new BaseIdTranStruVo[bounds.size()];
+            int segment = 0;
+            for (Long start : bounds) {
+                starts[segment] = start;
+                for (int i = 0; i < size; i++) {
+                    if (froms[i] <= start && start <= tos[i]) {
+                        UserEntrust rule = rules.get(i);
+                        receivers[segment] = BaseIdTranStruVo.builder().id(rule.getReceiverId()).name(rule.getReceiverName()).build();
+                        break;
+                    }
+                }
+                segment++;
+            }
+            return new EntrustGroup(starts, receivers);
+        }
+
+        BaseIdTranStruVo receiverAt(long time) {
+            int index = Arrays.binarySearch(starts, time);
+            if (index < 0) {
+                index = -index - 2;
+            }
+            if (index < 0) {
+                return null;
+            }
+            BaseIdTranStruVo receiver = receivers[index];
+            return receiver == null ? null : BaseIdTranStruVo.builder().id(receiver.getId()).name(receiver.getName()).build();
+        }
+    }
+}
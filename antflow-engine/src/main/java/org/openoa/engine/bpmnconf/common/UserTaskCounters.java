@@ -0,0 +1,156 @@
+package org.openoa.engine.bpmnconf.common;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.DateUtils;
+import org.openoa.base.entity.BpmUserTaskCounter;
+import org.openoa.base.util.MultiTenantUtil;
+import org.openoa.base.vo.TaskMgmtVO;
+import org.openoa.engine.bpmnconf.mapper.BpmUserTaskCounterMapper;
+import org.openoa.engine.bpmnconf.mapper.ProcessApprovalMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * home page task counters(todo,done today,created today) of users.
+ * <p>
+ * the counters are adjusted in the transaction of the engine command changing the tasks,see
+ * {@link org.openoa.engine.bpmnconf.activitilistener.TaskCounterEventListener},so reading them is a single row lookup
+ * instead of loading all the pending tasks of a user.
+ * assignees changed by plain sql or custom engine commands are not seen by the events,so the counters of a user are
+ * recomputed from the engine tables on first read and once they are older than the reconcile interval.
+ */
+@Component
+public class UserTaskCounters {
+    @Value("${antflow.task-counter.enabled:true}")
+    private boolean enabled;
+    @Value("${antflow.task-counter.reconcile-seconds:600}")
+    private Integer reconcileSeconds;
+
+    @Autowired
+    private BpmUserTaskCounterMapper counterMapper;
+    @Autowired
+    private ProcessApprovalMapper processApprovalMapper;
+
+    /**
+     * get the home page statistics of a user
+     *
+     * @param userId user id
+     * @return statistics
+     */
+    public TaskMgmtVO getStatistics(String userId) {
+        BpmUserTaskCounter counter = enabled ? counterMapper.selectOne(Wrappers.<BpmUserTaskCounter>lambdaQuery()
+                .eq(BpmUserTaskCounter::getTenantId, tenantId())
+                .eq(BpmUserTaskCounter::getUserId, userId)) : null;
+        if (counter == null || counter.getReconcileTime() == null
+                || counter.getReconcileTime().getTime() < System.currentTimeMillis() - reconcileSeconds * 1000L) {
+            counter = reconcile(userId);
+        }
+        boolean today = counter.getCountDate() != null && DateUtils.isSameDay(counter.getCountDate(), new Date());
+        return TaskMgmtVO.builder()
+                .todoCount(counter.getTodoCount())
+                .doneTodayCount(today ? counter.getDoneTodayCount() : 0)
+                .doneCreateCount(today ? counter.getCreatedTodayCount() : 0)
+                .title(null)
+                .build();
+    }
+
+    /**
+     * recompute the counters of a user from the engine tables
+     *
+     * @param userId user id
+     * @return recomputed counters
+     */
+    public BpmUserTaskCounter reconcile(String userId) {
+        BpmUserTaskCounter counter = new BpmUserTaskCounter();
+        counter.setTenantId(tenantId());
+        counter.setUserId(userId);
+        counter.setTodoCount((int) counterMapper.countTodo(userId));
+        counter.setDoneTodayCount(ObjectUtils.defaultIfNull(processApprovalMapper.doneTodayProcess(userId), 0));
+        counter.setCreatedTodayCount(ObjectUtils.defaultIfNull(processApprovalMapper.doneCreateProcess(userId), 0));
+        counter.setCountDate(today());
+        counter.setReconcileTime(new Date());
+        if (enabled) {
+            counterMapper.upsert(counter);
+        }
+        return counter;
+    }
+
+    /**
+     * a task was assigned to the user
+     */
+    public void taskAssigned(String userId) {
+        adjust(userId, 1, 0, 0);
+    }
+
+    /**
+     * a task of the user was completed or deleted,or assigned to someone else
+     */
+    public void taskRemoved(String userId) {
+        adjust(userId, -1, 0, 0);
+    }
+
+    /**
+     * the user approved a process the first time today
+     */
+    public void processDone(String userId) {
+        adjust(userId, 0, 1, 0);
+    }
+
+    /**
+     * the user started a process
+     */
+    public void processCreated(String userId) {
+        adjust(userId, 0, 0, 1);
+    }
+
+    /**
+     * a task was reassigned by plain sql
+     */
+    public void taskReassigned(String fromUserId, String toUserId) {
+        if (Objects.equals(fromUserId, toUserId)) {
+            return;
+        }
+        taskRemoved(fromUserId);
+        taskAssigned(toUserId);
+    }
+
+    /**
+     * a number of tasks were reassigned by plain sql at once
+     */
+    public void tasksReassigned(String fromUserId, String toUserId, int count) {
+        if (Objects.equals(fromUserId, toUserId) || count <= 0) {
+            return;
+        }
+        adjust(fromUserId, -count, 0, 0);
+        adjust(toUserId, count, 0, 0);
+    }
+
+    /**
+     * start of the current day,completions after it count as done today
+     */
+    public Date today() {
+        return DateUtils.truncate(new Date(), Calendar.DAY_OF_MONTH);
+    }
+
+    private void adjust(String userId, int todoDelta, int doneDelta, int createdDelta) {
+        if (!enabled || StringUtils.isEmpty(userId)) {
+            return;
+        }
+        counterMapper.adjust(tenantId(), userId, today(), todoDelta, doneDelta, createdDelta);
+    }
+
+    private String tenantId() {
+        return StringUtils.defaultString(MultiTenantUtil.getCurrentTenantId());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
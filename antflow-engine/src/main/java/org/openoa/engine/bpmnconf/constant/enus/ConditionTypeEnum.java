@@ -1,5 +1,6 @@
 package org.openoa.engine.bpmnconf.constant.enus;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import lombok.Getter;
 import org.openoa.engine.bpmnconf.adp.conditionfilter.conditionjudge.*;
@@ -13,6 +14,7 @@ import static org.openoa.base.constant.StringConstants.LOWFLOW_CONDITION_CONTAIN
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 条件类型枚举
@@ -62,6 +64,11 @@ public enum ConditionTypeEnum {
             BpmnNodeConditionsEmptyAdp.class, BpmnStartConditionsVo.class,EXPRESSION_FIELD_NAME, SpelExpressionConditionJudge.class),
     ;
 static{
+    ImmutableMap.Builder<Integer, ConditionTypeEnum> codeMapBuilder = ImmutableMap.builder();
+    for (ConditionTypeEnum conditionTypeEnum : ConditionTypeEnum.values()) {
+        codeMapBuilder.put(conditionTypeEnum.code, conditionTypeEnum);
+    }
+    CODE_MAP = codeMapBuilder.build();
     lowFlowCodes=  Lists.newArrayList(
             CONDITION_TYPE_LF_STR_CONDITION.code,
             CONDITION_TYPE_LF_NUM_CONDITION.code,
@@ -113,6 +120,7 @@ static{
     private String alignmentFieldName;
 
     private static final List<Integer> lowFlowCodes;
+    private static final Map<Integer, ConditionTypeEnum> CODE_MAP;
     /**
      * 不同条件对应不同的判断类
      */
@@ -139,12 +147,10 @@ static{
      * @return
      */
     public static ConditionTypeEnum getEnumByCode(Integer code) {
-        for (ConditionTypeEnum conditionTypeEnum : ConditionTypeEnum.values()) {
-            if (conditionTypeEnum.getCode().equals(code)) {
-                return conditionTypeEnum;
-            }
+        if (code == null) {
+            return null;
         }
-        return null;
+        return CODE_MAP.get(code);
     }
 
     public static boolean isLowCodeFlow(ConditionTypeEnum conditionTypeEnum){
@@ -1,13 +1,16 @@
 package org.openoa.engine.bpmnconf.controller;
 
 import org.openoa.base.entity.Result;
+import org.openoa.base.service.ProcessorFactory;
 import org.openoa.base.vo.BpmProcessDeptVo;
+import org.openoa.base.vo.BulkReassignJobVo;
+import org.openoa.base.vo.ProcessorMetricsVo;
+import org.openoa.engine.bpmnconf.service.biz.BulkReassignServiceImpl;
 import org.openoa.engine.bpmnconf.service.interf.biz.BpmProcessDeptBizService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
 
 /**
  * @Author: jwz
@@ -21,6 +24,8 @@ public class BpmProcessControlController {
 
     @Autowired
     private BpmProcessDeptBizService processDeptBizService;
+    @Autowired
+    private BulkReassignServiceImpl bulkReassignService;
 
     /**
      * 流程图标下面弄一个配置选项,保存流程权限(目前尚未实现),流程通知类型
@@ -33,4 +38,41 @@ public class BpmProcessControlController {
         processDeptBizService.editProcessConf(vo);
         return Result.success();
     }
+
+    /**
+     * 批量转交,把一个人所有在途的待办和后续节点审批转交给另一个人(如离职交接),后台分批执行
+     *
+     * @param vo 转交人,接收人,可选的formCode
+     * @return 转交任务及进度
+     */
+    @PostMapping("/bulkReassign")
+    public Result<BulkReassignJobVo> bulkReassign(@RequestBody BulkReassignJobVo vo) {
+        return Result.newSuccessResult(bulkReassignService.submit(vo));
+    }
+
+    /**
+     * 批量转交任务的进度和吞吐量
+     */
+    @GetMapping("/bulkReassign/{id}")
+    public Result<BulkReassignJobVo> bulkReassignProgress(@PathVariable("id") Long id) {
+        return Result.newSuccessResult(bulkReassignService.progress(id));
+    }
+
+    /**
+     * 重新执行失败的批量转交任务,从中断处继续
+     */
+    @PostMapping("/bulkReassign/{id}/resume")
+    public Result<BulkReassignJobVo> resumeBulkReassign(@PathVariable("id") Long id) {
+        return Result.newSuccessResult(bulkReassignService.resume(id));
+    }
+
+    /**
+     * 前置后置处理器的耗时,按总耗时倒序
+     *
+     * @param limit 返回的处理器个数
+     */
+    @GetMapping("/processorMetrics")
+    public Result<List<ProcessorMetricsVo>> processorMetrics(@RequestParam(value = "limit", defaultValue = "20") Integer limit) {
+        return Result.newSuccessResult(ProcessorFactory.getSlowestProcessors(limit));
+    }
 }
@@ -12,6 +12,7 @@ import org.openoa.base.dto.PageDto;
 import org.openoa.base.interf.ActivitiService;
 import org.openoa.base.exception.AFBizException;
 import org.openoa.engine.bpmnconf.service.biz.ProcessApprovalServiceImpl;
+import org.openoa.engine.bpmnconf.service.biz.ProcessBatchOperationServiceImpl;
 import org.openoa.engine.bpmnconf.service.interf.biz.BpmnConfBizService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -40,6 +41,8 @@ public class BpmnConfController {
     private BpmnConfBizServiceImpl bpmnConfCommonService;
     @Autowired
     private BpmVerifyInfoBizServiceImpl bpmVerifyInfoBizService;
+    @Autowired
+    private ProcessBatchOperationServiceImpl processBatchOperationService;
     @Autowired(required = false)
     private Map<String, ActivitiService> activitiServices;
     @Autowired
@@ -141,6 +144,17 @@ public class BpmnConfController {
         return Result.newSuccessResult(resultData);
     }
 
+    /**
+     * 批量审批：每项与buttonsOperation的入参相同,返回每项的处理结果
+     *
+     * @param values json array of button operation request bodies
+     * @return
+     */
+    @PostMapping("/process/batchButtonsOperation")
+    public Result<BatchOperationResultVo> batchButtonsOperation(@RequestBody String values) {
+        return Result.newSuccessResult(processBatchOperationService.buttonsOperation(values));
+    }
+
     /**
      * 流程设计列表：启用
      *
@@ -16,6 +16,7 @@ import org.openoa.base.constant.enums.EventTypeEnum;
 import org.openoa.engine.bpmnconf.service.impl.BpmProcessNoticeServiceImpl;
 import org.openoa.engine.bpmnconf.service.interf.biz.BpmVariableApproveRemindBizService;
 import org.openoa.engine.bpmnconf.service.interf.biz.InformationTemplateBizService;
+import org.openoa.engine.utils.InformationTemplateUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -35,6 +36,8 @@ public class InformationTemplateController {
     private BpmVariableApproveRemindBizService variableApproveRemindBizService;
     @Autowired
     private BpmProcessNoticeServiceImpl processNoticeService;
+    @Autowired
+    private InformationTemplateUtils informationTemplateUtils;
 
     /**
      * query information template vos;
@@ -94,6 +97,7 @@ public class InformationTemplateController {
                 .updateUser(SecurityUtils.getLogInEmpNameSafe())
                 .isDel(1)
                 .build());
+        informationTemplateUtils.invalidate(id);
         return Result.success();
     }
 
@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.openoa.base.dto.PageDto;
 import org.openoa.base.entity.Result;
 import org.openoa.engine.bpmnconf.service.interf.biz.OutSideBpmCallbackUrlConfBizService;
+import org.openoa.engine.factory.ThirdPartyCallbackTransport;
 import org.openoa.engine.vo.OutSideBpmCallbackUrlConfVo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.validation.annotation.Validated;
@@ -20,6 +21,8 @@ public class OutSideBpmCallbackUrlConfController {
 
     @Autowired
     private OutSideBpmCallbackUrlConfBizService outSideBpmCallbackUrlConfBizService;
+    @Autowired
+    private ThirdPartyCallbackTransport thirdPartyCallbackTransport;
     /**
      * query callback conf list by formCode
      *
@@ -65,4 +68,13 @@ public class OutSideBpmCallbackUrlConfController {
         return Result.newSuccessResult(null);
     }
 
+    /**
+     * counters and latency of the callbacks to the business parties,by callback type
+     *
+     * @return
+     */
+    @GetMapping("/callbackMetrics")
+    public Result callbackMetrics() {
+        return Result.newSuccessResult(thirdPartyCallbackTransport.getMetricsSnapshot());
+    }
 }
@@ -0,0 +1,34 @@
+package org.openoa.engine.bpmnconf.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.openoa.base.entity.BpmNoticeOutbox;
+
+import java.util.Date;
+import java.util.List;
+
+@Mapper
+public interface BpmNoticeOutboxMapper extends BaseMapper<BpmNoticeOutbox> {
+    int insertBatch(@Param("rows") List<BpmNoticeOutbox> rows);
+
+    /**
+     * claim due pending rows which are not held back,and dispatching rows whose claim has timed out,for a dispatch round.
+     * rows held back for longer than the claim timeout are claimed too,their batch operation is considered abandoned
+     *
+     * @param claimOwner  id of the dispatch round
+     * @param now         current time
+     * @param staleBefore claims older than it are considered abandoned
+     * @param limit       max rows to claim
+     * @return number of rows claimed
+     */
+    int claim(@Param("claimOwner") String claimOwner, @Param("now") Date now, @Param("staleBefore") Date staleBefore, @Param("limit") Integer limit);
+
+    /**
+     * let the rows held back under a key be dispatched
+     *
+     * @param holdKey hold key of a batch operation
+     * @return number of rows released
+     */
+    int releaseHold(@Param("holdKey") String holdKey);
+}
@@ -0,0 +1,57 @@
+package org.openoa.engine.bpmnconf.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.openoa.base.entity.BpmReassignJob;
+import org.openoa.base.vo.ReassignItemVo;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+@Mapper
+public interface BpmReassignJobMapper extends BaseMapper<BpmReassignJob> {
+    /**
+     * claim the oldest pending job,or a running job whose heartbeat is older than staleBefore
+     *
+     * @return number of jobs claimed,0 or 1
+     */
+    int claim(@Param("claimOwner") String claimOwner, @Param("now") Date now, @Param("staleBefore") Date staleBefore);
+
+    /**
+     * record the progress of a chunk,to be called first in the transaction of the chunk.
+     * nothing is updated if the job has been taken over by another run meanwhile
+     */
+    int checkpoint(@Param("id") Long id, @Param("claimOwner") String claimOwner, @Param("now") Date now,
+                   @Param("taskDelta") int taskDelta, @Param("futureDelta") int futureDelta);
+
+    /**
+     * running tasks of a user
+     */
+    List<ReassignItemVo> selectTasks(@Param("assignee") String assignee, @Param("formCode") String formCode, @Param("limit") int limit);
+
+    int countTasks(@Param("assignee") String assignee, @Param("formCode") String formCode);
+
+    /**
+     * approvals of a user at nodes of running processes which have not been reached yet
+     */
+    List<ReassignItemVo> selectFutureItems(@Param("assignee") String assignee, @Param("formCode") String formCode, @Param("limit") int limit);
+
+    int countFutureItems(@Param("assignee") String assignee, @Param("formCode") String formCode);
+
+    /**
+     * set the assignee of running tasks and their history
+     */
+    int reassignTasks(@Param("taskIds") Collection<String> taskIds, @Param("assignee") String assignee, @Param("assigneeName") String assigneeName);
+
+    int reassignHisTasks(@Param("taskIds") Collection<String> taskIds, @Param("assignee") String assignee, @Param("assigneeName") String assigneeName);
+
+    int reassignHisActivities(@Param("taskIds") Collection<String> taskIds, @Param("assignee") String assignee);
+
+    /**
+     * set the assignee of future approvals,table is one of the variable personnel tables
+     */
+    int reassignFutureItems(@Param("table") String table, @Param("ids") Collection<String> ids,
+                            @Param("assignee") String assignee, @Param("assigneeName") String assigneeName);
+}
@@ -0,0 +1,38 @@
+package org.openoa.engine.bpmnconf.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.openoa.base.entity.BpmSearchDoc;
+
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface BpmSearchDocMapper extends BaseMapper<BpmSearchDoc> {
+    /**
+     * the searchable texts of a process,empty if the process does not exist
+     */
+    List<String> selectSearchTexts(@Param("processNumber") String processNumber);
+
+    /**
+     * insert or overwrite the text of a process
+     */
+    int upsertDoc(@Param("processNumber") String processNumber, @Param("content") String content);
+
+    /**
+     * process number of a running task
+     */
+    String selectProcessNumberByTaskId(@Param("taskId") String taskId);
+
+    List<String> selectTokens(@Param("processNumber") String processNumber);
+
+    int insertTokens(@Param("processNumber") String processNumber, @Param("tokens") Collection<String> tokens);
+
+    int deleteTokens(@Param("processNumber") String processNumber, @Param("tokens") Collection<String> tokens);
+
+    /**
+     * process numbers not indexed yet
+     */
+    List<String> selectUnindexedNumbers(@Param("limit") int limit);
+}
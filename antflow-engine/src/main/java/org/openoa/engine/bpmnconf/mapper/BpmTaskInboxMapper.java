@@ -0,0 +1,29 @@
+package org.openoa.engine.bpmnconf.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.openoa.base.entity.BpmTaskInbox;
+import org.openoa.base.vo.TaskMgmtVO;
+import org.openoa.engine.bpmnconf.common.TaskInbox;
+
+import java.util.List;
+
+@Mapper
+public interface BpmTaskInboxMapper extends BaseMapper<BpmTaskInbox> {
+    /**
+     * list the inbox rows of a user,newest first
+     *
+     * @param page       page
+     * @param tenantId   tenant id
+     * @param kind       see {@link BpmTaskInbox#KIND_TASK}
+     * @param state      see {@link BpmTaskInbox#STATE_TODO}
+     * @param cursor     the rows after it are listed,null for the first page
+     * @param taskMgmtVO applyUser is the owner of the inbox,the others are search conditions
+     * @return records
+     */
+    List<TaskMgmtVO> inboxList(Page page, @Param("tenantId") String tenantId, @Param("kind") int kind,
+                               @Param("state") int state, @Param("cursor") TaskInbox.Cursor cursor,
+                               @Param("taskMgmtVO") TaskMgmtVO taskMgmtVO);
+}
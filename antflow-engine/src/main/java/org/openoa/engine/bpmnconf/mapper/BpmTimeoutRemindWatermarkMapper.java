@@ -0,0 +1,9 @@
+package org.openoa.engine.bpmnconf.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.openoa.base.entity.BpmTimeoutRemindWatermark;
+
+@Mapper
+public interface BpmTimeoutRemindWatermarkMapper extends BaseMapper<BpmTimeoutRemindWatermark> {
+}
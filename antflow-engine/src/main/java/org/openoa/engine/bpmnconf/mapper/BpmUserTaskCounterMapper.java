@@ -0,0 +1,34 @@
+package org.openoa.engine.bpmnconf.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.openoa.base.entity.BpmUserTaskCounter;
+
+import java.util.Date;
+
+@Mapper
+public interface BpmUserTaskCounterMapper extends BaseMapper<BpmUserTaskCounter> {
+    /**
+     * adjust the counters of a user,the daily counts are restarted when the count date is not today.
+     * nothing is done if the user has no counters yet,they are computed on first read
+     */
+    int adjust(@Param("tenantId") String tenantId, @Param("userId") String userId, @Param("today") Date today,
+               @Param("todoDelta") int todoDelta, @Param("doneDelta") int doneDelta, @Param("createdDelta") int createdDelta);
+
+    /**
+     * insert or overwrite the counters of a user with recomputed ones
+     */
+    int upsert(@Param("counter") BpmUserTaskCounter counter);
+
+    /**
+     * count the pending tasks of a user
+     */
+    long countTodo(@Param("userId") String userId);
+
+    /**
+     * count the other tasks of a process instance the user has completed since the given time
+     */
+    int countDoneInProcessSince(@Param("userId") String userId, @Param("procInstId") String procInstId,
+                                @Param("excludeTaskId") String excludeTaskId, @Param("since") Date since);
+}
@@ -0,0 +1,22 @@
+package org.openoa.engine.bpmnconf.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.openoa.engine.lowflow.entity.LFMain;
+
+import java.util.List;
+
+/**
+ * statements of the low code table migrator,they work on physical table names and are never routed
+ */
+@Mapper
+public interface LFReshardingMapper {
+    /**
+     * scan id and form code of a physical table in id order,only id and formCode of the result are filled
+     */
+    List<LFMain> scanRows(@Param("tableName") String tableName, @Param("afterId") Long afterId, @Param("limit") Integer limit);
+
+    int copyRows(@Param("fromTable") String fromTable, @Param("toTable") String toTable, @Param("ids") List<Long> ids);
+
+    int deleteRows(@Param("tableName") String tableName, @Param("ids") List<Long> ids);
+}
@@ -29,7 +29,6 @@ import org.openoa.engine.bpmnconf.service.interf.repository.BpmnConfNoticeTempla
 import org.openoa.engine.utils.UserMsgUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
@@ -39,6 +38,11 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+/**
+ * process notices built from the notice templates.
+ * the notices are written to the notice outbox on the caller's thread,in the transaction of the engine command,
+ * so a rolled back approval sends nothing,the outbox dispatcher sends them once the transaction is committed.
+ */
 @Service
 @Slf4j
 public class ActivitiBpmMsgTemplateServiceImpl {
@@ -83,7 +87,6 @@ public class ActivitiBpmMsgTemplateServiceImpl {
      *
      * @param activitiBpmMsgVo
      */
-    @Async
     public void sendBpmApprovalMsg(ActivitiBpmMsgVo activitiBpmMsgVo) {
 
         if (activitiBpmMsgVo==null) {
@@ -101,7 +104,6 @@ public class ActivitiBpmMsgTemplateServiceImpl {
      *
      * @param activitiBpmMsgVos
      */
-    @Async
     public void sendBpmApprovalMsgBatch(List<ActivitiBpmMsgVo> activitiBpmMsgVos) {
 
         if (activitiBpmMsgVos==null) {
@@ -126,7 +128,6 @@ public class ActivitiBpmMsgTemplateServiceImpl {
      *
      * @param activitiBpmMsgVo
      */
-    @Async
     public void sendBpmForwardedlMsg(ActivitiBpmMsgVo activitiBpmMsgVo) {
         if (activitiBpmMsgVo==null) {
             return;
@@ -146,7 +147,6 @@ public class ActivitiBpmMsgTemplateServiceImpl {
      *
      * @param activitiBpmMsgVos
      */
-    @Async
     public void sendBpmForwardedMsgBatch(List<ActivitiBpmMsgVo> activitiBpmMsgVos) {
 
         if (CollectionUtils.isEmpty(activitiBpmMsgVos)) {
@@ -171,7 +171,6 @@ public class ActivitiBpmMsgTemplateServiceImpl {
      *
      * @param activitiBpmMsgVo
      */
-    @Async
     public void sendBpmFinishMsg(ActivitiBpmMsgVo activitiBpmMsgVo) {
 
         if (activitiBpmMsgVo==null) {
@@ -193,7 +192,6 @@ public class ActivitiBpmMsgTemplateServiceImpl {
      *
      * @param activitiBpmMsgVos
      */
-    @Async
     public void sendBpmFinishMsgBatch(List<ActivitiBpmMsgVo> activitiBpmMsgVos) {
 
         if (CollectionUtils.isEmpty(activitiBpmMsgVos)) {
@@ -219,7 +217,6 @@ public class ActivitiBpmMsgTemplateServiceImpl {
      *
      * @param activitiBpmMsgVo
      */
-    @Async
     public void sendBpmRejectMsg(ActivitiBpmMsgVo activitiBpmMsgVo) {
 
         if (activitiBpmMsgVo==null) {
@@ -241,7 +238,6 @@ public class ActivitiBpmMsgTemplateServiceImpl {
      *
      * @param activitiBpmMsgVos
      */
-    @Async
     public void sendBpmRejectMsgBatch(List<ActivitiBpmMsgVo> activitiBpmMsgVos) {
 
         if (CollectionUtils.isEmpty(activitiBpmMsgVos)) {
@@ -267,7 +263,6 @@ public class ActivitiBpmMsgTemplateServiceImpl {
      *
      * @param activitiBpmMsgVo
      */
-    @Async
     public void sendBpmOverTimeMsg(ActivitiBpmMsgVo activitiBpmMsgVo) {
 
         if (activitiBpmMsgVo==null) {
@@ -289,7 +284,6 @@ public class ActivitiBpmMsgTemplateServiceImpl {
      *
      * @param activitiBpmMsgVos
      */
-    @Async
     public void sendBpmOverTimeMsgBatch(List<ActivitiBpmMsgVo> activitiBpmMsgVos) {
 
         if (CollectionUtils.isEmpty(activitiBpmMsgVos)) {
@@ -315,7 +309,6 @@ public class ActivitiBpmMsgTemplateServiceImpl {
      *
      * @param activitiBpmMsgVo
      */
-    @Async
     public void sendBpmTerminationMsg(ActivitiBpmMsgVo activitiBpmMsgVo) {
 
         if (activitiBpmMsgVo==null) {
@@ -337,7 +330,6 @@ public class ActivitiBpmMsgTemplateServiceImpl {
      *
      * @param activitiBpmMsgVos
      */
-    @Async
     public void sendBpmTerminationMsgBatch(List<ActivitiBpmMsgVo> activitiBpmMsgVos) {
 
         if (CollectionUtils.isEmpty(activitiBpmMsgVos)) {
@@ -363,7 +355,6 @@ public class ActivitiBpmMsgTemplateServiceImpl {
      *
      * @param activitiBpmMsgVo
      */
-    @Async
     public void sendBpmGenerationApprovalMsg(ActivitiBpmMsgVo activitiBpmMsgVo) {
 
         if (activitiBpmMsgVo==null) {
@@ -385,7 +376,6 @@ public class ActivitiBpmMsgTemplateServiceImpl {
      *
      * @param activitiBpmMsgVos
      */
-    @Async
     public void sendBpmGenerationApprovalMsgBatch(List<ActivitiBpmMsgVo> activitiBpmMsgVos) {
 
         if (CollectionUtils.isEmpty(activitiBpmMsgVos)) {
@@ -412,7 +402,6 @@ public class ActivitiBpmMsgTemplateServiceImpl {
      *
      * @param activitiBpmMsgVo
      */
-    @Async
     public void sendBpmChangePersonOrgiMsg(ActivitiBpmMsgVo activitiBpmMsgVo) {
 
         if (activitiBpmMsgVo==null) {
@@ -434,7 +423,6 @@ public class ActivitiBpmMsgTemplateServiceImpl {
      *
      * @param activitiBpmMsgVo
      */
-    @Async
     public void sendBpmChangePersonNewMsg(ActivitiBpmMsgVo activitiBpmMsgVo) {
 
         if (activitiBpmMsgVo==null) {
@@ -2,22 +2,29 @@ package org.openoa.engine.bpmnconf.service.biz;
 
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.google.common.collect.Lists;
 import lombok.extern.slf4j.Slf4j;
 import org.openoa.base.constant.enums.ProcessEnum;
 import org.openoa.base.constant.enums.ProcessStateEnum;
 import org.openoa.base.entity.BpmBusinessProcess;
 import org.openoa.base.interf.BpmBusinessProcessService;
 import org.openoa.base.util.MultiTenantUtil;
+import org.openoa.engine.bpmnconf.common.ProcessSearchIndex;
 import org.openoa.engine.bpmnconf.mapper.BpmBusinessProcessMapper;
 import org.openoa.engine.utils.AFWrappers;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.ObjectUtils;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * this is the core service for connecting bpmn and business
@@ -25,7 +32,8 @@ import java.util.List;
 @Slf4j
 @Service
 public class BpmBusinessProcessServiceImpl extends ServiceImpl<BpmBusinessProcessMapper, BpmBusinessProcess> implements BpmBusinessProcessService {
-
+    @Autowired
+    private ProcessSearchIndex processSearchIndex;
 
 
     /**
@@ -90,6 +98,7 @@ public class BpmBusinessProcessServiceImpl extends ServiceImpl<BpmBusinessProces
             }
             getBaseMapper().updateById(o);
         });
+        processSearchIndex.touch(bpmBusinessProcess.getBusinessNumber());
         return bpmBusinessProcesses.get(0);
     }
 
@@ -130,6 +139,41 @@ public class BpmBusinessProcessServiceImpl extends ServiceImpl<BpmBusinessProces
         return true;
     }
 
+    /**
+     * get process key(form code) by process instance id,
+     * do not take it from the process definition id,whose key is the process number or the key of a shared definition
+     *
+     * @param procInstId
+     * @return process key,null if the process instance is not found
+     */
+    @Override
+    public String getProcessKey(String procInstId) {
+        BpmBusinessProcess bpmBusinessProcess = this.getOne(Wrappers.<BpmBusinessProcess>lambdaQuery()
+                .eq(BpmBusinessProcess::getProcInstId, procInstId), false);
+        return bpmBusinessProcess == null ? null : bpmBusinessProcess.getProcessinessKey();
+    }
+
+    /**
+     * get process keys(form codes) of many process instances at once
+     *
+     * @param procInstIds
+     * @return process instance id to process key,process instances not found are left out
+     */
+    @Override
+    public Map<String, String> getProcessKeys(Collection<String> procInstIds) {
+        Map<String, String> processKeys = new HashMap<>();
+        if (ObjectUtils.isEmpty(procInstIds)) {
+            return processKeys;
+        }
+        for (List<String> ids : Lists.partition(new ArrayList<>(new HashSet<>(procInstIds)), 1000)) {
+            this.getBaseMapper().selectList(Wrappers.<BpmBusinessProcess>lambdaQuery()
+                            .select(BpmBusinessProcess::getProcInstId, BpmBusinessProcess::getProcessinessKey)
+                            .in(BpmBusinessProcess::getProcInstId, ids))
+                    .forEach(o -> processKeys.putIfAbsent(o.getProcInstId(), o.getProcessinessKey()));
+        }
+        return processKeys;
+    }
+
     /**
      * get process tittles by process numbers
      * @param processNumbers
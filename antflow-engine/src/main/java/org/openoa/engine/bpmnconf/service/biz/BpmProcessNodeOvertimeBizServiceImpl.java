@@ -9,6 +9,7 @@ import org.openoa.base.entity.BpmBusinessProcess;
 import org.openoa.base.entity.BpmProcessNodeOvertime;
 import org.openoa.base.entity.BpmProcessNodeRecord;
 import org.openoa.base.exception.AFBizException;
+import org.openoa.base.interf.BpmBusinessProcessService;
 import org.openoa.base.util.DateUtil;
 import org.openoa.engine.bpmnconf.common.ProcessBusinessContans;
 import org.openoa.engine.bpmnconf.mapper.BpmBusinessProcessMapper;
@@ -21,6 +22,8 @@ import org.springframework.util.ObjectUtils;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class BpmProcessNodeOvertimeBizServiceImpl implements BpmProcessNodeOvertimeBizService {
@@ -34,6 +37,8 @@ public class BpmProcessNodeOvertimeBizServiceImpl implements BpmProcessNodeOvert
     private TaskMgmtMapper taskMgmtMapper;
     @Autowired
     private BpmBusinessProcessMapper bpmBusinessProcessService;
+    @Autowired
+    private BpmBusinessProcessService businessProcessService;
 
     /**
      * check whether current node is overtime
@@ -75,10 +80,14 @@ public class BpmProcessNodeOvertimeBizServiceImpl implements BpmProcessNodeOvert
     @Override
     public void checkTaskOvertime() throws AFBizException {
         List<Task> list = taskService.createTaskQuery().list();
+        //流程key一次查出,不从流程定义id中截取(共享流程定义的key不是流程编号)
+        Map<String, String> processKeys = businessProcessService.getProcessKeys(list.stream()
+                .map(Task::getProcessInstanceId)
+                .collect(Collectors.toList()));
         for (Task task : list) {
             try {
                 //获取流程key
-                String processKey = task.getProcessDefinitionId().split("\\:")[0].toString();
+                String processKey = processKeys.get(task.getProcessInstanceId());
                 if (!ObjectUtils.isEmpty(ProcessKeyEnum.getCodeByDesc(processKey))) {
                     BpmProcessNodeRecord processNodeRecord = processNodeRecordService.getBpmProcessNodeRecord(BpmProcessNodeRecord.builder()
                             .processInstanceId(task.getProcessInstanceId())
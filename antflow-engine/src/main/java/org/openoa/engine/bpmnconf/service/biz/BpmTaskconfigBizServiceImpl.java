@@ -3,6 +3,7 @@ package org.openoa.engine.bpmnconf.service.biz;
 import org.activiti.engine.TaskService;
 import org.activiti.engine.task.Task;
 import org.openoa.base.exception.AFBizException;
+import org.openoa.base.interf.BpmBusinessProcessService;
 import org.openoa.engine.bpmnconf.service.interf.biz.BpmTaskconfigBizService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -12,6 +13,8 @@ import org.springframework.util.ObjectUtils;
 public class BpmTaskconfigBizServiceImpl implements BpmTaskconfigBizService {
     @Autowired
     private TaskService taskService;
+    @Autowired
+    private BpmBusinessProcessService bpmBusinessProcessService;
 
     /**
 
@@ -26,7 +29,7 @@ public class BpmTaskconfigBizServiceImpl implements BpmTaskconfigBizService {
         if (ObjectUtils.isEmpty(task)) {
             throw new AFBizException("当前任务id:[" + taskId + "]" + "不存在");
         }
-        String processKey = task.getProcessDefinitionId().split(":")[0];
+        String processKey = bpmBusinessProcessService.getProcessKey(task.getProcessInstanceId());
         String nodeKey = getMapper().findTaskRollBack(processKey, task.getTaskDefinitionKey());
         return nodeKey == null ? "" : nodeKey;
     }
@@ -2,42 +2,46 @@ package org.openoa.engine.bpmnconf.service.biz;
 
 import com.alibaba.fastjson2.JSON;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.google.common.base.Strings;
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 import jodd.bean.BeanCopy;
+import lombok.extern.slf4j.Slf4j;
 import org.activiti.engine.TaskService;
 import org.activiti.engine.task.Task;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.DateUtils;
 import org.openoa.base.entity.*;
 import org.openoa.base.interf.BpmBusinessProcessService;
 import org.openoa.base.service.AfUserService;
 import org.openoa.base.util.DateUtil;
 import org.openoa.base.vo.*;
 import org.openoa.engine.bpmnconf.common.ProcessBusinessContans;
+import org.openoa.engine.bpmnconf.mapper.BpmTimeoutRemindWatermarkMapper;
 import org.openoa.engine.bpmnconf.service.impl.BpmVariableServiceImpl;
 import org.openoa.engine.bpmnconf.service.impl.BpmnConfServiceImpl;
 import org.openoa.engine.bpmnconf.service.interf.biz.BpmVariableApproveRemindBizService;
+import org.openoa.engine.bpmnconf.service.interf.repository.BpmnApproveRemindService;
 import org.openoa.engine.bpmnconf.service.interf.repository.BpmnConfService;
 import org.openoa.engine.utils.InformationTemplateUtils;
 import org.openoa.engine.utils.UserMsgUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.util.ObjectUtils;
 
-import java.util.Date;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
 import java.util.stream.Collectors;
 
 import static org.openoa.base.constant.enums.MessageSendTypeEnum.*;
 import static org.openoa.base.constant.enums.WildcardCharacterEnum.*;
 
+@Slf4j
 @Service
 public class BpmVariableApproveRemindBizServiceImpl implements BpmVariableApproveRemindBizService {
+    private static final String TIMEOUT_REMINDER_JOB_CODE = "timeout_reminder";
+
     @Autowired
     private BpmVariableServiceImpl bpmVariableService;
 
@@ -54,229 +58,347 @@ public class BpmVariableApproveRemindBizServiceImpl implements BpmVariableApprov
     private BpmnConfService bpmnConfService;
     @Autowired
     private InformationTemplateUtils informationTemplateUtils;
+    @Autowired
+    private BpmnApproveRemindService bpmnApproveRemindService;
+    @Autowired
+    private BpmTimeoutRemindWatermarkMapper watermarkMapper;
     @Value("${system.domain:test}")
     private String systemDomain;
+    @Value("${antflow.timeout-reminder.page-size:500}")
+    private Integer pageSize;
+    /**
+     * window of the first run,when there is no watermark yet
+     */
+    @Value("${antflow.timeout-reminder.initial-window-hours:24}")
+    private Integer initialWindowHours;
 
 
     /**
      * 执行流程超时提醒
+     * <p>
+     * a task crosses the remind threshold of n days at its create time plus n days,each run claims the window between the
+     * watermark left by the last run and now,then for every configured day n pages through the tasks created in the same
+     * window shifted back by n days,using the create time index of the task table,so a run only touches the tasks
+     * that actually crossed a threshold since the last one instead of every open task
      */
     @Override
     public void doTimeoutReminder() {
+        Date now = new Date();
 
+        //claim the window,another node running at the same time gets nothing
+        Date since = claimWindow(now);
+        if (since == null) {
+            log.info("timeout reminder window has been claimed by another run,skipped");
+            return;
+        }
 
-        //get unfinished tasks and stored into a multimap
-        Multimap<String, BpmnTimeoutReminderTaskVo> tasksMultimap = getBpmnTimeoutReminderTaskVoMultimap();
-
-
-        //get timeout remind variables
-        Map<String, BpmnTimeoutReminderVariableVo> bpmnTimeoutReminderVariableVoMap = getBpmnTimeoutReminderVariableVoMap(tasksMultimap);
-
-
-        //che and send message
-        checkAndSendMessage(tasksMultimap, bpmnTimeoutReminderVariableVoMap);
-
+        //a task crossing several thresholds since the last run is only reminded for the largest one
+        Set<String> remindedTaskIds = new HashSet<>();
+        for (Integer day : getRemindDays()) {
+            scanWindow(DateUtils.addDays(since, -day), DateUtils.addDays(now, -day), day, remindedTaskIds);
+        }
     }
+
     /**
-     * send remind message
+     * move the watermark to now
      *
-     * @param bpmnTimeoutReminderVariableVo
-     * @param bpmnTimeoutReminderTaskVo
-     * @param bpmnApproveRemindVo
+     * @param now current time
+     * @return the previous watermark,null if it was moved by another run
      */
-    private void doSendMessage(BpmnTimeoutReminderVariableVo bpmnTimeoutReminderVariableVo, BpmnTimeoutReminderTaskVo bpmnTimeoutReminderTaskVo, BpmnApproveRemindVo bpmnApproveRemindVo) {
-
-
-        //set isOutside default to false
-        boolean isOutside = false;
-
-
-        //if bpmnCode is not null or empty then query config info and judge whether it is outside process,
-        // if it is outside process then set isOutside boolean value to true
-        if (!Strings.isNullOrEmpty(bpmnTimeoutReminderVariableVo.getBpmnCode())) {
-
-            BpmnConf bpmnConf = bpmnConfService.getBaseMapper().selectOne(new QueryWrapper<BpmnConf>()
-                    .eq("bpmn_code", bpmnTimeoutReminderVariableVo.getBpmnCode()));
-
-
-            if (!ObjectUtils.isEmpty(bpmnConf) && bpmnConf.getIsOutSideProcess() == 1) {
-                isOutside = true;
+    private Date claimWindow(Date now) {
+        BpmTimeoutRemindWatermark watermark = watermarkMapper.selectOne(Wrappers.<BpmTimeoutRemindWatermark>lambdaQuery()
+                .eq(BpmTimeoutRemindWatermark::getJobCode, TIMEOUT_REMINDER_JOB_CODE));
+        if (watermark == null) {
+            watermark = new BpmTimeoutRemindWatermark();
+            watermark.setJobCode(TIMEOUT_REMINDER_JOB_CODE);
+            watermark.setLastTime(now);
+            try {
+                watermarkMapper.insert(watermark);
+            } catch (DuplicateKeyException e) {
+                return null;
             }
+            return DateUtils.addHours(now, -initialWindowHours);
         }
+        if (!watermark.getLastTime().before(now)) {
+            return null;
+        }
+        BpmTimeoutRemindWatermark toUpdate = new BpmTimeoutRemindWatermark();
+        toUpdate.setLastTime(now);
+        int updated = watermarkMapper.update(toUpdate, Wrappers.<BpmTimeoutRemindWatermark>lambdaUpdate()
+                .eq(BpmTimeoutRemindWatermark::getId, watermark.getId())
+                .eq(BpmTimeoutRemindWatermark::getLastTime, watermark.getLastTime()));
+        return updated > 0 ? watermark.getLastTime() : null;
+    }
 
-        //email url
-        String emailUrl = "";//todo
-
-        //app route url
-        String appUrl = "";//todo
-
-
-        //employs to receive notice message
-        String emplId = bpmnTimeoutReminderTaskVo.getAssignee();
-
-        //todo this module should be redesigned
-        Employee employee = employeeService.getEmployeeDetailById(emplId);
-
-
-        //format message content
-        InformationTemplateVo informationTemplateVo = getInformationTemplateVo(bpmnTimeoutReminderVariableVo, bpmnApproveRemindVo, employee);
-
-        //send email
-        sendMail(bpmnTimeoutReminderTaskVo, emailUrl, appUrl, emplId, employee, informationTemplateVo);
-
-        //send message and app push
-        sendMessageAndPush(bpmnTimeoutReminderTaskVo, emailUrl, appUrl, emplId, employee, informationTemplateVo);
+    /**
+     * all remind days ever configured,in descending order.
+     * deleted conf rows are included,the remind variables of running processes keep the days of the conf version they were started with
+     */
+    private List<Integer> getRemindDays() {
+        List<Object> daysList = bpmnApproveRemindService.getBaseMapper().selectObjs(new QueryWrapper<BpmnApproveRemind>()
+                .select("distinct days")
+                .isNotNull("days"));
+        TreeSet<Integer> remindDays = new TreeSet<>(Comparator.reverseOrder());
+        for (Object days : daysList) {
+            if (ObjectUtils.isEmpty(days)) {
+                continue;
+            }
+            for (String day : days.toString().split(",")) {
+                day = day.trim();
+                if (StringUtils.isNumeric(day) && Integer.parseInt(day) > 0) {
+                    remindDays.add(Integer.parseInt(day));
+                }
+            }
+        }
+        return new ArrayList<>(remindDays);
+    }
 
-        //set inside message
-        insertUserMessage(bpmnTimeoutReminderTaskVo, emailUrl, appUrl, emplId, employee, informationTemplateVo);
+    /**
+     * page through the tasks created in (from,to] in create time order and remind those configured with the given day
+     */
+    private void scanWindow(Date from, Date to, Integer day, Set<String> remindedTaskIds) {
+        Date createdBefore = new Date(to.getTime() + 1);
+        Date cursor = from;
+        Set<String> scannedTaskIds = new HashSet<>();
+        while (true) {
+            List<Task> tasks = taskService.createTaskQuery()
+                    .taskCreatedAfter(cursor)
+                    .taskCreatedBefore(createdBefore)
+                    .orderByTaskCreateTime().asc()
+                    .listPage(0, pageSize);
+            if (tasks.isEmpty()) {
+                break;
+            }
+            List<BpmnTimeoutReminderTaskVo> taskVos = new ArrayList<>(tasks.size());
+            for (Task task : tasks) {
+                //if a assignee is empty or the task has been handled then skip
+                if (!scannedTaskIds.add(task.getId()) || ObjectUtils.isEmpty(task.getAssignee()) || remindedTaskIds.contains(task.getId())) {
+                    continue;
+                }
+                taskVos.add(BpmnTimeoutReminderTaskVo
+                        .builder()
+                        .procInstId(task.getProcessInstanceId())
+                        .taskId(task.getId())
+                        .elementId(task.getTaskDefinitionKey())
+                        .assignee(task.getAssignee())
+                        .createTime(task.getCreateTime())
+                        .standbyDay(day)
+                        .build());
+            }
+            if (!taskVos.isEmpty()) {
+                remindedTaskIds.addAll(remindPage(taskVos, day));
+            }
+            if (tasks.size() < pageSize) {
+                break;
+            }
+            //tasks created in the same millisecond as the last one may be on the next page,they are scanned again and skipped by id
+            Date lastCreateTime = tasks.get(tasks.size() - 1).getCreateTime();
+            Date nextCursor = new Date(lastCreateTime.getTime() - 1);
+            cursor = nextCursor.after(cursor) ? nextCursor : lastCreateTime;
+        }
     }
+
     /**
-     * query remind variable to map
+     * join a page of tasks with their process,variable and remind config by hash maps and send the reminders
      *
-     * @param tasksMultimap
-     * @return
+     * @return ids of the reminded tasks
      */
-    private Map<String, BpmnTimeoutReminderVariableVo> getBpmnTimeoutReminderVariableVoMap(Multimap<String, BpmnTimeoutReminderTaskVo> tasksMultimap) {
-
-
-        //get bpm and business process connect info by entry id
-        List<BpmBusinessProcess> bpmBusinessProcesses = bpmBusinessProcessService.getBaseMapper().selectList(new QueryWrapper<BpmBusinessProcess>()
-                .in("PROC_INST_ID_",tasksMultimap.keys()));
+    private List<String> remindPage(List<BpmnTimeoutReminderTaskVo> taskVos, Integer day) {
+        Set<String> procInstIds = taskVos.stream().map(BpmnTimeoutReminderTaskVo::getProcInstId).collect(Collectors.toSet());
 
+        //get bpm and business process connect info by proc inst id
+        Map<String, BpmBusinessProcess> processMap = Maps.newHashMap();
+        for (BpmBusinessProcess bpmBusinessProcess : bpmBusinessProcessService.getBaseMapper().selectList(new QueryWrapper<BpmBusinessProcess>()
+                .in("PROC_INST_ID_", procInstIds))) {
+            processMap.putIfAbsent(bpmBusinessProcess.getProcInstId(), bpmBusinessProcess);
+        }
+        if (processMap.isEmpty()) {
+            return Collections.emptyList();
+        }
 
         //get bpm variable by process number
-        List<BpmVariable> bpmVariables = bpmVariableService.getBaseMapper().selectList(new QueryWrapper<BpmVariable>()
-                .in("process_num", bpmBusinessProcesses
+        Map<String, BpmVariable> variableMap = Maps.newHashMap();
+        for (BpmVariable bpmVariable : bpmVariableService.getBaseMapper().selectList(new QueryWrapper<BpmVariable>()
+                .in("process_num", processMap.values()
                         .stream()
                         .map(BpmBusinessProcess::getBusinessNumber)
-                        .collect(Collectors.toList())));
-
+                        .collect(Collectors.toSet())))) {
+            variableMap.putIfAbsent(bpmVariable.getProcessNum(), bpmVariable);
+        }
+        if (variableMap.isEmpty()) {
+            return Collections.emptyList();
+        }
 
-        //get node approval remind info
-        List<BpmVariableApproveRemind> bpmVariableApproveReminds = this.getMapper().selectList(new QueryWrapper<BpmVariableApproveRemind>()
-                .in("variable_id", bpmVariables
+        //get node approval remind info,variable id -> element id -> remind
+        Map<Long, List<BpmVariableApproveRemind>> remindsMap = Maps.newHashMap();
+        Map<Long, Map<String, BpmVariableApproveRemind>> elementRemindMap = Maps.newHashMap();
+        for (BpmVariableApproveRemind remind : this.getMapper().selectList(new QueryWrapper<BpmVariableApproveRemind>()
+                .in("variable_id", variableMap.values()
                         .stream()
                         .map(BpmVariable::getId)
-                        .collect(Collectors.toList())));
-
-
-        // iterate historic process instance list and bpm business process list,then connect them
-        Map<String, BpmBusinessProcess> processMap = Maps.newHashMap();
-        for (String procinstId : tasksMultimap.keys()) {
-            BpmBusinessProcess bpmBusinessProcess = bpmBusinessProcesses
-                    .stream()
-                    .filter(bbp -> procinstId.equals(bbp.getEntryId()))
-                    .findFirst()
-                    .orElse(null);
-            processMap.put(procinstId, bpmBusinessProcess);
+                        .collect(Collectors.toSet())))) {
+            remindsMap.computeIfAbsent(remind.getVariableId(), k -> new ArrayList<>()).add(remind);
+            elementRemindMap.computeIfAbsent(remind.getVariableId(), k -> Maps.newHashMap()).putIfAbsent(remind.getElementId(), remind);
         }
 
-
-        Map<String, BpmnTimeoutReminderVariableVo> bpmnTimeoutReminderVariableVoMap = Maps.newHashMap();
-        for (String key : processMap.keySet()) {
-            BpmBusinessProcess val = processMap.get(key);
-
-
-            //if value is null then continue
-            if (ObjectUtils.isEmpty(val)) {
+        //pick the tasks whose node is configured with the day
+        Map<Long, BpmnApproveRemindVo> remindVoMap = Maps.newHashMap();
+        List<BpmnTimeoutReminderTaskVo> dueTasks = new ArrayList<>();
+        List<BpmnApproveRemindVo> dueRemindVos = new ArrayList<>();
+        for (BpmnTimeoutReminderTaskVo taskVo : taskVos) {
+            BpmBusinessProcess bpmBusinessProcess = processMap.get(taskVo.getProcInstId());
+            BpmVariable bpmVariable = bpmBusinessProcess == null ? null : variableMap.get(bpmBusinessProcess.getBusinessNumber());
+            Map<String, BpmVariableApproveRemind> reminds = bpmVariable == null ? null : elementRemindMap.get(bpmVariable.getId());
+            BpmVariableApproveRemind bpmVariableApproveRemind = reminds == null ? null : reminds.get(taskVo.getElementId());
+
+            //if the node approve remind configuration or its content is empty then continue to loop
+            if (ObjectUtils.isEmpty(bpmVariableApproveRemind) || Strings.isNullOrEmpty(bpmVariableApproveRemind.getContent())) {
                 continue;
             }
 
+            //convert message configuration information content from Json string to approve remind vo object
+            BpmnApproveRemindVo bpmnApproveRemindVo = remindVoMap.computeIfAbsent(bpmVariableApproveRemind.getId(),
+                    k -> JSON.parseObject(bpmVariableApproveRemind.getContent(), BpmnApproveRemindVo.class));
+            if (ObjectUtils.isEmpty(bpmnApproveRemindVo.getDayList()) || !bpmnApproveRemindVo.getDayList().contains(day)) {
+                continue;
+            }
+            dueTasks.add(taskVo);
+            dueRemindVos.add(bpmnApproveRemindVo);
+        }
+        if (dueTasks.isEmpty()) {
+            return Collections.emptyList();
+        }
 
-            //get variable that match current business number
-            BpmVariable bpmVariable = bpmVariables
-                    .stream()
-                    .filter(o -> val.getBusinessNumber().equals(o.getProcessNum()))
-                    .findFirst()
-                    .orElse(null);
-
-
-            if (!ObjectUtils.isEmpty(bpmVariable)) {
-                BpmnTimeoutReminderVariableVo bpmnTimeoutReminderVariableVo = new BpmnTimeoutReminderVariableVo();
-                BeanCopy.from(bpmVariable).to(bpmnTimeoutReminderVariableVo).copy();
-                bpmnTimeoutReminderVariableVo.setProcessinessKey(val.getProcessinessKey());
-                bpmnTimeoutReminderVariableVo.setBusinessId(val.getBusinessId());
-                bpmnTimeoutReminderVariableVo.setEntryId(val.getEntryId());
-                bpmnTimeoutReminderVariableVo.setBpmVariableApproveReminds(bpmVariableApproveReminds
-                        .stream()
-                        .filter(o -> bpmVariable.getId().equals(o.getVariableId()))
-                        .collect(Collectors.toList()));
-
-                //补全bpmnTimeoutReminderVariableVo参数信息
-                bpmnTimeoutReminderVariableVo.setBpmnName(bpmVariable.getProcessName());
-                bpmnTimeoutReminderVariableVo.setProcessNumber(bpmVariable.getProcessNum());
-
-
-
-
-
-                //set applicant,applydate,apply time
-
-                Employee employee = employeeService.getEmployeeDetailById(val.getCreateUser());
-                bpmnTimeoutReminderVariableVo.setStartUser(employee.getUsername());
-                bpmnTimeoutReminderVariableVo.setApplyDate(DateUtil.SDF_DATE_PATTERN.format(val.getCreateTime()));
-                bpmnTimeoutReminderVariableVo.setApplyTime(DateUtil.SDF_DATETIME_PATTERN.format(val.getCreateTime()));
-
-
-
-                if (!ObjectUtils.isEmpty(bpmVariable.getProcessStartConditions())) {
-                    BpmnStartConditionsVo bpmnStartConditionsVo = JSON.parseObject(bpmVariable.getProcessStartConditions(), BpmnStartConditionsVo.class);
-                    if (!ObjectUtils.isEmpty(bpmnStartConditionsVo) && !ObjectUtils.isEmpty(bpmnStartConditionsVo.getApprovalEmplId())) {
-                        employee = employeeService.getEmployeeDetailById(bpmnStartConditionsVo.getApprovalEmplId());
-                        bpmnTimeoutReminderVariableVo.setApprovalEmpl(employee.getUsername());
-                    }
+        //get employees and confs of the page at once
+        Map<String, BpmnStartConditionsVo> startConditionsMap = Maps.newHashMap();
+        Set<String> emplIds = new HashSet<>();
+        Set<String> bpmnCodes = new HashSet<>();
+        for (BpmnTimeoutReminderTaskVo taskVo : dueTasks) {
+            BpmBusinessProcess bpmBusinessProcess = processMap.get(taskVo.getProcInstId());
+            BpmVariable bpmVariable = variableMap.get(bpmBusinessProcess.getBusinessNumber());
+            emplIds.add(taskVo.getAssignee());
+            if (!ObjectUtils.isEmpty(bpmBusinessProcess.getCreateUser())) {
+                emplIds.add(bpmBusinessProcess.getCreateUser());
+            }
+            if (!ObjectUtils.isEmpty(bpmVariable.getProcessStartConditions()) && !startConditionsMap.containsKey(bpmVariable.getProcessNum())) {
+                BpmnStartConditionsVo bpmnStartConditionsVo = JSON.parseObject(bpmVariable.getProcessStartConditions(), BpmnStartConditionsVo.class);
+                startConditionsMap.put(bpmVariable.getProcessNum(), bpmnStartConditionsVo);
+                if (!ObjectUtils.isEmpty(bpmnStartConditionsVo) && !ObjectUtils.isEmpty(bpmnStartConditionsVo.getApprovalEmplId())) {
+                    emplIds.add(bpmnStartConditionsVo.getApprovalEmplId());
                 }
-
-
-                bpmnTimeoutReminderVariableVoMap.put(key, bpmnTimeoutReminderVariableVo);
+            }
+            if (!Strings.isNullOrEmpty(bpmVariable.getBpmnCode())) {
+                bpmnCodes.add(bpmVariable.getBpmnCode());
+            }
+        }
+        Map<String, Employee> employeeMap = employeeService.getEmployeeDetailByIds(emplIds)
+                .stream()
+                .collect(Collectors.toMap(Employee::getId, o -> o, (k1, k2) -> k1));
+        Set<String> outSideBpmnCodes = bpmnCodes.isEmpty() ? Collections.emptySet() : bpmnConfService.getBaseMapper().selectList(new QueryWrapper<BpmnConf>()
+                        .in("bpmn_code", bpmnCodes))
+                .stream()
+                .filter(o -> Objects.equals(o.getIsOutSideProcess(), 1))
+                .map(BpmnConf::getBpmnCode)
+                .collect(Collectors.toSet());
+
+        Map<String, BpmnTimeoutReminderVariableVo> variableVoMap = Maps.newHashMap();
+        List<String> remindedTaskIds = new ArrayList<>(dueTasks.size());
+        for (int i = 0; i < dueTasks.size(); i++) {
+            BpmnTimeoutReminderTaskVo taskVo = dueTasks.get(i);
+            Employee employee = employeeMap.get(taskVo.getAssignee());
+            if (employee == null) {
+                log.warn("assignee {} of task {} not found,timeout reminder skipped", taskVo.getAssignee(), taskVo.getTaskId());
+                continue;
+            }
+            BpmBusinessProcess bpmBusinessProcess = processMap.get(taskVo.getProcInstId());
+            BpmnTimeoutReminderVariableVo bpmnTimeoutReminderVariableVo = variableVoMap.computeIfAbsent(taskVo.getProcInstId(),
+                    k -> getBpmnTimeoutReminderVariableVo(bpmBusinessProcess, variableMap.get(bpmBusinessProcess.getBusinessNumber()),
+                            remindsMap, startConditionsMap, employeeMap));
+            try {
+                doSendMessage(bpmnTimeoutReminderVariableVo, taskVo, dueRemindVos.get(i), employee, outSideBpmnCodes);
+                remindedTaskIds.add(taskVo.getTaskId());
+            } catch (Exception e) {
+                log.error("failed to send timeout reminder of task {}", taskVo.getTaskId(), e);
             }
         }
-        return bpmnTimeoutReminderVariableVoMap;
+        return remindedTaskIds;
     }
 
     /**
-     * not processed yet tasks Multimap
+     * send remind message
      *
-     * @return
+     * @param bpmnTimeoutReminderVariableVo
+     * @param bpmnTimeoutReminderTaskVo
+     * @param bpmnApproveRemindVo
+     * @param employee         employee to receive notice message
+     * @param outSideBpmnCodes bpmn codes of the outside processes
      */
-    private Multimap<String, BpmnTimeoutReminderTaskVo> getBpmnTimeoutReminderTaskVoMultimap() {
+    private void doSendMessage(BpmnTimeoutReminderVariableVo bpmnTimeoutReminderVariableVo, BpmnTimeoutReminderTaskVo bpmnTimeoutReminderTaskVo,
+                               BpmnApproveRemindVo bpmnApproveRemindVo, Employee employee, Set<String> outSideBpmnCodes) {
 
-        //declare a multimap to store not processed yet tasks.procinstid as key and remindvo as value
-        Multimap<String, BpmnTimeoutReminderTaskVo> bpmnTimeoutReminderTaskVoMultimap = ArrayListMultimap.create();
 
-        //query process engine to get a list of not processed yet tasks
-        List<Task> tasks = taskService.createTaskQuery().list();
+        //whether it is outside process
+        boolean isOutside = !Strings.isNullOrEmpty(bpmnTimeoutReminderVariableVo.getBpmnCode())
+                && outSideBpmnCodes.contains(bpmnTimeoutReminderVariableVo.getBpmnCode());
 
+        //email url
+        String emailUrl = "";//todo
 
-        for (Task task : tasks) {
+        //app route url
+        String appUrl = "";//todo
 
-            //if a assignee is empty then skip
-            if (ObjectUtils.isEmpty(task.getAssignee())) {
-                continue;
-            }
 
-            //calculate days
-            Integer standbyDay = Optional.ofNullable(DateUtil.dateDiff(task.getCreateTime(), new Date(), 1))
-                    .orElse(0L).intValue();
+        //employs to receive notice message
+        String emplId = bpmnTimeoutReminderTaskVo.getAssignee();
 
 
-            if (standbyDay <= 0) {
-                continue;
-            }
+        //format message content
+        InformationTemplateVo informationTemplateVo = getInformationTemplateVo(bpmnTimeoutReminderVariableVo, bpmnApproveRemindVo, employee);
+
+        //send email
+        sendMail(bpmnTimeoutReminderTaskVo, emailUrl, appUrl, emplId, employee, informationTemplateVo);
+
+        //send message and app push
+        sendMessageAndPush(bpmnTimeoutReminderTaskVo, emailUrl, appUrl, emplId, employee, informationTemplateVo);
 
-            //put values to map
-            bpmnTimeoutReminderTaskVoMultimap.put(task.getProcessInstanceId(), BpmnTimeoutReminderTaskVo
-                    .builder()
-                    .procInstId(task.getProcessInstanceId())
-                    .taskId(task.getId())
-                    .elementId(task.getTaskDefinitionKey())
-                    .assignee(task.getAssignee())
-                    .createTime(task.getCreateTime())
-                    .standbyDay(standbyDay)
-                    .build());
+        //set inside message
+        insertUserMessage(bpmnTimeoutReminderTaskVo, emailUrl, appUrl, emplId, employee, informationTemplateVo);
+    }
+
+    /**
+     * build remind variable of a process
+     */
+    private BpmnTimeoutReminderVariableVo getBpmnTimeoutReminderVariableVo(BpmBusinessProcess val, BpmVariable bpmVariable,
+                                                                           Map<Long, List<BpmVariableApproveRemind>> remindsMap,
+                                                                           Map<String, BpmnStartConditionsVo> startConditionsMap,
+                                                                           Map<String, Employee> employeeMap) {
+        BpmnTimeoutReminderVariableVo bpmnTimeoutReminderVariableVo = new BpmnTimeoutReminderVariableVo();
+        BeanCopy.from(bpmVariable).to(bpmnTimeoutReminderVariableVo).copy();
+        bpmnTimeoutReminderVariableVo.setProcessinessKey(val.getProcessinessKey());
+        bpmnTimeoutReminderVariableVo.setBusinessId(val.getBusinessId());
+        bpmnTimeoutReminderVariableVo.setEntryId(val.getEntryId());
+        bpmnTimeoutReminderVariableVo.setBpmVariableApproveReminds(remindsMap.getOrDefault(bpmVariable.getId(), Collections.emptyList()));
+
+        //补全bpmnTimeoutReminderVariableVo参数信息
+        bpmnTimeoutReminderVariableVo.setBpmnName(bpmVariable.getProcessName());
+        bpmnTimeoutReminderVariableVo.setProcessNumber(bpmVariable.getProcessNum());
+
+
+        //set applicant,applydate,apply time
+        Employee employee = employeeMap.get(val.getCreateUser());
+        bpmnTimeoutReminderVariableVo.setStartUser(employee == null ? null : employee.getUsername());
+        bpmnTimeoutReminderVariableVo.setApplyDate(DateUtil.SDF_DATE_PATTERN.format(val.getCreateTime()));
+        bpmnTimeoutReminderVariableVo.setApplyTime(DateUtil.SDF_DATETIME_PATTERN.format(val.getCreateTime()));
+
+
+        BpmnStartConditionsVo bpmnStartConditionsVo = startConditionsMap.get(bpmVariable.getProcessNum());
+        if (!ObjectUtils.isEmpty(bpmnStartConditionsVo) && !ObjectUtils.isEmpty(bpmnStartConditionsVo.getApprovalEmplId())) {
+            employee = employeeMap.get(bpmnStartConditionsVo.getApprovalEmplId());
+            bpmnTimeoutReminderVariableVo.setApprovalEmpl(employee == null ? null : employee.getUsername());
         }
-        return bpmnTimeoutReminderTaskVoMultimap;
+        return bpmnTimeoutReminderVariableVo;
     }
+
     /**
      * format message content
      *
@@ -348,98 +470,6 @@ public class BpmVariableApproveRemindBizServiceImpl implements BpmVariableApprov
     }
 
 
-    /**
-     * check and send remind messages
-     *
-     * @param tasksMultimap
-     * @param bpmnTimeoutReminderVariableVoMap
-     */
-    private void checkAndSendMessage(Multimap<String, BpmnTimeoutReminderTaskVo> tasksMultimap, Map<String, BpmnTimeoutReminderVariableVo> bpmnTimeoutReminderVariableVoMap) {
-
-        //iterate the multimap to check the task is timeout or not,if timeout then send message
-        for (String key : tasksMultimap.keySet()) {
-
-            //get to be done task list
-            List<BpmnTimeoutReminderTaskVo> bpmnTimeoutReminderTaskVos = (List<BpmnTimeoutReminderTaskVo>) tasksMultimap.get(key);
-
-
-            //it the timeout reminder task list is empty then continue to loop
-            if (ObjectUtils.isEmpty(bpmnTimeoutReminderTaskVos)) {
-                continue;
-            }
-
-
-            //get timeout reminder variable
-            BpmnTimeoutReminderVariableVo bpmnTimeoutReminderVariableVo = bpmnTimeoutReminderVariableVoMap.get(key);
-
-
-            //if the timeout reminder variable is empty then continue to loop
-            if (ObjectUtils.isEmpty(bpmnTimeoutReminderVariableVo)) {
-                continue;
-            }
-
-
-            //get node approve remind list
-            List<BpmVariableApproveRemind> bpmVariableApproveReminds = bpmnTimeoutReminderVariableVo.getBpmVariableApproveReminds();
-
-
-            //if the node approve remind list is empty then continue to loop
-            if (ObjectUtils.isEmpty(bpmVariableApproveReminds)) {
-                continue;
-            }
-
-
-            //iterate the to be done list to compare the process node approval reminder configuration
-            for (BpmnTimeoutReminderTaskVo bpmnTimeoutReminderTaskVo : bpmnTimeoutReminderTaskVos) {
-
-
-                //filtering the element id to get node approve remind configuration
-                BpmVariableApproveRemind bpmVariableApproveRemind = bpmVariableApproveReminds
-                        .stream()
-                        .filter(o -> bpmnTimeoutReminderTaskVo.getElementId().equals(o.getElementId()))
-                        .findFirst()
-                        .orElse(null);
-
-
-                //if the node approve remind configuration is empty then continue to loop
-                if (ObjectUtils.isEmpty(bpmVariableApproveRemind)) {
-                    continue;
-                }
-
-
-                //if the node approve remind content is empty then continue to loop
-                if (Strings.isNullOrEmpty(bpmVariableApproveRemind.getContent())) {
-                    continue;
-                }
-
-
-                //convert message configuration information content from Json string to approve remind vo object
-                BpmnApproveRemindVo bpmnApproveRemindVo = JSON.parseObject(bpmVariableApproveRemind.getContent(), BpmnApproveRemindVo.class);
-
-
-                //if the day list is empty then continue to loop
-                if (ObjectUtils.isEmpty(bpmnApproveRemindVo.getDayList())) {
-                    continue;
-                }
-
-
-                //sorted the daylist
-                List<Integer> confDays = bpmnApproveRemindVo.getDayList()
-                        .stream()
-                        .sorted()
-                        .collect(Collectors.toList());
-
-
-                //task's standby days
-                Integer standbyDay = bpmnTimeoutReminderTaskVo.getStandbyDay();
-
-                if (confDays.contains(standbyDay)) {
-                    //do send message
-                    doSendMessage(bpmnTimeoutReminderVariableVo, bpmnTimeoutReminderTaskVo, bpmnApproveRemindVo);
-                }
-            }
-        }
-    }
     /**
      * send insite message
      *
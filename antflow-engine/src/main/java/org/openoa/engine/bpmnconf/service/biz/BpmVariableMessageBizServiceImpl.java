@@ -678,47 +678,89 @@ public class BpmVariableMessageBizServiceImpl implements BpmVariableMessageBizSe
 
 
     /**
-     * get wildcard characters map
+     * get wildcard characters map,names of all the employees referenced by the wildcards are queried at once
      *
      * @param vo
      * @return
      */
     private Map<Integer, String> getWildcardCharacterMap(BpmVariableMessageVo vo) {
-        Map<Integer, String> wildcardCharacterMap = Maps.newHashMap();
+        Map<WildcardCharacterEnum, Object> properties = new EnumMap<>(WildcardCharacterEnum.class);
+        Set<String> emplIds = new LinkedHashSet<>();
         for (WildcardCharacterEnum wildcardCharacterEnum : WildcardCharacterEnum.values()) {
             if (StringUtils.isEmpty(wildcardCharacterEnum.getFilName())) {
                 continue;
             }
-            Object property = BeanUtil.pojo.getProperty(vo, wildcardCharacterEnum.getFilName());
-            if (property!=null) {
-                if (wildcardCharacterEnum.getIsSearchEmpl()) {
-                    if (property instanceof List) {
-                        List<String> propertys = (List<String>) property;
-                        if (ObjectUtils.isEmpty(propertys)) {
-                            continue;
-                        }
-                        List<String> emplNames = employeeService.queryUserByIds(propertys)
-                                .stream()
-                                .map(BaseIdTranStruVo::getName).collect(Collectors.toList());
-                        if (!ObjectUtils.isEmpty(emplNames)) {
-                            wildcardCharacterMap.put(wildcardCharacterEnum.getCode(), StringUtils.join(emplNames, ","));
-                        }
-                    } else {
-                        if(!property.toString().equals("0")){
-                            BaseIdTranStruVo employee = employeeService.getById(property.toString());
-                            if (employee!=null) {
-                                wildcardCharacterMap.put(wildcardCharacterEnum.getCode(), employee.getName());
-                            }
-                        }
-                    }
-                } else {
-                    wildcardCharacterMap.put(wildcardCharacterEnum.getCode(), property.toString());
-                }
+            Object property = getWildcardProperty(vo, wildcardCharacterEnum);
+            if (property == null) {
+                continue;
+            }
+            properties.put(wildcardCharacterEnum, property);
+            if (wildcardCharacterEnum.getIsSearchEmpl()) {
+                emplIds.addAll(getWildcardEmplIds(property));
+            }
+        }
+        Map<String, String> emplNames = emplIds.isEmpty() ? Collections.emptyMap() : employeeService.queryUserByIds(emplIds)
+                .stream()
+                .collect(Collectors.toMap(BaseIdTranStruVo::getId, BaseIdTranStruVo::getName, (a, b) -> a));
+
+        Map<Integer, String> wildcardCharacterMap = Maps.newHashMap();
+        for (Map.Entry<WildcardCharacterEnum, Object> entry : properties.entrySet()) {
+            WildcardCharacterEnum wildcardCharacterEnum = entry.getKey();
+            if (!wildcardCharacterEnum.getIsSearchEmpl()) {
+                wildcardCharacterMap.put(wildcardCharacterEnum.getCode(), entry.getValue().toString());
+                continue;
+            }
+            List<String> names = getWildcardEmplIds(entry.getValue())
+                    .stream()
+                    .map(emplNames::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            if (!names.isEmpty()) {
+                wildcardCharacterMap.put(wildcardCharacterEnum.getCode(), StringUtils.join(names, ","));
             }
         }
         return wildcardCharacterMap;
     }
 
+    /**
+     * read the property a wildcard refers to,the known ones are read by their getters instead of reflectively
+     */
+    private Object getWildcardProperty(BpmVariableMessageVo vo, WildcardCharacterEnum wildcardCharacterEnum) {
+        switch (wildcardCharacterEnum) {
+            case ONE_CHARACTER:
+                return vo.getBpmnName();
+            case TWO_CHARACTER:
+                return vo.getProcessNumber();
+            case THREE_CHARACTER:
+                return vo.getStartUser();
+            case FOUR_CHARACTER:
+                return vo.getApprovalEmplId();
+            case FIVE_CHARACTER:
+                return vo.getApplyDate();
+            case SIX_CHARACTER:
+                return vo.getApplyTime();
+            case SEVEN_CHARACTER:
+                return vo.getNextNodeApproveds();
+            case EIGHT_CHARACTER:
+                return vo.getAssignee();
+            case NINE_CHARACTER:
+                return vo.getForwardUsers();
+            default:
+                return BeanUtil.pojo.getProperty(vo, wildcardCharacterEnum.getFilName());
+        }
+    }
+
+    /**
+     * employee ids held by the property of an employee wildcard,a single id of 0 means no employee
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> getWildcardEmplIds(Object property) {
+        if (property instanceof List) {
+            return ((List<Object>) property).stream().filter(Objects::nonNull).map(Object::toString).collect(Collectors.toList());
+        }
+        return "0".equals(property.toString()) ? Collections.emptyList() : Collections.singletonList(property.toString());
+    }
+
     /**
      * get sender's info
      *
@@ -148,6 +148,7 @@ public class BpmVerifyInfoBizServiceImpl implements BpmVerifyInfoBizService {
         //iterate through the verify info
         //审批拒绝
         Boolean noApproval = false;
+        String lastAssigneeName = null;
         List<BpmVerifyInfoVo> bpmVerifyInfoSortVos = Lists.newArrayList();
         for (BpmVerifyInfoVo bpmVerifyInfoVo : bpmVerifyInfoVos) {
             if (bpmVerifyInfoVo.getVerifyStatus() == 3 || bpmVerifyInfoVo.getVerifyStatus() == 6) {
@@ -161,7 +162,12 @@ public class BpmVerifyInfoBizServiceImpl implements BpmVerifyInfoBizService {
                 //todo 待实现
 
                 String lastAssignee = actHiTaskinst.getAssignee();
-                String lastAssigneeName = actHiTaskinst.getAssigneeName();
+                if (lastAssigneeName == null) {
+                    lastAssigneeName = actHiTaskinst.getAssigneeName();
+                    if (StringUtils.isEmpty(lastAssigneeName)) {
+                        lastAssigneeName = employeeInfoProvider.provideEmployeeInfo(Lists.newArrayList(lastAssignee)).get(lastAssignee);
+                    }
+                }
 
                 BpmVerifyInfoVo vo = new BpmVerifyInfoVo();
                 BeanUtils.copyProperties(bpmVerifyInfoVo, vo);
@@ -176,12 +182,7 @@ public class BpmVerifyInfoBizServiceImpl implements BpmVerifyInfoBizService {
 
                 bpmVerifyInfoVo.setTaskName(actHiTaskinst.getName());
                 bpmVerifyInfoVo.setVerifyUserId(lastAssignee);
-                if (!StringUtils.isEmpty(lastAssigneeName)) {
-                    bpmVerifyInfoVo.setVerifyUserName(lastAssigneeName);
-                } else {
-                    Map<String, String> provideEmployeeInfo = employeeInfoProvider.provideEmployeeInfo(Lists.newArrayList(lastAssignee));
-                    bpmVerifyInfoVo.setVerifyUserName(provideEmployeeInfo.get(lastAssignee));
-                }
+                bpmVerifyInfoVo.setVerifyUserName(lastAssigneeName);
 
                 bpmVerifyInfoVo.setVerifyDate(null);
                 bpmVerifyInfoVo.setVerifyDesc(StringUtils.EMPTY);
@@ -354,24 +355,30 @@ public class BpmVerifyInfoBizServiceImpl implements BpmVerifyInfoBizService {
      */
     @Override
     public List<BpmVerifyInfoVo> getBpmVerifyInfoVoList(List<BpmVerifyInfoVo> list,String procInstId) {
+        //the names of the original assignees of all the entrusted records are read at once
+        Set<String> originalIds = list.stream().map(BpmVerifyInfoVo::getOriginalId).filter(o -> !ObjectUtils.isEmpty(o)).collect(Collectors.toSet());
+        Map<String, String> originalNames = Maps.newHashMap();
+        if (!originalIds.isEmpty()) {
+            if (!StringUtils.isEmpty(procInstId)) {
+                List<BpmFlowrunEntrust> bpmFlowrunEntrusts = bpmFlowrunEntrustService.list(
+                        new QueryWrapper<BpmFlowrunEntrust>()
+                                .in("original", originalIds)
+                                .eq("runinfoid", procInstId)
+                );
+                for (BpmFlowrunEntrust bpmFlowrunEntrust : bpmFlowrunEntrusts) {
+                    originalNames.putIfAbsent(bpmFlowrunEntrust.getOriginal(), bpmFlowrunEntrust.getOriginalName());
+                }
+            } else {
+                originalNames.putAll(bpmnEmployeeInfoProviderService.provideEmployeeInfo(originalIds));
+            }
+        }
         List<BpmVerifyInfoVo> infoVoList = new ArrayList<>();
         infoVoList.addAll(list.stream()
                 .map(o -> {
                     if (!ObjectUtils.isEmpty(o.getOriginalId())) {
-                        if(!StringUtils.isEmpty(procInstId)){
-                            List<BpmFlowrunEntrust> bpmFlowrunEntrusts = bpmFlowrunEntrustService.list(
-                                    new QueryWrapper<BpmFlowrunEntrust>()
-                                            .eq("original", o.getOriginalId())
-                                            .eq("runinfoid", procInstId)
-
-                            );
-                            if(!CollectionUtils.isEmpty(bpmFlowrunEntrusts)){
-                                o.setOriginalName(bpmFlowrunEntrusts.get(0).getOriginalName());
-                                o.setVerifyUserName(o.getVerifyUserName() + " 代 " +o.getOriginalName()  + " 审批");
-                            }
-                        }else{
-                            Map<String, String> stringStringMap = bpmnEmployeeInfoProviderService.provideEmployeeInfo(Lists.newArrayList(o.getOriginalId()));
-                            o.setOriginalName(stringStringMap.get(o.getOriginalId()));
+                        //with a process instance only the entrusts of it are shown
+                        if (StringUtils.isEmpty(procInstId) || originalNames.containsKey(o.getOriginalId())) {
+                            o.setOriginalName(originalNames.get(o.getOriginalId()));
                             o.setVerifyUserName(o.getVerifyUserName() + " 代 " +o.getOriginalName()  + " 审批");
                         }
                     }
@@ -403,6 +410,8 @@ public class BpmVerifyInfoBizServiceImpl implements BpmVerifyInfoBizService {
         }
         //get approvers
         Map<String, List<BaseIdTranStruVo>> nodeApproveds = getNodeApproveds(bpmVariable.getId());
+        //sign up approvers of all the elements,used when an element has no approvers above
+        Map<String, List<BaseIdTranStruVo>> signUpApproveds = bpmVariableSignUpPersonnelService.getSignUpInfoByVariableId(bpmVariable.getId());
 
         List<ActivityImpl> collect = activitiList.stream().filter(a -> a.getId().equals(taskVo.getElementId())).collect(Collectors.toList());
 
@@ -456,7 +465,7 @@ public class BpmVerifyInfoBizServiceImpl implements BpmVerifyInfoBizService {
         String[] elementIds = taskVo.getElementId().split(",");
         for (int i = 0; i < elementIds.length; i++) {
             //do append record
-            doAddBpmVerifyInfoVo(sort, elementIds[i], activitiList, nodeApproveds, bpmVerifyInfoVos, bpmVariable.getId(),i==(elementIds.length-1)&&elementIds.length>1);
+            doAddBpmVerifyInfoVo(sort, elementIds[i], activitiList, nodeApproveds, signUpApproveds, bpmVerifyInfoVos, i==(elementIds.length-1)&&elementIds.length>1);
         }
 
     }
@@ -495,12 +504,14 @@ public class BpmVerifyInfoBizServiceImpl implements BpmVerifyInfoBizService {
      * @param elementId
      * @param activitiList
      * @param nodeApproveds
+     * @param signUpApproveds
      * @param bpmVerifyInfoVos
      */
     private void doAddBpmVerifyInfoVo(Integer sort, String elementId, List<ActivityImpl> activitiList,
                                       Map<String, List<BaseIdTranStruVo>> nodeApproveds,
+                                      Map<String, List<BaseIdTranStruVo>> signUpApproveds,
                                       List<BpmVerifyInfoVo> bpmVerifyInfoVos,
-            Long variableId,boolean includeParallelGateway) {
+                                      boolean includeParallelGateway) {
 
         //get the netxt pvm activity element
         List<PvmActivity> nextElements = activitiAdditionalInfoService.getNextElementList(elementId, activitiList);
@@ -532,7 +543,7 @@ public class BpmVerifyInfoBizServiceImpl implements BpmVerifyInfoBizService {
         } else {
 
             //If can not get the approvers info,then get it from activity engine
-            verifyUserName = activitiAdditionalInfoService.getVerifyUserNameFromHis(nextElements.get(0).getId(), variableId);
+            verifyUserName = activitiAdditionalInfoService.getVerifyUserNameFromHis(nextElements.get(0).getId(), signUpApproveds);
         }
         StringBuilder nameSb=new StringBuilder();
         StringBuilder elementIdSb=new StringBuilder();
@@ -574,7 +585,7 @@ public class BpmVerifyInfoBizServiceImpl implements BpmVerifyInfoBizService {
                 if (!includeParallelGateway && isNextParallelGateway) {
                     continue;
                 }
-                doAddBpmVerifyInfoVo(sort, nextElement.getId(), activitiList, nodeApproveds, bpmVerifyInfoVos, variableId, includeParallelGateway);
+                doAddBpmVerifyInfoVo(sort, nextElement.getId(), activitiList, nodeApproveds, signUpApproveds, bpmVerifyInfoVos, includeParallelGateway);
             }
         }
 
@@ -645,8 +656,14 @@ public class BpmVerifyInfoBizServiceImpl implements BpmVerifyInfoBizService {
         List<BpmVariableMultiplayer> bpmVariableMultiplayers = bpmVariableMultiplayerService.getBaseMapper().selectList(new QueryWrapper<BpmVariableMultiplayer>().eq("variable_id", variableId));
 
         if (!bpmVariableMultiplayers.isEmpty()) {
+            //personnels of all the multiplayer nodes are read at once and then grouped by node
+            Map<Long, List<BpmVariableMultiplayerPersonnel>> multiplayerPersonnels = bpmVariableMultiplayerPersonnelService.getBaseMapper()
+                    .selectList(new QueryWrapper<BpmVariableMultiplayerPersonnel>().in("variable_multiplayer_id",
+                            bpmVariableMultiplayers.stream().map(BpmVariableMultiplayer::getId).collect(Collectors.toList())))
+                    .stream()
+                    .collect(Collectors.groupingBy(BpmVariableMultiplayerPersonnel::getVariableMultiplayerId));
             for (BpmVariableMultiplayer bpmVariableMultiplayer : bpmVariableMultiplayers) {
-                List<BpmVariableMultiplayerPersonnel> bpmVariableMultiplayerPersonnels = bpmVariableMultiplayerPersonnelService.getBaseMapper().selectList(new QueryWrapper<BpmVariableMultiplayerPersonnel>().eq("variable_multiplayer_id", bpmVariableMultiplayer.getId()));
+                List<BpmVariableMultiplayerPersonnel> bpmVariableMultiplayerPersonnels = multiplayerPersonnels.get(bpmVariableMultiplayer.getId());
                 if (!ObjectUtils.isEmpty(bpmVariableMultiplayerPersonnels)) {
                     nodeApprovedsMap.put(bpmVariableMultiplayer.getElementId(), bpmVariableMultiplayerPersonnels.stream().map(a->BaseIdTranStruVo.builder().id(a.getAssignee()).name(a.getAssigneeName()).build()).collect(Collectors.toList()));
                 }
@@ -27,7 +27,9 @@ import org.openoa.common.formatter.BpmnPersonnelFormat;
 import org.openoa.engine.bpmnconf.adp.bpmnnodeadp.BpmnNodeAdaptor;
 import org.openoa.engine.bpmnconf.adp.formatter.BpmnRemoveConfFormatFactory;
 import org.openoa.engine.bpmnconf.adp.formatter.BpmnStartFormatFactory;
+import org.openoa.engine.bpmnconf.common.BpmnConfVoCache;
 import org.openoa.engine.bpmnconf.common.NodeAdditionalInfoServiceImpl;
+import org.openoa.engine.bpmnconf.service.biz.personnelinfoprovider.BatchPersonnelResolver;
 import org.openoa.engine.bpmnconf.common.TaskMgmtServiceImpl;
 import org.openoa.engine.bpmnconf.constant.enus.BpmnNodeAdpConfEnum;
 import org.openoa.engine.bpmnconf.service.impl.*;
@@ -69,6 +71,8 @@ public class BpmnConfBizServiceImpl implements BpmnConfBizService {
     @Autowired
     private BpmnPersonnelFormat bpmnPersonnelFormat;
     @Autowired
+    private BatchPersonnelResolver batchPersonnelResolver;
+    @Autowired
     private BpmVariableBizService bpmVariableBizService;
     @Autowired
     private BpmVerifyInfoBizServiceImpl bpmVerifyInfoBizService;
@@ -120,6 +124,8 @@ public class BpmnConfBizServiceImpl implements BpmnConfBizService {
     private BpmProcessAppApplicationService bpmProcessAppApplicationService;
     @Autowired
     private TaskMgmtServiceImpl TaskMgmtService;
+    @Autowired
+    private BpmnConfVoCache bpmnConfVoCache;
 
 
     @Override
@@ -242,7 +248,8 @@ public class BpmnConfBizServiceImpl implements BpmnConfBizService {
             postConf.setExtraFlags(bpmnConfVo.getExtraFlags());
             this.getService().updateById(postConf);
         }
-
+        //form level settings like view page buttons and notice templates are shared by all confs of the form
+        bpmnConfVoCache.invalidateByFormCode(formCode);
     }
 
 
@@ -319,6 +326,7 @@ public class BpmnConfBizServiceImpl implements BpmnConfBizService {
                         .build(),
                 new QueryWrapper<BpmnConf>()
                         .eq("bpmn_code", bpmnCode));
+        bpmnConfVoCache.invalidate(bpmnCode);
     }
 
 
@@ -331,8 +339,8 @@ public class BpmnConfBizServiceImpl implements BpmnConfBizService {
     @Override
     public void startProcess(String bpmnCode, BpmnStartConditionsVo bpmnStartConditions) {
 
-        //to query the process's config information
-        BpmnConfVo bpmnConfVo =detail(bpmnCode);
+        //to query the process's config information,the returned copy is free to be modified by the formatters below
+        BpmnConfVo bpmnConfVo = bpmnConfVoCache.getByBpmnCode(bpmnCode, () -> detail(bpmnCode));
         bpmnStartConditions.setPreview(false);
 
         // format process's floating direction,set assignees,assignees deduplication and remove some nodes on conditions
@@ -702,6 +710,7 @@ public class BpmnConfBizServiceImpl implements BpmnConfBizService {
                 .build());
 
         bpmProcessNameService.editProcessName(bpmnConf);
+        bpmnConfVoCache.invalidateByFormCode(bpmnConf.getFormCode());
     }
 
 
@@ -760,9 +769,9 @@ public class BpmnConfBizServiceImpl implements BpmnConfBizService {
 
         BpmnConfVo detail;
         if (isStartPagePreview) {
-            detail = detailByFormCode(dataVo.getFormCode());
+            detail = bpmnConfVoCache.getEffectiveByFormCode(dataVo.getFormCode(), () -> detailByFormCode(dataVo.getFormCode()));
         } else {
-            detail = detail(dataVo.getBpmnCode());
+            detail = bpmnConfVoCache.getByBpmnCode(dataVo.getBpmnCode(), () -> detail(dataVo.getBpmnCode()));
         }
 
         JSONObject object = JSON.parseObject(params);
@@ -1007,8 +1016,15 @@ public class BpmnConfBizServiceImpl implements BpmnConfBizService {
         bpmnStartFormatFactory.formatBpmnConf(bpmnConfVo,bpmnStartConditions);
 
 
-        //2、set consignees information and finally determine the flow's direction
-        bpmnPersonnelFormat.formatPersonnelsConf(bpmnConfVo, bpmnStartConditions);
+        //2、set consignees information and finally determine the flow's direction,the lookups of all the nodes are batched
+        boolean personnelBatched = batchPersonnelResolver.begin(bpmnConfVo, bpmnStartConditions);
+        try {
+            bpmnPersonnelFormat.formatPersonnelsConf(bpmnConfVo, bpmnStartConditions);
+        } finally {
+            if (personnelBatched) {
+                batchPersonnelResolver.end();
+            }
+        }
 
 
         //3. to determine whether it is necessary to deduplication
@@ -24,6 +24,7 @@ import org.openoa.common.service.ProcessModelServiceImpl;
 import org.openoa.engine.bpmnconf.service.impl.BpmProcessForwardServiceImpl;
 import org.openoa.engine.bpmnconf.service.interf.biz.BpmnBizCustomService;
 import org.openoa.engine.bpmnconf.service.interf.biz.BpmnCreateBpmnAndStart;
+import org.openoa.engine.bpmnconf.service.interf.biz.BpmnSharedDefinitionService;
 import org.openoa.engine.bpmnconf.service.interf.repository.BpmProcessForwardService;
 import org.openoa.engine.utils.AFWrappers;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -56,6 +57,8 @@ public class BpmnCreateBpmnAndStartImpl implements BpmnCreateBpmnAndStart {
     private BpmProcessForwardService processForwardService;
     @Autowired
     private ProcessModelServiceImpl processModelService;;
+    @Autowired
+    private BpmnSharedDefinitionService bpmnSharedDefinitionService;
 
     @Override
     public void createBpmnAndStart(BpmnConfCommonVo bpmnConfCommonVo, BpmnStartConditionsVo bpmnStartConditions) {
@@ -90,16 +93,26 @@ public class BpmnCreateBpmnAndStartImpl implements BpmnCreateBpmnAndStart {
         BpmnModel model = new BpmnModel();
         processModelService.execute(bpmnConfCommonVo, bpmnStartConditions, startParamMap, model);
 
-        // 3. Deploy the process to the engine
-        repositoryService.createDeployment()
-                .tenantId(MultiTenantUtil.getCurrentTenantId())
-                .addBpmnModel(StringUtils.join(bpmnConfCommonVo.getProcessNum(), ".bpmn"), model)
-                .name(StringUtils.join(bpmnConfCommonVo.getProcessNum(), " deployment"))
-                .deploy();
-
-        // 4. Start a process instance
-        ProcessInstance processInstance =runtimeService
-                .startProcessInstanceByKeyAndTenantId(bpmnConfCommonVo.getProcessNum(),bpmnStartConditions.getEntryId(),startParamMap, MultiTenantUtil.getCurrentTenantId());
+        ProcessInstance processInstance;
+        if (bpmnSharedDefinitionService.isEnabled()) {
+            // 3. Reuse the definition shared by all structurally identical models,deploy it only on first use
+            String processDefinitionId = bpmnSharedDefinitionService.getOrDeploy(bpmnConfCommonVo, model);
+
+            // 4. Start a process instance
+            processInstance = runtimeService
+                    .startProcessInstanceById(processDefinitionId, bpmnStartConditions.getEntryId(), startParamMap);
+        } else {
+            // 3. Deploy the process to the engine
+            repositoryService.createDeployment()
+                    .tenantId(MultiTenantUtil.getCurrentTenantId())
+                    .addBpmnModel(StringUtils.join(bpmnConfCommonVo.getProcessNum(), ".bpmn"), model)
+                    .name(StringUtils.join(bpmnConfCommonVo.getProcessNum(), " deployment"))
+                    .deploy();
+
+            // 4. Start a process instance
+            processInstance = runtimeService
+                    .startProcessInstanceByKeyAndTenantId(bpmnConfCommonVo.getProcessNum(), bpmnStartConditions.getEntryId(), startParamMap, MultiTenantUtil.getCurrentTenantId());
+        }
 
 
 
@@ -0,0 +1,138 @@
+package org.openoa.engine.bpmnconf.service.biz;
+
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Striped;
+import lombok.extern.slf4j.Slf4j;
+import org.activiti.bpmn.converter.BpmnXMLConverter;
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.bpmn.model.Process;
+import org.activiti.engine.RepositoryService;
+import org.activiti.engine.repository.ProcessDefinition;
+import org.activiti.engine.repository.ProcessDefinitionQuery;
+import org.apache.commons.lang3.StringUtils;
+import org.openoa.base.exception.AFBizException;
+import org.openoa.base.util.MultiTenantUtil;
+import org.openoa.base.vo.BpmnConfCommonVo;
+import org.openoa.engine.bpmnconf.service.interf.biz.BpmnSharedDefinitionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * process instances whose resolved node graph is structurally identical share one deployed process definition.
+ * assignees are passed in as process variables,so two models only differ in their process id(the process number)
+ * when they come from the same conf version and went through the same conditions,in that case there is no need to
+ * parse,deploy and persist a new definition for every single start.
+ */
+@Slf4j
+@Service
+public class BpmnSharedDefinitionServiceImpl implements BpmnSharedDefinitionService {
+
+    /**
+     * placeholder process id used while computing the fingerprint
+     */
+    private static final String FINGERPRINT_PROCESS_ID = "antflow_shared_process";
+
+    private static final String SHARED_KEY_PREFIX = "af_";
+
+    /**
+     * tenantId:definitionKey -> process definition id
+     */
+    private final Map<String, String> definitionIdCache = new ConcurrentHashMap<>();
+
+    private final Striped<Lock> deployLocks = Striped.lazyWeakLock(64);
+
+    @Value("${antflow.bpmn.shared-definition.enabled:false}")
+    private boolean enabled;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public String getOrDeploy(BpmnConfCommonVo bpmnConfCommonVo, BpmnModel model) {
+        Process mainProcess = model.getMainProcess();
+        if (mainProcess == null) {
+            throw new AFBizException("流程模型中未找到主流程,processNumber:" + bpmnConfCommonVo.getProcessNum());
+        }
+        String tenantId = MultiTenantUtil.getCurrentTenantId();
+        String definitionKey = fingerprint(bpmnConfCommonVo, model, mainProcess);
+        String cacheKey = StringUtils.join(StringUtils.defaultString(tenantId), ":", definitionKey);
+
+        String processDefinitionId = definitionIdCache.get(cacheKey);
+        if (processDefinitionId != null) {
+            return processDefinitionId;
+        }
+        Lock lock = deployLocks.get(cacheKey);
+        lock.lock();
+        try {
+            processDefinitionId = definitionIdCache.get(cacheKey);
+            if (processDefinitionId != null) {
+                return processDefinitionId;
+            }
+            //another node of the cluster may have deployed it already
+            ProcessDefinition processDefinition = queryLatest(definitionKey, tenantId);
+            if (processDefinition == null) {
+                repositoryService.createDeployment()
+                        .tenantId(tenantId)
+                        .addBpmnModel(StringUtils.join(definitionKey, ".bpmn"), model)
+                        .name(StringUtils.join(definitionKey, " deployment"))
+                        .deploy();
+                processDefinition = queryLatest(definitionKey, tenantId);
+                log.info("deployed shared process definition {} for bpmnCode {}", definitionKey, bpmnConfCommonVo.getBpmnCode());
+            }
+            if (processDefinition == null) {
+                throw new AFBizException("共享流程定义部署失败,key:" + definitionKey);
+            }
+            definitionIdCache.put(cacheKey, processDefinition.getId());
+            return processDefinition.getId();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void evict(String processDefinitionId) {
+        definitionIdCache.values().removeIf(id -> id.equals(processDefinitionId));
+    }
+
+    /**
+     * compute the structural fingerprint of a model and rename its main process to the resulting definition key.
+     * the fingerprint is taken over the serialized bpmn xml with the per instance process id masked out,
+     * so anything that would make two deployments behave differently also makes their keys differ.
+     */
+    private String fingerprint(BpmnConfCommonVo bpmnConfCommonVo, BpmnModel model, Process mainProcess) {
+        mainProcess.setId(FINGERPRINT_PROCESS_ID);
+        mainProcess.setName(bpmnConfCommonVo.getBpmnName());
+        byte[] xml = new BpmnXMLConverter().convertToXML(model);
+        String hash = Hashing.sha256().newHasher()
+                .putUnencodedChars(StringUtils.defaultString(bpmnConfCommonVo.getBpmnCode()))
+                .putBytes(xml)
+                .hash()
+                .toString()
+                .substring(0, 24);
+        String definitionKey = StringUtils.join(SHARED_KEY_PREFIX, hash);
+        mainProcess.setId(definitionKey);
+        return definitionKey;
+    }
+
+    private ProcessDefinition queryLatest(String definitionKey, String tenantId) {
+        ProcessDefinitionQuery query = repositoryService.createProcessDefinitionQuery()
+                .processDefinitionKey(definitionKey)
+                .latestVersion();
+        if (StringUtils.isEmpty(tenantId)) {
+            query.processDefinitionWithoutTenantId();
+        } else {
+            query.processDefinitionTenantId(tenantId);
+        }
+        return query.singleResult();
+    }
+}
@@ -0,0 +1,424 @@
+package org.openoa.engine.bpmnconf.service.biz;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import lombok.extern.slf4j.Slf4j;
+import org.activiti.engine.RuntimeService;
+import org.activiti.engine.impl.cfg.multitenant.TenantIdHolder;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.DateUtils;
+import org.openoa.base.constant.enums.MessageSendTypeEnum;
+import org.openoa.base.entity.BpmFlowrunEntrust;
+import org.openoa.base.entity.BpmReassignJob;
+import org.openoa.base.entity.Employee;
+import org.openoa.base.exception.AFBizException;
+import org.openoa.base.service.AfUserService;
+import org.openoa.base.util.MultiTenantUtil;
+import org.openoa.base.util.SecurityUtils;
+import org.openoa.base.vo.BaseIdTranStruVo;
+import org.openoa.base.vo.BulkReassignJobVo;
+import org.openoa.base.vo.ReassignItemVo;
+import org.openoa.base.vo.UserMsgBatchVo;
+import org.openoa.base.vo.UserMsgVo;
+import org.openoa.engine.bpmnconf.common.ProcessSearchIndex;
+import org.openoa.engine.bpmnconf.common.TaskInbox;
+import org.openoa.engine.bpmnconf.common.UserTaskCounters;
+import org.openoa.engine.bpmnconf.mapper.BpmReassignJobMapper;
+import org.openoa.engine.bpmnconf.service.interf.repository.BpmFlowrunEntrustService;
+import org.openoa.engine.utils.UserMsgUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * bulk reassignment,moves all the running tasks and future approvals of a user to another user,e.g. when the user
+ * leaves the company or the organization is changed.
+ * <p>
+ * a job is written to t_bpm_reassign_job and run by a background worker in chunks,every chunk rewrites its tasks or
+ * future approvals with set based updates and records its progress in the same transaction.the items of a chunk no
+ * longer belong to the user once it is committed,so a job needs no cursor,after a crash it is claimed again by the
+ * worker of any node once its heartbeat is stale and simply goes on with what is left.
+ * the new assignee gets one notice for the whole job when it is done.
+ */
+@Slf4j
+@Service
+public class BulkReassignServiceImpl {
+    private static final String TABLE_SINGLE = "t_bpm_variable_single";
+    private static final String TABLE_MULTIPLAYER = "t_bpm_variable_multiplayer_personnel";
+    private static final String TABLE_SIGN_UP = "t_bpm_variable_sign_up_personnel";
+
+    @Value("${antflow.bulk-reassign.worker-enabled:true}")
+    private boolean workerEnabled;
+    @Value("${antflow.bulk-reassign.chunk-size:200}")
+    private Integer chunkSize;
+    @Value("${antflow.bulk-reassign.poll-interval-millis:5000}")
+    private Long pollIntervalMillis;
+    @Value("${antflow.bulk-reassign.stale-seconds:300}")
+    private Integer staleSeconds;
+    @Value("${antflow.bulk-reassign.notice-types:MAIL,PUSH}")
+    private String noticeTypes;
+
+    @Autowired
+    private BpmReassignJobMapper jobMapper;
+    @Autowired
+    private AfUserService userService;
+    @Autowired
+    private RuntimeService runtimeService;
+    @Autowired
+    private BpmFlowrunEntrustService flowrunEntrustService;
+    @Autowired
+    private UserTaskCounters userTaskCounters;
+    @Autowired
+    private TaskInbox taskInbox;
+    @Autowired
+    private ProcessSearchIndex processSearchIndex;
+    @Autowired
+    private TenantIdHolder tenantIdHolder;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService worker;
+    private final AtomicBoolean working = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * submit a bulk reassignment job,it is run in the background
+     *
+     * @param vo from user,to user and optionally a form code
+     * @return the job
+     */
+    public BulkReassignJobVo submit(BulkReassignJobVo vo) {
+        if (StringUtils.isEmpty(vo.getFromUserId()) || StringUtils.isEmpty(vo.getToUserId())) {
+            throw new AFBizException("转交人和接收人不能为空");
+        }
+        if (vo.getFromUserId().equals(vo.getToUserId())) {
+            throw new AFBizException("转交人和接收人不能相同");
+        }
+        Map<String, String> userNames = userService.queryUserByIds(Arrays.asList(vo.getFromUserId(), vo.getToUserId()))
+                .stream()
+                .collect(Collectors.toMap(BaseIdTranStruVo::getId, o -> StringUtils.defaultString(o.getName()), (k1, k2) -> k1));
+        if (StringUtils.isEmpty(vo.getToUserName()) && !userNames.containsKey(vo.getToUserId())) {
+            throw new AFBizException("未能找到接收人:" + vo.getToUserId());
+        }
+        BpmReassignJob job = new BpmReassignJob();
+        job.setFromUser(vo.getFromUserId());
+        job.setFromUserName(StringUtils.defaultIfEmpty(vo.getFromUserName(), userNames.get(vo.getFromUserId())));
+        job.setToUser(vo.getToUserId());
+        job.setToUserName(StringUtils.defaultIfEmpty(vo.getToUserName(), userNames.get(vo.getToUserId())));
+        job.setFormCode(StringUtils.defaultString(vo.getFormCode()));
+        job.setStatus(BpmReassignJob.STATUS_PENDING);
+        job.setTaskCount(0);
+        job.setFutureCount(0);
+        job.setTenantId(StringUtils.defaultString(MultiTenantUtil.getCurrentTenantId()));
+        job.setCreateUser(SecurityUtils.getLogInEmpIdSafe());
+        jobMapper.insert(job);
+        wakeUp();
+        return progress(job.getId());
+    }
+
+    /**
+     * run a failed job again,it goes on with what is left
+     */
+    public BulkReassignJobVo resume(Long id) {
+        BpmReassignJob update = new BpmReassignJob();
+        update.setStatus(BpmReassignJob.STATUS_PENDING);
+        int updated = jobMapper.update(update, Wrappers.<BpmReassignJob>lambdaUpdate()
+                .eq(BpmReassignJob::getId, id)
+                .eq(BpmReassignJob::getStatus, BpmReassignJob.STATUS_FAILED));
+        if (updated == 0) {
+            throw new AFBizException("只有失败的任务可以重新执行");
+        }
+        wakeUp();
+        return progress(id);
+    }
+
+    /**
+     * progress and throughput of a job
+     */
+    public BulkReassignJobVo progress(Long id) {
+        BpmReassignJob job = jobMapper.selectById(id);
+        if (job == null) {
+            throw new AFBizException("未能找到转交任务:" + id);
+        }
+        int processed = job.getTaskCount() + job.getFutureCount();
+        Double throughput = null;
+        if (job.getStartTime() != null) {
+            Date until = job.getEndTime() != null ? job.getEndTime() : Optional.ofNullable(job.getHeartbeatTime()).orElse(new Date());
+            long millis = Math.max(1, until.getTime() - job.getStartTime().getTime());
+            throughput = processed * 1000d / millis;
+        }
+        return BulkReassignJobVo.builder()
+                .id(job.getId())
+                .fromUserId(job.getFromUser())
+                .fromUserName(job.getFromUserName())
+                .toUserId(job.getToUser())
+                .toUserName(job.getToUserName())
+                .formCode(job.getFormCode())
+                .status(job.getStatus())
+                .totalCount(job.getTotalCount())
+                .processedCount(processed)
+                .taskCount(job.getTaskCount())
+                .futureCount(job.getFutureCount())
+                .throughput(throughput)
+                .startTime(job.getStartTime())
+                .endTime(job.getEndTime())
+                .lastError(job.getLastError())
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!workerEnabled) {
+            return;
+        }
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bulk-reassign-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        //the first run picks up the jobs left running by a crashed node once they are stale
+        worker.scheduleWithFixedDelay(this::runAll, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void wakeUp() {
+        ScheduledExecutorService executor = worker;
+        if (executor != null && !executor.isShutdown()) {
+            executor.execute(this::runAll);
+        }
+    }
+
+    private void runAll() {
+        if (!working.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                String claimOwner = UUID.randomUUID().toString();
+                Date now = new Date();
+                if (jobMapper.claim(claimOwner, now, DateUtils.addSeconds(now, -staleSeconds)) == 0) {
+                    return;
+                }
+                BpmReassignJob job = jobMapper.selectOne(Wrappers.<BpmReassignJob>lambdaQuery()
+                        .eq(BpmReassignJob::getClaimOwner, claimOwner)
+                        .eq(BpmReassignJob::getStatus, BpmReassignJob.STATUS_RUNNING));
+                if (job != null) {
+                    runJob(job, claimOwner);
+                }
+            }
+        } catch (Exception e) {
+            log.error("bulk reassign worker failed", e);
+        } finally {
+            working.set(false);
+        }
+    }
+
+    private void runJob(BpmReassignJob job, String claimOwner) {
+        long start = System.currentTimeMillis();
+        tenantIdHolder.setCurrentTenantId(job.getTenantId());
+        try {
+            if (job.getTotalCount() == null) {
+                BpmReassignJob update = new BpmReassignJob();
+                update.setId(job.getId());
+                update.setTotalCount(jobMapper.countTasks(job.getFromUser(), job.getFormCode())
+                        + jobMapper.countFutureItems(job.getFromUser(), job.getFormCode()));
+                jobMapper.updateById(update);
+            }
+            int reassigned;
+            do {
+                if (Thread.currentThread().isInterrupted()) {
+                    //left running,it is taken over once its heartbeat is stale
+                    return;
+                }
+                reassigned = transactionTemplate.execute(status -> reassignChunk(job, claimOwner));
+            } while (reassigned > 0);
+            transactionTemplate.execute(status -> finish(job, claimOwner));
+            log.info("bulk reassign job {} done in {} ms", job.getId(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("bulk reassign job {} failed", job.getId(), e);
+            BpmReassignJob failed = new BpmReassignJob();
+            failed.setStatus(BpmReassignJob.STATUS_FAILED);
+            failed.setLastError(StringUtils.abbreviate(String.valueOf(e.getMessage()), 500));
+            jobMapper.update(failed, Wrappers.<BpmReassignJob>lambdaUpdate()
+                    .eq(BpmReassignJob::getId, job.getId())
+                    .eq(BpmReassignJob::getClaimOwner, claimOwner));
+        } finally {
+            tenantIdHolder.clearCurrentTenantId();
+        }
+    }
+
+    /**
+     * reassign the next chunk,running tasks first and then future approvals
+     *
+     * @return number of items reassigned,0 if nothing is left
+     */
+    private int reassignChunk(BpmReassignJob job, String claimOwner) {
+        List<ReassignItemVo> tasks = jobMapper.selectTasks(job.getFromUser(), job.getFormCode(), chunkSize);
+        if (!tasks.isEmpty()) {
+            checkpoint(job, claimOwner, tasks.size(), 0);
+            reassignTasks(job, tasks);
+            return tasks.size();
+        }
+        List<ReassignItemVo> futureItems = jobMapper.selectFutureItems(job.getFromUser(), job.getFormCode(), chunkSize);
+        if (!futureItems.isEmpty()) {
+            checkpoint(job, claimOwner, 0, futureItems.size());
+            reassignFutureItems(job, futureItems);
+        }
+        return futureItems.size();
+    }
+
+    private void checkpoint(BpmReassignJob job, String claimOwner, int taskDelta, int futureDelta) {
+        //the job row is locked until the chunk is committed,a run which lost the job rolls its chunk back
+        if (jobMapper.checkpoint(job.getId(), claimOwner, new Date(), taskDelta, futureDelta) == 0) {
+            throw new AFBizException("bulk reassign job " + job.getId() + " has been taken over");
+        }
+    }
+
+    private void reassignTasks(BpmReassignJob job, List<ReassignItemVo> tasks) {
+        List<String> taskIds = tasks.stream().map(ReassignItemVo::getId).collect(Collectors.toList());
+        jobMapper.reassignTasks(taskIds, job.getToUser(), job.getToUserName());
+        jobMapper.reassignHisTasks(taskIds, job.getToUser(), job.getToUserName());
+        jobMapper.reassignHisActivities(taskIds, job.getToUser());
+        flowrunEntrustService.saveBatch(tasks.stream()
+                .map(task -> buildEntrust(job, task, task.getId()))
+                .collect(Collectors.toList()));
+        userTaskCounters.tasksReassigned(job.getFromUser(), job.getToUser(), tasks.size());
+        taskInbox.reassign(taskIds, job.getToUser());
+        tasks.stream().map(ReassignItemVo::getProcessNumber).distinct().forEach(processSearchIndex::touch);
+    }
+
+    private void reassignFutureItems(BpmReassignJob job, List<ReassignItemVo> items) {
+        Map<Integer, List<String>> idsByKind = items.stream()
+                .collect(Collectors.groupingBy(ReassignItemVo::getKind, Collectors.mapping(ReassignItemVo::getId, Collectors.toList())));
+        //future assignees are marked with a star,the same as changing them one by one
+        String markedName = job.getToUserName() + "*";
+        idsByKind.forEach((kind, ids) -> {
+            if (kind == ReassignItemVo.KIND_SINGLE) {
+                jobMapper.reassignFutureItems(TABLE_SINGLE, ids, job.getToUser(), markedName);
+            } else if (kind == ReassignItemVo.KIND_MULTIPLAYER) {
+                jobMapper.reassignFutureItems(TABLE_MULTIPLAYER, ids, job.getToUser(), markedName);
+            } else if (kind == ReassignItemVo.KIND_SIGN_UP) {
+                jobMapper.reassignFutureItems(TABLE_SIGN_UP, ids, job.getToUser(), job.getToUserName());
+            }
+        });
+
+        //the engine creates the tasks of a node from the assignee variables of its process
+        Map<String, Set<String>> varNamesByProcInst = new LinkedHashMap<>();
+        for (ReassignItemVo item : items) {
+            if (StringUtils.isNotEmpty(item.getProcInstId()) && StringUtils.isNotEmpty(item.getVarName())) {
+                varNamesByProcInst.computeIfAbsent(item.getProcInstId(), k -> new LinkedHashSet<>()).add(item.getVarName());
+            }
+        }
+        varNamesByProcInst.forEach((procInstId, varNames) -> {
+            Map<String, Object> changed = new HashMap<>();
+            runtimeService.getVariables(procInstId, varNames).forEach((varName, value) -> {
+                Object replaced = replaceAssignee(value, job.getFromUser(), job.getToUser());
+                if (replaced != value) {
+                    changed.put(varName, replaced);
+                }
+            });
+            if (!changed.isEmpty()) {
+                runtimeService.setVariables(procInstId, changed);
+            }
+        });
+
+        //the tasks of future nodes do not exist yet,the node id is recorded instead
+        flowrunEntrustService.saveBatch(items.stream()
+                .map(item -> buildEntrust(job, item, item.getNodeId()))
+                .collect(Collectors.toList()));
+    }
+
+    private Object replaceAssignee(Object value, String fromUser, String toUser) {
+        if (value instanceof String) {
+            return fromUser.equals(value) ? toUser : value;
+        }
+        if (value instanceof Collection && ((Collection<?>) value).contains(fromUser)) {
+            List<Object> assignees = new ArrayList<>();
+            for (Object assignee : (Collection<?>) value) {
+                assignees.add(fromUser.equals(assignee) ? toUser : assignee);
+            }
+            return assignees;
+        }
+        return value;
+    }
+
+    private BpmFlowrunEntrust buildEntrust(BpmReassignJob job, ReassignItemVo item, String runtaskid) {
+        BpmFlowrunEntrust entrust = new BpmFlowrunEntrust();
+        entrust.setType(0);
+        entrust.setRuntaskid(runtaskid);
+        entrust.setActual(job.getToUser());
+        entrust.setActualName(job.getToUserName());
+        entrust.setOriginal(job.getFromUser());
+        entrust.setOriginalName(StringUtils.defaultIfEmpty(item.getAssigneeName(), job.getFromUserName()));
+        entrust.setIsRead(2);
+        entrust.setProcDefId(item.getFormCode());
+        entrust.setRuninfoid(item.getProcInstId());
+        entrust.setTenantId(job.getTenantId());
+        return entrust;
+    }
+
+    /**
+     * mark the job done and notify the new assignee once for all it has got
+     */
+    private Void finish(BpmReassignJob job, String claimOwner) {
+        BpmReassignJob done = new BpmReassignJob();
+        done.setStatus(BpmReassignJob.STATUS_DONE);
+        done.setEndTime(new Date());
+        done.setLastError("");
+        int updated = jobMapper.update(done, Wrappers.<BpmReassignJob>lambdaUpdate()
+                .eq(BpmReassignJob::getId, job.getId())
+                .eq(BpmReassignJob::getClaimOwner, claimOwner)
+                .eq(BpmReassignJob::getStatus, BpmReassignJob.STATUS_RUNNING));
+        if (updated == 0) {
+            return null;
+        }
+        BpmReassignJob finished = jobMapper.selectById(job.getId());
+        if (finished.getTaskCount() + finished.getFutureCount() == 0) {
+            return null;
+        }
+        List<MessageSendTypeEnum> sendTypes = Arrays.stream(StringUtils.split(noticeTypes, ','))
+                .map(String::trim)
+                .filter(StringUtils::isNotEmpty)
+                .map(MessageSendTypeEnum::valueOf)
+                .collect(Collectors.toList());
+        Employee employee = userService.getEmployeeDetailById(finished.getToUser());
+        UserMsgVo userMsgVo = UserMsgVo.builder()
+                .userId(finished.getToUser())
+                .email(employee == null ? null : employee.getEmail())
+                .mobile(employee == null ? null : employee.getMobile())
+                .title("审批转交通知")
+                .content(String.format("%s的%d个待办审批和%d个后续节点审批已转交给您,请及时处理",
+                        StringUtils.defaultString(finished.getFromUserName(), finished.getFromUser()),
+                        finished.getTaskCount(), finished.getFutureCount()))
+                .build();
+        //written to the notice outbox,so it is only sent if the job is marked done
+        UserMsgUtils.sendMessageBatch(Collections.singletonList(UserMsgBatchVo.builder()
+                .userMsgVo(userMsgVo)
+                .messageSendTypeEnums(sendTypes)
+                .build()));
+        return null;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (worker != null) {
+            worker.shutdownNow();
+        }
+    }
+}
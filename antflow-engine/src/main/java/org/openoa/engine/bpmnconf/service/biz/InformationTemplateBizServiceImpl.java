@@ -18,6 +18,7 @@ import org.openoa.engine.bpmnconf.service.interf.biz.InformationTemplateBizServi
 import org.openoa.engine.bpmnconf.service.interf.repository.BpmnApproveRemindService;
 import org.openoa.engine.bpmnconf.service.interf.repository.BpmnTemplateService;
 import org.openoa.engine.bpmnconf.service.interf.repository.DefaultTemplateService;
+import org.openoa.engine.utils.InformationTemplateUtils;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -36,6 +37,8 @@ public class InformationTemplateBizServiceImpl implements InformationTemplateBiz
     private BpmnApproveRemindService bpmnApproveRemindService;
     @Autowired
     private BpmnTemplateService bpmnTemplateService;
+    @Autowired
+    private InformationTemplateUtils informationTemplateUtils;
 
     /**
      * modify
@@ -91,6 +94,7 @@ public class InformationTemplateBizServiceImpl implements InformationTemplateBiz
             informationTemplate.setNum("LCTZ_" + String.format("%03d", informationTemplate.getId()));
         }
         getService().updateById(informationTemplate);
+        informationTemplateUtils.invalidate(informationTemplate.getId());
         return informationTemplate.getId();
     }
     /**
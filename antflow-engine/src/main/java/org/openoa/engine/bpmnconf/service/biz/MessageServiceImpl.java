@@ -1,6 +1,5 @@
 package org.openoa.engine.bpmnconf.service.biz;
 
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.google.common.collect.Lists;
 import lombok.extern.slf4j.Slf4j;
 import org.openoa.base.entity.UserMessage;
@@ -11,19 +10,16 @@ import org.openoa.base.util.SecurityUtils;
 import org.openoa.base.vo.BaseMsgInfo;
 import org.openoa.base.vo.MailInfo;
 import org.openoa.base.vo.MessageInfo;
+import org.openoa.engine.bpmnconf.common.MessageRecipientResolver;
 import org.openoa.engine.bpmnconf.service.impl.UserMessageServiceImpl;
-import org.openoa.engine.bpmnconf.service.impl.UserMessageStatusServiceImpl;
 import org.openoa.engine.bpmnconf.service.interf.repository.UserMessageService;
-import org.openoa.engine.bpmnconf.service.interf.repository.UserMessageStatusService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.ObjectUtils;
 
-import java.util.Date;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 @Slf4j
 @Service
@@ -36,7 +32,7 @@ public class MessageServiceImpl {
     private UserMessageService userMessageService;
 
     @Autowired
-    private UserMessageStatusService userMessageStatusService;
+    private MessageRecipientResolver messageRecipientResolver;
     @Autowired
     private MailUtils mailUtils;
 
@@ -49,16 +45,9 @@ public class MessageServiceImpl {
     @Async
     public void sendMail(MailInfo mailInfo, String userId) {
 
-        UserMessageStatus userMessageStatus = getUserMessageStatus(userId);
-
         //如果员工没有消息配置数据则默认发送邮件
         //if user has no message config,the default to send email
-        if (userMessageStatus==null) {
-            mailUtils.doSendMail(mailInfo);
-            return;
-        }
-
-        if (Boolean.TRUE.equals(userMessageStatus.getMailStatus())) {
+        if (messageRecipientResolver.resolve(userId).acceptsMail()) {
             mailUtils.doSendMail(mailInfo);
         }
     }
@@ -70,25 +59,37 @@ public class MessageServiceImpl {
      */
     @Async
     public void sendMailBatch(Map<String, MailInfo> map) {
-        List<MailInfo> mailInfos = Lists.newArrayList();
-
-        for (Map.Entry<String, MailInfo> entry : map.entrySet()) {
-
-            UserMessageStatus userMessageStatus = getUserMessageStatus(entry.getKey());
-
-
-            if (userMessageStatus==null) {
-                mailInfos.add(entry.getValue());
-                continue;
-            }
+        sendMailsNow(Lists.newArrayList(map.keySet()), Lists.newArrayList(map.values()));
+    }
 
-            if (Boolean.TRUE.equals(userMessageStatus.getMailStatus())) {
-                mailInfos.add(entry.getValue());
+    /**
+     * send emails and wait for them,the entry of the notice outbox dispatcher,which retries the failed ones only
+     *
+     * @param userIds   receivers,one per mail
+     * @param mailInfos mails
+     * @return indexes of the mails which were not sent
+     */
+    public Set<Integer> sendMailsNow(List<String> userIds, List<MailInfo> mailInfos) {
+        List<MailInfo> acceptedMails = Lists.newArrayList();
+        List<Integer> acceptedIndexes = Lists.newArrayList();
+        //settings of all recipients are loaded at once
+        Map<String, MessageRecipientResolver.Recipient> recipients = messageRecipientResolver.resolve(new HashSet<>(userIds));
+
+        for (int i = 0; i < mailInfos.size(); i++) {
+            MessageRecipientResolver.Recipient recipient = recipients.get(userIds.get(i));
+            if (recipient == null || recipient.acceptsMail()) {
+                acceptedMails.add(mailInfos.get(i));
+                acceptedIndexes.add(i);
             }
         }
-        if (!CollectionUtils.isEmpty(mailInfos)) {
-            mailUtils.doSendMailBatch(mailInfos);
+        if (CollectionUtils.isEmpty(acceptedMails)) {
+            return Collections.emptySet();
         }
+        Set<Integer> failedIndexes = new HashSet<>();
+        for (Integer failedIndex : mailUtils.sendMailEach(acceptedMails)) {
+            failedIndexes.add(acceptedIndexes.get(failedIndex));
+        }
+        return failedIndexes;
     }
 
     /**
@@ -100,7 +101,7 @@ public class MessageServiceImpl {
     @Async
     public void sendSms(MessageInfo messageInfo, String userId) {
 
-        UserMessageStatus userMessageStatus = getUserMessageStatus(userId);
+        UserMessageStatus userMessageStatus = messageRecipientResolver.resolve(userId).getMessageStatus();
       //todo
     }
 
@@ -111,14 +112,27 @@ public class MessageServiceImpl {
      */
     @Async
     public void sendSmsBatch(Map<String, MessageInfo> map) {
-        List<MessageInfo> messageInfos = Lists.newArrayList();
+        sendSmsNow(Lists.newArrayList(map.keySet()), Lists.newArrayList(map.values()));
+    }
+
+    /**
+     * send sms and wait for them,the entry of the notice outbox dispatcher
+     *
+     * @param userIds      receivers,one per message
+     * @param messageInfos messages
+     * @return indexes of the messages which were not sent
+     */
+    public Set<Integer> sendSmsNow(List<String> userIds, List<MessageInfo> messageInfos) {
+        Map<String, MessageRecipientResolver.Recipient> recipients = messageRecipientResolver.resolve(new HashSet<>(userIds));
 
-        for (Map.Entry<String, MessageInfo> entry : map.entrySet()) {
+        for (int i = 0; i < messageInfos.size(); i++) {
 
-            UserMessageStatus userMessageStatus = getUserMessageStatus(entry.getKey());
+            MessageRecipientResolver.Recipient recipient = recipients.get(userIds.get(i));
+            UserMessageStatus userMessageStatus = recipient == null ? null : recipient.getMessageStatus();
 
             //todo
         }
+        return Collections.emptySet();
     }
 
     /**
@@ -129,7 +143,8 @@ public class MessageServiceImpl {
      */
     @Async
     public void sendAppPush(BaseMsgInfo baseMsgInfo, String userId) {
-        doSendAppPush(baseMsgInfo, userId);
+        baseMsgInfo.setUsername(getUsernameByUserId(userId));
+        doSendAppPush(baseMsgInfo, messageRecipientResolver.resolve(userId).getMessageStatus());
     }
 
     /**
@@ -139,9 +154,35 @@ public class MessageServiceImpl {
      */
     @Async
     public void sendAppPushBatch(Map<String, BaseMsgInfo> map) {
-        for (Map.Entry<String, BaseMsgInfo> entry : map.entrySet()) {
-            doSendAppPush(entry.getValue(), entry.getKey());
+        if (CollectionUtils.isEmpty(map)) {
+            return;
+        }
+        sendAppPushNow(Lists.newArrayList(map.keySet()), Lists.newArrayList(map.values()));
+    }
+
+    /**
+     * push app notifications and wait for them,the entry of the notice outbox dispatcher,which retries the failed ones only
+     *
+     * @param userIds      receivers,one per notification
+     * @param baseMsgInfos notifications
+     * @return indexes of the notifications which were not pushed
+     */
+    public Set<Integer> sendAppPushNow(List<String> userIds, List<BaseMsgInfo> baseMsgInfos) {
+        //names and settings of all recipients are loaded at once
+        Map<String, String> employeeInfo = bpmnEmployeeInfoProviderService.provideEmployeeInfo(Lists.newArrayList(new HashSet<>(userIds)));
+        Map<String, MessageRecipientResolver.Recipient> recipients = messageRecipientResolver.resolve(new HashSet<>(userIds));
+        Set<Integer> failedIndexes = new HashSet<>();
+        for (int i = 0; i < baseMsgInfos.size(); i++) {
+            MessageRecipientResolver.Recipient recipient = recipients.get(userIds.get(i));
+            try {
+                baseMsgInfos.get(i).setUsername(employeeInfo.get(userIds.get(i)));
+                doSendAppPush(baseMsgInfos.get(i), recipient == null ? null : recipient.getMessageStatus());
+            } catch (Exception e) {
+                log.error("failed to push app notification to {}", userIds.get(i), e);
+                failedIndexes.add(i);
+            }
         }
+        return failedIndexes;
     }
 
     /**
@@ -189,26 +230,13 @@ public class MessageServiceImpl {
      * do send app push
      *
      * @param baseMsgInfo
-     * @param userId
+     * @param userMessageStatus message settings of the receiver,null if not set
      */
-    private void doSendAppPush(BaseMsgInfo baseMsgInfo, String userId) {
-
-        baseMsgInfo.setUsername(getUsernameByUserId(userId));
-        UserMessageStatus userMessageStatus = getUserMessageStatus(userId);
+    private void doSendAppPush(BaseMsgInfo baseMsgInfo, UserMessageStatus userMessageStatus) {
 
         //todo
     }
 
-    /**
-     * get user message config
-     *
-     * @param userId
-     * @return
-     */
-    private UserMessageStatus getUserMessageStatus(String userId) {
-        return userMessageStatusService.getBaseMapper().selectOne(new QueryWrapper<UserMessageStatus>().eq("user_id", userId));
-    }
-
     /**
      * get user name by id
      *
@@ -18,6 +18,9 @@ import org.openoa.base.util.SecurityUtils;
 import org.openoa.base.vo.*;
 import org.openoa.engine.bpmnconf.common.ConfigFlowButtonContans;
 import org.openoa.engine.bpmnconf.common.ProcessBusinessContans;
+import org.openoa.engine.bpmnconf.common.ProcessSearchIndex;
+import org.openoa.engine.bpmnconf.common.TaskInbox;
+import org.openoa.engine.bpmnconf.common.UserTaskCounters;
 import org.openoa.engine.bpmnconf.mapper.ProcessApprovalMapper;
 import org.openoa.engine.bpmnconf.mapper.TaskMgmtMapper;
 import org.openoa.engine.bpmnconf.service.impl.BpmProcessNameServiceImpl;
@@ -72,6 +75,12 @@ public class ProcessApprovalServiceImpl extends ServiceImpl<ProcessApprovalMappe
     private BpmVariableSignUpBizService bpmVariableSignUpBizService;
     @Autowired
     private TaskService taskService;
+    @Autowired
+    private UserTaskCounters userTaskCounters;
+    @Autowired
+    private TaskInbox taskInbox;
+    @Autowired
+    private ProcessSearchIndex processSearchIndex;
 
     /**
      * button operation
@@ -103,6 +112,7 @@ public class ProcessApprovalServiceImpl extends ServiceImpl<ProcessApprovalMappe
         // ===========================>>to build the query conditions<<============================
 
         vo.setApplyUser(SecurityUtils.getLogInEmpIdStr());
+        vo.setSearchTokens(processSearchIndex.queryTokens(vo.getSearch()));
         switch (vo.getType()) {
             // view process record
             case 1:
@@ -118,7 +128,7 @@ public class ProcessApprovalServiceImpl extends ServiceImpl<ProcessApprovalMappe
                 if (!ObjectUtils.isEmpty(vo.getProcessType())) {
                     vo.setProcessKeyList(processNameRelevancyService.processKeyList(Long.parseLong(vo.getProcessType())));
                 }
-                page.setRecords(this.getBaseMapper().viewPcpNewlyBuildList(page, vo));
+                page.setRecords(taskInbox.isEnabled() ? taskInbox.startedList(page, vo) : this.getBaseMapper().viewPcpNewlyBuildList(page, vo));
 
                 break;
             // already finished tasks
@@ -126,7 +136,7 @@ public class ProcessApprovalServiceImpl extends ServiceImpl<ProcessApprovalMappe
                 if (!ObjectUtils.isEmpty(vo.getProcessType())) {
                     vo.setProcessKeyList(processNameRelevancyService.processKeyList(Long.parseLong(vo.getProcessType())));
                 }
-                page.setRecords(this.getBaseMapper().viewPcAlreadyDoneList(page, vo));
+                page.setRecords(taskInbox.isEnabled() ? taskInbox.doneList(page, vo) : this.getBaseMapper().viewPcAlreadyDoneList(page, vo));
 
                 break;
             // running tasks
@@ -134,7 +144,7 @@ public class ProcessApprovalServiceImpl extends ServiceImpl<ProcessApprovalMappe
                 if (!ObjectUtils.isEmpty(vo.getProcessType())) {
                     vo.setProcessKeyList(processNameRelevancyService.processKeyList(Long.parseLong(vo.getProcessType())));
                 }
-                page.setRecords(this.getBaseMapper().viewPcToDoList(page, vo));
+                page.setRecords(taskInbox.isEnabled() ? taskInbox.todoList(page, vo) : this.getBaseMapper().viewPcToDoList(page, vo));
 
 
                 break;
@@ -268,12 +278,8 @@ public class ProcessApprovalServiceImpl extends ServiceImpl<ProcessApprovalMappe
      */
     public TaskMgmtVO processStatistics() {
 
-        // set value
-        List<Task> taskList = taskService.createTaskQuery().taskAssignee(SecurityUtils.getLogInEmpIdStr()).list();
-        return TaskMgmtVO.builder().todoCount(taskList.size())
-                .doneTodayCount(this.getBaseMapper().doneTodayProcess(SecurityUtils.getLogInEmpIdStr()))
-                .doneCreateCount(this.getBaseMapper().doneCreateProcess(SecurityUtils.getLogInEmpIdStr()))
-                .title(null).build();
+        //counters maintained by the engine events instead of loading every pending task
+        return userTaskCounters.getStatistics(SecurityUtils.getLogInEmpIdStr());
     }
     /**
      * set the add approver button
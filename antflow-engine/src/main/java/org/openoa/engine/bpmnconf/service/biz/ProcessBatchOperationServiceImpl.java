@@ -0,0 +1,213 @@
+package org.openoa.engine.bpmnconf.service.biz;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.activiti.engine.impl.cfg.multitenant.TenantIdHolder;
+import org.apache.commons.lang3.StringUtils;
+import org.openoa.base.constant.StringConstants;
+import org.openoa.base.entity.BpmnConf;
+import org.openoa.base.exception.AFBizException;
+import org.openoa.base.util.MultiTenantUtil;
+import org.openoa.base.util.SecurityUtils;
+import org.openoa.base.util.ThreadLocalContainer;
+import org.openoa.base.vo.BaseIdTranStruVo;
+import org.openoa.base.vo.BatchOperationItemResultVo;
+import org.openoa.base.vo.BatchOperationResultVo;
+import org.openoa.engine.bpmnconf.common.ProcessNoticeOutbox;
+import org.openoa.engine.bpmnconf.service.interf.biz.BpmnConfBizService;
+import org.openoa.engine.factory.ButtonPreOperationService;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * batch button operation,processes many operations(mostly approvals) of one user in one request.
+ * <p>
+ * every operation is the same request body as a single button operation and goes the same way,each one in its own
+ * transaction,so a failed operation does not affect the others.the operations are grouped by form code and the bpmn
+ * confs of the groups are resolved once for the whole batch;they are run on a bounded pool,the operations of one
+ * process one after another on the same thread,and the notices they produce are held back under a key of the batch
+ * and dispatched together after it.
+ */
+@Slf4j
+@Service
+public class ProcessBatchOperationServiceImpl {
+    @Value("${antflow.batch-operation.parallelism:4}")
+    private Integer parallelism;
+    @Value("${antflow.batch-operation.max-items:500}")
+    private Integer maxItems;
+
+    @Autowired
+    private ButtonPreOperationService buttonPreOperationService;
+    @Autowired
+    private BpmnConfBizService bpmnConfBizService;
+    @Autowired
+    private ProcessNoticeOutbox processNoticeOutbox;
+    @Autowired
+    private TenantIdHolder tenantIdHolder;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "process-batch-operation-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * do a batch of button operations
+     *
+     * @param params json array of button operation request bodies,see {@link ProcessApprovalServiceImpl#buttonsOperation}
+     * @return result of every operation in the order of the request
+     */
+    public BatchOperationResultVo buttonsOperation(String params) {
+        long start = System.currentTimeMillis();
+        List<JSONObject> items = JSON.parseArray(params, JSONObject.class);
+        if (items == null || items.isEmpty()) {
+            throw new AFBizException("batch operation has no items");
+        }
+        if (items.size() > maxItems) {
+            throw new AFBizException("batch operation has " + items.size() + " items,at most " + maxItems + " are allowed");
+        }
+
+        //group by form code,and within a group by process so that the operations of a process keep their order
+        Map<String, Map<String, List<Integer>>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            JSONObject item = items.get(i);
+            String processNumber = StringUtils.defaultIfEmpty(item.getString("processNumber"), "#" + i);
+            groups.computeIfAbsent(StringUtils.defaultString(item.getString("formCode")), k -> new LinkedHashMap<>())
+                    .computeIfAbsent(processNumber, k -> new ArrayList<>())
+                    .add(i);
+        }
+        Map<String, BpmnConf> bpmnConfs = bpmnConfBizService.getBpmnConfByFormCodeBatch(new ArrayList<>(groups.keySet()))
+                .stream()
+                .collect(Collectors.toMap(BpmnConf::getFormCode, o -> o, (k1, k2) -> k2));
+
+        BaseIdTranStruVo currentUser = SecurityUtils.getLogInEmpInfo();
+        String tenantId = MultiTenantUtil.getCurrentTenantId();
+        Object tenantUser = ThreadLocalContainer.get(StringConstants.TENANT_USER);
+        //the same as AsyncTaskDecorator,callbacks read the request(e.g. the domain) and logs the trace id of the request
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        Map<String, String> contextMap = MDC.getCopyOfContextMap();
+        String holdKey = processNoticeOutbox.holdDispatch();
+        BatchOperationItemResultVo[] results = new BatchOperationItemResultVo[items.size()];
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Map.Entry<String, Map<String, List<Integer>>> group : groups.entrySet()) {
+            String formCode = group.getKey();
+            for (List<Integer> processItems : group.getValue().values()) {
+                tasks.add(() -> {
+                    //the operations read the login user and tenant from thread locals of the request thread
+                    ThreadLocalContainer.set("currentuser", currentUser);
+                    if (tenantUser != null) {
+                        ThreadLocalContainer.set(StringConstants.TENANT_USER, tenantUser);
+                    }
+                    ThreadLocalContainer.set(StringConstants.BATCH_BPMN_CONFS, bpmnConfs);
+                    ThreadLocalContainer.set(StringConstants.NOTICE_OUTBOX_HOLD_KEY, holdKey);
+                    if (tenantId != null) {
+                        tenantIdHolder.setCurrentTenantId(tenantId);
+                    }
+                    RequestContextHolder.setRequestAttributes(requestAttributes);
+                    if (contextMap != null) {
+                        MDC.setContextMap(contextMap);
+                    } else {
+                        MDC.clear();
+                    }
+                    try {
+                        for (Integer index : processItems) {
+                            results[index] = doOperation(index, items.get(index), formCode);
+                        }
+                    } finally {
+                        ThreadLocalContainer.clean();
+                        if (tenantId != null) {
+                            tenantIdHolder.clearCurrentTenantId();
+                        }
+                        MDC.clear();
+                        RequestContextHolder.resetRequestAttributes();
+                    }
+                    return null;
+                });
+            }
+        }
+
+        try {
+            executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AFBizException("batch operation interrupted");
+        } finally {
+            processNoticeOutbox.releaseDispatch(holdKey);
+        }
+
+        List<BatchOperationItemResultVo> itemResults = new ArrayList<>(items.size());
+        int succeeded = 0;
+        for (int i = 0; i < results.length; i++) {
+            BatchOperationItemResultVo result = results[i];
+            if (result == null) {
+                result = failure(i, items.get(i), "not executed", 0);
+            }
+            succeeded += Boolean.TRUE.equals(result.getSuccess()) ? 1 : 0;
+            itemResults.add(result);
+        }
+        long costMillis = System.currentTimeMillis() - start;
+        log.info("batch operation of {} items done in {} ms,{} succeeded", items.size(), costMillis, succeeded);
+        return BatchOperationResultVo.builder()
+                .total(items.size())
+                .succeeded(succeeded)
+                .failed(items.size() - succeeded)
+                .costMillis(costMillis)
+                .items(itemResults)
+                .build();
+    }
+
+    private BatchOperationItemResultVo doOperation(int index, JSONObject item, String formCode) {
+        long start = System.currentTimeMillis();
+        try {
+            buttonPreOperationService.buttonsPreOperation(item.toJSONString(), StringUtils.defaultIfEmpty(formCode, null));
+            return BatchOperationItemResultVo.builder()
+                    .index(index)
+                    .processNumber(item.getString("processNumber"))
+                    .taskId(item.getString("taskId"))
+                    .operationType(item.getInteger("operationType"))
+                    .success(true)
+                    .costMillis(System.currentTimeMillis() - start)
+                    .build();
+        } catch (Exception e) {
+            log.error("batch operation item {} failed,processNumber:{}", index, item.getString("processNumber"), e);
+            return failure(index, item, StringUtils.defaultIfEmpty(e.getMessage(), e.getClass().getSimpleName()), System.currentTimeMillis() - start);
+        } finally {
+            ThreadLocalContainer.remove(StringConstants.FORM_CODE);
+        }
+    }
+
+    private BatchOperationItemResultVo failure(int index, JSONObject item, String message, long costMillis) {
+        return BatchOperationItemResultVo.builder()
+                .index(index)
+                .processNumber(item.getString("processNumber"))
+                .taskId(item.getString("taskId"))
+                .operationType(item.getInteger("operationType"))
+                .success(false)
+                .message(message)
+                .costMillis(costMillis)
+                .build();
+    }
+}
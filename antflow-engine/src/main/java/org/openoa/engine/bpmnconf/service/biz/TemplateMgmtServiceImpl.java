@@ -6,6 +6,7 @@ import org.activiti.bpmn.model.FlowElement;
 import org.activiti.engine.RepositoryService;
 import org.activiti.engine.RuntimeService;
 import org.activiti.engine.impl.RepositoryServiceImpl;
+import org.activiti.engine.impl.cmd.JumpTaskCmd;
 import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
 import org.activiti.engine.impl.persistence.entity.ProcessDefinitionEntity;
 import org.activiti.engine.impl.persistence.entity.TaskEntity;
@@ -13,7 +14,6 @@ import org.activiti.engine.impl.pvm.PvmActivity;
 import org.activiti.engine.impl.pvm.PvmTransition;
 import org.activiti.engine.impl.pvm.process.ActivityImpl;
 import org.activiti.engine.impl.pvm.process.ProcessDefinitionImpl;
-import org.activiti.engine.impl.pvm.process.TransitionImpl;
 import org.activiti.engine.task.Task;
 import org.apache.commons.lang3.StringUtils;
 import org.openoa.base.entity.ActHiTaskinst;
@@ -21,6 +21,7 @@ import org.openoa.base.vo.BpmVerifyInfoVo;
 import org.openoa.engine.bpmnconf.common.ProcessServiceFactory;
 import org.openoa.engine.bpmnconf.mapper.BpmVerifyInfoMapper;
 import org.openoa.engine.bpmnconf.service.impl.ActHiTaskinstServiceImpl;
+import org.openoa.engine.bpmnconf.service.interf.biz.BpmnSharedDefinitionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
@@ -36,6 +37,8 @@ public class TemplateMgmtServiceImpl extends ProcessServiceFactory {
     private BpmVerifyInfoMapper bpmVerifyInfoMapper;
     @Autowired
     private ActHiTaskinstServiceImpl actHiTaskinstService;
+    @Autowired
+    private BpmnSharedDefinitionService bpmnSharedDefinitionService;
 
     /**
      * deployment a process,for compatibility purpose,it is highly recommended to use thei newer one
@@ -57,6 +60,8 @@ public class TemplateMgmtServiceImpl extends ProcessServiceFactory {
      * delete process template
      */
     public void delProcessTemplate(String deployId) {
+        repositoryService.createProcessDefinitionQuery().deploymentId(deployId).list()
+                .forEach(processDefinition -> bpmnSharedDefinitionService.evict(processDefinition.getId()));
         this.repositoryService.deleteDeployment(
                 deployId, true);
     }
@@ -143,25 +148,11 @@ public class TemplateMgmtServiceImpl extends ProcessServiceFactory {
      */
     private void turnTransition(String taskId, String activityId,
                                 Map<String, Object> variables) throws Exception {
-        // find current activiti
-        ActivityImpl currActivity = findActivitiImpl(taskId, null);
-        // clear current activiti outgoing transitions
-        List<PvmTransition> oriPvmTransitionList = clearTransition(currActivity);
-
-        // create new outgoing transitions for current activiti
-        TransitionImpl newTransition = currActivity.createOutgoingTransition();
         // find target activiti
         ActivityImpl pointActivity = findActivitiImpl(taskId, activityId);
-        // set target activiti as destination of new transition
-        newTransition.setDestination(pointActivity);
-
-        // begin to turn
-        taskService.complete(taskId, variables);
-        // clear target activiti incoming transitions
-        pointActivity.getIncomingTransitions().remove(newTransition);
 
-        // restore current activiti outgoing transitions
-        restoreTransition(currActivity, oriPvmTransitionList);
+        // begin to turn,the process definition may be shared by other instances,so its transitions are not touched
+        managementService.executeCommand(new JumpTaskCmd(taskId, pointActivity.getId(), variables));
     }
 
     /**
@@ -244,46 +235,6 @@ public class TemplateMgmtServiceImpl extends ProcessServiceFactory {
         return task;
     }
 
-    /**
-     * restore specified activiti's transition
-     *
-     * @param activityImpl         activiti
-     * @param oriPvmTransitionList original transition list
-     */
-    private void restoreTransition(ActivityImpl activityImpl,
-                                   List<PvmTransition> oriPvmTransitionList) {
-        // clearn current outgoing transitions
-        List<PvmTransition> pvmTransitionList = activityImpl
-                .getOutgoingTransitions();
-        pvmTransitionList.clear();
-        // restore current activiti's original transitions
-        for (PvmTransition pvmTransition : oriPvmTransitionList) {
-            pvmTransitionList.add(pvmTransition);
-        }
-    }
-
-    /**
-     * clear specified activiti's outgoing transition
-     *
-     * @param activityImpl
-     * @return node flow list
-     */
-    private List<PvmTransition> clearTransition(ActivityImpl activityImpl) {
-
-        //set current outgoing transitions
-        List<PvmTransition> oriPvmTransitionList = new ArrayList<PvmTransition>();
-
-        //get current outgoing transitions,store it in oriPvmTransitionList,then clear it
-        List<PvmTransition> pvmTransitionList = activityImpl
-                .getOutgoingTransitions();
-        for (PvmTransition pvmTransition : pvmTransitionList) {
-            oriPvmTransitionList.add(pvmTransition);
-        }
-        pvmTransitionList.clear();
-
-        return oriPvmTransitionList;
-    }
-
     /***
      * reject process at specified node
      */
@@ -303,35 +254,14 @@ public class TemplateMgmtServiceImpl extends ProcessServiceFactory {
         //get next to be active node
         ActivityImpl nextActivityImpl = ((ProcessDefinitionImpl) definition).findActivity(destTaskkey);
         if (currActivityImpl != null) {
-            //get outgoing transitions
-            List<PvmTransition> pvmTransitions = currActivityImpl.getOutgoingTransitions();
-            List<PvmTransition> oriPvmTransitions = new ArrayList<PvmTransition>();
-            for (PvmTransition transition : pvmTransitions) {
-                oriPvmTransitions.add(transition);
-            }
-            //clear outgoing transitions
-            pvmTransitions.clear();
-            //建立新的出口
-            List<TransitionImpl> transitionImpls = new ArrayList<TransitionImpl>();
-            TransitionImpl tImpl = currActivityImpl.createOutgoingTransition();
-            tImpl.setDestination(nextActivityImpl);
-            transitionImpls.add(tImpl);
-
             List<Task> list = taskService.createTaskQuery().processInstanceId(entity.getProcessInstanceId())
                     .taskDefinitionKey(entity.getActivityId()).list();
             for (Task task : list) {
                 //variables.put(Contants.START_USER,taskService.getVariable(task.getId(),"startUser"));
-                taskService.complete(task.getId(), variables);
+                //move each task to the node instead of rewiring the(possibly shared) process definition
+                managementService.executeCommand(new JumpTaskCmd(task.getId(), nextActivityImpl.getId(), variables));
                 actHiTaskinstService.deleteById(task.getId());
             }
-
-            for (TransitionImpl transitionImpl : transitionImpls) {
-                currActivityImpl.getOutgoingTransitions().remove(transitionImpl);
-            }
-
-            for (PvmTransition pvmTransition : oriPvmTransitions) {
-                pvmTransitions.add(pvmTransition);
-            }
         }
     }
 
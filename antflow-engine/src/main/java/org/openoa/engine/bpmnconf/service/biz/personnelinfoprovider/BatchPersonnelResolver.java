@@ -0,0 +1,123 @@
+package org.openoa.engine.bpmnconf.service.biz.personnelinfoprovider;
+
+import org.openoa.base.constant.enums.NodePropertyEnum;
+import org.openoa.base.service.AfUserService;
+import org.openoa.base.service.empinfoprovider.BpmnRoleInfoProvider;
+import org.openoa.base.vo.BaseIdTranStruVo;
+import org.openoa.base.vo.BpmnConfVo;
+import org.openoa.base.vo.BpmnNodeVo;
+import org.openoa.base.vo.BpmnStartConditionsVo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * resolves the assignee lookups of all the nodes of a process at once while its assignees are set,both on starting
+ * and on previewing it.
+ * <p>
+ * the personnel providers used to look up the leaders of the start user and the members of the roles node by node,
+ * so a process with many nodes asked the same things again and again.between {@link #begin} and {@link #end} the
+ * members of the roles of all the nodes are loaded with one query grouped by role,and every leader lookup is done
+ * once per distinct argument,the providers take their results from here.outside a batch the lookups go to the
+ * services directly.
+ */
+@Component
+public class BatchPersonnelResolver {
+    private static final ThreadLocal<Batch> CURRENT = new ThreadLocal<>();
+
+    @Autowired
+    private AfUserService userService;
+    @Autowired
+    private BpmnRoleInfoProvider roleInfoProvider;
+
+    /**
+     * open a batch for the nodes of a process and load what they have in common
+     *
+     * @param bpmnConfVo      process config,its nodes already filtered by the start conditions
+     * @param startConditions start conditions
+     * @return false if a batch is already open on this thread,it is then left to its opener to end
+     */
+    public boolean begin(BpmnConfVo bpmnConfVo, BpmnStartConditionsVo startConditions) {
+        if (CURRENT.get() != null) {
+            return false;
+        }
+        Batch batch = new Batch();
+        Set<String> roleIds = new LinkedHashSet<>();
+        for (BpmnNodeVo node : Optional.ofNullable(bpmnConfVo.getNodes()).orElse(Collections.emptyList())) {
+            if (node.getProperty() == null || Integer.valueOf(1).equals(node.getIsOutSideProcess())) {
+                continue;
+            }
+            if (NodePropertyEnum.NODE_PROPERTY_ROLE.getCode().equals(node.getNodeProperty())
+                    && !CollectionUtils.isEmpty(node.getProperty().getRoleIds())) {
+                roleIds.addAll(node.getProperty().getRoleIds());
+            }
+        }
+        if (!roleIds.isEmpty()) {
+            batch.roleEmployees.putAll(roleInfoProvider.provideRoleEmployeeInfoByRole(roleIds));
+        }
+        CURRENT.set(batch);
+        return true;
+    }
+
+    /**
+     * close the batch of this thread
+     */
+    public void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * members of the given roles,see {@link BpmnRoleInfoProvider#provideRoleEmployeeInfo}
+     *
+     * @return employee id -> employee name
+     */
+    public Map<String, String> roleEmployees(Collection<String> roleIds) {
+        Batch batch = CURRENT.get();
+        if (batch == null || !batch.roleEmployees.keySet().containsAll(roleIds)) {
+            return roleInfoProvider.provideRoleEmployeeInfo(roleIds);
+        }
+        Map<String, String> employees = new LinkedHashMap<>();
+        for (String roleId : roleIds) {
+            batch.roleEmployees.get(roleId).forEach(employees::putIfAbsent);
+        }
+        return employees;
+    }
+
+    public BaseIdTranStruVo directLeader(String employeeId) {
+        return lookup("directLeader:" + employeeId, () -> userService.queryEmployeeDirectLeaderById(employeeId));
+    }
+
+    public BaseIdTranStruVo hrbp(String employeeId) {
+        return lookup("hrbp:" + employeeId, () -> userService.queryEmployeeHrpbByEmployeeId(employeeId));
+    }
+
+    public BaseIdTranStruVo leaderByLevel(String employeeId, Integer level) {
+        return lookup("level:" + employeeId + ":" + level, () -> userService.queryLeaderByEmployeeIdAndLevel(employeeId, level));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T lookup(String key, Supplier<T> loader) {
+        Batch batch = CURRENT.get();
+        if (batch == null) {
+            return loader.get();
+        }
+        //a missing leader is remembered too
+        if (batch.results.containsKey(key)) {
+            return (T) batch.results.get(key);
+        }
+        T result = loader.get();
+        batch.results.put(key, result);
+        return result;
+    }
+
+    private static final class Batch {
+        /**
+         * role id -> (employee id -> employee name)
+         */
+        private final Map<String, Map<String, String>> roleEmployees = new HashMap<>();
+        private final Map<String, Object> results = new HashMap<>();
+    }
+}
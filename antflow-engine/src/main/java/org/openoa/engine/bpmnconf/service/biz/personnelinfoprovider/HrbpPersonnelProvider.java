@@ -1,7 +1,6 @@
 package org.openoa.engine.bpmnconf.service.biz.personnelinfoprovider;
 
 import com.google.common.collect.Lists;
-import org.openoa.base.service.AfUserService;
 import org.openoa.base.vo.BaseIdTranStruVo;
 import org.openoa.base.vo.BpmnNodeParamsAssigneeVo;
 import org.openoa.base.vo.BpmnNodeVo;
@@ -19,11 +18,11 @@ import java.util.List;
 @Component
 public class HrbpPersonnelProvider extends AbstractMissingAssignNodeAssigneeVoProvider{
     @Autowired
-    private AfUserService userService;
+    private BatchPersonnelResolver personnelResolver;
     @Override
     public List<BpmnNodeParamsAssigneeVo> getAssigneeList(BpmnNodeVo bpmnNodeVo, BpmnStartConditionsVo startConditionsVo) {
         String startUserId = startConditionsVo.getStartUserId();
-        BaseIdTranStruVo baseIdTranStruVo = userService.queryEmployeeHrpbByEmployeeId(startUserId);
+        BaseIdTranStruVo baseIdTranStruVo = personnelResolver.hrbp(startUserId);
 
         return  super.provideAssigneeList(bpmnNodeVo, Lists.newArrayList(baseIdTranStruVo));
     }
@@ -2,7 +2,6 @@ package org.openoa.engine.bpmnconf.service.biz.personnelinfoprovider;
 
 import com.google.common.collect.Lists;
 import org.openoa.base.exception.AFBizException;
-import org.openoa.base.service.AfUserService;
 import org.openoa.base.vo.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -17,7 +16,7 @@ import java.util.List;
 @Component
 public class LevelPersonnelProvider extends AbstractMissingAssignNodeAssigneeVoProvider{
     @Autowired
-    private AfUserService userService;
+    private BatchPersonnelResolver personnelResolver;
     @Override
     public List<BpmnNodeParamsAssigneeVo> getAssigneeList(BpmnNodeVo bpmnNodeVo, BpmnStartConditionsVo startConditionsVo) {
         BpmnNodePropertysVo propertysVo = bpmnNodeVo.getProperty();
@@ -28,7 +27,7 @@ public class LevelPersonnelProvider extends AbstractMissingAssignNodeAssigneeVoP
         }
         Integer assignLevelType = propertysVo.getAssignLevelType();
         Integer assignLevelGrade = propertysVo.getAssignLevelGrade();
-        BaseIdTranStruVo baseIdTranStruVo = userService.queryLeaderByEmployeeIdAndLevel(startUserId, assignLevelGrade);
+        BaseIdTranStruVo baseIdTranStruVo = personnelResolver.leaderByLevel(startUserId, assignLevelGrade);
 
 
         return  super.provideAssigneeList(bpmnNodeVo,Lists.newArrayList(baseIdTranStruVo));
@@ -4,7 +4,6 @@ import com.google.common.collect.Lists;
 import lombok.extern.slf4j.Slf4j;
 import org.openoa.base.entity.Result;
 import org.openoa.base.exception.AFBizException;
-import org.openoa.base.service.empinfoprovider.BpmnRoleInfoProvider;
 import org.openoa.base.util.ThreadLocalContainer;
 import org.openoa.base.vo.*;
 import org.openoa.common.util.AssigneeVoBuildUtils;
@@ -31,7 +30,7 @@ import java.util.stream.Collectors;
 @Component
 public class RolePersonnelProvider extends AbstractMissingAssignNodeAssigneeVoProvider{
     @Autowired
-    private BpmnRoleInfoProvider roleInfoProvider;
+    private BatchPersonnelResolver personnelResolver;
 
     @Autowired
     private AssigneeVoBuildUtils assigneeVoBuildUtils;
@@ -84,7 +83,7 @@ public class RolePersonnelProvider extends AbstractMissingAssignNodeAssigneeVoPr
             return assigneeVoBuildUtils.buildVOs(userList, bpmnNodeVo.getNodeName(), false);
         }
         List<String> roleIds = propertysVo.getRoleIds();
-        Map<String, String> roleEmployeeInfo = roleInfoProvider.provideRoleEmployeeInfo(roleIds);
+        Map<String, String> roleEmployeeInfo = personnelResolver.roleEmployees(roleIds);
         List<BaseIdTranStruVo> baseIdTranStruVoList = CollectionUtils.isEmpty(roleEmployeeInfo) ? new ArrayList<>() :
                 roleEmployeeInfo.entrySet().stream().map(a -> BaseIdTranStruVo.builder().id(a.getKey()).name(a.getValue()).build()).collect(Collectors.toList());
 
@@ -1,15 +1,15 @@
 package org.openoa.engine.bpmnconf.service.flowcontrol;
 
+import org.activiti.engine.ManagementService;
 import org.activiti.engine.RepositoryService;
 import org.activiti.engine.RuntimeService;
 import org.activiti.engine.TaskService;
 import org.activiti.engine.impl.RepositoryServiceImpl;
-import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
+import org.activiti.engine.impl.cmd.JumpTaskCmd;
 import org.activiti.engine.impl.persistence.entity.ProcessDefinitionEntity;
 import org.activiti.engine.impl.persistence.entity.TaskEntity;
 import org.activiti.engine.impl.pvm.PvmTransition;
 import org.activiti.engine.impl.pvm.process.ActivityImpl;
-import org.activiti.engine.impl.pvm.process.TransitionImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.ArrayList;
@@ -27,6 +27,8 @@ public class GeneralRejectManagerImpl{
     private RuntimeService runtimeService;
     @Autowired    
     private RepositoryService repositoryService;
+    @Autowired
+    private ManagementService managementService;
 
     private List<ActivityImpl> activitiList = new ArrayList();
     
@@ -60,23 +62,11 @@ public class GeneralRejectManagerImpl{
         
         ProcessDefinitionEntity def = (ProcessDefinitionEntity) ((RepositoryServiceImpl) repositoryService).getDeployedProcessDefinition(taskEntity.getProcessDefinitionId());
 
-
-        ExecutionEntity executionEntity = (ExecutionEntity) runtimeService.createExecutionQuery().executionId(taskEntity.getExecutionId()).singleResult();//执行实例
-
-        String activitiId = executionEntity.getActivityId();//当前实例的执行到哪个节点
         activitiList = def.getActivities();//获得当前任务的所有节点
         
-        ActivityImpl activeActivity = findActivityImpl(activitiList, activitiId);
         ActivityImpl endActivity = findEndActivityImpls(activitiList).get(0);
-        taskEntity.insert(executionEntity);
-        //设置当前节点的出口
-        List<PvmTransition> pvmTransitionList = activeActivity.getOutgoingTransitions();
-        for (PvmTransition pvmTransition : pvmTransitionList) {
-            TransitionImpl transitionImpl = (TransitionImpl) pvmTransition;
-            transitionImpl.setDestination(endActivity);
-        }
-        
-        taskService.complete(taskId);
+        //流程定义可能被多个实例共享,不修改当前节点的出口,只让当前任务流向结束节点
+        managementService.executeCommand(new JumpTaskCmd(taskId, endActivity.getId(), null));
     }
 
 }
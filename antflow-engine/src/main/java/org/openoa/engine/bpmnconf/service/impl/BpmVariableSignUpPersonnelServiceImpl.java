@@ -1,5 +1,6 @@
 package org.openoa.engine.bpmnconf.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.openoa.base.entity.BpmVariableSignUpPersonnel;
 import org.openoa.base.service.BpmVariableSignUpPersonnelService;
@@ -7,6 +8,7 @@ import org.openoa.base.vo.BaseIdTranStruVo;
 import org.openoa.engine.bpmnconf.mapper.BpmVariableSignUpPersonnelMapper;
 import org.springframework.stereotype.Repository;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -22,6 +24,14 @@ public class BpmVariableSignUpPersonnelServiceImpl extends ServiceImpl<BpmVariab
         return byVariableIdAndElementId;
     }
 
+    @Override
+    public Map<String, List<BaseIdTranStruVo>> getSignUpInfoByVariableId(Long variableId) {
+        List<BpmVariableSignUpPersonnel> personnels = this.getBaseMapper().selectList(
+                new QueryWrapper<BpmVariableSignUpPersonnel>().eq("variable_id", variableId));
+        return personnels.stream().collect(Collectors.groupingBy(BpmVariableSignUpPersonnel::getElementId, LinkedHashMap::new,
+                Collectors.mapping(a -> BaseIdTranStruVo.builder().id(a.getAssignee()).name(a.getAssigneeName()).build(), Collectors.toList())));
+    }
+
     @Override
     public Map<String, String> getByProcessNumAndElementId(String processNumber, String elementId) {
         List<BaseIdTranStruVo> assigneeList = this.getBaseMapper().getByProcessNumAndElementId(processNumber, elementId);
@@ -5,27 +5,24 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.openoa.base.dto.PageDto;
 import org.openoa.base.entity.UserEntrust;
 import org.openoa.base.exception.AFBizException;
-import org.openoa.base.util.DateUtil;
 import org.openoa.base.util.MultiTenantUtil;
 import org.openoa.base.util.PageUtils;
 import org.openoa.base.util.SecurityUtils;
 import org.openoa.base.vo.*;
+import org.openoa.engine.bpmnconf.common.UserEntrustIndex;
 import org.openoa.engine.bpmnconf.mapper.UserEntrustMapper;
 import org.openoa.engine.bpmnconf.service.interf.repository.UserEntrustService;
-import org.openoa.engine.utils.AFWrappers;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.CollectionUtils;
 import org.springframework.util.ObjectUtils;
-import org.springframework.util.StringUtils;
 
-import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Repository
 public class UserEntrustServiceImpl extends ServiceImpl<UserEntrustMapper, UserEntrust> implements UserEntrustService {
-
+    @Autowired
+    private UserEntrustIndex userEntrustIndex;
 
 
     //获get current login employee's entrust list
@@ -83,6 +80,7 @@ public class UserEntrustServiceImpl extends ServiceImpl<UserEntrustMapper, UserE
                 getBaseMapper().insert(userEntrust);
             }
         }
+        userEntrustIndex.refresh();
     }
 
 
@@ -108,33 +106,9 @@ public class UserEntrustServiceImpl extends ServiceImpl<UserEntrustMapper, UserE
         if (ObjectUtils.isEmpty(employeeId) || ObjectUtils.isEmpty(powerId)) {
             return BaseIdTranStruVo.builder().id(employeeId).name(employeeName).build();
         }
-        List<UserEntrust> list = this.getBaseMapper().selectList(AFWrappers.<UserEntrust>lambdaTenantQuery()
-                .eq(UserEntrust::getPowerId,powerId)
-                .eq(UserEntrust::getSender,employeeId));
-         if(StringUtils.hasText(MultiTenantUtil.getCurrentTenantId())){
-
-            List<UserEntrust> currentOnes= list.stream().filter(a->MultiTenantUtil.getCurrentTenantId().equals(a.getTenantId())).collect(Collectors.toList());
-            //如果当前租户有添加,则取当前租户的,如果没有,则尝试取全局的
-            if(CollectionUtils.isEmpty(currentOnes)&&!MultiTenantUtil.strictTenantMode()){
-                //不带tenantId的
-                list=list.stream().filter(a-> !StringUtils.hasText(a.getTenantId())).collect(Collectors.toList());
-            }else{
-                list=currentOnes;
-            }
-
-         }
-        if(!CollectionUtils.isEmpty(list)){
-            for (UserEntrust u : list) {
-                if (u.getBeginTime()!=null && u.getEndTime()!=null && (new Date().getTime() >= DateUtil.getDayStart(u.getBeginTime()).getTime()) && (new Date().getTime() <= DateUtil.getDayEnd(u.getEndTime()).getTime())) {
-                    return BaseIdTranStruVo.builder().id(u.getReceiverId()).name(u.getReceiverName()).build();
-                } else if (u.getBeginTime()!=null && u.getEndTime()==null && (new Date().getTime() >= DateUtil.getDayStart(u.getBeginTime()).getTime())) {
-                    return BaseIdTranStruVo.builder().id(u.getReceiverId()).name(u.getReceiverName()).build();
-                } else if (u.getBeginTime()==null && u.getEndTime()==null) {
-                    return BaseIdTranStruVo.builder().id(u.getReceiverId()).name(u.getReceiverName()).build();
-                } else if (u.getBeginTime()==null && u.getEndTime()!=null && (new Date().getTime() <= DateUtil.getDayStart(u.getEndTime()).getTime())) {
-                    return BaseIdTranStruVo.builder().id(u.getReceiverId()).name(u.getReceiverName()).build();
-                }
-            }
+        BaseIdTranStruVo receiver = userEntrustIndex.getReceiver(employeeId, powerId);
+        if (receiver != null) {
+            return receiver;
         }
         return BaseIdTranStruVo.builder().id(employeeId).name(employeeName).build();
     }
@@ -4,13 +4,16 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.openoa.base.entity.UserMessageStatus;
 import org.openoa.base.util.SecurityUtils;
+import org.openoa.engine.bpmnconf.common.MessageRecipientResolver;
 import org.openoa.engine.bpmnconf.mapper.UserMessageStatusMapper;
 import org.openoa.engine.bpmnconf.service.interf.repository.UserMessageStatusService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public class UserMessageStatusServiceImpl extends ServiceImpl<UserMessageStatusMapper, UserMessageStatus> implements UserMessageStatusService {
-
+    @Autowired
+    private MessageRecipientResolver messageRecipientResolver;
 
     //update insert sms
     public Boolean updateMessageStatus(UserMessageStatus userMessageStatus) {
@@ -27,6 +30,7 @@ public class UserMessageStatusServiceImpl extends ServiceImpl<UserMessageStatusM
             userMessageStatusInfo.setMessageStatus(userMessageStatus.getMessageStatus());
             getBaseMapper().updateById(userMessageStatusInfo);
         }
+        messageRecipientResolver.invalidate(SecurityUtils.getLogInEmpIdSafe());
         return true;
     }
 
@@ -46,6 +50,7 @@ public class UserMessageStatusServiceImpl extends ServiceImpl<UserMessageStatusM
             userMessageStatusInfo.setMailStatus(userMessageStatus.getMailStatus());
             getBaseMapper().updateById(userMessageStatusInfo);
         }
+        messageRecipientResolver.invalidate(SecurityUtils.getLogInEmpIdSafe());
         return true;
     }
 
@@ -65,6 +70,7 @@ public class UserMessageStatusServiceImpl extends ServiceImpl<UserMessageStatusM
             userMessageStatusInfo.setShock(userMessageStatus.getShock());
             getBaseMapper().updateById(userMessageStatusInfo);
         }
+        messageRecipientResolver.invalidate(SecurityUtils.getLogInEmpIdSafe());
         return true;
     }
 
@@ -84,6 +90,7 @@ public class UserMessageStatusServiceImpl extends ServiceImpl<UserMessageStatusM
             userMessageStatusInfo.setOpenPhone(userMessageStatus.getOpenPhone());
             getBaseMapper().updateById(userMessageStatusInfo);
         }
+        messageRecipientResolver.invalidate(SecurityUtils.getLogInEmpIdSafe());
         return true;
     }
 
@@ -104,6 +111,7 @@ public class UserMessageStatusServiceImpl extends ServiceImpl<UserMessageStatusM
             userMessageStatusInfo.setSound(userMessageStatus.getSound());
             getBaseMapper().updateById(userMessageStatusInfo);
         }
+        messageRecipientResolver.invalidate(SecurityUtils.getLogInEmpIdSafe());
         return true;
     }
 
@@ -125,6 +133,7 @@ public class UserMessageStatusServiceImpl extends ServiceImpl<UserMessageStatusM
             userMessageStatusInfo.setNotTroubleTimeEnd(userMessageStatus.getNotTroubleTimeEnd());
             getBaseMapper().updateById(userMessageStatusInfo);
         }
+        messageRecipientResolver.invalidate(SecurityUtils.getLogInEmpIdSafe());
         return true;
     }
 
@@ -0,0 +1,30 @@
+package org.openoa.engine.bpmnconf.service.interf.biz;
+
+import org.activiti.bpmn.model.BpmnModel;
+import org.openoa.base.vo.BpmnConfCommonVo;
+
+public interface BpmnSharedDefinitionService {
+
+    /**
+     * whether process instances of the same structure share one deployed process definition
+     *
+     * @return true if shared definition mode is switched on
+     */
+    boolean isEnabled();
+
+    /**
+     * find or deploy the process definition shared by all models having the same structural fingerprint as the given one
+     *
+     * @param bpmnConfCommonVo process conf the model was built from
+     * @param model            fully built model,its main process id will be replaced by the shared definition key
+     * @return id of the shared process definition
+     */
+    String getOrDeploy(BpmnConfCommonVo bpmnConfCommonVo, BpmnModel model);
+
+    /**
+     * evict a cached process definition id,eg. after its deployment has been removed
+     *
+     * @param processDefinitionId process definition id
+     */
+    void evict(String processDefinitionId);
+}
@@ -2,12 +2,10 @@ package org.openoa.engine.bpmnconf.service.tagparser;
 
 import org.openoa.base.constant.enums.NodePropertyEnum;
 import org.openoa.base.exception.AFBizException;
-import org.openoa.base.util.SpringBeanUtils;
 import org.openoa.common.adaptor.bpmnelementadp.BpmnElementAdaptor;
+import org.openoa.engine.factory.AdaptorDispatchTables;
 import org.openoa.engine.factory.TagParser;
 
-import java.util.Collection;
-
 /**
  * @Author TylerZhou
  * @Date 2024/7/8 22:17
@@ -20,12 +18,6 @@ public class BpmnElementAdaptorTagParser implements TagParser<BpmnElementAdaptor
             throw new AFBizException("provided data to find an element adaptor method is null");
         }
 
-        Collection<BpmnElementAdaptor> elementAdaptors = SpringBeanUtils.getBeans(BpmnElementAdaptor.class);
-        for (BpmnElementAdaptor elementAdaptor : elementAdaptors) {
-            if(elementAdaptor.isSupportBusinessObject(data)){
-                return elementAdaptor;
-            }
-        }
-        return null;
+        return AdaptorDispatchTables.getAdaptor(BpmnElementAdaptor.class, data);
     }
 }
@@ -3,12 +3,10 @@ package org.openoa.engine.bpmnconf.service.tagparser;
 import org.openoa.base.constant.enums.ProcessOperationEnum;
 import org.openoa.base.exception.AFBizException;
 import org.openoa.base.interf.ProcessOperationAdaptor;
-import org.openoa.base.util.SpringBeanUtils;
 import org.openoa.base.vo.BusinessDataVo;
+import org.openoa.engine.factory.AdaptorDispatchTables;
 import org.openoa.engine.factory.TagParser;
 
-import java.util.Collection;
-
 /**
  * @Author TylerZhou
  * @Date 2024/7/7 8:05
@@ -30,21 +28,11 @@ public class FormOperationTagParser implements TagParser<ProcessOperationAdaptor
         if(poEnum==null){
             throw new AFBizException("can not find a processing method by providing data with your given operationType of"+operationType);
         }
-        Collection<ProcessOperationAdaptor> processOperationAdaptors = SpringBeanUtils.getBeans(ProcessOperationAdaptor.class);
-        for (ProcessOperationAdaptor processOperationAdaptor : processOperationAdaptors) {
-
-            if(!isOutSideAccessProc){
-                if(processOperationAdaptor.isSupportBusinessObject(poEnum)){
-                    return processOperationAdaptor;
-                }
-            }else{
-                Integer outSideType = data.getOutSideType();
-                String outSideMarker=outSideType==0?ProcessOperationEnum.getOutSideMarker():ProcessOperationEnum.getOutSideAccessmarker();
-                if(processOperationAdaptor.isSupportBusinessObject(outSideMarker,poEnum)){
-                    return processOperationAdaptor;
-                }
-            }
+        if(!isOutSideAccessProc){
+            return AdaptorDispatchTables.getAdaptor(ProcessOperationAdaptor.class, poEnum);
         }
-        return null;
+        Integer outSideType = data.getOutSideType();
+        String outSideMarker=outSideType==0?ProcessOperationEnum.getOutSideMarker():ProcessOperationEnum.getOutSideAccessmarker();
+        return AdaptorDispatchTables.getAdaptor(ProcessOperationAdaptor.class, outSideMarker, poEnum);
     }
 }
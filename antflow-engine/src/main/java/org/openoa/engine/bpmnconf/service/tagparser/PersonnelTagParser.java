@@ -2,12 +2,10 @@ package org.openoa.engine.bpmnconf.service.tagparser;
 
 import org.openoa.base.constant.enums.PersonnelEnum;
 import org.openoa.base.exception.AFBizException;
-import org.openoa.base.util.SpringBeanUtils;
 import org.openoa.common.adaptor.AbstractBpmnPersonnelAdaptor;
+import org.openoa.engine.factory.AdaptorDispatchTables;
 import org.openoa.engine.factory.TagParser;
 
-import java.util.Collection;
-
 /**
  *@Author JimuOffice
  * @Description //TODO $
@@ -22,12 +20,6 @@ public class PersonnelTagParser implements TagParser<AbstractBpmnPersonnelAdapto
         if(data==null){
             throw new AFBizException("provided data to find a personnel adaptor method is null");
         }
-        Collection<AbstractBpmnPersonnelAdaptor> beans = SpringBeanUtils.getBeans(AbstractBpmnPersonnelAdaptor.class);
-        for (AbstractBpmnPersonnelAdaptor bean : beans) {
-            if(bean.isSupportBusinessObject(data)){
-                return bean;
-            }
-        }
-       return null;
+        return AdaptorDispatchTables.getAdaptor(AbstractBpmnPersonnelAdaptor.class, data);
     }
 }
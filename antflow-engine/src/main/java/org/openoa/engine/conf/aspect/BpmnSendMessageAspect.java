@@ -5,10 +5,12 @@ import org.apache.commons.lang3.StringUtils;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.openoa.base.constant.StringConstants;
 import org.openoa.base.constant.enums.ProcessNodeEnum;
 import org.openoa.base.constant.enums.ProcessOperationEnum;
 import org.openoa.base.exception.AFBizException;
 import org.openoa.base.interf.ProcessOperationAdaptor;
+import org.openoa.base.util.ThreadLocalContainer;
 import org.openoa.base.vo.BpmnConfVo;
 import org.openoa.base.vo.BusinessDataVo;
 import org.openoa.base.entity.BpmnConf;
@@ -25,6 +27,7 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ObjectUtils;
 
+import java.util.Map;
 import java.util.Optional;
 
 import static org.openoa.base.constant.NumberConstants.BPMN_FLOW_TYPE_OUTSIDE;
@@ -64,7 +67,7 @@ public class BpmnSendMessageAspect {
 
 
         //get bpmn conf by form code
-        BpmnConf bpmnConf = bpmnConfCommonService.getBpmnConfByFormCode(businessDataVo.getFormCode());
+        BpmnConf bpmnConf = getBpmnConf(businessDataVo.getFormCode());
 
 
 
@@ -154,13 +157,28 @@ public class BpmnSendMessageAspect {
                 vo.setIsOutside(true);
                 businessDataVo.setIsOutSideAccessProc(true);
             }
-            bpmVariableMessageBizService.sendTemplateMessagesAsync(vo);
+            //messages are only written to the notice outbox here,so they are built in the current transaction and sent after it is committed
+            try {
+                bpmVariableMessageBizService.sendTemplateMessages(vo);
+            } catch (Exception e) {
+                log.error("failed to build template messages,processNumber:{}", vo.getProcessNumber(), e);
+            }
         }
 
     }
 
 
 
+    /**
+     * get bpmn conf by form code,the operations of a batch share the confs resolved for the batch
+     */
+    @SuppressWarnings("unchecked")
+    private BpmnConf getBpmnConf(String formCode) {
+        Map<String, BpmnConf> batchConfs = (Map<String, BpmnConf>) ThreadLocalContainer.get(StringConstants.BATCH_BPMN_CONFS);
+        BpmnConf bpmnConf = batchConfs == null ? null : batchConfs.get(formCode);
+        return bpmnConf != null ? bpmnConf : bpmnConfCommonService.getBpmnConfByFormCode(formCode);
+    }
+
     /**
      * get BusinessDataVo
      *
@@ -1,5 +1,7 @@
 package org.openoa.engine.conf.async;
 
+import org.openoa.base.constant.StringConstants;
+import org.openoa.base.util.ThreadLocalContainer;
 import org.slf4j.MDC;
 import org.springframework.core.task.TaskDecorator;
 import org.springframework.web.context.request.RequestAttributes;
@@ -12,7 +14,11 @@ public class AsyncTaskDecorator implements TaskDecorator {
     public Runnable decorate(Runnable runnable) {
         Map<String, String> contextMap = MDC.getCopyOfContextMap();
         RequestAttributes requestAttributes = RequestContextHolder.currentRequestAttributes();
+        //notices sent async by an operation of a batch are held back with the notices of the batch
+        Object holdKey = ThreadLocalContainer.get(StringConstants.NOTICE_OUTBOX_HOLD_KEY);
         return () -> {
+            //the task is run by the caller itself when the pool is full
+            Object previousHoldKey = ThreadLocalContainer.get(StringConstants.NOTICE_OUTBOX_HOLD_KEY);
             try {
                 RequestContextHolder.setRequestAttributes(requestAttributes);
                 if (contextMap != null) {
@@ -20,11 +26,21 @@ public class AsyncTaskDecorator implements TaskDecorator {
                 } else {
                     MDC.clear();
                 }
+                setHoldKey(holdKey);
                 runnable.run();
             } finally {
                 MDC.clear();
                 RequestContextHolder.resetRequestAttributes();
+                setHoldKey(previousHoldKey);
             }
         };
     }
-}
\ No newline at end of file
+
+    private static void setHoldKey(Object holdKey) {
+        if (holdKey != null) {
+            ThreadLocalContainer.set(StringConstants.NOTICE_OUTBOX_HOLD_KEY, holdKey);
+        } else {
+            ThreadLocalContainer.remove(StringConstants.NOTICE_OUTBOX_HOLD_KEY);
+        }
+    }
+}
@@ -10,6 +10,9 @@ import org.activiti.spring.SpringProcessEngineConfiguration;
 import org.activiti.spring.SpringTransactionContextFactory;
 import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
 import org.openoa.engine.bpmnconf.activitilistener.BpmnGlobalEventListener;
+import org.openoa.engine.bpmnconf.activitilistener.ProcessSearchIndexEventListener;
+import org.openoa.engine.bpmnconf.activitilistener.TaskCounterEventListener;
+import org.openoa.engine.bpmnconf.activitilistener.TaskInboxEventListener;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
@@ -41,7 +44,10 @@ public class MultiSchemaMultiTenantDataSourceProcessEngineAutoConfiguration exte
                                                                                                   TenantAwareDataSource tenantAwareDataSource,
                                                                                                   PlatformTransactionManager transactionManager,
 
-                                                                                                  SpringAsyncExecutor springAsyncExecutor) {
+                                                                                                  SpringAsyncExecutor springAsyncExecutor,
+                                                                                                  TaskCounterEventListener taskCounterEventListener,
+                                                                                                  TaskInboxEventListener taskInboxEventListener,
+                                                                                                  ProcessSearchIndexEventListener processSearchIndexEventListener) {
         MultiSchemaMultiTenantProcessEngineConfiguration configuration = new MultiSchemaMultiTenantProcessEngineConfiguration(tenantInfoHolder);
 
 
@@ -71,7 +77,8 @@ public class MultiSchemaMultiTenantDataSourceProcessEngineAutoConfiguration exte
         configuration.setActivityFontName("宋体");
         configuration.setAnnotationFontName("宋体");
         configuration.setLabelFontName("宋体");
-        configuration.setEventListeners(Lists.newArrayList(new BpmnGlobalEventListener()));
+        configuration.setEventListeners(Lists.newArrayList(new BpmnGlobalEventListener(), taskCounterEventListener, taskInboxEventListener,
+                processSearchIndexEventListener));
         // 配置事务上下文工厂
         TransactionContextFactory transactionContextFactory = new SpringTransactionContextFactory(transactionManager);
         configuration.setTransactionContextFactory(transactionContextFactory);
@@ -0,0 +1,109 @@
+package org.openoa.engine.conf.mybatis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.openoa.engine.bpmnconf.mapper.LFReshardingMapper;
+import org.openoa.engine.lowflow.entity.LFMain;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * background migrator moving low code form data rows to the table that owns them under a new topology.
+ * every table of the old topology is scanned in id order in throttled batches,rows whose owner changed are copied to
+ * the new table and deleted from the old one in one transaction,so a row is always in exactly one table.
+ * the migration keeps no progress of its own,it is simply resumed from the start after a restart,
+ * rows already moved are no longer in the old tables.
+ * all tables must have the same columns in the same order,which is the case when they are created from the same ddl.
+ */
+@Slf4j
+@Component
+public class LFReshardingMigrator {
+    @Value("${lf.reshard.batch-size:500}")
+    private Integer batchSize;
+    @Value("${lf.reshard.batch-interval-millis:200}")
+    private Long batchIntervalMillis;
+
+    @Autowired
+    private LFReshardingMapper reshardingMapper;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Thread worker;
+
+    public synchronized void start(LFShardRings source, LFShardRings target, Runnable onFinished) {
+        if (worker != null && worker.isAlive()) {
+            return;
+        }
+        worker = new Thread(() -> migrate(source, target, onFinished), "lf-resharding-migrator");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public synchronized void stop() {
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void migrate(LFShardRings source, LFShardRings target, Runnable onFinished) {
+        try {
+            long movedRows = 0;
+            for (String table : source.getMainTables()) {
+                movedRows += migrateTable(table, target::getMainTable);
+            }
+            for (String table : source.getFieldTables()) {
+                movedRows += migrateTable(table, target::getFieldTable);
+            }
+            log.info("lf resharding migrator moved {} rows", movedRows);
+            onFinished.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("lf resharding migrator stopped,it will be resumed on next start");
+        } catch (Exception e) {
+            log.error("lf resharding migrator failed,it will be resumed on next start", e);
+        }
+    }
+
+    private long migrateTable(String table, Function<String, String> ownerOf) throws InterruptedException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long movedRows = 0;
+        Long afterId = 0L;
+        while (true) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+            List<LFMain> rows = reshardingMapper.scanRows(table, afterId, batchSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+            Map<String, List<Long>> movingIds = new HashMap<>();
+            for (LFMain row : rows) {
+                String ownerTable = ownerOf.apply(StringUtils.defaultString(row.getFormCode()));
+                if (!table.equals(ownerTable)) {
+                    movingIds.computeIfAbsent(ownerTable, k -> new ArrayList<>()).add(row.getId());
+                }
+            }
+            for (Map.Entry<String, List<Long>> ownerEntry : movingIds.entrySet()) {
+                transactionTemplate.execute(status -> {
+                    reshardingMapper.copyRows(table, ownerEntry.getKey(), ownerEntry.getValue());
+                    reshardingMapper.deleteRows(table, ownerEntry.getValue());
+                    return null;
+                });
+                movedRows += ownerEntry.getValue().size();
+            }
+            afterId = rows.get(rows.size() - 1).getId();
+            Thread.sleep(batchIntervalMillis);
+        }
+        log.info("lf resharding migrator finished table {},{} rows moved", table, movedRows);
+        return movedRows;
+    }
+}
@@ -0,0 +1,57 @@
+package org.openoa.engine.conf.mybatis;
+
+import org.openoa.base.constant.StringConstants;
+import org.openoa.engine.utils.ConsistentHashingAlg;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * immutable routing rings of one topology version of the low code form data tables.
+ * when the main table count is less than 2 the tables are not sharded and every form code goes to the base table
+ */
+public final class LFShardRings {
+    private final int mainTableCount;
+    private final int fieldTableCount;
+    private final int virtualNodes;
+    private final ConsistentHashingAlg mainTableHashing;
+    private final ConsistentHashingAlg fieldTableHashing;
+
+    public LFShardRings(int mainTableCount, int fieldTableCount, int virtualNodes) {
+        this.mainTableCount = mainTableCount;
+        this.fieldTableCount = fieldTableCount;
+        this.virtualNodes = virtualNodes;
+        if (isSharded()) {
+            mainTableHashing = new ConsistentHashingAlg(StringConstants.LOWFLOW_FORM_DATA_MAIN_TABLE_NAME, mainTableCount, virtualNodes);
+            fieldTableHashing = new ConsistentHashingAlg(StringConstants.LOWFLOW_FORM_DATA_FIELD_TABLE_NAME, fieldTableCount, virtualNodes);
+        } else {
+            mainTableHashing = null;
+            fieldTableHashing = null;
+        }
+    }
+
+    public boolean isSharded() {
+        return mainTableCount >= 2;
+    }
+
+    public String getMainTable(String formCode) {
+        return isSharded() ? mainTableHashing.getServer(formCode) : StringConstants.LOWFLOW_FORM_DATA_MAIN_TABLE_NAME;
+    }
+
+    public String getFieldTable(String formCode) {
+        return isSharded() ? fieldTableHashing.getServer(formCode) : StringConstants.LOWFLOW_FORM_DATA_FIELD_TABLE_NAME;
+    }
+
+    public List<String> getMainTables() {
+        return isSharded() ? mainTableHashing.getServers() : Collections.singletonList(StringConstants.LOWFLOW_FORM_DATA_MAIN_TABLE_NAME);
+    }
+
+    public List<String> getFieldTables() {
+        return isSharded() ? fieldTableHashing.getServers() : Collections.singletonList(StringConstants.LOWFLOW_FORM_DATA_FIELD_TABLE_NAME);
+    }
+
+    @Override
+    public String toString() {
+        return "LFShardRings{mainTableCount=" + mainTableCount + ",fieldTableCount=" + fieldTableCount + ",virtualNodes=" + virtualNodes + "}";
+    }
+}
@@ -0,0 +1,184 @@
+package org.openoa.engine.conf.mybatis;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import lombok.extern.slf4j.Slf4j;
+import org.openoa.base.exception.AFBizException;
+import org.openoa.engine.bpmnconf.mapper.LFShardTopologyMapper;
+import org.openoa.engine.lowflow.entity.LFShardTopology;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * holds the routing rings of the low code form data tables.
+ * <p>
+ * without resharding(the default) the rings are built from lf.main.table.count and lf.field.table.count as before.
+ * with lf.reshard.enabled the topology is persisted in t_lf_shard_topology,when the configured table counts or virtual
+ * node count differ from the persisted active topology,a new version is added in migrating status,rows whose table
+ * changes are moved by {@link LFReshardingMigrator} and the routing interceptor reads and modifies both the old and
+ * the new table of a form code until the migration is finished.
+ */
+@Slf4j
+@Component
+public class LFShardTopologyManager {
+    @Value("${lf.main.table.count:1}")
+    private Integer mainTableCount;
+    @Value("${lf.field.table.count:1}")
+    private Integer fieldTableCount;
+    @Value("${lf.table.virtual-nodes:5}")
+    private Integer virtualNodes;
+    @Value("${lf.reshard.enabled:false}")
+    private boolean reshardEnabled;
+    /**
+     * only one node of a cluster should run the migrator,the others just route to both tables until it is finished
+     */
+    @Value("${lf.reshard.migrator-enabled:true}")
+    private boolean migratorEnabled;
+    @Value("${lf.reshard.status-check-seconds:60}")
+    private long statusCheckSeconds;
+
+    @Autowired
+    private LFShardTopologyMapper topologyMapper;
+    @Autowired
+    private LFReshardingMigrator migrator;
+
+    private volatile LFShardRings currentRings;
+    /**
+     * rings of the previous topology while its rows are being migrated,null otherwise
+     */
+    private volatile LFShardRings previousRings;
+    private ScheduledExecutorService statusChecker;
+    /**
+     * migration to be started once the application is ready,so that the routing interceptor is in place before rows are moved
+     */
+    private Runnable pendingMigration;
+
+    @PostConstruct
+    public void init() {
+        currentRings = new LFShardRings(mainTableCount, fieldTableCount, virtualNodes);
+        if (!reshardEnabled) {
+            return;
+        }
+        try {
+            loadTopology();
+        } catch (DuplicateKeyException e) {
+            //another node added the same version at the same time
+            loadTopology();
+        }
+    }
+
+    public LFShardRings getCurrentRings() {
+        return currentRings;
+    }
+
+    public LFShardRings getPreviousRings() {
+        return previousRings;
+    }
+
+    public boolean isMigrating() {
+        return previousRings != null;
+    }
+
+    private void loadTopology() {
+        List<LFShardTopology> topologies = topologyMapper.selectList(Wrappers.<LFShardTopology>lambdaQuery()
+                .ne(LFShardTopology::getStatus, LFShardTopology.STATUS_RETIRED)
+                .orderByDesc(LFShardTopology::getVersion));
+        if (topologies.isEmpty()) {
+            insertTopology(1, LFShardTopology.STATUS_ACTIVE);
+            return;
+        }
+        LFShardTopology latest = topologies.get(0);
+        if (LFShardTopology.STATUS_MIGRATING == latest.getStatus()) {
+            if (!latest.sameShape(mainTableCount, fieldTableCount, virtualNodes)) {
+                throw new AFBizException(String.format("lf tables are being resharded to topology version %d,table counts can not be changed until it is finished", latest.getVersion()));
+            }
+            LFShardTopology previous = topologies.size() > 1 ? topologies.get(1) : null;
+            if (previous == null) {
+                finishMigration(null, latest);
+                return;
+            }
+            startMigration(previous, latest);
+        } else if (!latest.sameShape(mainTableCount, fieldTableCount, virtualNodes)) {
+            LFShardTopology target = insertTopology(latest.getVersion() + 1, LFShardTopology.STATUS_MIGRATING);
+            startMigration(latest, target);
+        }
+    }
+
+    private LFShardTopology insertTopology(int version, int status) {
+        LFShardTopology topology = new LFShardTopology();
+        topology.setVersion(version);
+        topology.setMainTableCount(mainTableCount);
+        topology.setFieldTableCount(fieldTableCount);
+        topology.setVirtualNodes(virtualNodes);
+        topology.setStatus(status);
+        topologyMapper.insert(topology);
+        return topology;
+    }
+
+    private void startMigration(LFShardTopology previous, LFShardTopology target) {
+        previousRings = new LFShardRings(previous.getMainTableCount(), previous.getFieldTableCount(), previous.getVirtualNodes());
+        log.info("lf tables are being resharded from {} to {},statements are routed to both of them until finished", previousRings, currentRings);
+        if (migratorEnabled) {
+            LFShardRings source = previousRings;
+            pendingMigration = () -> migrator.start(source, currentRings, () -> finishMigration(previous, target));
+        }
+        statusChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lf-shard-topology-checker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        //the migration may be finished by another node
+        statusChecker.scheduleWithFixedDelay(() -> {
+            try {
+                LFShardTopology topology = topologyMapper.selectById(target.getId());
+                if (topology != null && LFShardTopology.STATUS_ACTIVE == topology.getStatus()) {
+                    previousRings = null;
+                    statusChecker.shutdown();
+                }
+            } catch (Exception e) {
+                log.warn("failed to check lf shard topology status", e);
+            }
+        }, statusCheckSeconds, statusCheckSeconds, TimeUnit.SECONDS);
+    }
+
+    private void finishMigration(LFShardTopology previous, LFShardTopology target) {
+        LFShardTopology toActivate = new LFShardTopology();
+        toActivate.setId(target.getId());
+        toActivate.setStatus(LFShardTopology.STATUS_ACTIVE);
+        topologyMapper.updateById(toActivate);
+        if (previous != null) {
+            LFShardTopology toRetire = new LFShardTopology();
+            toRetire.setId(previous.getId());
+            toRetire.setStatus(LFShardTopology.STATUS_RETIRED);
+            topologyMapper.updateById(toRetire);
+        }
+        previousRings = null;
+        log.info("lf tables resharding to topology version {} finished", target.getVersion());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (pendingMigration != null) {
+            pendingMigration.run();
+            pendingMigration = null;
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        migrator.stop();
+        if (statusChecker != null) {
+            statusChecker.shutdownNow();
+        }
+    }
+}
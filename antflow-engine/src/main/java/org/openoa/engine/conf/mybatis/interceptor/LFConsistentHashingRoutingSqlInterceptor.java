@@ -1,10 +1,16 @@
 package org.openoa.engine.conf.mybatis.interceptor;
 
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Lists;
 import net.sf.jsqlparser.JSQLParserException;
 import net.sf.jsqlparser.expression.BinaryExpression;
 import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.Function;
+import net.sf.jsqlparser.expression.JdbcParameter;
+import net.sf.jsqlparser.expression.LongValue;
 import net.sf.jsqlparser.expression.Parenthesis;
 import net.sf.jsqlparser.parser.CCJSqlParserManager;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
@@ -18,18 +24,22 @@ import net.sf.jsqlparser.statement.update.Update;
 import net.sf.jsqlparser.util.TablesNamesFinder;
 import net.sf.jsqlparser.util.deparser.ExpressionDeParser;
 import net.sf.jsqlparser.util.deparser.SelectDeParser;
-import net.sf.jsqlparser.util.validation.validator.OrderByValidator;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.executor.BatchExecutor;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.plugin.*;
 import org.apache.ibatis.reflection.DefaultReflectorFactory;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
 import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
 import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.SimpleTypeRegistry;
 import org.openoa.base.constant.StringConstants;
 import org.openoa.base.entity.BpmBusinessProcess;
 import org.openoa.base.exception.AFBizException;
@@ -37,96 +47,467 @@ import org.openoa.base.util.SpringBeanUtils;
 import org.openoa.engine.bpmnconf.service.biz.BpmBusinessProcessServiceImpl;
 import org.openoa.engine.lowflow.entity.LFMain;
 import org.openoa.engine.lowflow.entity.LFMainField;
-import org.openoa.engine.utils.ConsistentHashingAlg;
+import org.openoa.engine.bpmnconf.mapper.LFReshardingMapper;
+import org.openoa.engine.conf.mybatis.LFShardRings;
+import org.openoa.engine.conf.mybatis.LFShardTopologyManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.InitializingBean;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.util.CollectionUtils;
-import org.springframework.util.StringUtils;
 
 import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 @Intercepts({
         @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
         @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
 })
-public class LFConsistentHashingRoutingSqlInterceptor implements Interceptor, InitializingBean {
+public class LFConsistentHashingRoutingSqlInterceptor implements Interceptor {
     private static final Logger log = LoggerFactory.getLogger(LFConsistentHashingRoutingSqlInterceptor.class);
-    @Value("${lf.main.table.count:1}")
-    private Integer mainTableCount;
-    @Value("${lf.field.table.count:1}")
-    private Integer fieldTableCount;
-
-    private ConsistentHashingAlg mainTableHashing;
-    private ConsistentHashingAlg fieldTableHashing;
+    @Autowired
+    private LFShardTopologyManager topologyManager;
 
     private static final List<String> LF_TABLE_NAMES = Lists.newArrayList(StringConstants.LOWFLOW_FORM_DATA_MAIN_TABLE_NAME, StringConstants.LOWFLOW_FORM_DATA_FIELD_TABLE_NAME);
     private static final List<String> FORM_CODES_UPPER = Lists.newArrayList(StringConstants.FORM_CODE.toUpperCase(), StringConstants.FORMCODE_NO_CAMAL.toUpperCase());
+    private static final int MAX_CACHED_STATEMENTS = 2000;
+    private static final Set<String> AGGREGATE_FUNCTIONS = new HashSet<>(Arrays.asList("COUNT", "SUM", "MAX", "MIN", "AVG", "GROUP_CONCAT"));
+    private static final Set<String> MERGEABLE_AGGREGATE_FUNCTIONS = new HashSet<>(Arrays.asList("COUNT", "SUM", "MAX", "MIN"));
+
+    /**
+     * mapped statement id -> whether its sql refers to a lf table,
+     * statements of other tables are skipped by their id,without building their sql
+     */
+    private final Map<String, Boolean> lfStatementIds = new ConcurrentHashMap<>();
+    /**
+     * original sql -> lf table names it refers to
+     */
+    private final Cache<String, List<String>> lfTableNamesCache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_STATEMENTS)
+            .build();
+    /**
+     * original sql of a select -> how its results from two tables are merged,only used while resharding
+     */
+    private final Cache<String, SelectShape> selectShapeCache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_STATEMENTS)
+            .build();
+    /**
+     * mapped statement id,target tables,whether the limit is kept and original sql -> mapped statement of the rewritten sql
+     */
+    private final Cache<String, MappedStatement> routedStatementCache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_STATEMENTS)
+            .recordStats()
+            .build();
 
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
 
-        if (mainTableCount < 2) {
+        LFShardRings currentRings = topologyManager.getCurrentRings();
+        //rings of the previous topology,only present while its rows are being migrated
+        LFShardRings previousRings = topologyManager.getPreviousRings();
+        if (!currentRings.isSharded() && previousRings == null) {
             return invocation.proceed();
         }
         // 获取拦截的参数
         Object[] args = invocation.getArgs();
         MappedStatement mappedStatement = (MappedStatement) args[0];
         Object parameterObject = args[1];
-
+        Boolean lfStatement = lfStatementIds.get(mappedStatement.getId());
+        if (Boolean.FALSE.equals(lfStatement)) {
+            return invocation.proceed();
+        }
 
         BoundSql boundSql = mappedStatement.getBoundSql(parameterObject);
 
         String sql = boundSql.getSql();
-        //如果非要实现路由的表,直接不往下走了,实际中sql语句多种多样,这里进行一个简单的粗糙判断
-        if(!sql.contains(StringConstants.LOWFLOW_FORM_DATA_MAIN_TABLE_NAME)&&!sql.contains(StringConstants.LOWFLOW_FORM_DATA_FIELD_TABLE_NAME)){
+        //如果非要实现路由的表,直接不往下走了,每个MappedStatement只判断一次,实际中sql语句多种多样,这里进行一个简单的粗糙判断
+        //迁移程序的语句直接操作物理表,不参与路由
+        if (lfStatement == null) {
+            lfStatement = !mappedStatement.getId().startsWith(LFReshardingMapper.class.getName())
+                    && (sql.contains(StringConstants.LOWFLOW_FORM_DATA_MAIN_TABLE_NAME) || sql.contains(StringConstants.LOWFLOW_FORM_DATA_FIELD_TABLE_NAME));
+            lfStatementIds.put(mappedStatement.getId(), lfStatement);
+            if (!lfStatement) {
+                return invocation.proceed();
+            }
+        }
+        List<String> tableNames = getLFTableNames(sql);
+        if (tableNames.isEmpty()) {
             return invocation.proceed();
         }
-       /* if(!BoundSqlUtils.isCurdSql(sql)){
+        String restoredFormCode = restoreFormCodeValueFromSql(sql, boundSql);
+        String[] targetTables = resolveTables(tableNames, currentRings, restoredFormCode);
+        String[] previousTables = previousRings == null ? null : resolveTables(tableNames, previousRings, restoredFormCode);
+        if (previousTables == null || Arrays.equals(previousTables, targetTables) || SqlCommandType.INSERT.equals(mappedStatement.getSqlCommandType())) {
+            args[0] = route(mappedStatement, boundSql, tableNames, targetTables, true);
             return invocation.proceed();
-        }*/
-        List<String> tableNames = getTableNames(sql);
-        if (CollectionUtils.containsAny(LF_TABLE_NAMES, tableNames)) {
-            String restoredFormCode = restoreFormCodeValueFromSql(sql, boundSql);
-            String modifiedSql = "";
+        }
+        //迁移过程中的双读双写,新行只写入新表
+        if (SqlCommandType.SELECT.equals(mappedStatement.getSqlCommandType())) {
+            return queryBothTables(invocation, mappedStatement, boundSql, tableNames, previousTables, targetTables);
+        }
+        //修改和删除先作用于旧表再作用于新表,迁移程序在同一事务内复制并删除旧表的行,
+        //旧表上的语句会等到该事务提交,此时行已经在新表中,接下来对新表的语句就能作用到它
+        args[0] = route(mappedStatement, boundSql, tableNames, previousTables, true);
+        Object previousAffected = invocation.proceed();
+        args[0] = route(mappedStatement, boundSql, tableNames, targetTables, true);
+        Object affected = invocation.proceed();
+        //batch executor defers the statements and returns a placeholder instead of the affected rows
+        if (!(affected instanceof Integer) || !(previousAffected instanceof Integer)
+                || BatchExecutor.BATCH_UPDATE_RETURN_VALUE == (Integer) affected || BatchExecutor.BATCH_UPDATE_RETURN_VALUE == (Integer) previousAffected) {
+            return affected;
+        }
+        return (Integer) previousAffected + (Integer) affected;
+    }
+
+    /**
+     * read a statement from both the old and the new table of a form code while it is being migrated.
+     * <p>
+     * aggregates without group by are run on both tables and their values combined,other aggregates can not be combined
+     * and are rejected until the migration is finished.
+     * rows are read from the old table first,the migrator copies a row to the new table and deletes it from the old one
+     * in one transaction,so a row committed in between is seen in both tables rather than in none of them,
+     * the new table is authoritative for a row found in both.the limit of the statement is not pushed down to the tables,
+     * the merged rows are sorted by the order by of the statement and limited again
+     */
+    @SuppressWarnings("unchecked")
+    private Object queryBothTables(Invocation invocation, MappedStatement mappedStatement, BoundSql boundSql, List<String> tableNames,
+                                   String[] previousTables, String[] targetTables) throws Throwable {
+        Object[] args = invocation.getArgs();
+        SelectShape shape = getSelectShape(boundSql.getSql());
+        if (shape.unmergeable) {
+            throw new AFBizException("不支持的sql语句,低代码表迁移过程中无法合并该查询的结果:" + boundSql.getSql());
+        }
+        boolean aggregate = shape.aggregate != null;
+        args[0] = route(mappedStatement, boundSql, tableNames, previousTables, aggregate);
+        Object previousResult = invocation.proceed();
+        args[0] = route(mappedStatement, boundSql, tableNames, targetTables, aggregate);
+        Object result = invocation.proceed();
+        if (!(result instanceof List) || !(previousResult instanceof List)) {
+            return result;
+        }
+        if (aggregate) {
+            return mergeAggregates(shape, (List<Object>) result, (List<Object>) previousResult);
+        }
+        return mergeRows(shape, boundSql, (List<Object>) result, (List<Object>) previousResult);
+    }
+
+    /**
+     * @return target main table and field table,an element is null if the statement does not refer to that table
+     */
+    private String[] resolveTables(List<String> tableNames, LFShardRings rings, String restoredFormCode) {
+        String[] targetTables = new String[2];
+        for (String tableName : tableNames) {
+            if (tableName.equalsIgnoreCase(StringConstants.LOWFLOW_FORM_DATA_MAIN_TABLE_NAME)) {
+                targetTables[0] = rings.getMainTable(restoredFormCode);
+            } else if (tableName.equalsIgnoreCase(StringConstants.LOWFLOW_FORM_DATA_FIELD_TABLE_NAME)) {
+                targetTables[1] = rings.getFieldTable(restoredFormCode);
+            }
+        }
+        return targetTables;
+    }
+
+    /**
+     * @param keepLimit false to drop the limit of a select together with its parameters
+     */
+    private MappedStatement route(MappedStatement mappedStatement, BoundSql boundSql, List<String> tableNames, String[] targetTables, boolean keepLimit) {
+        String sql = boundSql.getSql();
+        String mainTblName = targetTables[0];
+        String fieldTblName = targetTables[1];
+        //改写后的sql只与语句本身和目标表有关,同一语句路由到同一组表时直接复用上次改写好的MappedStatement
+        String routeKey = String.join("|", mappedStatement.getId(), String.valueOf(mainTblName), String.valueOf(fieldTblName), String.valueOf(keepLimit), sql);
+        MappedStatement routedStatement = routedStatementCache.getIfPresent(routeKey);
+        if (routedStatement == null) {
+            String modifiedSql = sql;
             for (String tableName : tableNames) {
                 if (tableName.equalsIgnoreCase(StringConstants.LOWFLOW_FORM_DATA_MAIN_TABLE_NAME)) {
-
-                    String newTblName = mainTableHashing.getServer(restoredFormCode);
-                    modifiedSql = replaceTableName(tableName, newTblName, sql);
+                    modifiedSql = replaceTableName(tableName, mainTblName, modifiedSql, keepLimit);
                 } else if (tableName.equalsIgnoreCase(StringConstants.LOWFLOW_FORM_DATA_FIELD_TABLE_NAME)) {
+                    modifiedSql = replaceTableName(tableName, fieldTblName, modifiedSql, keepLimit);
+                }
+            }
+            List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+            if (!keepLimit && SqlCommandType.SELECT.equals(mappedStatement.getSqlCommandType())) {
+                //limit parameters are always the last ones of a select
+                parameterMappings = parameterMappings.subList(0, parameterMappings.size() - getSelectShape(sql).limitParameters);
+            }
+            routedStatement = copyMappedStatement(mappedStatement, modifiedSql, parameterMappings);
+            routedStatementCache.put(routeKey, routedStatement);
+        }
+        return routedStatement;
+    }
+
+    /**
+     * combine the single value of an aggregate run against both the new and the old table of a form code
+     */
+    private List<Object> mergeAggregates(SelectShape shape, List<Object> rows, List<Object> previousRows) {
+        if (previousRows.isEmpty()) {
+            return rows;
+        }
+        if (rows.isEmpty()) {
+            return previousRows;
+        }
+        Object value = rows.get(0);
+        Object previousValue = previousRows.get(0);
+        if (value == null) {
+            return previousRows;
+        }
+        if (previousValue == null) {
+            return rows;
+        }
+        return Lists.newArrayList(combineAggregate(shape.aggregate, value, previousValue));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object combineAggregate(String aggregate, Object value, Object previousValue) {
+        if ("MAX".equals(aggregate) || "MIN".equals(aggregate)) {
+            int compared = ((Comparable<Object>) value).compareTo(previousValue);
+            return "MAX".equals(aggregate) == compared >= 0 ? value : previousValue;
+        }
+        if (value instanceof Long && previousValue instanceof Long) {
+            return (Long) value + (Long) previousValue;
+        }
+        if (value instanceof Integer && previousValue instanceof Integer) {
+            return (Integer) value + (Integer) previousValue;
+        }
+        if (value instanceof BigDecimal && previousValue instanceof BigDecimal) {
+            return ((BigDecimal) value).add((BigDecimal) previousValue);
+        }
+        if (value instanceof BigInteger && previousValue instanceof BigInteger) {
+            return ((BigInteger) value).add((BigInteger) previousValue);
+        }
+        if (value instanceof Double && previousValue instanceof Double) {
+            return (Double) value + (Double) previousValue;
+        }
+        throw new AFBizException("不支持的sql语句,低代码表迁移过程中无法合并" + aggregate + "的结果类型:" + value.getClass().getName());
+    }
+
+    /**
+     * merge rows read from the old and the new table of a form code,a row found in both is taken from the new table.
+     * the merged rows are sorted and limited as the statement says
+     */
+    private List<Object> mergeRows(SelectShape shape, BoundSql boundSql, List<Object> rows, List<Object> previousRows) {
+        Map<Object, Object> rowsById = new LinkedHashMap<>();
+        List<Object> rowsWithoutId = new ArrayList<>();
+        for (List<Object> source : Arrays.asList(previousRows, rows)) {
+            for (Object row : source) {
+                Object id = row == null || SimpleTypeRegistry.isSimpleType(row.getClass()) ? null : getRowValue(row, "id");
+                if (id == null) {
+                    rowsWithoutId.add(row);
+                } else {
+                    rowsById.put(id, row);
+                }
+            }
+        }
+        List<Object> mergedRows = new ArrayList<>(rowsById.size() + rowsWithoutId.size());
+        mergedRows.addAll(rowsById.values());
+        mergedRows.addAll(rowsWithoutId);
+        if (!shape.orderBy.isEmpty()) {
+            mergedRows.sort(rowComparator(shape.orderBy));
+        }
+        long offset = resolveLimitValue(boundSql, shape, shape.offset, shape.offsetPosition, 0L);
+        long rowCount = resolveLimitValue(boundSql, shape, shape.rowCount, shape.rowCountPosition, Long.MAX_VALUE);
+        if (offset == 0 && rowCount >= mergedRows.size()) {
+            return mergedRows;
+        }
+        int from = (int) Math.min(offset, mergedRows.size());
+        int to = (int) Math.min(from + Math.min(rowCount, Integer.MAX_VALUE), mergedRows.size());
+        return new ArrayList<>(mergedRows.subList(from, to));
+    }
+
+    private static Comparator<Object> rowComparator(List<OrderByElement> orderBy) {
+        return (row, other) -> {
+            for (OrderByElement element : orderBy) {
+                //only plain columns can be evaluated on the mapped rows
+                if (!(element.getExpression() instanceof Column)) {
+                    continue;
+                }
+                String column = StringUtils.remove(((Column) element.getExpression()).getColumnName(), '`');
+                int compared = compareValues(getRowValue(row, column), getRowValue(other, column));
+                if (compared != 0) {
+                    return element.isAsc() ? compared : -compared;
+                }
+            }
+            return 0;
+        };
+    }
+
+    //nulls come first in ascending order,the same as mysql
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object value, Object other) {
+        if (value == null || other == null) {
+            return value == null ? (other == null ? 0 : -1) : 1;
+        }
+        if (value instanceof Comparable && value.getClass().isInstance(other)) {
+            return ((Comparable<Object>) value).compareTo(other);
+        }
+        return value.toString().compareTo(other.toString());
+    }
 
-                    String newTblName = fieldTableHashing.getServer(restoredFormCode);
-                    String tmpSql = StringUtils.hasText(modifiedSql) ? modifiedSql : sql;
-                    modifiedSql = replaceTableName(tableName, newTblName, tmpSql);
+    /**
+     * value of a column of a mapped row,a simple typed row is the value of its only column
+     */
+    private static Object getRowValue(Object row, String column) {
+        if (row == null || SimpleTypeRegistry.isSimpleType(row.getClass())) {
+            return row;
+        }
+        if (row instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) row).entrySet()) {
+                if (column.equalsIgnoreCase(String.valueOf(entry.getKey()))) {
+                    return entry.getValue();
                 }
             }
-            BoundSql newBoundSql = new BoundSql(
-                    mappedStatement.getConfiguration(),
-                    modifiedSql,
-                    boundSql.getParameterMappings(),
-                    boundSql.getParameterObject()
-            );
+            return null;
+        }
+        MetaObject metaObject = SystemMetaObject.forObject(row);
+        String property = metaObject.hasGetter(column) ? column : com.baomidou.mybatisplus.core.toolkit.StringUtils.underlineToCamel(column);
+        return metaObject.hasGetter(property) ? metaObject.getValue(property) : null;
+    }
 
-            MappedStatement newMappedStatement = copyMappedStatement(mappedStatement, newBoundSql);
-            args[0] = newMappedStatement;
+    private long resolveLimitValue(BoundSql boundSql, SelectShape shape, Expression expression, int position, long defaultValue) {
+        if (expression == null) {
+            return defaultValue;
+        }
+        if (expression instanceof LongValue) {
+            return ((LongValue) expression).getValue();
+        }
+        if (expression instanceof JdbcParameter) {
+            List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+            ParameterMapping parameterMapping = parameterMappings.get(parameterMappings.size() - shape.limitParameters + position);
+            Object value = getParameterValue(boundSql, parameterMapping.getProperty());
+            if (value instanceof Number) {
+                return ((Number) value).longValue();
+            }
+            if (value != null) {
+                return Long.parseLong(value.toString());
+            }
+        }
+        throw new AFBizException("不支持的sql语句,低代码表迁移过程中无法解析limit:" + boundSql.getSql());
+    }
 
+    private SelectShape getSelectShape(String sql) {
+        SelectShape shape = selectShapeCache.getIfPresent(sql);
+        if (shape == null) {
+            shape = parseSelectShape(sql);
+            selectShapeCache.put(sql, shape);
         }
+        return shape;
+    }
 
-        return invocation.proceed();
+    static SelectShape parseSelectShape(String sql) {
+        SelectShape shape = new SelectShape();
+        Statement statement;
+        try {
+            statement = CCJSqlParserUtil.parse(sql);
+        } catch (JSQLParserException e) {
+            throw new RuntimeException("解析 SQL 出错: " + sql, e);
+        }
+        if (!(statement instanceof Select) || !(((Select) statement).getSelectBody() instanceof PlainSelect)) {
+            return shape;
+        }
+        PlainSelect plainSelect = (PlainSelect) ((Select) statement).getSelectBody();
+        List<String> aggregates = new ArrayList<>();
+        boolean hasAggregate = false;
+        for (SelectItem item : plainSelect.getSelectItems()) {
+            String aggregate = null;
+            if (item instanceof SelectExpressionItem && ((SelectExpressionItem) item).getExpression() instanceof Function) {
+                Function function = (Function) ((SelectExpressionItem) item).getExpression();
+                String name = function.getName().toUpperCase();
+                if (AGGREGATE_FUNCTIONS.contains(name)) {
+                    hasAggregate = true;
+                    aggregate = function.isDistinct() ? name + " DISTINCT" : name;
+                }
+            }
+            aggregates.add(aggregate);
+        }
+        //grouped or distinct rows of the two tables may overlap,only a single count,sum,max or min can be combined
+        shape.unmergeable = plainSelect.getGroupBy() != null || plainSelect.getDistinct() != null
+                || hasAggregate && (aggregates.size() != 1 || !MERGEABLE_AGGREGATE_FUNCTIONS.contains(aggregates.get(0)));
+        if (hasAggregate && !shape.unmergeable) {
+            shape.aggregate = aggregates.get(0);
+        }
+        if (plainSelect.getOrderByElements() != null) {
+            shape.orderBy = plainSelect.getOrderByElements();
+        }
+        //limit expressions in the order of their parameters
+        List<Expression> limitExpressions = new ArrayList<>();
+        if (plainSelect.getLimit() != null) {
+            shape.offset = plainSelect.getLimit().getOffset();
+            shape.rowCount = plainSelect.getLimit().getRowCount();
+            limitExpressions.add(shape.offset);
+            limitExpressions.add(shape.rowCount);
+        }
+        if (plainSelect.getOffset() != null) {
+            shape.offset = plainSelect.getOffset().getOffset();
+            limitExpressions.add(shape.offset);
+        }
+        for (Expression limitExpression : limitExpressions) {
+            if (limitExpression instanceof JdbcParameter) {
+                if (limitExpression == shape.offset) {
+                    shape.offsetPosition = shape.limitParameters;
+                } else {
+                    shape.rowCountPosition = shape.limitParameters;
+                }
+                shape.limitParameters++;
+            }
+        }
+        return shape;
+    }
+
+    /**
+     * what of a select matters when its results from two tables are merged
+     */
+    static final class SelectShape {
+        /**
+         * the aggregate function of a select of a single count,sum,max or min without group by,null for a select of rows
+         */
+        String aggregate;
+        /**
+         * true if the results of the select from two tables can not be merged
+         */
+        boolean unmergeable;
+        List<OrderByElement> orderBy = Collections.emptyList();
+        Expression offset;
+        Expression rowCount;
+        /**
+         * number of parameters of the limit and offset,they are the last parameters of the select
+         */
+        int limitParameters;
+        int offsetPosition;
+        int rowCountPosition;
+    }
+
+    /**
+     * statistics of the rewritten statement cache
+     */
+    public CacheStats routedStatementCacheStats() {
+        return routedStatementCache.stats();
+    }
+
+    private List<String> getLFTableNames(String sql) {
+        List<String> lfTableNames = lfTableNamesCache.getIfPresent(sql);
+        if (lfTableNames == null) {
+            List<String> lfTables = new ArrayList<>();
+            for (String tableName : getTableNames(sql)) {
+                if (LF_TABLE_NAMES.contains(tableName)) {
+                    lfTables.add(tableName);
+                }
+            }
+            lfTableNames = Collections.unmodifiableList(lfTables);
+            lfTableNamesCache.put(sql, lfTableNames);
+        }
+        return lfTableNames;
     }
 
 
-    private MappedStatement copyMappedStatement(MappedStatement ms, BoundSql newBoundSql) {
+    private MappedStatement copyMappedStatement(MappedStatement ms, String modifiedSql, List<ParameterMapping> parameterMappings) {
         MappedStatement.Builder builder = new MappedStatement.Builder(
                 ms.getConfiguration(),
                 ms.getId(),
-                parameterObject -> newBoundSql,
+                parameterObject -> new BoundSql(ms.getConfiguration(), modifiedSql, parameterMappings, parameterObject),
                 ms.getSqlCommandType()
         );
 
@@ -225,19 +606,7 @@ public class LFConsistentHashingRoutingSqlInterceptor implements Interceptor, In
             if (!FORM_CODES_UPPER.contains(propertyName.toUpperCase())) {
                 continue;
             }
-            Object value = null;
-
-
-            if (boundSql.hasAdditionalParameter(propertyName)) {
-                // 动态参数（如 foreach 中的参数）
-                value = boundSql.getAdditionalParameter(propertyName);
-            } else if (parameterObject instanceof java.util.Map) {
-
-                value = ((java.util.Map<?, ?>) parameterObject).get(propertyName);
-            } else {
-
-                value = metaObject.getValue(propertyName);
-            }
+            Object value = getParameterValue(boundSql, propertyName);
             String formattedValue = formatParameter(value);
             return formattedValue;
 
@@ -246,6 +615,21 @@ public class LFConsistentHashingRoutingSqlInterceptor implements Interceptor, In
     }
 
 
+    private Object getParameterValue(BoundSql boundSql, String propertyName) {
+        Object parameterObject = boundSql.getParameterObject();
+        if (boundSql.hasAdditionalParameter(propertyName)) {
+            // 动态参数（如 foreach 中的参数）
+            return boundSql.getAdditionalParameter(propertyName);
+        }
+        if (parameterObject instanceof java.util.Map) {
+            return ((java.util.Map<?, ?>) parameterObject).get(propertyName);
+        }
+        if (parameterObject == null || SimpleTypeRegistry.isSimpleType(parameterObject.getClass())) {
+            return parameterObject;
+        }
+        return SystemMetaObject.forObject(parameterObject).getValue(propertyName);
+    }
+
     private String formatParameter(Object param) {
         if (param == null) {
             return "NULL";
@@ -274,14 +658,14 @@ public class LFConsistentHashingRoutingSqlInterceptor implements Interceptor, In
     /**
      * 替换 SQL 中的表名
      */
-    private static String replaceTableName(String originalTblName, String newTblName, String originalSql) {
+    private static String replaceTableName(String originalTblName, String newTblName, String originalSql, boolean keepLimit) {
         try {
 
             Statement statement = CCJSqlParserUtil.parse(originalSql);
 
 
             if (statement instanceof Select) {
-                return processSelectStatement(originalTblName, newTblName, (Select) statement);
+                return processSelectStatement(originalTblName, newTblName, (Select) statement, keepLimit);
             }
 
 
@@ -308,7 +692,7 @@ public class LFConsistentHashingRoutingSqlInterceptor implements Interceptor, In
     }
 
 
-    private static String processSelectStatement(String originalTblName, String newTblName, Select select) {
+    private static String processSelectStatement(String originalTblName, String newTblName, Select select, boolean keepLimit) {
         StringBuilder modifiedSql = new StringBuilder();
         ExpressionDeParser expressionDeParser = new ExpressionDeParser();
         SelectDeParser selectDeParser = new SelectDeParser(expressionDeParser, modifiedSql) {
@@ -351,16 +735,30 @@ public class LFConsistentHashingRoutingSqlInterceptor implements Interceptor, In
 
 
                 if (plainSelect.getGroupBy() != null) {
-                    getBuffer().append(" GROUP BY ");
+                    getBuffer().append(" ");
                     getBuffer().append(plainSelect.getGroupBy());
                 }
+                if (plainSelect.getHaving() != null) {
+                    getBuffer().append(" HAVING ");
+                    plainSelect.getHaving().accept(expressionDeParser);
+                }
                 if (plainSelect.getOrderByElements() != null) {
                     getBuffer().append(" ORDER BY ");
-                    plainSelect.getOrderByElements().forEach(orderBy -> {
-                        orderBy.accept(new OrderByValidator());
-                        getBuffer().append(", ");
-                    });
-                    getBuffer().setLength(getBuffer().length() - 2);
+                    List<OrderByElement> orderByElements = plainSelect.getOrderByElements();
+                    for (int i = 0; i < orderByElements.size(); i++) {
+                        getBuffer().append(orderByElements.get(i));
+                        if (i < orderByElements.size() - 1) {
+                            getBuffer().append(", ");
+                        }
+                    }
+                }
+                if (keepLimit) {
+                    if (plainSelect.getLimit() != null) {
+                        getBuffer().append(plainSelect.getLimit());
+                    }
+                    if (plainSelect.getOffset() != null) {
+                        getBuffer().append(plainSelect.getOffset());
+                    }
                 }
             }
         };
@@ -543,10 +941,4 @@ public class LFConsistentHashingRoutingSqlInterceptor implements Interceptor, In
     public void setProperties(Properties properties) {
         // 可选：设置插件属性
     }
-
-    @Override
-    public void afterPropertiesSet() throws Exception {
-        mainTableHashing = new ConsistentHashingAlg(StringConstants.LOWFLOW_FORM_DATA_MAIN_TABLE_NAME, mainTableCount);
-        fieldTableHashing = new ConsistentHashingAlg(StringConstants.LOWFLOW_FORM_DATA_FIELD_TABLE_NAME, fieldTableCount);
-    }
 }
@@ -0,0 +1,118 @@
+package org.openoa.engine.factory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.openoa.base.interf.AdaptorService;
+import org.springframework.beans.BeansException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * dispatch tables of the adaptors looked up through {@link IAdaptorFactory}.
+ * <p>
+ * the tag parsers used to list all the beans of an adaptor type from the bean factory and ask them one by one whether
+ * they support the business object,on every lookup.here the adaptors of a type are resolved once into an array indexed
+ * by the ordinal of the business object enum(one per marker),and the adaptors looked up by name(form codes) into an
+ * immutable map,so a lookup is an array access or a hash lookup.
+ * the tables are built on first use and dropped when the application context is refreshed.
+ * the first adaptor supporting an object wins,the same as the linear probing did.
+ */
+@Slf4j
+@Component
+public class AdaptorDispatchTables implements ApplicationContextAware {
+    private static ApplicationContext applicationContext;
+    /**
+     * adaptor type|enum type|marker -> adaptors indexed by enum ordinal
+     */
+    private static volatile Map<String, Object[]> enumTables = new ConcurrentHashMap<>();
+    /**
+     * adaptor type -> bean name -> adaptor
+     */
+    private static volatile Map<Class<?>, Map<String, Object>> namedTables = new ConcurrentHashMap<>();
+
+    @Override
+    public void setApplicationContext(ApplicationContext appContext) throws BeansException {
+        applicationContext = appContext;
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void onContextRefreshed(ContextRefreshedEvent event) {
+        //refreshes of child contexts do not change our beans
+        if (event.getApplicationContext() != applicationContext) {
+            return;
+        }
+        enumTables = new ConcurrentHashMap<>();
+        namedTables = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * adaptor supporting a business object
+     *
+     * @param adaptorType    adaptor type
+     * @param businessObject business object
+     * @return the adaptor,null if none supports it
+     */
+    public static <T> T getAdaptor(Class<T> adaptorType, Enum<?> businessObject) {
+        return getAdaptor(adaptorType, "", businessObject);
+    }
+
+    /**
+     * adaptor supporting a business object under a marker,see {@link AdaptorService#addSupportBusinessObjects(String, Enum[])}
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T getAdaptor(Class<T> adaptorType, String marker, Enum<?> businessObject) {
+        if (businessObject == null) {
+            return null;
+        }
+        Class<?> enumType = businessObject.getDeclaringClass();
+        Map<String, Object[]> tables = enumTables;
+        Object[] table = tables.computeIfAbsent(adaptorType.getName() + "|" + enumType.getName() + "|" + marker,
+                key -> buildEnumTable(adaptorType, enumType, marker));
+        return (T) table[businessObject.ordinal()];
+    }
+
+    /**
+     * adaptor by bean name
+     *
+     * @param adaptorType adaptor type
+     * @param name        bean name,e.g. a form code
+     * @return the adaptor,null if there is no bean of the type with the name
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T getBean(Class<T> adaptorType, String name) {
+        if (name == null) {
+            return null;
+        }
+        Map<Class<?>, Map<String, Object>> tables = namedTables;
+        Map<String, Object> table = tables.computeIfAbsent(adaptorType,
+                key -> Collections.unmodifiableMap(new HashMap<>(applicationContext.getBeansOfType(adaptorType))));
+        return (T) table.get(name);
+    }
+
+    //synchronized as setting the business objects of an adaptor the first time is not thread safe
+    private static synchronized Object[] buildEnumTable(Class<?> adaptorType, Class<?> enumType, String marker) {
+        Object[] table = new Object[enumType.getEnumConstants().length];
+        for (Object bean : applicationContext.getBeansOfType(adaptorType).values()) {
+            if (!(bean instanceof AdaptorService)) {
+                continue;
+            }
+            List<Enum<?>> supported = ((AdaptorService) bean).getSupportBusinessObjects(marker);
+            for (Enum<?> businessObject : supported) {
+                if (businessObject.getDeclaringClass() == enumType && table[businessObject.ordinal()] == null) {
+                    table[businessObject.ordinal()] = bean;
+                }
+            }
+        }
+        log.info("built dispatch table of {} by {}{}", adaptorType.getSimpleName(), enumType.getSimpleName(),
+                marker.isEmpty() ? "" : " with marker " + marker);
+        return table;
+    }
+}
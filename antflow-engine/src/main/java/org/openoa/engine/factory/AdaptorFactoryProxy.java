@@ -94,8 +94,7 @@ public class AdaptorFactoryProxy {
                     " if (!(beanOrName instanceof String)) {\n" +
                     "return ("+declaredMethodReturnTypeName+")beanOrName;"+
                     "        } else {"+
-                    " java.util.Map/*<String, ?>*/ beansOfType = org.openoa.base.util.SpringBeanUtils.getBeansOfType(" + declaredMethodReturnTypeName + ".class);\n" +
-                    " Object bean = beansOfType.get((String)beanOrName);" +
+                    " Object bean = org.openoa.engine.factory.AdaptorDispatchTables.getBean(" + declaredMethodReturnTypeName + ".class, (String)beanOrName);" +
                     "     return (" + declaredMethodReturnTypeName + ") bean;}}";
             newMethod.setBody(methodBody);
 
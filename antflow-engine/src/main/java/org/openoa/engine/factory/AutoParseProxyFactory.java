@@ -77,19 +77,7 @@ public class AutoParseProxyFactory {
                     "    if ($1 == null) {\n" +
                     "        throw new org.openoa.base.exception.AFBizException(\"provided data to find an adaptor method is null\");\n" +
                     "    }\n" +
-                    "    java.util.Collection beans = org.openoa.base.util.SpringBeanUtils.getBeans(" + returnTypeName + ".class);\n" +
-                    "    java.util.Iterator iterator = beans.iterator();\n" +
-                    "    while (iterator.hasNext()) {\n" +
-                    "        Object obj = iterator.next();\n" +
-                    "        if (obj instanceof org.openoa.base.interf.AdaptorService) {\n" +
-                    "            org.openoa.base.interf.AdaptorService bean = (org.openoa.base.interf.AdaptorService) obj;\n" +
-                    "            if (bean.isSupportBusinessObject((Enum) $1)) {\n" +
-                    "                return (" + returnTypeName + ") bean;\n" +
-                    "            }\n" +
-                    "        }\n" +
-                    "    }\n" +
-                    "    System.out.println(\"nothing is return,for debugging use only\");\n" +
-                    "    return null;\n" +
+                    "    return (" + returnTypeName + ") org.openoa.engine.factory.AdaptorDispatchTables.getAdaptor(" + returnTypeName + ".class, (Enum) $1);\n" +
                     "}";
             newMethod.setBody(body);
 
@@ -11,11 +11,10 @@ import org.openoa.base.interf.FormOperationAdaptor;
 import org.openoa.base.vo.BusinessDataVo;
 import org.openoa.base.entity.OutSideBpmAccessBusiness;
 import org.openoa.engine.bpmnconf.service.impl.OutSideBpmAccessBusinessServiceImpl;
-import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
-import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
@@ -24,6 +23,8 @@ import org.springframework.util.ObjectUtils;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @Classname FormFactory
@@ -32,13 +33,16 @@ import java.util.List;
  * @Created by AntOffice
  */
 @Component
-public class FormFactory implements ApplicationContextAware {
+public class FormFactory {
     @Autowired
     private IAdaptorFactory adaptorFactory;
     @Autowired
     @Lazy
     private OutSideBpmAccessBusinessServiceImpl outSideBpmAccessBusinessService;
-    private ApplicationContext applicationContext;
+    /**
+     * form code -> form data class of its adaptor
+     */
+    private final Map<String, Class<?>> formClasses = new ConcurrentHashMap<>();
 
     public FormOperationAdaptor getFormAdaptor(String formCode){
         return getFormAdaptor(BusinessDataVo.builder().formCode(formCode).build());
@@ -78,12 +82,20 @@ public class FormFactory implements ApplicationContextAware {
         if(vo.getIsLowCodeFlow()!=null&&vo.getIsLowCodeFlow()==1){
             formCode=StringConstants.LOWFLOW_FORM_CODE;
         }
-        Object bean = applicationContext.getBean(formCode);
+        Object bean = AdaptorDispatchTables.getBean(FormOperationAdaptor.class, formCode);
         if (ObjectUtils.isEmpty(bean)) {
             throw new AFBizException("can not get the processing bean by form code:{}!"+formCode);
         }
-        return JSON.parseObject(params, (Type) getFormTClass(formCode));
+        return JSON.parseObject(params, (Type) formClasses.computeIfAbsent(formCode, this::getFormTClass));
+
+    }
 
+    /**
+     * the beans of the form codes only change with the application context
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void onContextRefreshed() {
+        formClasses.clear();
     }
 
     private Class<?> getFormTClass(String key) {
@@ -99,9 +111,4 @@ public class FormFactory implements ApplicationContextAware {
         }
         throw new AFBizException("该表单未关联业务实现类或未关联实现类泛型！");
     }
-
-    @Override
-    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
-        this.applicationContext = applicationContext;
-    }
 }
@@ -2,6 +2,8 @@ package org.openoa.engine.factory;
 
 import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONObject;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
 
 import lombok.Data;
@@ -9,13 +11,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.protocol.HTTP;
-import org.apache.http.util.EntityUtils;
 import org.openoa.base.constant.enums.CallbackTypeEnum;
 import org.openoa.base.exception.AFBizException;
 import org.openoa.base.util.DateUtil;
@@ -29,13 +24,8 @@ import org.openoa.engine.bpmnconf.service.biz.BpmVerifyInfoBizServiceImpl;
 import org.openoa.engine.bpmnconf.service.impl.OutSideBpmBusinessPartyServiceImpl;
 import org.openoa.engine.bpmnconf.service.impl.OutSideBpmCallbackUrlConfServiceImpl;
 import org.openoa.engine.bpmnconf.service.interf.biz.OutSideBpmBusinessPartyBizService;
-import org.openoa.engine.utils.JsonUtils;
 import org.openoa.engine.vo.CallbackReqVo;
-import org.openoa.engine.vo.CallbackRespVo;
 import org.openoa.engine.vo.OutSideBpmAccessProcessRecordVo;
-import org.springframework.core.env.Environment;
-import org.springframework.http.MediaType;
-import org.springframework.util.CollectionUtils;
 import org.springframework.util.ObjectUtils;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
@@ -46,7 +36,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -55,7 +45,15 @@ public class ThirdPartyCallbackFactory {
 
     private static volatile ThirdPartyCallbackFactory thirdPartyCallbackFactory;
 
-    private static final ThreadLocalRandom random = ThreadLocalRandom.current();
+    /**
+     * business party id -> business party mark
+     */
+    private final Cache<Long, String> businessPartyMarkCache = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(5, TimeUnit.MINUTES)
+            .build();
+
+    private volatile ThirdPartyCallbackTransport transport;
 
     private ThirdPartyCallbackFactory() {
 
@@ -79,28 +77,18 @@ public class ThirdPartyCallbackFactory {
     }
 
     /**
-     * 执行回调
+     * 执行回调,请求在当前线程组装,由{@link ThirdPartyCallbackTransport}异步发送,不阻塞审批线程
      *
      * @param callbackTypeEnum
      * @param bpmnConfVo
-     * @param <T>
-     * @return
      */
-    public <T> T doCallback(CallbackTypeEnum callbackTypeEnum, BpmnConfVo bpmnConfVo,
-                            String processNum, String businessId) {
-
-        //true代表回调调,false代表关闭回调
-        boolean callBackSwitch = true;
-        Environment environment = SpringBeanUtils.getBean(Environment.class);
-        String callbackSwitchStr = environment.getProperty("outside.callback.switch");
-        if(!StringUtils.isEmpty(callbackSwitchStr)){
-            callBackSwitch = Boolean.parseBoolean(callbackSwitchStr);
-        }
+    public void doCallback(CallbackTypeEnum callbackTypeEnum, BpmnConfVo bpmnConfVo,
+                           String processNum, String businessId) {
 
+        ThirdPartyCallbackTransport callbackTransport = getTransport();
 
-        CallbackReqVo callbackReqVo = null;
 
-        String resultJson = StringUtils.EMPTY;
+        CallbackReqVo callbackReqVo = null;
 
         //设置请求头
         Map<String, String> heads = Maps.newHashMap();
@@ -114,17 +102,12 @@ public class ThirdPartyCallbackFactory {
             CallbackAdaptor callbackAdaptor = getCallbackAdaptor(callbackTypeEnum.getBeanId());
 
             if (callbackAdaptor==null) {
-                return null;
+                return;
             }
 
             //关闭回调逻辑
-            if (!callBackSwitch) {
-                CallbackRespVo newRespObj = callbackAdaptor.getNewRespObj();
-                if (!StringUtils.isEmpty(businessId)) {
-                    Integer rendomNum = Math.abs(random.nextInt(Integer.MAX_VALUE));
-                    newRespObj.setBusinessId(String.valueOf(rendomNum));
-                }
-                return (T) newRespObj;
+            if (!callbackTransport.isCallbackEnabled()) {
+                return;
             }
 
             callbackReqVo = callbackAdaptor.formatRequest(bpmnConfVo);
@@ -133,8 +116,7 @@ public class ThirdPartyCallbackFactory {
             callbackReqVo.setEventType(callbackTypeEnum.getMark());
 
             //查询业务方标识
-            OutSideBpmBusinessPartyBizService bean = SpringBeanUtils.getBean(OutSideBpmBusinessPartyBizService.class);
-            String businessPartyMarkById = bean.getBusinessPartyMarkById(bpmnConfVo.getBusinessPartyId());
+            String businessPartyMarkById = getBusinessPartyMark(bpmnConfVo.getBusinessPartyId());
 
             //设置入参业务方标识
             callbackReqVo.setBusinessPartyMark(businessPartyMarkById);
@@ -177,79 +159,90 @@ public class ThirdPartyCallbackFactory {
             OutSideBpmCallbackUrlConf outSideBpmCallbackUrlConf = outSideBpmCallbackUrlConfService.getOutSideBpmCallbackUrlConf(bpmnConfVo.getId(), bpmnConfVo.getBusinessPartyId());
 
             String url="";
+            String jsonString = JSON.toJSONString(callbackReqVo);
             heads.put("central-service", getCurrentSysDomain());//域名
             if (outSideBpmCallbackUrlConf!=null) {
                 url = outSideBpmCallbackUrlConf.getBpmFlowCallbackUrl();
                 String apiClientId = outSideBpmCallbackUrlConf.getApiClientId();
                 String apiClientSecret = outSideBpmCallbackUrlConf.getApiClientSecret();
                 heads.put("api-client-id", apiClientId);//用户应用标识
-                String jsonString = JSON.toJSONString(callbackReqVo);
                 String md5Hex = DigestUtils.md5Hex(jsonString + apiClientSecret);
                 String sign = Base64.encodeBase64String(md5Hex.getBytes(StandardCharsets.UTF_8));
                 heads.put("api-workflow-sign",sign);
             }
             heads.put("sso-uid", loginedEmployee.getId());//当前登录人username
             heads.put("sso-name", URLEncoder.encode(loginedEmployee.getName(), "UTF-8"));//当前登录人真实姓名
-            log.info("执行外部工作流回调,request：{} , processNumber:{} , callBackUrl:{} , 操作人：{} ,请求参数:{}",callbackTypeEnum.getDesc() , processNum, url, loginedEmployee.getName(), JsonUtils.transfer2JsonString(callbackReqVo));
-
-            resultJson = doPost(url, heads, callbackReqVo);
-            log.info("执行外部工作流回调,response：{} , processNumber:{} , callBackUrl:{} , 操作人：{} ,请求参数:{} , response:{}",callbackTypeEnum.getDesc() , processNum, url, loginedEmployee.getName(), JsonUtils.transfer2JsonString(callbackReqVo), resultJson);
+            log.info("执行外部工作流回调,request：{} , processNumber:{} , callBackUrl:{} , 操作人：{} ,请求参数:{}",callbackTypeEnum.getDesc() , processNum, url, loginedEmployee.getName(), jsonString);
 
-            if (StringUtils.isEmpty(resultJson)) {
-                return null;
+            if (StringUtils.isEmpty(url)) {
+                log.error("工作流对外服务回调地址未配置，回调类型：{}，processNumber:{}", callbackTypeEnum.getMark(), processNum);
+                return;
             }
 
-            JSONObject resultObject = JSON.parseObject(resultJson);
+            String operatorName = loginedEmployee.getName();
+            String callbackUrl = url;
+            callbackTransport.dispatch(callbackTypeEnum, businessPartyMarkById, url, heads, jsonString,
+                    resultJson -> handleResponse(callbackTypeEnum, callbackAdaptor, processNum, callbackUrl, operatorName, jsonString, resultJson));
 
-            Object status = resultObject.get("status");
+        } catch (Exception e) {
+            log.error("工作流对外服务回调失败，回调类型：{}，请求头信息{}，入参：{}",
+                    callbackTypeEnum.getMark(),
+                    JSON.toJSONString(heads),
+                    JSON.toJSONString(Optional.ofNullable(callbackReqVo).orElse(new CallbackReqVo())), e);
+        }
+    }
 
-            String successMark = "000000";
+    /**
+     * 处理回调响应,在发送线程执行
+     */
+    private void handleResponse(CallbackTypeEnum callbackTypeEnum, CallbackAdaptor callbackAdaptor, String processNum,
+                                String url, String operatorName, String request, String resultJson) {
+        log.info("执行外部工作流回调,response：{} , processNumber:{} , callBackUrl:{} , 操作人：{} ,请求参数:{} , response:{}",callbackTypeEnum.getDesc() , processNum, url, operatorName, request, resultJson);
 
-            if (!ObjectUtils.isEmpty(status) && successMark.equals(status.toString())) {
-                CallbackRespVo callbackRespVo = callbackAdaptor.formatResponce(resultJson);
-                if (callbackRespVo!=null) {
+        if (StringUtils.isEmpty(resultJson)) {
+            return;
+        }
 
-                    //设置出参业务方标识
-                    callbackRespVo.setBusinessPartyMark(businessPartyMarkById);
+        JSONObject resultObject = JSON.parseObject(resultJson);
 
-                    //返回结果
-                    return (T) callbackRespVo;
-                }
-            } else {
+        Object status = resultObject.get("status");
 
-                Object message = resultObject.get("message");
+        String successMark = "000000";
 
-                String messageStr = StringUtils.EMPTY;
-                if (!ObjectUtils.isEmpty(message)) {
-                    messageStr = message.toString();
-                }
+        if (!ObjectUtils.isEmpty(status) && successMark.equals(status.toString())) {
+            callbackAdaptor.formatResponce(resultJson);
+            return;
+        }
 
-                if (!StringUtils.isEmpty(messageStr)) {
-                    throw new AFBizException(messageStr);
-                } else {
-                    throw new AFBizException("工作流对外服务回调失败");
-                }
+        Object message = resultObject.get("message");
+        log.error("工作流对外服务回调失败，回调类型：{}，入参：{}，出参：{}，错误信息：{}",
+                callbackTypeEnum.getMark(), request, resultJson,
+                ObjectUtils.isEmpty(message) ? "工作流对外服务回调失败" : message.toString());
+    }
 
+    /**
+     * 查询业务方标识
+     *
+     * @param businessPartyId
+     * @return
+     */
+    private String getBusinessPartyMark(Long businessPartyId) {
+        String businessPartyMark = businessPartyMarkCache.getIfPresent(businessPartyId);
+        if (businessPartyMark == null) {
+            OutSideBpmBusinessPartyBizService bean = SpringBeanUtils.getBean(OutSideBpmBusinessPartyBizService.class);
+            businessPartyMark = bean.getBusinessPartyMarkById(businessPartyId);
+            if (businessPartyMark != null) {
+                businessPartyMarkCache.put(businessPartyId, businessPartyMark);
             }
-
-        } catch (AFBizException e) {
-            log.error("工作流对外服务回调失败，回调类型：{}，请求头信息{}，入参：{}，出参：{}",
-                    callbackTypeEnum.getMark(),
-                    JSON.toJSONString(heads),
-                    JSON.toJSONString(Optional.ofNullable(callbackReqVo).orElse(new CallbackReqVo())),
-                    resultJson, e);
-            //throw new JiMuBizException(e.getMessage());
-            return null;
-        } catch (Exception e) {
-            log.error("工作流对外服务回调失败，回调类型：{}，请求头信息{}，入参：{}，出参：{}",
-                    callbackTypeEnum.getMark(),
-                    JSON.toJSONString(heads),
-                    JSON.toJSONString(Optional.ofNullable(callbackReqVo).orElse(new CallbackReqVo())),
-                    resultJson, e);
-            return null;
         }
+        return businessPartyMark;
+    }
 
-        return null;
+    private ThirdPartyCallbackTransport getTransport() {
+        if (transport == null) {
+            transport = SpringBeanUtils.getBean(ThirdPartyCallbackTransport.class);
+        }
+        return transport;
     }
 
     /**
@@ -300,59 +293,4 @@ public class ThirdPartyCallbackFactory {
         return requestAttributes.getRequest();
     }
 
-    /**
-     * 调用POST接口调用
-     *
-     * @param url
-     * @param heads
-     * @param object
-     * @return
-     * @throws Exception
-     */
-    private String doPost(String url, Map<String, String> heads, Object object) throws Exception {
-        String resultStr;
-
-        CloseableHttpClient httpclient = HttpClients.createDefault();
-
-        // 创建http POST请求
-        HttpPost httpPost = new HttpPost(url);
-
-        CloseableHttpResponse response = null;
-
-        try {
-
-            //头部配置Map不为空则向头部追加参数
-            if (!CollectionUtils.isEmpty(heads)) {
-                heads.forEach((key, val) -> {
-                    httpPost.addHeader(key, val);
-                });
-            }
-
-            httpPost.addHeader(HTTP.CONTENT_TYPE, MediaType.APPLICATION_JSON_UTF8_VALUE);
-
-            String input = object instanceof String? (String) object :JSON.toJSONString(object);
-
-            StringEntity stringEntity = new StringEntity(input, "UTF-8");
-            stringEntity.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
-
-            //设置参数到请求对象中
-            httpPost.setEntity(stringEntity);
-
-            response = httpclient.execute(httpPost);
-
-            resultStr = EntityUtils.toString(response.getEntity(), "UTF-8");
-
-        } catch (Exception e) {
-            log.error("工作流对外服务回调POST接口失败:", e);
-            throw new Exception(e);
-        } finally {
-            if (response!=null) {
-                response.close();
-            }
-            httpclient.close();
-        }
-
-        return resultStr;
-    }
-
 }
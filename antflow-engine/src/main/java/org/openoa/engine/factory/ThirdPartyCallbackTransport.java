@@ -0,0 +1,359 @@
+package org.openoa.engine.factory;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.util.EntityUtils;
+import org.openoa.base.constant.enums.CallbackTypeEnum;
+import org.openoa.base.vo.CallbackMetricsVo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * transport of the callbacks to the business parties.
+ * <p>
+ * all callbacks share one pooled http client and are sent from a bounded pool instead of the approval thread.
+ * every business party may only have a limited number of callbacks in flight(including the ones waiting for a retry),
+ * so a slow party can never take all the sender threads,failed callbacks are retried with exponential backoff,
+ * and every callback url has a circuit breaker which stops calling it for a while after continuous failures.
+ */
+@Slf4j
+@Component
+public class ThirdPartyCallbackTransport {
+    @Value("${outside.callback.switch:true}")
+    private boolean callbackSwitch;
+    @Value("${antflow.callback.max-connections:200}")
+    private Integer maxConnections;
+    @Value("${antflow.callback.max-connections-per-route:20}")
+    private Integer maxConnectionsPerRoute;
+    @Value("${antflow.callback.connect-timeout-millis:3000}")
+    private Integer connectTimeoutMillis;
+    @Value("${antflow.callback.socket-timeout-millis:10000}")
+    private Integer socketTimeoutMillis;
+    @Value("${antflow.callback.connection-request-timeout-millis:1000}")
+    private Integer connectionRequestTimeoutMillis;
+    @Value("${antflow.callback.threads:32}")
+    private Integer threads;
+    @Value("${antflow.callback.queue-capacity:1000}")
+    private Integer queueCapacity;
+    @Value("${antflow.callback.max-in-flight-per-party:8}")
+    private Integer maxInFlightPerParty;
+    @Value("${antflow.callback.max-attempts:3}")
+    private Integer maxAttempts;
+    @Value("${antflow.callback.retry-backoff-millis:500}")
+    private Long retryBackoffMillis;
+    @Value("${antflow.callback.max-retry-backoff-millis:10000}")
+    private Long maxRetryBackoffMillis;
+    @Value("${antflow.callback.circuit-failure-threshold:5}")
+    private Integer circuitFailureThreshold;
+    @Value("${antflow.callback.circuit-open-seconds:30}")
+    private Long circuitOpenSeconds;
+
+    private CloseableHttpClient httpClient;
+    private ThreadPoolExecutor sender;
+    private ScheduledExecutorService retryScheduler;
+    private final Map<String, Semaphore> partyBulkheads = new ConcurrentHashMap<>();
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final Map<CallbackTypeEnum, CallbackMetrics> metrics = new EnumMap<>(CallbackTypeEnum.class);
+
+    @PostConstruct
+    public void init() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(60, TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(connectTimeoutMillis)
+                        .setSocketTimeout(socketTimeoutMillis)
+                        .setConnectionRequestTimeout(connectionRequestTimeoutMillis)
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(30, TimeUnit.SECONDS)
+                //retries are done by the transport itself with backoff
+                .disableAutomaticRetries()
+                .build();
+        sender = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                namedThreadFactory("third-party-callback-"), new ThreadPoolExecutor.AbortPolicy());
+        sender.allowCoreThreadTimeOut(true);
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(namedThreadFactory("third-party-callback-retry-"));
+        for (CallbackTypeEnum callbackTypeEnum : CallbackTypeEnum.values()) {
+            metrics.put(callbackTypeEnum, new CallbackMetrics());
+        }
+    }
+
+    /**
+     * whether callbacks are switched on,false means callbacks are not sent at all
+     */
+    public boolean isCallbackEnabled() {
+        return callbackSwitch;
+    }
+
+    /**
+     * send a callback without waiting for it
+     *
+     * @param callbackTypeEnum   callback type
+     * @param businessPartyMark  business party the callback is sent to
+     * @param url                callback url
+     * @param heads              request headers
+     * @param body               request body
+     * @param onResponse         called with the response body once the callback has succeeded,on a sender thread
+     * @return false if the callback is rejected because the business party or the transport is saturated
+     */
+    public boolean dispatch(CallbackTypeEnum callbackTypeEnum, String businessPartyMark, String url,
+                            Map<String, String> heads, String body, Consumer<String> onResponse) {
+        CallbackMetrics callbackMetrics = metrics.get(callbackTypeEnum);
+        callbackMetrics.requests.increment();
+        Semaphore bulkhead = partyBulkheads.computeIfAbsent(StringUtils.defaultString(businessPartyMark), k -> new Semaphore(maxInFlightPerParty));
+        if (!bulkhead.tryAcquire()) {
+            callbackMetrics.rejected.increment();
+            log.error("too many callbacks in flight for business party {},callback {} to {} rejected,request:{}", businessPartyMark, callbackTypeEnum.getMark(), url, body);
+            return false;
+        }
+        CallbackTask task = new CallbackTask(callbackTypeEnum, url, heads, body, onResponse, bulkhead);
+        try {
+            sender.execute(task);
+        } catch (RejectedExecutionException e) {
+            bulkhead.release();
+            callbackMetrics.rejected.increment();
+            log.error("callback queue is full,callback {} to {} rejected,request:{}", callbackTypeEnum.getMark(), url, body);
+            return false;
+        }
+        return true;
+    }
+
+    public Map<CallbackTypeEnum, CallbackMetrics> getMetrics() {
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    /**
+     * snapshot of the counters of the callback types which have been sent
+     */
+    public List<CallbackMetricsVo> getMetricsSnapshot() {
+        return metrics.entrySet()
+                .stream()
+                .filter(entry -> entry.getValue().requests.sum() > 0)
+                .map(entry -> entry.getValue().toVo(entry.getKey()))
+                .collect(Collectors.toList());
+    }
+
+    private CircuitBreaker circuitBreaker(String url) {
+        return circuitBreakers.computeIfAbsent(url, k -> new CircuitBreaker());
+    }
+
+    private String post(String url, Map<String, String> heads, String body) throws IOException {
+        HttpPost httpPost = new HttpPost(url);
+        if (heads != null) {
+            heads.forEach(httpPost::addHeader);
+        }
+        httpPost.addHeader(HTTP.CONTENT_TYPE, MediaType.APPLICATION_JSON_UTF8_VALUE);
+        StringEntity stringEntity = new StringEntity(body, "UTF-8");
+        stringEntity.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        httpPost.setEntity(stringEntity);
+        try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+            String resultStr = response.getEntity() == null ? StringUtils.EMPTY : EntityUtils.toString(response.getEntity(), "UTF-8");
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode >= 500 || statusCode == 429) {
+                throw new IOException(String.format("http status %d,response:%s", statusCode, resultStr));
+            }
+            return resultStr;
+        }
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void destroy() throws IOException {
+        retryScheduler.shutdownNow();
+        sender.shutdown();
+        try {
+            if (!sender.awaitTermination(socketTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                sender.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        httpClient.close();
+    }
+
+    private class CallbackTask implements Runnable {
+        private final CallbackTypeEnum callbackTypeEnum;
+        private final String url;
+        private final Map<String, String> heads;
+        private final String body;
+        private final Consumer<String> onResponse;
+        private final Semaphore bulkhead;
+        private int attempt;
+
+        private CallbackTask(CallbackTypeEnum callbackTypeEnum, String url, Map<String, String> heads, String body,
+                             Consumer<String> onResponse, Semaphore bulkhead) {
+            this.callbackTypeEnum = callbackTypeEnum;
+            this.url = url;
+            this.heads = heads;
+            this.body = body;
+            this.onResponse = onResponse;
+            this.bulkhead = bulkhead;
+        }
+
+        @Override
+        public void run() {
+            attempt++;
+            CallbackMetrics callbackMetrics = metrics.get(callbackTypeEnum);
+            CircuitBreaker circuitBreaker = circuitBreaker(url);
+            if (!circuitBreaker.allowRequest()) {
+                callbackMetrics.shortCircuited.increment();
+                log.error("circuit of callback url {} is open,callback {} dropped,request:{}", url, callbackTypeEnum.getMark(), body);
+                bulkhead.release();
+                return;
+            }
+            long start = System.nanoTime();
+            String resultJson;
+            try {
+                resultJson = post(url, heads, body);
+            } catch (Exception e) {
+                callbackMetrics.record(System.nanoTime() - start, false);
+                circuitBreaker.onFailure();
+                retryOrGiveUp(e);
+                return;
+            }
+            callbackMetrics.record(System.nanoTime() - start, true);
+            circuitBreaker.onSuccess();
+            bulkhead.release();
+            try {
+                onResponse.accept(resultJson);
+            } catch (Exception e) {
+                log.error("failed to handle the response of callback {} to {},response:{}", callbackTypeEnum.getMark(), url, resultJson, e);
+            }
+        }
+
+        private void retryOrGiveUp(Exception e) {
+            if (attempt >= maxAttempts) {
+                log.error("callback {} to {} failed after {} attempts,request:{}", callbackTypeEnum.getMark(), url, attempt, body, e);
+                bulkhead.release();
+                return;
+            }
+            long backoff = Math.min(retryBackoffMillis << (attempt - 1), maxRetryBackoffMillis);
+            //jitter so that callbacks failed at the same time are not retried at the same time
+            backoff += ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+            log.warn("callback {} to {} failed on attempt {},retry in {} ms:{}", callbackTypeEnum.getMark(), url, attempt, backoff, e.getMessage());
+            metrics.get(callbackTypeEnum).retries.increment();
+            try {
+                retryScheduler.schedule(() -> {
+                    try {
+                        sender.execute(this);
+                    } catch (RejectedExecutionException rejected) {
+                        log.error("callback queue is full,retry of callback {} to {} dropped,request:{}", callbackTypeEnum.getMark(), url, body);
+                        bulkhead.release();
+                    }
+                }, backoff, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException rejected) {
+                bulkhead.release();
+            }
+        }
+    }
+
+    /**
+     * consecutive failure circuit breaker,after the threshold is reached the url is not called until the open time is
+     * over,then one trial request decides whether it is closed again
+     */
+    private class CircuitBreaker {
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final AtomicLong openUntil = new AtomicLong();
+
+        private boolean allowRequest() {
+            long until = openUntil.get();
+            if (until == 0) {
+                return true;
+            }
+            long now = System.currentTimeMillis();
+            //half open,only the thread winning the cas sends the trial request,the others keep failing fast
+            return now >= until && openUntil.compareAndSet(until, now + TimeUnit.SECONDS.toMillis(circuitOpenSeconds));
+        }
+
+        private void onSuccess() {
+            consecutiveFailures.set(0);
+            openUntil.set(0);
+        }
+
+        private void onFailure() {
+            if (consecutiveFailures.incrementAndGet() >= circuitFailureThreshold) {
+                openUntil.set(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(circuitOpenSeconds));
+            }
+        }
+    }
+
+    /**
+     * counters of the callbacks of one type
+     */
+    @Getter
+    public static class CallbackMetrics {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder successes = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder shortCircuited = new LongAdder();
+        private final LongAdder totalLatencyNanos = new LongAdder();
+        private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+        private void record(long latencyNanos, boolean success) {
+            (success ? successes : failures).increment();
+            totalLatencyNanos.add(latencyNanos);
+            maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+        }
+
+        /**
+         * average latency of the http attempts in milliseconds
+         */
+        public double getAverageLatencyMillis() {
+            long attempts = successes.sum() + failures.sum();
+            return attempts == 0 ? 0 : totalLatencyNanos.sum() / 1_000_000.0 / attempts;
+        }
+
+        private CallbackMetricsVo toVo(CallbackTypeEnum callbackTypeEnum) {
+            return CallbackMetricsVo
+                    .builder()
+                    .callbackType(callbackTypeEnum.getMark())
+                    .callbackTypeDesc(callbackTypeEnum.getDesc())
+                    .requests(requests.sum())
+                    .successes(successes.sum())
+                    .failures(failures.sum())
+                    .retries(retries.sum())
+                    .rejected(rejected.sum())
+                    .shortCircuited(shortCircuited.sum())
+                    .averageLatencyMillis(getAverageLatencyMillis())
+                    .maxLatencyMillis(maxLatencyNanos.get() / 1_000_000.0)
+                    .build();
+        }
+    }
+}
@@ -28,6 +28,18 @@ public class LFMain implements TenantField, Serializable {
      */
     @TableField("form_code")
     private String formCode;
+    /**
+     * how the fields of the form are stored,0 as field rows,1 as a json document,see {@link #formData}.
+     * the form is read the way it was saved,whatever the storage mode is now
+     */
+    @TableField("storage_mode")
+    private Integer storageMode;
+    /**
+     * the whole form as one json document,only filled when the form was saved in document storage mode.
+     * it is not selected by default,as it can be large
+     */
+    @TableField(value = "form_data", select = false)
+    private String formData;
     /**
      * 逻辑删除标记（0：未删除，1：已删除）
      */
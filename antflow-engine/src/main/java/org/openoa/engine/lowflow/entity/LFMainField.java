@@ -142,4 +142,25 @@ public class LFMainField implements TenantField, Serializable {
         mainField.setSort(sort);
         return mainField;
     }
+
+    /**
+     * value of the column {@link #buildMainField} stores a field of the configured type in,dates are compared by their time
+     */
+    public Object getTypedValue(BpmnConfLfFormdataField fieldConfig){
+        LFFieldTypeEnum fieldTypeEnum = LFFieldTypeEnum.getByType(fieldConfig.getFieldType());
+        if(fieldTypeEnum==null){
+            throw new AFBizException(Strings.lenientFormat("field type can not be empty,%s",fieldConfig));
+        }
+        switch (fieldTypeEnum){
+            case NUMBER:
+                return LFControlTypeEnum.SELECT.getName().equals(fieldConfig.getFieldName())?fieldValue:fieldValueNumber;
+            case DATE:
+            case DATE_TIME:
+                return fieldValueDt==null?null:fieldValueDt.getTime();
+            case TEXT:
+                return fieldValueText;
+            default:
+                return fieldValue;
+        }
+    }
 }
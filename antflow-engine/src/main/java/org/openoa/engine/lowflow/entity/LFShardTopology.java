@@ -0,0 +1,51 @@
+package org.openoa.engine.lowflow.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * persisted topology of the low code form data table ring,a new version is added whenever the table counts or
+ * the virtual node count are changed,it stays in migrating status until all rows have been moved to their new table
+ */
+@Data
+@TableName("t_lf_shard_topology")
+public class LFShardTopology implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int STATUS_MIGRATING = 0;
+    public static final int STATUS_ACTIVE = 1;
+    public static final int STATUS_RETIRED = 2;
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+    /**
+     * topology version,increased by one for every change
+     */
+    @TableField("version")
+    private Integer version;
+    @TableField("main_table_count")
+    private Integer mainTableCount;
+    @TableField("field_table_count")
+    private Integer fieldTableCount;
+    @TableField("virtual_nodes")
+    private Integer virtualNodes;
+    /**
+     * 0 migrating,1 active,2 retired
+     */
+    @TableField("status")
+    private Integer status;
+
+    @TableField(value = "create_time", fill = FieldFill.INSERT)
+    private Date createTime;
+    @TableField(value = "update_time", fill = FieldFill.INSERT_UPDATE)
+    private Date updateTime;
+
+    public boolean sameShape(int mainTableCount, int fieldTableCount, int virtualNodes) {
+        return this.mainTableCount != null && this.mainTableCount == mainTableCount
+                && this.fieldTableCount != null && this.fieldTableCount == fieldTableCount
+                && this.virtualNodes != null && this.virtualNodes == virtualNodes;
+    }
+}
@@ -1,15 +1,28 @@
 package org.openoa.engine.lowflow.service;
 
 import org.openoa.base.entity.BpmnConfLfFormdata;
+import org.openoa.engine.bpmnconf.common.LFFieldConfCache;
 import org.openoa.engine.bpmnconf.service.biz.BizServiceImpl;
 import org.openoa.engine.bpmnconf.service.impl.BpmnConfLfFormdataServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service
 public class BpmnConfLFFormDataBizServiceImpl extends BizServiceImpl<BpmnConfLfFormdataServiceImpl> {
+    @Autowired
+    private LFFieldConfCache fieldConfCache;
 
     public BpmnConfLfFormdata getLFFormDataByFormCode(String formCode){
         BpmnConfLfFormdata byFormCode = this.getService().getBaseMapper().getByFormCode(formCode);
         return byFormCode;
     }
+
+    /**
+     * to be called whenever field configs of a conf are published or changed,eg. a field is marked as condition field
+     *
+     * @param confId conf id
+     */
+    public void refreshFieldConf(Long confId){
+        fieldConfCache.refresh(confId);
+    }
 }
@@ -27,6 +27,8 @@ public class LFFormDataPreProcessor implements AntFlowOrderPreProcessor<BpmnConf
     private BpmnConfLfFormdataServiceImpl lfFormdataService;
     @Autowired
     private BpmnConfLfFormdataFieldServiceImpl lfFormdataFieldService;
+    @Autowired
+    private BpmnConfLFFormDataBizServiceImpl lfFormDataBizService;
 
 
     @Override
@@ -58,6 +60,7 @@ public class LFFormDataPreProcessor implements AntFlowOrderPreProcessor<BpmnConf
             throw new AFBizException(Strings.lenientFormat("lowcode form fields can not be empty,confId:%d,formCode:%s",confId,confVo.getFormCode()));
         }
         lfFormdataFieldService.saveBatch(formdataFields);
+        lfFormDataBizService.refreshFieldConf(confId);
     }
 
     @Override
@@ -0,0 +1,232 @@
+package org.openoa.engine.lowflow.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONReader;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.google.common.base.Strings;
+import org.apache.commons.lang3.StringUtils;
+import org.openoa.base.constant.enums.LFControlTypeEnum;
+import org.openoa.base.constant.enums.LFFieldTypeEnum;
+import org.openoa.base.entity.BpmnConfLfFormdataField;
+import org.openoa.base.exception.AFBizException;
+import org.openoa.base.util.DateUtil;
+import org.openoa.engine.bpmnconf.service.impl.LFMainFieldServiceImpl;
+import org.openoa.engine.bpmnconf.service.impl.LFMainServiceImpl;
+import org.openoa.engine.lowflow.entity.LFMain;
+import org.openoa.engine.lowflow.entity.LFMainField;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * document storage mode of low code form data.
+ * <p>
+ * in field mode(the default) every field of a form is a row of t_lf_main_field,in document mode the whole form is kept
+ * as one json document in t_lf_main.form_data,so saving or reading a form is one statement no matter how many fields it has.
+ * values are normalized on write to what the field mode returns on read,so the page sees no difference.
+ * fields flagged as condition fields are still projected into t_lf_main_field to keep them queryable.
+ * every main row records the mode it was saved in(t_lf_main.storage_mode),a form is read the way it was saved,
+ * so switching the mode on or off does not affect the forms saved before.
+ */
+@Component
+public class LFFormDocumentStorage {
+    public static final String STORAGE_MODE_FIELD = "field";
+    public static final String STORAGE_MODE_DOCUMENT = "document";
+    /**
+     * masked value sent back by the page for fields the approver is not allowed to see
+     */
+    public static final String MASKED_VALUE = "******";
+    /**
+     * values of {@link LFMain#getStorageMode()}
+     */
+    public static final int ROW_STORAGE_FIELD = 0;
+    public static final int ROW_STORAGE_DOCUMENT = 1;
+
+    @Value("${lf.storage.mode:field}")
+    private String storageMode;
+
+    @Autowired
+    private LFMainServiceImpl mainService;
+    @Autowired
+    private LFMainFieldServiceImpl mainFieldService;
+
+    public boolean isEnabled() {
+        return STORAGE_MODE_DOCUMENT.equalsIgnoreCase(storageMode);
+    }
+
+    /**
+     * fill the document of a new form,the caller saves the main row itself,then write the condition field projections
+     *
+     * @param main          main row which is not saved yet
+     * @param lfFields      submitted field values
+     * @param fieldConfMap  field id to its config
+     */
+    public void prepare(LFMain main, Map<String, Object> lfFields, Map<String, BpmnConfLfFormdataField> fieldConfMap) {
+        Map<String, Object> document = new LinkedHashMap<>(lfFields.size());
+        for (Map.Entry<String, Object> fieldEntry : lfFields.entrySet()) {
+            BpmnConfLfFormdataField fieldConfig = fieldConfMap.get(fieldEntry.getKey());
+            if (fieldConfig == null) {
+                continue;
+            }
+            document.put(fieldEntry.getKey(), normalize(fieldEntry.getValue(), fieldConfig));
+        }
+        main.setFormData(JSON.toJSONString(document));
+        main.setStorageMode(ROW_STORAGE_DOCUMENT);
+    }
+
+    /**
+     * save the condition field projections of a form whose main row has been saved
+     */
+    public void saveProjections(LFMain main, Map<String, Object> lfFields, Map<String, BpmnConfLfFormdataField> fieldConfMap) {
+        List<LFMainField> projections = buildProjections(main, lfFields, fieldConfMap);
+        if (!projections.isEmpty()) {
+            mainFieldService.saveBatch(projections);
+        }
+    }
+
+    /**
+     * get a main row together with its document
+     *
+     * @param mainId main id
+     * @return main row,its formData is null if the form was saved as field rows
+     */
+    public LFMain getMainWithDocument(Object mainId) {
+        return mainService.getOne(Wrappers.<LFMain>lambdaQuery()
+                .select(LFMain.class, fieldInfo -> true)
+                .eq(LFMain::getId, mainId));
+    }
+
+    /**
+     * whether the form of a main row was saved as a document
+     */
+    public static boolean isDocument(LFMain main) {
+        return main != null && Objects.equals(main.getStorageMode(), ROW_STORAGE_DOCUMENT);
+    }
+
+    public Map<String, Object> read(LFMain main) {
+        return JSON.parseObject(getDocument(main), JSONReader.Feature.UseDoubleForDecimals);
+    }
+
+    /**
+     * merge the values changed by an approver into the document and refresh the touched condition field projections
+     *
+     * @return number of fields whose value actually changed
+     */
+    public int merge(LFMain main, Map<String, Object> lfFields, Map<String, BpmnConfLfFormdataField> fieldConfMap) {
+        JSONObject document = JSON.parseObject(getDocument(main), JSONReader.Feature.UseDoubleForDecimals);
+        Map<String, Object> changedFields = new HashMap<>();
+        for (Map.Entry<String, Object> fieldEntry : lfFields.entrySet()) {
+            String fieldId = fieldEntry.getKey();
+            BpmnConfLfFormdataField fieldConfig = fieldConfMap.get(fieldId);
+            if (fieldConfig == null || MASKED_VALUE.equals(String.valueOf(fieldEntry.getValue()))) {
+                continue;
+            }
+            Object normalized = normalize(fieldEntry.getValue(), fieldConfig);
+            if (document.containsKey(fieldId) && Objects.equals(JSON.toJSONString(document.get(fieldId)), JSON.toJSONString(normalized))) {
+                continue;
+            }
+            document.put(fieldId, normalized);
+            changedFields.put(fieldId, fieldEntry.getValue());
+        }
+        if (changedFields.isEmpty()) {
+            return 0;
+        }
+        LFMain toUpdate = new LFMain();
+        toUpdate.setId(main.getId());
+        toUpdate.setFormCode(main.getFormCode());
+        toUpdate.setFormData(document.toJSONString());
+        mainService.updateById(toUpdate);
+
+        List<LFMainField> projections = buildProjections(main, changedFields, fieldConfMap);
+        if (!projections.isEmpty()) {
+            Set<String> projectedFieldIds = new HashSet<>();
+            for (LFMainField projection : projections) {
+                projectedFieldIds.add(projection.getFieldId());
+            }
+            mainFieldService.remove(Wrappers.<LFMainField>lambdaQuery()
+                    .eq(LFMainField::getMainId, main.getId())
+                    .in(LFMainField::getFieldId, projectedFieldIds));
+            mainFieldService.saveBatch(projections);
+        }
+        return changedFields.size();
+    }
+
+    /**
+     * document of a document row,loaded if the row was read without it
+     */
+    private String getDocument(LFMain main) {
+        if (main.getFormData() == null) {
+            LFMain withDocument = getMainWithDocument(main.getId());
+            if (withDocument == null || withDocument.getFormData() == null) {
+                throw new AFBizException(Strings.lenientFormat("lowcode form %s has no form data document", main.getId()));
+            }
+            main.setFormData(withDocument.getFormData());
+        }
+        return main.getFormData();
+    }
+
+    private List<LFMainField> buildProjections(LFMain main, Map<String, Object> lfFields, Map<String, BpmnConfLfFormdataField> fieldConfMap) {
+        List<LFMainField> projections = new ArrayList<>();
+        for (Map.Entry<String, Object> fieldEntry : lfFields.entrySet()) {
+            BpmnConfLfFormdataField fieldConfig = fieldConfMap.get(fieldEntry.getKey());
+            if (fieldConfig == null || !Objects.equals(fieldConfig.getIsConditionField(), 1)) {
+                continue;
+            }
+            LFMainField projection = LFMainField.buildMainField(fieldEntry.getValue(), main.getId(), 0, fieldConfig);
+            projection.setFormCode(main.getFormCode());
+            projections.add(projection);
+        }
+        return projections;
+    }
+
+    /**
+     * convert a submitted value to what the field mode would return for it on read
+     */
+    private Object normalize(Object value, BpmnConfLfFormdataField fieldConfig) {
+        LFFieldTypeEnum fieldTypeEnum = LFFieldTypeEnum.getByType(fieldConfig.getFieldType());
+        if (fieldTypeEnum == null) {
+            throw new AFBizException(Strings.lenientFormat("field type can not be empty,%s", fieldConfig));
+        }
+        if (value instanceof Map || value instanceof Collection) {
+            return value;
+        }
+        String valueStr = value == null ? null : value.toString();
+        switch (fieldTypeEnum) {
+            case STRING:
+                if (valueStr != null) {
+                    if (valueStr.startsWith("{")) {
+                        return JSON.parseObject(valueStr);
+                    } else if (valueStr.startsWith("[")) {
+                        return JSON.parseArray(valueStr);
+                    }
+                }
+                return valueStr;
+            case NUMBER:
+                if (LFControlTypeEnum.SELECT.getName().equals(fieldConfig.getFieldName())) {
+                    if (valueStr == null) {
+                        return "";
+                    }
+                    try {
+                        Object parsed = JSON.parse(valueStr);
+                        return parsed == null ? "" : parsed;
+                    } catch (Exception e) {
+                        return valueStr;
+                    }
+                }
+                return StringUtils.isEmpty(valueStr) ? null : Double.parseDouble(valueStr);
+            case DATE_TIME:
+                return StringUtils.isEmpty(valueStr) ? null : DateUtil.SDF_DATETIME_PATTERN.format(DateUtil.parseStandard(valueStr));
+            case DATE:
+                return StringUtils.isEmpty(valueStr) ? null : DateUtil.SDF_DATE_PATTERN.format(DateUtil.parseStandard(valueStr));
+            case TEXT:
+                return valueStr;
+            case BOOLEAN:
+                return Boolean.parseBoolean(valueStr);
+            default:
+                return value;
+        }
+    }
+}
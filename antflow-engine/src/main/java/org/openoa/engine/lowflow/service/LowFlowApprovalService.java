@@ -21,7 +21,7 @@ import org.openoa.base.vo.BpmnStartConditionsVo;
 import org.openoa.base.vo.BusinessDataVo;
 import org.openoa.base.entity.BpmnConfLfFormdata;
 import org.openoa.base.entity.BpmnConfLfFormdataField;
-import org.openoa.engine.bpmnconf.service.BpmnConfLfFormdataFieldServiceImpl;
+import org.openoa.engine.bpmnconf.common.LFFieldConfCache;
 import org.openoa.engine.bpmnconf.service.impl.BpmnConfLfFormdataServiceImpl;
 import org.openoa.engine.bpmnconf.service.impl.LFMainFieldServiceImpl;
 import org.openoa.engine.bpmnconf.service.impl.LFMainServiceImpl;
@@ -40,18 +40,17 @@ import java.util.stream.Collectors;
 @ActivitiServiceAnno(svcName = StringConstants.LOWFLOW_FORM_CODE,desc = "")
 public class LowFlowApprovalService implements FormOperationAdaptor<UDLFApplyVo>, ActivitiService {
     private static final Logger log = LoggerFactory.getLogger(LowFlowApprovalService.class);
-    //key is confid,value is a list of condition fields names which belongs to this conf
-    private static Map<Long,List<String>> conditionFieldNameMap=new HashMap<>();
-    // key is confid,value is a map of field's name and its self
-    private static Map<Long,Map<String,BpmnConfLfFormdataField>> allFieldConfMap =new HashMap<>();
+    //field configs and condition field names of confs
     @Autowired
-    private BpmnConfLfFormdataFieldServiceImpl lfFormdataFieldService;
+    private LFFieldConfCache fieldConfCache;
     @Autowired
     private LFMainFieldServiceImpl mainFieldService;
     @Autowired
     private LFMainServiceImpl mainService;
     @Autowired
     private BpmnConfLfFormdataServiceImpl lfFormdataService;
+    @Autowired
+    private LFFormDocumentStorage documentStorage;
 
     @Override
     public BpmnStartConditionsVo previewSetCondition(UDLFApplyVo vo) {
@@ -90,7 +89,8 @@ public class LowFlowApprovalService implements FormOperationAdaptor<UDLFApplyVo>
 
     @Override
     public UDLFApplyVo queryData(UDLFApplyVo vo) {
-        LFMain lfMain = mainService.getById(vo.getBusinessId());
+        //the row is read the way it was saved,the current mode only decides whether its document is selected at once
+        LFMain lfMain = documentStorage.isEnabled() ? documentStorage.getMainWithDocument(vo.getBusinessId()) : mainService.getById(vo.getBusinessId());
         if(lfMain==null){
             log.error("can not get lowcode from data by specified Id:{}",vo.getBusinessId());
             throw new AFBizException("can not get lowcode form data by specified id");
@@ -99,12 +99,11 @@ public class LowFlowApprovalService implements FormOperationAdaptor<UDLFApplyVo>
         Long confId = lfMain.getConfId();
         String formCode = lfMain.getFormCode();
 
-        Map<String, BpmnConfLfFormdataField> lfFormdataFieldMap = allFieldConfMap.get(confId);
-        if(CollectionUtils.isEmpty(lfFormdataFieldMap)){
-            Map<String, BpmnConfLfFormdataField> Id2SelfMap = lfFormdataFieldService.qryFormDataFieldMap(confId);
-            allFieldConfMap.put(confId,Id2SelfMap);
+        Map<String, BpmnConfLfFormdataField> lfFormdataFieldMap = fieldConfCache.getFieldConfMap(confId);
+        if(LFFormDocumentStorage.isDocument(lfMain)){
+            vo.setLfFields(documentStorage.read(lfMain));
+            return fillLfFormData(vo,confId);
         }
-        lfFormdataFieldMap=allFieldConfMap.get(confId);
         List<LFMainField> lfMainFields = mainFieldService.list(Wrappers.<LFMainField>lambdaQuery().eq(LFMainField::getMainId, mainId));
         if(CollectionUtils.isEmpty(lfMainFields)){
             throw  new AFBizException(Strings.lenientFormat("lowcode form with formcode:%s,confid:%s has no formdata",formCode,confId));
@@ -183,7 +182,10 @@ public class LowFlowApprovalService implements FormOperationAdaptor<UDLFApplyVo>
             }
         }
         vo.setLfFields(fieldVoMap);
+        return fillLfFormData(vo,confId);
+    }
 
+    private UDLFApplyVo fillLfFormData(UDLFApplyVo vo,Long confId){
         List<BpmnConfLfFormdata> bpmnConfLfFormdataList = lfFormdataService.list(Wrappers.<BpmnConfLfFormdata>lambdaQuery().eq(BpmnConfLfFormdata::getBpmnConfId, confId));
         if(CollectionUtils.isEmpty(bpmnConfLfFormdataList)){
             throw  new AFBizException(Strings.lenientFormat("can not get lowcode flow formdata by confId:%s",confId));
@@ -206,20 +208,23 @@ public class LowFlowApprovalService implements FormOperationAdaptor<UDLFApplyVo>
         main.setConfId(confId);
         main.setFormCode(formCode);
         main.setCreateUser(SecurityUtils.getLogInEmpName());
-        mainService.save(main);
         Long mainId = main.getId();
 
-        Map<String, BpmnConfLfFormdataField> lfFormdataFieldMap = allFieldConfMap.get(confId);
-        if(CollectionUtils.isEmpty(lfFormdataFieldMap)){
-            Map<String, BpmnConfLfFormdataField> name2SelfMap = lfFormdataFieldService.qryFormDataFieldMap(confId);
-            allFieldConfMap.put(confId,name2SelfMap);
-        }
-        Map<String, BpmnConfLfFormdataField> fieldConfMap = allFieldConfMap.get(confId);
+        Map<String, BpmnConfLfFormdataField> fieldConfMap = fieldConfCache.getFieldConfMap(confId);
         if(CollectionUtils.isEmpty(fieldConfMap)){
             throw  new AFBizException(Strings.lenientFormat("confId %s,formCode:%s does not has a field config",confId,vo.getFormCode()));
         }
-        List<LFMainField> mainFields = LFMainField.parseFromMap(lfFields, fieldConfMap, mainId,formCode);
-        mainFieldService.saveBatch(mainFields);
+        if(documentStorage.isEnabled()){
+            //the whole form goes into the main row,only condition fields are projected to field rows
+            documentStorage.prepare(main,lfFields,fieldConfMap);
+            mainService.save(main);
+            documentStorage.saveProjections(main,lfFields,fieldConfMap);
+        }else{
+            main.setStorageMode(LFFormDocumentStorage.ROW_STORAGE_FIELD);
+            mainService.save(main);
+            List<LFMainField> mainFields = LFMainField.parseFromMap(lfFields, fieldConfMap, mainId,formCode);
+            mainFieldService.saveBatch(mainFields);
+        }
         vo.setBusinessId(mainId.toString());
         vo.setProcessDigest(vo.getRemark());
         vo.setEntityName(LowFlowApprovalService.class.getSimpleName());
@@ -235,7 +240,8 @@ public class LowFlowApprovalService implements FormOperationAdaptor<UDLFApplyVo>
         if(CollectionUtils.isEmpty(lfFields)){
             throw new AFBizException("form data does not contains any field");
         }
-        LFMain lfMain = mainService.getById(vo.getBusinessId());
+        //the row is read the way it was saved,the current mode only decides whether its document is selected at once
+        LFMain lfMain = documentStorage.isEnabled() ? documentStorage.getMainWithDocument(vo.getBusinessId()) : mainService.getById(vo.getBusinessId());
         if(lfMain==null){
             log.error("can not get lowcode from data by specified Id:{}",vo.getBusinessId());
             throw new AFBizException("can not get lowcode form data by specified id");
@@ -243,39 +249,94 @@ public class LowFlowApprovalService implements FormOperationAdaptor<UDLFApplyVo>
         Long mainId = lfMain.getId();
         String formCode = vo.getFormCode();
         Long confId = vo.getBpmnConfVo().getId();
+        if(LFFormDocumentStorage.isDocument(lfMain)){
+            Map<String, BpmnConfLfFormdataField> fieldConfMap = fieldConfCache.getFieldConfMap(confId);
+            if (ObjectUtils.isEmpty(fieldConfMap)) {
+                throw new AFBizException(Strings.lenientFormat("confId %s,formCode:%s does not has a field config",confId,vo.getFormCode()));
+            }
+            documentStorage.merge(lfMain,lfFields,fieldConfMap);
+            return vo;
+        }
         List<LFMainField> lfMainFields = mainFieldService.list(Wrappers.<LFMainField>lambdaQuery().eq(LFMainField::getMainId, mainId));
-	    // 如果vo.getLfFields()里面有lfMainFields没有的元素，那么就将没有的元素save到LFMainField表中
-	    Map<String, Object> submitLfFields = vo.getLfFields();
-	    if (ObjectUtils.isNotEmpty(submitLfFields)) {
-		    Map<String, BpmnConfLfFormdataField> lfFormdataFieldMap = allFieldConfMap.get(confId);
-		    if (ObjectUtils.isEmpty(lfFormdataFieldMap)) {
-			    Map<String, BpmnConfLfFormdataField> name2SelfMap = lfFormdataFieldService.qryFormDataFieldMap(confId);
-			    allFieldConfMap.put(confId,name2SelfMap);
-		    }
-		    Map<String, BpmnConfLfFormdataField> fieldConfMap = allFieldConfMap.get(confId);
-		    if (ObjectUtils.isEmpty(fieldConfMap)) {
-			    throw new AFBizException(Strings.lenientFormat("confId %s,formCode:%s does not has a field config",confId,vo.getFormCode()));
-		    }
-		    List<LFMainField> mainFields = LFMainField.parseFromMap(submitLfFields, fieldConfMap, mainId, vo.getFormCode());
-		    if (CollectionUtils.isNotEmpty(mainFields)) {
-			    // 根据fieldId过滤掉已存在表里的数据lfMainFields
-			    mainFields.removeIf(mainField -> lfMainFields.stream().anyMatch(ori -> ori.getFieldId().equals(mainField.getFieldId())));
-			    mainFieldService.saveBatch(mainFields);
-		    }
-	    }
-		if(CollectionUtils.isEmpty(lfMainFields)){
+        if(CollectionUtils.isEmpty(lfMainFields)){
             throw  new AFBizException(Strings.lenientFormat("lowcode form with formcode:%s,confid:%s has no formdata",formCode,confId));
         }
-        for (LFMainField field : lfMainFields){
-            String f_value = lfFields.get(field.getFieldId()).toString();
-            if (!Objects.equals(f_value, "******")){
-                field.setFieldValue(f_value);
-            }
-            mainFieldService.updateById(field);
+        Map<String, BpmnConfLfFormdataField> fieldConfMap = fieldConfCache.getFieldConfMap(confId);
+        if (ObjectUtils.isEmpty(fieldConfMap)) {
+            throw new AFBizException(Strings.lenientFormat("confId %s,formCode:%s does not has a field config",confId,vo.getFormCode()));
         }
+        int writtenRows = flushChangedFields(mainId, formCode, lfFields, lfMainFields, fieldConfMap);
+        log.info("lowcode form data {} consented,{} of {} field rows written",mainId,writtenRows,lfMainFields.size());
         return vo;
     }
 
+    /**
+     * diff the submitted values against the stored field rows in one pass and only write what differs,
+     * fields not stored yet are inserted and changed ones updated,each in one jdbc batch.
+     * a value is compared and written in the column {@link LFMainField#buildMainField} stores its field type in.
+     * stored fields which are not submitted or submitted masked are left untouched
+     *
+     * @return number of rows actually written
+     */
+    private int flushChangedFields(Long mainId, String formCode, Map<String, Object> lfFields, List<LFMainField> storedFields,
+                                   Map<String, BpmnConfLfFormdataField> fieldConfMap) {
+        Set<String> storedFieldIds = new HashSet<>(storedFields.size());
+        List<LFMainField> changedFields = new ArrayList<>();
+        List<Long> clearedFieldIds = new ArrayList<>();
+        for (LFMainField storedField : storedFields) {
+            storedFieldIds.add(storedField.getFieldId());
+            Object submittedValue = lfFields.get(storedField.getFieldId());
+            BpmnConfLfFormdataField fieldConf = fieldConfMap.get(storedField.getFieldId());
+            if (submittedValue == null || fieldConf == null || LFFormDocumentStorage.MASKED_VALUE.equals(submittedValue.toString())) {
+                continue;
+            }
+            LFMainField submittedField = LFMainField.buildMainField(submittedValue, mainId, storedField.getSort(), fieldConf);
+            Object typedValue = submittedField.getTypedValue(fieldConf);
+            if (Objects.equals(typedValue, storedField.getTypedValue(fieldConf))) {
+                continue;
+            }
+            if (typedValue == null) {
+                clearedFieldIds.add(storedField.getId());
+                continue;
+            }
+            //only the typed column is set,so the update statement does not touch the others
+            LFMainField changedField = new LFMainField();
+            changedField.setId(storedField.getId());
+            changedField.setFormCode(storedField.getFormCode());
+            changedField.setSort(storedField.getSort());
+            changedField.setFieldValue(submittedField.getFieldValue());
+            changedField.setFieldValueNumber(submittedField.getFieldValueNumber());
+            changedField.setFieldValueDt(submittedField.getFieldValueDt());
+            changedField.setFieldValueText(submittedField.getFieldValueText());
+            changedFields.add(changedField);
+        }
+        Map<String, Object> newFieldValues = new HashMap<>();
+        for (Map.Entry<String, Object> fieldEntry : lfFields.entrySet()) {
+            if (!storedFieldIds.contains(fieldEntry.getKey())) {
+                newFieldValues.put(fieldEntry.getKey(), fieldEntry.getValue());
+            }
+        }
+        List<LFMainField> newFields = newFieldValues.isEmpty() ? Collections.emptyList()
+                : LFMainField.parseFromMap(newFieldValues, fieldConfMap, mainId, formCode);
+        if (!newFields.isEmpty()) {
+            mainFieldService.saveBatch(newFields);
+        }
+        if (!changedFields.isEmpty()) {
+            mainFieldService.updateBatchById(changedFields);
+        }
+        //null columns are skipped by updateById,cleared values are set to null explicitly
+        if (!clearedFieldIds.isEmpty()) {
+            mainFieldService.update(Wrappers.<LFMainField>lambdaUpdate()
+                    .set(LFMainField::getFieldValue, null)
+                    .set(LFMainField::getFieldValueNumber, null)
+                    .set(LFMainField::getFieldValueDt, null)
+                    .set(LFMainField::getFieldValueText, null)
+                    .eq(LFMainField::getFormCode, formCode)
+                    .in(LFMainField::getId, clearedFieldIds));
+        }
+        return newFields.size() + changedFields.size() + clearedFieldIds.size();
+    }
+
     @Override
     public void backToModifyData(UDLFApplyVo vo) {
 
@@ -292,36 +353,14 @@ public class LowFlowApprovalService implements FormOperationAdaptor<UDLFApplyVo>
     }
     private Map<String,Object> filterConditionFields(UDLFApplyVo vo){
         Long confId = vo.getBpmnConfVo().getId();
-        List<String> conditionFieldNames = conditionFieldNameMap.get(confId);
+        List<String> conditionFieldNames = fieldConfCache.getConditionFieldNames(confId);
         Map<String,Object>conditionFieldMap=null;
-        //put values into cache
         if(CollectionUtils.isEmpty(conditionFieldNames)){
             Map<String, Object> lfConditions = vo.getLfConditions();
             if(!CollectionUtils.isEmpty(lfConditions)){
                 conditionFieldMap=lfConditions;
             }
-            List<BpmnConfLfFormdataField> allFields = lfFormdataFieldService.list(Wrappers.<BpmnConfLfFormdataField>lambdaQuery()
-                    .eq(BpmnConfLfFormdataField::getBpmnConfId, confId));
-            if(CollectionUtils.isEmpty(allFields)){
-               throw new AFBizException("lowcode form data has no fields");
-            }
-
-            List<String> condFieldNames=new ArrayList<>();
-            Map<String,BpmnConfLfFormdataField> Id2SelfMap=new HashMap<>();
-            for (BpmnConfLfFormdataField field : allFields) {
-                String fieldId = field.getFieldId();
-                Id2SelfMap.put(fieldId,field);
-                if(field.getIsConditionField()!=null&&field.getIsConditionField()==1){
-                    condFieldNames.add(fieldId);
-                }
-            }
-            conditionFieldNameMap.put(confId,condFieldNames);
-           if(!allFieldConfMap.containsKey(confId)){
-               allFieldConfMap.put(confId,Id2SelfMap);
-           }
         }
-        conditionFieldNames=conditionFieldNameMap.get(confId);
-
 
         //if it is still empty here,it indicates that this approval has no condition fields
         if(!CollectionUtils.isEmpty(conditionFieldNames)){
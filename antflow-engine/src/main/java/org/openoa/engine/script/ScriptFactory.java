@@ -2,9 +2,12 @@ package org.openoa.engine.script;
 
 import org.activiti.engine.impl.javax.el.ExpressionFactory;
 import org.activiti.engine.impl.juel.SimpleContext;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.stereotype.Service;
@@ -24,8 +27,14 @@ public class ScriptFactory {
     EvaluationContext evaluationContext(){
         return new StandardEvaluationContext();
     }
+    /**
+     * spel compiler mode,one of OFF,IMMEDIATE,MIXED.compiled expressions are much faster for hot condition expressions
+     */
+    @Value("${antflow.expression.spel.compiler-mode:OFF}")
+    private SpelCompilerMode spelCompilerMode;
+
     @Bean
     ExpressionParser expressionParser(){
-        return new SpelExpressionParser();
+        return new SpelExpressionParser(new SpelParserConfiguration(spelCompilerMode, ScriptFactory.class.getClassLoader()));
     }
 }
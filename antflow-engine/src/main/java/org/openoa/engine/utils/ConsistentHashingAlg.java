@@ -2,14 +2,22 @@ package org.openoa.engine.utils;
 
 import java.util.*;
 
-import org.apache.commons.lang3.StringUtils;
-
 /**
  * 带虚拟节点的一致性Hash算法
  * 此方法源于网络,稍何个性以适应业务,如有侵权请联系删除
  */
 public class ConsistentHashingAlg {
     public ConsistentHashingAlg(String name, Integer count){
+        this(name,count,DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * @param name         base name of the servers,servers are named as name_index
+     * @param count        number of real servers
+     * @param virtualNodes number of virtual nodes of each real server
+     */
+    public ConsistentHashingAlg(String name, Integer count, int virtualNodes){
+        this.virtualNodeCount=virtualNodes;
         servers=new String[count];
         for (Integer i = 0; i < count; i++) {
             servers[i]=name+"_"+i;
@@ -17,27 +25,40 @@ public class ConsistentHashingAlg {
             realNodes.add(servers[i]);
         }
 
-        //再添加虚拟节点，遍历LinkedList使用foreach循环效率会比较高
+        //再添加虚拟节点,key表示虚拟节点的hash值,value表示虚拟节点所属的真实结点,hash冲突时后加入的结点覆盖先加入的
+        SortedMap<Integer, String> virtualNodes = new TreeMap<Integer, String>();
         for (String str : realNodes){
-            for(int i=0; i<VIRTUAL_NODES; i++){
+            for(int i=0; i<virtualNodeCount; i++){
                 String virtualNodeName = str + "&&VN" + String.valueOf(i);
                 int hash = getHash(virtualNodeName);
-                virtualNodes.put(hash, virtualNodeName);
+                virtualNodes.put(hash, str);
             }
         }
-
+        //展开为有序的原始类型数组,查找时二分,不再需要tailMap视图和截取虚拟节点名称
+        ringHashes=new int[virtualNodes.size()];
+        ringServers=new String[virtualNodes.size()];
+        int index=0;
+        for (Map.Entry<Integer, String> virtualNode : virtualNodes.entrySet()) {
+            ringHashes[index]=virtualNode.getKey();
+            ringServers[index]=virtualNode.getValue();
+            index++;
+        }
     }
     //待添加入Hash环的服务器列表
     private  String[] servers =null;
 
-    //真实结点列表,考虑到服务器上线、下线的场景，即添加、删除的场景会比较频繁，这里使用LinkedList会更好
-    private  List<String> realNodes = new LinkedList<String>();
+    //真实结点列表
+    private  List<String> realNodes = new ArrayList<String>();
 
-    //虚拟节点，key表示虚拟节点的hash值，value表示虚拟节点的名称
-    private  SortedMap<Integer, String> virtualNodes = new TreeMap<Integer, String>();
+    //hash环,虚拟节点的hash值升序排列,ringServers同下标的元素为该虚拟节点所属的真实结点
+    private  final int[] ringHashes;
+    private  final String[] ringServers;
 
-    //虚拟节点的数目，这里写死，为了演示需要，一个真实结点对应5个虚拟节点
-    private  final int VIRTUAL_NODES = 5;
+    //默认一个真实结点对应5个虚拟节点
+    public static final int DEFAULT_VIRTUAL_NODES = 5;
+
+    //每个真实结点对应的虚拟节点数目
+    private  final int virtualNodeCount;
 
 
     //使用FNV1_32_HASH算法计算服务器的Hash值,这里不使用重写hashCode的方法，最终效果没区别
@@ -58,29 +79,27 @@ public class ConsistentHashingAlg {
         return hash;
     }
 
+    public List<String> getServers(){
+        return Collections.unmodifiableList(realNodes);
+    }
+
     //得到应当路由到的结点
     public   String getServer(String key){
+        if(ringHashes.length==0){
+            return null;
+        }
         //得到该key的hash值
         int hash = getHash(key);
-        // 得到大于该Hash值的所有Map
-        SortedMap<Integer, String> subMap = virtualNodes.tailMap(hash);
-        String virtualNode;
-        if(subMap.isEmpty()){
-            //如果没有比该key的hash值大的，则从第一个node开始
-            Integer i = virtualNodes.firstKey();
-            //返回对应的服务器
-            virtualNode = virtualNodes.get(i);
-        }else{
-            //第一个Key就是顺时针过去离node最近的那个结点
-            Integer i = subMap.firstKey();
-            //返回对应的服务器
-            virtualNode = subMap.get(i);
+        //顺时针过去第一个hash值大于等于该key的hash值的虚拟节点
+        int index = Arrays.binarySearch(ringHashes, hash);
+        if(index<0){
+            index=-index-1;
         }
-        //virtualNode虚拟节点名称要截取一下
-        if(StringUtils.isNotBlank(virtualNode)){
-            return virtualNode.substring(0, virtualNode.indexOf("&&"));
+        //如果没有比该key的hash值大的，则从第一个node开始
+        if(index==ringHashes.length){
+            index=0;
         }
-        return null;
+        return ringServers[index];
     }
 
 }
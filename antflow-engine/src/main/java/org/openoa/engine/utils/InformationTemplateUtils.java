@@ -1,22 +1,63 @@
 package org.openoa.engine.utils;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.lang3.StringUtils;
 import org.openoa.base.constant.enums.WildcardCharacterEnum;
+import org.openoa.base.util.MultiTenantUtil;
 import org.openoa.base.vo.InformationTemplateVo;
 import org.openoa.base.entity.InformationTemplate;
 import org.openoa.engine.bpmnconf.service.impl.InformationTemplateServiceImpl;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.ObjectUtils;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * renders notice templates.
+ * <p>
+ * a template is parsed once into a list of literal and wildcard segments and kept until it is edited(or the
+ * cache entry expires,which covers edits made on other nodes),rendering just appends the segments in one pass into
+ * a builder reused by the current thread,so it is cheap enough to be done for every single recipient.
+ */
 @Component
 public class InformationTemplateUtils {
+    /**
+     * wildcards ordered by their length,so the longer one wins if one was the prefix of another
+     */
+    private static final WildcardCharacterEnum[] WILDCARDS = Arrays.stream(WildcardCharacterEnum.values())
+            .sorted(Comparator.comparingInt((WildcardCharacterEnum o) -> o.getDesc().length()).reversed())
+            .toArray(WildcardCharacterEnum[]::new);
+    private static final int MAX_REUSED_BUILDER_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    @Value("${antflow.information-template.cache.maximum-size:1000}")
+    private long maximumSize;
+    @Value("${antflow.information-template.cache.expire-seconds:600}")
+    private long expireSeconds;
 
     @Resource
     private InformationTemplateServiceImpl informationTemplateService;
 
+    /**
+     * tenantId:templateId -> compiled template
+     */
+    private Cache<String, CompiledTemplate> templateCache;
+
+    @PostConstruct
+    public void init() {
+        templateCache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
     /**
      * translate message template
      *
@@ -24,30 +65,150 @@ public class InformationTemplateUtils {
      * @return newly build information template with jump url type
      */
     public InformationTemplateVo translateInformationTemplate(InformationTemplateVo informationTemplateVo) {
-        InformationTemplate informationTemplate = Optional
-                .ofNullable(informationTemplateService.getBaseMapper().selectById(informationTemplateVo.getId()))
-                .orElse(new InformationTemplate());
+        CompiledTemplate template = getCompiledTemplate(informationTemplateVo.getId());
+        Map<Integer, String> map = Optional.ofNullable(informationTemplateVo.getWildcardCharacterMap()).orElse(Collections.emptyMap());
+        String systemTitle = template.systemTitle.render(map);
+        String systemContent = template.systemContent.render(map);
         return InformationTemplateVo
                 .builder()
-                .systemTitle(translate(informationTemplate.getSystemTitle(), informationTemplateVo.getWildcardCharacterMap()))
-                .systemContent(translate(informationTemplate.getSystemContent(), informationTemplateVo.getWildcardCharacterMap()))
-                .mailTitle(translate(informationTemplate.getSystemTitle(), informationTemplateVo.getWildcardCharacterMap()))
-                .mailContent(translate(informationTemplate.getSystemContent(), informationTemplateVo.getWildcardCharacterMap()))
-                .noteContent(translate(informationTemplate.getNoteContent(), informationTemplateVo.getWildcardCharacterMap()))
-                .jumpUrl(informationTemplate.getJumpUrl())
+                .systemTitle(systemTitle)
+                .systemContent(systemContent)
+                .mailTitle(systemTitle)
+                .mailContent(systemContent)
+                .noteContent(template.noteContent.render(map))
+                .jumpUrl(template.jumpUrl)
                 .build();
     }
 
-    private String translate(String info, Map<Integer, String> map) {
+    /**
+     * drop the compiled template,to be called when a template is edited or deleted
+     *
+     * @param templateId template id
+     */
+    public void invalidate(Long templateId) {
+        String key = key(templateId);
+        templateCache.invalidate(key);
+        //the edit is only visible to other threads after commit,drop what they compiled meanwhile
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    templateCache.invalidate(key);
+                }
+            });
+        }
+    }
+
+    private CompiledTemplate getCompiledTemplate(Long templateId) {
+        if (templateId == null) {
+            return CompiledTemplate.EMPTY;
+        }
+        String key = key(templateId);
+        CompiledTemplate template = templateCache.getIfPresent(key);
+        if (template == null) {
+            template = Optional
+                    .ofNullable(informationTemplateService.getBaseMapper().selectById(templateId))
+                    .map(CompiledTemplate::new)
+                    .orElse(CompiledTemplate.EMPTY);
+            templateCache.put(key, template);
+        }
+        return template;
+    }
+
+    private String key(Long templateId) {
+        return StringUtils.defaultString(MultiTenantUtil.getCurrentTenantId()) + ":" + templateId;
+    }
+
+    /**
+     * parse a template text into segments
+     */
+    static CompiledText compile(String info) {
         if (ObjectUtils.isEmpty(info)) {
-            return "";
+            return CompiledText.EMPTY;
+        }
+        List<String> literals = new ArrayList<>();
+        List<Integer> codes = new ArrayList<>();
+        int literalStart = 0;
+        int i = 0;
+        while (i < info.length()) {
+            WildcardCharacterEnum wildcard = info.charAt(i) == '{' ? matchWildcard(info, i) : null;
+            if (wildcard == null) {
+                i++;
+                continue;
+            }
+            literals.add(info.substring(literalStart, i));
+            codes.add(wildcard.getCode());
+            i += wildcard.getDesc().length();
+            literalStart = i;
+        }
+        literals.add(info.substring(literalStart));
+        return new CompiledText(literals.toArray(new String[0]), codes.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private static WildcardCharacterEnum matchWildcard(String info, int offset) {
+        for (WildcardCharacterEnum wildcard : WILDCARDS) {
+            if (info.startsWith(wildcard.getDesc(), offset)) {
+                return wildcard;
+            }
         }
-        for (WildcardCharacterEnum o : WildcardCharacterEnum.values()) {
-            String pattern= o.getTransfDesc() /*+ "\\(" + o.getCode() + "\\)"*/;
-            String replacement=!ObjectUtils.isEmpty(map.get(o.getCode())) ? map.get(o.getCode()) : "";
-            info = info.replaceAll(pattern, replacement);
+        return null;
+    }
+
+    /**
+     * texts of a template in compiled form
+     */
+    static final class CompiledTemplate {
+        static final CompiledTemplate EMPTY = new CompiledTemplate(new InformationTemplate());
+
+        private final CompiledText systemTitle;
+        private final CompiledText systemContent;
+        private final CompiledText noteContent;
+        private final Integer jumpUrl;
+
+        CompiledTemplate(InformationTemplate informationTemplate) {
+            this.systemTitle = compile(informationTemplate.getSystemTitle());
+            this.systemContent = compile(informationTemplate.getSystemContent());
+            this.noteContent = compile(informationTemplate.getNoteContent());
+            this.jumpUrl = informationTemplate.getJumpUrl();
         }
-        return info;
     }
 
+    /**
+     * a template text split at its wildcards,literals always has one more element than codes
+     */
+    static final class CompiledText {
+        static final CompiledText EMPTY = new CompiledText(new String[]{""}, new int[0]);
+
+        private final String[] literals;
+        private final int[] codes;
+
+        CompiledText(String[] literals, int[] codes) {
+            this.literals = literals;
+            this.codes = codes;
+        }
+
+        /**
+         * render the text,wildcards without a value are replaced with an empty string
+         */
+        String render(Map<Integer, String> values) {
+            if (codes.length == 0) {
+                return literals[0];
+            }
+            StringBuilder builder = BUILDER.get();
+            if (builder.capacity() > MAX_REUSED_BUILDER_CAPACITY) {
+                builder = new StringBuilder(256);
+                BUILDER.set(builder);
+            }
+            builder.setLength(0);
+            for (int i = 0; i < codes.length; i++) {
+                builder.append(literals[i]);
+                String value = values.get(codes[i]);
+                if (value != null) {
+                    builder.append(value);
+                }
+            }
+            builder.append(literals[codes.length]);
+            return builder.toString();
+        }
+    }
 }
@@ -1,7 +1,12 @@
 package org.openoa.engine.utils;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import org.activiti.engine.impl.javax.el.ExpressionFactory;
+import org.activiti.engine.impl.javax.el.ValueExpression;
 import org.activiti.engine.impl.juel.SimpleContext;
+import org.activiti.engine.impl.juel.SimpleResolver;
 import org.openoa.base.util.SpringBeanUtils;
 import org.openoa.base.vo.BpmnStartConditionsVo;
 import org.openoa.base.vo.BusinessDataVo;
@@ -9,24 +14,57 @@ import org.openoa.engine.bpmnconf.constant.AntFlowConstants;
 
 import java.util.Map;
 
+/**
+ * evaluates JUEL condition expressions.
+ * parsed expressions are cached by their text,they are created against a context without any variable,
+ * so identifiers are not bound at parse time but resolved on evaluation by the per evaluation root resolver,
+ * which makes a cached expression safe to be shared by concurrent evaluations.
+ */
 public class JuelEvaluator{
+    private static final int MAX_CACHED_EXPRESSIONS = 1000;
+    private static final Cache<String, ValueExpression> EXPRESSION_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_EXPRESSIONS)
+            .recordStats()
+            .build();
+    /**
+     * shared immutable parse context,it has neither functions nor variables
+     */
+    private static final SimpleContext PARSE_CONTEXT = new SimpleContext();
+    static {
+        PARSE_CONTEXT.getFunctionMapper();
+        PARSE_CONTEXT.getVariableMapper();
+    }
+
     public static boolean evaluate(String expression, BpmnStartConditionsVo startConditionsVo) {
-        BusinessDataVo businessDataVo = startConditionsVo.getBusinessDataVo();
-        ExpressionFactory expressionFactory = SpringBeanUtils.getBean(ExpressionFactory.class);
-        SimpleContext simpleContext = null;
+        //a lightweight scope holding this evaluation's variables only
+        SimpleResolver resolver = new SimpleResolver();
         boolean lowCodeFlow = startConditionsVo.isLowCodeFlow();
         if(lowCodeFlow){
-            simpleContext=new SimpleContext();
             Map<String, Object> lfConditions = startConditionsVo.getLfConditions();
             for (Map.Entry<String, Object> keyValuePair : lfConditions.entrySet()) {
-                simpleContext.setVariable(keyValuePair.getKey(),expressionFactory.createValueExpression(keyValuePair.getValue(), keyValuePair.getValue().getClass()));
+                resolver.getRootPropertyResolver().setProperty(keyValuePair.getKey(),keyValuePair.getValue());
             }
         }else{
-            simpleContext=SpringBeanUtils.getBean(SimpleContext.class);
-            simpleContext.setVariable(AntFlowConstants.SCRIPT_CONTEXT, expressionFactory.createValueExpression(businessDataVo, BusinessDataVo.class));
+            BusinessDataVo businessDataVo = startConditionsVo.getBusinessDataVo();
+            resolver.getRootPropertyResolver().setProperty(AntFlowConstants.SCRIPT_CONTEXT, businessDataVo);
         }
+        SimpleContext simpleContext = new SimpleContext(resolver);
 
-        Boolean evaluatedResult = (Boolean) expressionFactory.createValueExpression(simpleContext, expression, Boolean.class).getValue(simpleContext);
+        Boolean evaluatedResult = (Boolean) getExpression(expression).getValue(simpleContext);
         return Boolean.TRUE.equals(evaluatedResult);
     }
+
+    public static CacheStats cacheStats() {
+        return EXPRESSION_CACHE.stats();
+    }
+
+    private static ValueExpression getExpression(String expression) {
+        ValueExpression valueExpression = EXPRESSION_CACHE.getIfPresent(expression);
+        if (valueExpression == null) {
+            ExpressionFactory expressionFactory = SpringBeanUtils.getBean(ExpressionFactory.class);
+            valueExpression = expressionFactory.createValueExpression(PARSE_CONTEXT, expression, Boolean.class);
+            EXPRESSION_CACHE.put(expression, valueExpression);
+        }
+        return valueExpression;
+    }
 }
@@ -1,10 +1,9 @@
 package org.openoa.engine.utils;
 
 import lombok.extern.slf4j.Slf4j;
-import org.openoa.base.constant.enums.BusinessCallbackEnum;
-import org.openoa.base.constant.enums.ProcessBusinessCallBackTypeEnum;
+import org.openoa.base.util.SpringBeanUtils;
 import org.openoa.base.vo.BusinessDataVo;
-import org.openoa.engine.bpmnconf.service.biz.callback.BusinessCallBackFactory;
+import org.openoa.engine.bpmnconf.common.ProcessNoticeOutbox;
 
 /**
  * @Author tylerzhou
@@ -18,7 +17,8 @@ public class MsgSendMqUtil {
             return;
         }
         try {
-            BusinessCallBackFactory.build().doCallBack(vo, BusinessCallbackEnum.PROCESS_EVENT_CALLBACK, ProcessBusinessCallBackTypeEnum.Send_MQ_Message.getCode());
+            //written to the outbox and called back after the current transaction is committed
+            SpringBeanUtils.getBean(ProcessNoticeOutbox.class).enqueueProcessEventCallback(vo);
         }catch (Exception e){
             log.error("流程消息发送失败,{}", JsonUtils.transfer2JsonString(vo),e);
         }
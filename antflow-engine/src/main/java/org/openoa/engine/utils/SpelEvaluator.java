@@ -1,31 +1,66 @@
 package org.openoa.engine.utils;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import org.openoa.base.util.SpringBeanUtils;
 import org.openoa.base.vo.BpmnStartConditionsVo;
 import org.openoa.base.vo.BusinessDataVo;
 import org.openoa.engine.bpmnconf.constant.AntFlowConstants;
-import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.MethodResolver;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.spel.support.ReflectiveMethodResolver;
+import org.springframework.expression.spel.support.ReflectivePropertyAccessor;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * evaluates SpEL condition expressions.
+ * parsed(and,if the parser is configured so,compiled) expressions are cached by their text,
+ * every evaluation gets its own evaluation context,while the reflective accessors and their caches are shared.
+ */
 public class SpelEvaluator {
+    private static final int MAX_CACHED_EXPRESSIONS = 1000;
+    private static final Cache<String, Expression> EXPRESSION_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_EXPRESSIONS)
+            .recordStats()
+            .build();
+    private static final List<PropertyAccessor> PROPERTY_ACCESSORS = Collections.singletonList(new ReflectivePropertyAccessor());
+    private static final List<MethodResolver> METHOD_RESOLVERS = Collections.singletonList(new ReflectiveMethodResolver());
+
     public static boolean evaluate(String expression, BpmnStartConditionsVo startConditionsVo) {
-        ExpressionParser expressionParser = SpringBeanUtils.getBean(ExpressionParser.class);
-        BusinessDataVo businessDataVo = startConditionsVo.getBusinessDataVo();
-        EvaluationContext evaluationContext =null;
+        StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
+        evaluationContext.setPropertyAccessors(PROPERTY_ACCESSORS);
+        evaluationContext.setMethodResolvers(METHOD_RESOLVERS);
         if(startConditionsVo.isLowCodeFlow()){
-            evaluationContext = new StandardEvaluationContext();
             Map<String, Object> lfConditions = startConditionsVo.getLfConditions();
             for (Map.Entry<String, Object> keyValuePair : lfConditions.entrySet()) {
                 evaluationContext.setVariable(keyValuePair.getKey(),keyValuePair.getValue());
             }
         }else{
-            evaluationContext = SpringBeanUtils.getBean(EvaluationContext.class);
+            BusinessDataVo businessDataVo = startConditionsVo.getBusinessDataVo();
             evaluationContext.setVariable(AntFlowConstants.SCRIPT_CONTEXT, businessDataVo);
         }
-        Boolean evaluatedResult = expressionParser.parseExpression(expression).getValue(evaluationContext,Boolean.class);
+        Boolean evaluatedResult = getExpression(expression).getValue(evaluationContext,Boolean.class);
         return Boolean.TRUE.equals(evaluatedResult);
     }
+
+    public static CacheStats cacheStats() {
+        return EXPRESSION_CACHE.stats();
+    }
+
+    private static Expression getExpression(String expression) {
+        Expression parsedExpression = EXPRESSION_CACHE.getIfPresent(expression);
+        if (parsedExpression == null) {
+            ExpressionParser expressionParser = SpringBeanUtils.getBean(ExpressionParser.class);
+            parsedExpression = expressionParser.parseExpression(expression);
+            EXPRESSION_CACHE.put(expression, parsedExpression);
+        }
+        return parsedExpression;
+    }
 }
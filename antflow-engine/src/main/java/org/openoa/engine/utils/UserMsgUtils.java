@@ -7,12 +7,11 @@ import com.google.common.collect.Multimap;
 import org.apache.commons.lang3.StringUtils;
 import org.openoa.base.constant.enums.MessageSendTypeEnum;
 import org.openoa.base.entity.UserMessage;
-import org.openoa.base.interf.ProcessNoticeAdaptor;
-import org.openoa.base.service.AfUserService;
 import org.openoa.base.util.SpringBeanUtils;
 import org.openoa.base.vo.*;
+import org.openoa.engine.bpmnconf.common.MessageRecipientResolver;
+import org.openoa.engine.bpmnconf.common.ProcessNoticeOutbox;
 import org.openoa.engine.bpmnconf.service.biz.MessageServiceImpl;
-import org.openoa.engine.factory.IAdaptorFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.ObjectUtils;
@@ -84,17 +83,19 @@ public class UserMsgUtils {
             }
 
             List<MessageSendTypeEnum> messageSendTypeEnumList = Lists.newArrayList(messageSendTypeEnums);
+            //the messages are written to the outbox and sent after the current transaction is committed
+            ProcessNoticeOutbox outbox = getOutbox();
             //send email
             if (messageSendTypeEnumList.contains(MAIL)) {
-                sendMail(userMsgVo, messageService);
+                outbox.enqueueNotices(Collections.singletonList(userMsgVo), MAIL);
             }
             //send text message
             if (messageSendTypeEnumList.contains(MESSAGE)) {
-                sendSms(userMsgVo, messageService);
+                outbox.enqueueNotices(Collections.singletonList(userMsgVo), MESSAGE);
             }
             //app push
             if (messageSendTypeEnumList.contains(PUSH)) {
-                sendAppPush(userMsgVo, messageService);
+                outbox.enqueueNotices(Collections.singletonList(userMsgVo), PUSH);
             }
         }
     }
@@ -123,6 +124,15 @@ public class UserMsgUtils {
         return SpringBeanUtils.getBean(MessageServiceImpl.class);
     }
 
+    /**
+     * get notice outbox
+     *
+     * @return
+     */
+    private static ProcessNoticeOutbox getOutbox() {
+        return SpringBeanUtils.getBean(ProcessNoticeOutbox.class);
+    }
+
     /**
      * insert in site messages
      *
@@ -239,8 +249,10 @@ public class UserMsgUtils {
      */
     private static void doSendMessageBatch(List<UserMsgBatchVo> userMsgBatchVos, MessageServiceImpl messageService) {
 
-
+        //messages are only sent to effective employees,all recipients are checked at once
+        Set<String> effectiveUserIds = getEffectiveUserIds(userMsgBatchVos);
         Map<MessageSendTypeEnum, List<UserMsgVo>> grouped = userMsgBatchVos.stream()
+                .filter(batch -> effectiveUserIds.contains(batch.userMsgVo.getUserId()))
                 .flatMap(batch -> batch.messageSendTypeEnums.stream()
                         .map(type -> new AbstractMap.SimpleEntry<>(type, batch.userMsgVo)))
                 .collect(Collectors.groupingBy(
@@ -248,16 +260,15 @@ public class UserMsgUtils {
                         Collectors.mapping(Map.Entry::getValue, Collectors.toList())
                 ));
 
+        //the messages are written to the outbox and sent by the ProcessNoticeAdaptor of their type after the current transaction is committed
+        ProcessNoticeOutbox outbox = getOutbox();
         for (Map.Entry<MessageSendTypeEnum, List<UserMsgVo>> messageSendTypeEnumListEntry : grouped.entrySet()) {
             MessageSendTypeEnum messageSendTypeEnum = messageSendTypeEnumListEntry.getKey();
             if(messageSendTypeEnum==null){
                 continue;
             }
-            List<UserMsgVo> userMsgVos = messageSendTypeEnumListEntry.getValue();
-            IAdaptorFactory adaptorFactory = SpringBeanUtils.getBean(IAdaptorFactory.class);
-            ProcessNoticeAdaptor processNoticeAdaptor = adaptorFactory.getProcessNoticeAdaptor(messageSendTypeEnum);
-            if(processNoticeAdaptor!=null){
-                processNoticeAdaptor.sendMessageBatchByType(userMsgVos);
+            if(outbox.isSupported(messageSendTypeEnum)){
+                outbox.enqueueNotices(messageSendTypeEnumListEntry.getValue(), messageSendTypeEnum);
             }else{
                 log.warn("未实现的消息发送策略!{}",messageSendTypeEnum);
             }
@@ -272,9 +283,10 @@ public class UserMsgUtils {
      * @param messageService
      */
     private static void insertUserMessageBatch(List<UserMsgBatchVo> userMsgBatchVos, MessageServiceImpl messageService) {
+        Set<String> effectiveUserIds = getEffectiveUserIds(userMsgBatchVos);
         messageService.insertUserMessageBatch(userMsgBatchVos
                 .stream()
-                .filter(o -> checkEmployeeStatus(o.userMsgVo.getUserId()))
+                .filter(o -> effectiveUserIds.contains(o.userMsgVo.getUserId()))
                 .map(o -> buildUserMessage(o.getUserMsgVo()))
                 .collect(Collectors.toList()));
     }
@@ -342,8 +354,9 @@ public class UserMsgUtils {
         //转换入参格式
         ArrayListMultimap<MessageSendTypeEnum, UserMsgVo> almMap = ArrayListMultimap.create();
 
+        Set<String> effectiveUserIds = getEffectiveUserIds(userMsgBatchVos);
         userMsgBatchVos.forEach(o -> {
-            if (checkEmployeeStatus(o.userMsgVo.getUserId())) {
+            if (effectiveUserIds.contains(o.userMsgVo.getUserId())) {
                 if (!ObjectUtils.isEmpty(o.getMessageSendTypeEnums())) {
                     o.getMessageSendTypeEnums().forEach(messageSendTypeEnum -> almMap.put(messageSendTypeEnum, o.getUserMsgVo()));
                 }
@@ -453,14 +466,23 @@ public class UserMsgUtils {
             return false;
         }
 
-        AfUserService bean = SpringBeanUtils.getBean(AfUserService.class);
-
-        long count = bean.checkEmployeeEffective(userId);
+        return getRecipientResolver().resolve(userId).isEffective();
+    }
 
-        if (count == 0) {
-            return false;
-        }
+    /**
+     * ids of the effective employees among the receivers of the messages,resolved with one query
+     *
+     * @param userMsgBatchVos
+     * @return
+     */
+    private static Set<String> getEffectiveUserIds(List<UserMsgBatchVo> userMsgBatchVos) {
+        return getRecipientResolver().filterEffective(userMsgBatchVos
+                .stream()
+                .map(o -> o.userMsgVo.getUserId())
+                .collect(Collectors.toList()));
+    }
 
-        return true;
+    private static MessageRecipientResolver getRecipientResolver() {
+        return SpringBeanUtils.getBean(MessageRecipientResolver.class);
     }
 }
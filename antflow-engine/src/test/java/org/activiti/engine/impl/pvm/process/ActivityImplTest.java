@@ -0,0 +1,35 @@
+package org.activiti.engine.impl.pvm.process;
+
+import org.activiti.engine.impl.pvm.delegate.ActivityBehavior;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ActivityImplTest {
+
+    @Test
+    void detourLeadsToTheDestinationWithoutRewiringTheDefinition() {
+        ProcessDefinitionImpl processDefinition = new ProcessDefinitionImpl("shared");
+        ActivityImpl approve = processDefinition.createActivity("approve");
+        ActivityImpl next = processDefinition.createActivity("next");
+        ActivityImpl start = processDefinition.createActivity("start");
+        approve.setActivityBehavior(mock(ActivityBehavior.class));
+        approve.setProperty("name", "审批");
+        approve.createOutgoingTransition("flow1").setDestination(next);
+
+        ActivityImpl detour = approve.detourTo(start);
+
+        assertThat(detour.getId()).isEqualTo("approve");
+        assertThat(detour.getActivityBehavior()).isSameAs(approve.getActivityBehavior());
+        assertThat(detour.getProperty("name")).isEqualTo("审批");
+        assertThat(detour.getParent()).isSameAs(processDefinition);
+        assertThat(detour.getOutgoingTransitions()).hasSize(1);
+        assertThat(detour.getOutgoingTransitions().get(0).getDestination()).isSameAs(start);
+        //the shared definition is left as it was
+        assertThat(approve.getOutgoingTransitions()).hasSize(1);
+        assertThat(approve.getOutgoingTransitions().get(0).getDestination()).isSameAs(next);
+        assertThat(start.getIncomingTransitions()).isEmpty();
+        assertThat(processDefinition.findActivity("approve")).isSameAs(approve);
+    }
+}
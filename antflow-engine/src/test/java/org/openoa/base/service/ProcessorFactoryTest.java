@@ -0,0 +1,72 @@
+package org.openoa.base.service;
+
+import org.junit.jupiter.api.Test;
+import org.openoa.base.util.SpringBeanUtils;
+import org.openoa.base.vo.ProcessorMetricsVo;
+import org.springframework.context.ApplicationContext;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProcessorFactoryTest {
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void slowestProcessorsComeFirst() {
+        Map<String, Object> processors = new LinkedHashMap<>();
+        processors.put("fastProcessor", new FastProcessor());
+        processors.put("slowProcessor", new SlowProcessor());
+        ApplicationContext applicationContext = mock(ApplicationContext.class);
+        when(applicationContext.getBeansOfType(AntFlowOrderPostProcessor.class)).thenReturn((Map) processors);
+        new SpringBeanUtils().setApplicationContext(applicationContext);
+
+        ProcessorFactory.executePostProcessors(new Entity());
+        ProcessorFactory.executePostProcessors(new Entity());
+
+        List<ProcessorMetricsVo> metrics = ProcessorFactory.getSlowestProcessors(Integer.MAX_VALUE)
+                .stream()
+                .filter(vo -> vo.getProcessor().startsWith(ProcessorFactoryTest.class.getName()))
+                .collect(Collectors.toList());
+        assertThat(metrics).extracting(ProcessorMetricsVo::getProcessor)
+                .containsExactly(SlowProcessor.class.getName(), FastProcessor.class.getName());
+        assertThat(metrics.get(0).getInvocations()).isEqualTo(2);
+        assertThat(metrics.get(0).getMaxMillis()).isGreaterThanOrEqualTo(10);
+        assertThat(ProcessorFactory.getSlowestProcessors(1)).hasSize(1);
+    }
+
+    private static class Entity {
+    }
+
+    private static class FastProcessor implements AntFlowOrderPostProcessor<Entity> {
+        @Override
+        public void postProcess(Entity entity) {
+        }
+
+        @Override
+        public int order() {
+            return 1;
+        }
+    }
+
+    private static class SlowProcessor implements AntFlowOrderPostProcessor<Entity> {
+        @Override
+        public void postProcess(Entity entity) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public int order() {
+            return 2;
+        }
+    }
+}
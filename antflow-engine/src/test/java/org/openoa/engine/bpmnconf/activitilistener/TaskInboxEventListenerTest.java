@@ -0,0 +1,41 @@
+package org.openoa.engine.bpmnconf.activitilistener;
+
+import org.activiti.engine.delegate.event.ActivitiEventType;
+import org.activiti.engine.delegate.event.impl.ActivitiEntityEventImpl;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.openoa.base.entity.BpmTaskInbox;
+import org.openoa.engine.bpmnconf.common.TaskInbox;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class TaskInboxEventListenerTest {
+    private final TaskInbox taskInbox = mock(TaskInbox.class);
+    private final TaskInboxEventListener listener = new TaskInboxEventListener();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(listener, "taskInbox", taskInbox);
+        when(taskInbox.isEnabled()).thenReturn(true);
+    }
+
+    @Test
+    void taskRowKeepsTheProcessDefinition() {
+        TaskEntity task = mock(TaskEntity.class);
+        when(task.getId()).thenReturn("t1");
+        when(task.getAssignee()).thenReturn("u1");
+        when(task.getProcessInstanceId()).thenReturn("p1");
+        when(task.getProcessDefinitionId()).thenReturn("def:1:1");
+
+        listener.onEvent(new ActivitiEntityEventImpl(task, ActivitiEventType.TASK_CREATED));
+
+        ArgumentCaptor<BpmTaskInbox> inbox = ArgumentCaptor.forClass(BpmTaskInbox.class);
+        verify(taskInbox).assign(inbox.capture());
+        assertThat(inbox.getValue().getProcInstId()).isEqualTo("p1");
+        assertThat(inbox.getValue().getProcDefId()).isEqualTo("def:1:1");
+    }
+}
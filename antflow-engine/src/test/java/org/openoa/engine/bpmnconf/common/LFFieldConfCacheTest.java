@@ -0,0 +1,87 @@
+package org.openoa.engine.bpmnconf.common;
+
+import com.google.common.base.Ticker;
+import org.activiti.engine.impl.cfg.multitenant.TenantIdHolder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openoa.base.entity.BpmnConfLfFormdataField;
+import org.openoa.base.exception.AFBizException;
+import org.openoa.base.util.SpringBeanUtils;
+import org.openoa.engine.bpmnconf.service.BpmnConfLfFormdataFieldServiceImpl;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class LFFieldConfCacheTest {
+    private static final Long CONF_ID = 1L;
+
+    private final BpmnConfLfFormdataFieldServiceImpl lfFormdataFieldService = mock(BpmnConfLfFormdataFieldServiceImpl.class);
+    private final LFFieldConfCache cache = new LFFieldConfCache();
+    private final AtomicLong nanos = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "lfFormdataFieldService", lfFormdataFieldService);
+        ReflectionTestUtils.setField(cache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(cache, "expireSeconds", 60L);
+        cache.ticker = new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        };
+        cache.init();
+        ApplicationContext applicationContext = mock(ApplicationContext.class);
+        when(applicationContext.getBean(TenantIdHolder.class)).thenReturn(mock(TenantIdHolder.class));
+        new SpringBeanUtils().setApplicationContext(applicationContext);
+    }
+
+    @Test
+    void fieldConfsAreLoadedOnce() {
+        when(lfFormdataFieldService.qryFormDataFieldMap(CONF_ID)).thenReturn(fields());
+
+        cache.getFieldConfMap(CONF_ID);
+        Map<String, BpmnConfLfFormdataField> fieldConfMap = cache.getFieldConfMap(CONF_ID);
+
+        assertThat(fieldConfMap).containsOnlyKeys("title");
+        assertThat(cache.getConditionFieldNames(CONF_ID)).containsExactly("title");
+        verify(lfFormdataFieldService, times(1)).qryFormDataFieldMap(CONF_ID);
+    }
+
+    @Test
+    void confWithoutFieldsIsNotCached() {
+        when(lfFormdataFieldService.qryFormDataFieldMap(CONF_ID)).thenReturn(Collections.emptyMap(), fields());
+
+        assertThatThrownBy(() -> cache.getFieldConfMap(CONF_ID)).isInstanceOf(AFBizException.class);
+
+        assertThat(cache.getFieldConfMap(CONF_ID)).containsOnlyKeys("title");
+        verify(lfFormdataFieldService, times(2)).qryFormDataFieldMap(CONF_ID);
+    }
+
+    @Test
+    void entriesReadAllTheTimeStillExpire() {
+        when(lfFormdataFieldService.qryFormDataFieldMap(CONF_ID)).thenReturn(fields());
+
+        for (int i = 0; i < 7; i++) {
+            cache.getFieldConfMap(CONF_ID);
+            nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        }
+
+        verify(lfFormdataFieldService, times(2)).qryFormDataFieldMap(CONF_ID);
+    }
+
+    private static Map<String, BpmnConfLfFormdataField> fields() {
+        BpmnConfLfFormdataField field = new BpmnConfLfFormdataField();
+        field.setFieldId("title");
+        field.setIsConditionField(1);
+        return Collections.singletonMap("title", field);
+    }
+}
@@ -0,0 +1,160 @@
+package org.openoa.engine.bpmnconf.common;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.activiti.engine.impl.cfg.multitenant.TenantIdHolder;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.openoa.base.constant.StringConstants;
+import org.openoa.base.constant.enums.MessageSendTypeEnum;
+import org.openoa.base.entity.BpmNoticeOutbox;
+import org.openoa.base.interf.ProcessNoticeAdaptor;
+import org.openoa.base.util.SpringBeanUtils;
+import org.openoa.base.util.ThreadLocalContainer;
+import org.openoa.base.vo.UserMsgVo;
+import org.openoa.engine.bpmnconf.mapper.BpmNoticeOutboxMapper;
+import org.openoa.engine.factory.IAdaptorFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class ProcessNoticeOutboxTest {
+    private final BpmNoticeOutboxMapper outboxMapper = mock(BpmNoticeOutboxMapper.class);
+    private final TenantIdHolder tenantIdHolder = mock(TenantIdHolder.class);
+    private final IAdaptorFactory adaptorFactory = mock(IAdaptorFactory.class);
+    private final ProcessNoticeAdaptor mailAdaptor = mock(ProcessNoticeAdaptor.class);
+    private final ProcessNoticeOutbox outbox = new ProcessNoticeOutbox();
+
+    @BeforeAll
+    static void initTableInfo() {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), BpmNoticeOutbox.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(outbox, "outboxMapper", outboxMapper);
+        ReflectionTestUtils.setField(outbox, "tenantIdHolder", tenantIdHolder);
+        ReflectionTestUtils.setField(outbox, "adaptorFactory", adaptorFactory);
+        ReflectionTestUtils.setField(outbox, "maxAttempts", 5);
+        ReflectionTestUtils.setField(outbox, "retryBackoffSeconds", 30);
+        when(adaptorFactory.getProcessNoticeAdaptor(MessageSendTypeEnum.MAIL)).thenReturn(mailAdaptor);
+        ApplicationContext applicationContext = mock(ApplicationContext.class);
+        when(applicationContext.getBean(TenantIdHolder.class)).thenReturn(tenantIdHolder);
+        new SpringBeanUtils().setApplicationContext(applicationContext);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ThreadLocalContainer.clean();
+    }
+
+    @Test
+    void noticesOfABatchAreHeldBackUnderItsKey() {
+        String holdKey = outbox.holdDispatch();
+        ThreadLocalContainer.set(StringConstants.NOTICE_OUTBOX_HOLD_KEY, holdKey);
+
+        outbox.enqueueNotices(Collections.singletonList(new UserMsgVo()), MessageSendTypeEnum.MAIL);
+
+        assertThat(insertedRows().get(0).getHoldKey()).isEqualTo(holdKey);
+    }
+
+    @Test
+    void noticesOutsideABatchAreNotHeldBack() {
+        outbox.holdDispatch();
+
+        outbox.enqueueNotices(Collections.singletonList(new UserMsgVo()), MessageSendTypeEnum.MAIL);
+
+        assertThat(insertedRows().get(0).getHoldKey()).isNull();
+    }
+
+    @Test
+    void holdsOfBatchesAreReleasedByTheirKey() {
+        String firstHold = outbox.holdDispatch();
+        String secondHold = outbox.holdDispatch();
+
+        outbox.releaseDispatch(firstHold);
+
+        assertThat(firstHold).isNotEqualTo(secondHold);
+        verify(outboxMapper).releaseHold(firstHold);
+        verify(outboxMapper, never()).releaseHold(secondHold);
+    }
+
+    @Test
+    void onlyTheRowsNotSentAreRetried() {
+        List<BpmNoticeOutbox> rows = Arrays.asList(mailRow(1L), mailRow(2L), mailRow(3L));
+        when(mailAdaptor.sendMessagesNow(anyList())).thenReturn(Collections.singleton(1));
+
+        ReflectionTestUtils.invokeMethod(outbox, "deliver", rows);
+
+        ArgumentCaptor<BpmNoticeOutbox> failedCaptor = ArgumentCaptor.forClass(BpmNoticeOutbox.class);
+        verify(outboxMapper).updateById(failedCaptor.capture());
+        assertThat(failedCaptor.getValue().getId()).isEqualTo(2L);
+        assertThat(failedCaptor.getValue().getStatus()).isEqualTo(BpmNoticeOutbox.STATUS_PENDING);
+        assertThat(sentIds()).containsExactlyInAnyOrder(1L, 3L);
+    }
+
+    @Test
+    void allRowsAreRetriedWhenNothingWasSent() {
+        List<BpmNoticeOutbox> rows = Arrays.asList(mailRow(1L), mailRow(2L));
+        when(mailAdaptor.sendMessagesNow(anyList())).thenThrow(new IllegalStateException("smtp server down"));
+
+        ReflectionTestUtils.invokeMethod(outbox, "deliver", rows);
+
+        verify(outboxMapper, times(2)).updateById(any(BpmNoticeOutbox.class));
+        verify(outboxMapper, never()).update(any(), any());
+    }
+
+    @Test
+    void rowsOutOfAttemptsAreMarkedFailed() {
+        BpmNoticeOutbox row = mailRow(1L);
+        row.setAttempts(5);
+        when(mailAdaptor.sendMessagesNow(anyList())).thenReturn(Collections.singleton(0));
+
+        ReflectionTestUtils.invokeMethod(outbox, "deliver", Collections.singletonList(row));
+
+        ArgumentCaptor<BpmNoticeOutbox> failedCaptor = ArgumentCaptor.forClass(BpmNoticeOutbox.class);
+        verify(outboxMapper).updateById(failedCaptor.capture());
+        assertThat(failedCaptor.getValue().getStatus()).isEqualTo(BpmNoticeOutbox.STATUS_FAILED);
+        verify(outboxMapper, never()).update(any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> sentIds() {
+        ArgumentCaptor<Wrapper<BpmNoticeOutbox>> captor = ArgumentCaptor.forClass(Wrapper.class);
+        verify(outboxMapper).update(any(BpmNoticeOutbox.class), captor.capture());
+        AbstractWrapper<BpmNoticeOutbox, ?, ?> wrapper = (AbstractWrapper<BpmNoticeOutbox, ?, ?>) captor.getValue();
+        return new ArrayList<>(wrapper.getParamNameValuePairs().values());
+    }
+
+    private static BpmNoticeOutbox mailRow(Long id) {
+        BpmNoticeOutbox row = new BpmNoticeOutbox();
+        row.setId(id);
+        row.setChannel(MessageSendTypeEnum.MAIL.name());
+        row.setPayload("{\"userId\":\"u" + id + "\"}");
+        row.setAttempts(1);
+        row.setTenantId("");
+        return row;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<BpmNoticeOutbox> insertedRows() {
+        ArgumentCaptor<List<BpmNoticeOutbox>> captor = ArgumentCaptor.forClass(List.class);
+        verify(outboxMapper).insertBatch(captor.capture());
+        return captor.getValue();
+    }
+}
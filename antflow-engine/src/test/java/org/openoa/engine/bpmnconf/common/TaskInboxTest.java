@@ -0,0 +1,122 @@
+package org.openoa.engine.bpmnconf.common;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.activiti.engine.impl.cfg.multitenant.TenantIdHolder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.openoa.base.entity.BpmTaskInbox;
+import org.openoa.base.exception.AFBizException;
+import org.openoa.base.util.SpringBeanUtils;
+import org.openoa.base.vo.TaskMgmtVO;
+import org.openoa.engine.bpmnconf.mapper.BpmTaskInboxMapper;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TaskInboxTest {
+    private final BpmTaskInboxMapper taskInboxMapper = mock(BpmTaskInboxMapper.class);
+    private final TaskInbox taskInbox = new TaskInbox();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(taskInbox, "taskInboxMapper", taskInboxMapper);
+        ReflectionTestUtils.setField(taskInbox, "enabled", true);
+        TenantIdHolder tenantIdHolder = mock(TenantIdHolder.class);
+        ApplicationContext applicationContext = mock(ApplicationContext.class);
+        when(applicationContext.getBean(TenantIdHolder.class)).thenReturn(tenantIdHolder);
+        new SpringBeanUtils().setApplicationContext(applicationContext);
+    }
+
+    @Test
+    void cursorKeepsMilliseconds() {
+        TaskInbox.Cursor cursor = TaskInbox.Cursor.parse(new TaskInbox.Cursor(1700000000123L, 42L).toString());
+
+        assertThat(cursor.getSortTime().getTime()).isEqualTo(1700000000123L);
+        assertThat(cursor.getId()).isEqualTo(42L);
+    }
+
+    @Test
+    void invalidCursorIsRejected() {
+        assertThatThrownBy(() -> TaskInbox.Cursor.parse("bm90LWEtY3Vyc29y")).isInstanceOf(AFBizException.class);
+    }
+
+    @Test
+    void firstPageIsReadWithThePageAndRecordsGetTheirCursor() {
+        Page<TaskMgmtVO> page = new Page<>(3, 10);
+        TaskMgmtVO record = TaskMgmtVO.builder().inboxId(7L).runTime(new Date(1700000000456L)).build();
+        when(taskInboxMapper.inboxList(any(), any(), anyInt(), anyInt(), any(), any())).thenReturn(Collections.singletonList(record));
+
+        List<TaskMgmtVO> records = taskInbox.todoList(page, new TaskMgmtVO());
+
+        verify(taskInboxMapper).inboxList(same(page), eq(""), eq(BpmTaskInbox.KIND_TASK), eq(BpmTaskInbox.STATE_TODO), isNull(), any());
+        TaskInbox.Cursor cursor = TaskInbox.Cursor.parse(records.get(0).getCursor());
+        assertThat(cursor.getSortTime().getTime()).isEqualTo(1700000000456L);
+        assertThat(cursor.getId()).isEqualTo(7L);
+    }
+
+    @Test
+    void pageAfterCursorIsNotOffset() {
+        Page<TaskMgmtVO> page = new Page<>(3, 10);
+        TaskMgmtVO taskMgmtVO = new TaskMgmtVO();
+        taskMgmtVO.setCursor(new TaskInbox.Cursor(1700000000456L, 7L).toString());
+        when(taskInboxMapper.inboxList(any(), any(), anyInt(), anyInt(), any(), any())).thenReturn(Collections.emptyList());
+
+        taskInbox.doneList(page, taskMgmtVO);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Page<TaskMgmtVO>> pageCaptor = ArgumentCaptor.forClass(Page.class);
+        ArgumentCaptor<TaskInbox.Cursor> cursorCaptor = ArgumentCaptor.forClass(TaskInbox.Cursor.class);
+        verify(taskInboxMapper).inboxList(pageCaptor.capture(), any(), eq(BpmTaskInbox.KIND_TASK), eq(BpmTaskInbox.STATE_DONE), cursorCaptor.capture(), same(taskMgmtVO));
+        assertThat(pageCaptor.getValue().offset()).isZero();
+        assertThat(pageCaptor.getValue().getSize()).isEqualTo(10);
+        assertThat(cursorCaptor.getValue().getSortTime().getTime()).isEqualTo(1700000000456L);
+        assertThat(cursorCaptor.getValue().getId()).isEqualTo(7L);
+    }
+
+    @Test
+    void assignedTaskWithoutRowIsAdded() {
+        when(taskInboxMapper.update(any(), any(Wrapper.class))).thenReturn(0);
+
+        taskInbox.assign(taskRow("t1", "u1"));
+
+        verify(taskInboxMapper).insert(any(BpmTaskInbox.class));
+    }
+
+    @Test
+    void assignedTaskWithRowIsUpdated() {
+        when(taskInboxMapper.update(any(), any(Wrapper.class))).thenReturn(1);
+
+        taskInbox.assign(taskRow("t1", "u2"));
+
+        verify(taskInboxMapper, never()).insert(any(BpmTaskInbox.class));
+    }
+
+    @Test
+    void unassignedTaskRowIsRemoved() {
+        taskInbox.assign(taskRow("t1", null));
+
+        verify(taskInboxMapper).delete(any(Wrapper.class));
+        verify(taskInboxMapper, never()).insert(any(BpmTaskInbox.class));
+    }
+
+    private static BpmTaskInbox taskRow(String taskId, String assignee) {
+        BpmTaskInbox inbox = new BpmTaskInbox();
+        inbox.setTaskId(taskId);
+        inbox.setAssignee(assignee);
+        inbox.setKind(BpmTaskInbox.KIND_TASK);
+        inbox.setState(BpmTaskInbox.STATE_TODO);
+        inbox.setProcInstId("p1");
+        inbox.setSortTime(new Date());
+        return inbox;
+    }
+}
@@ -0,0 +1,83 @@
+package org.openoa.engine.bpmnconf.service.biz;
+
+import org.activiti.engine.impl.cfg.multitenant.TenantIdHolder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openoa.base.constant.enums.MessageSendTypeEnum;
+import org.openoa.base.entity.BpmProcessNotice;
+import org.openoa.base.entity.Employee;
+import org.openoa.base.service.AfUserService;
+import org.openoa.base.util.SpringBeanUtils;
+import org.openoa.base.vo.ActivitiBpmMsgVo;
+import org.openoa.engine.bpmnconf.common.MessageRecipientResolver;
+import org.openoa.engine.bpmnconf.common.ProcessNoticeOutbox;
+import org.openoa.engine.bpmnconf.mapper.UserMessageStatusMapper;
+import org.openoa.engine.bpmnconf.service.interf.biz.BpmnConfNoticeTemplateBizService;
+import org.openoa.engine.bpmnconf.service.interf.repository.BpmProcessNoticeService;
+import org.springframework.context.ApplicationContext;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class ActivitiBpmMsgTemplateServiceImplTest {
+    private final AfUserService afUserService = mock(AfUserService.class);
+    private final BpmProcessNoticeService bpmProcessNoticeService = mock(BpmProcessNoticeService.class);
+    private final ProcessNoticeOutbox processNoticeOutbox = mock(ProcessNoticeOutbox.class);
+    private final ActivitiBpmMsgTemplateServiceImpl service = new ActivitiBpmMsgTemplateServiceImpl();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "employeeService", afUserService);
+        ReflectionTestUtils.setField(service, "bpmProcessNoticeService", bpmProcessNoticeService);
+        ReflectionTestUtils.setField(service, "bpmnConfNoticeTemplateBizService", mock(BpmnConfNoticeTemplateBizService.class));
+        MessageRecipientResolver messageRecipientResolver = new MessageRecipientResolver();
+        ReflectionTestUtils.setField(messageRecipientResolver, "afUserService", afUserService);
+        ReflectionTestUtils.setField(messageRecipientResolver, "userMessageStatusMapper", mock(UserMessageStatusMapper.class));
+        ReflectionTestUtils.setField(messageRecipientResolver, "expireSeconds", 30L);
+        ReflectionTestUtils.setField(messageRecipientResolver, "maximumSize", 100L);
+        messageRecipientResolver.init();
+        ApplicationContext applicationContext = mock(ApplicationContext.class);
+        when(applicationContext.getBean(TenantIdHolder.class)).thenReturn(mock(TenantIdHolder.class));
+        when(applicationContext.getBean(ProcessNoticeOutbox.class)).thenReturn(processNoticeOutbox);
+        when(applicationContext.getBean(MessageRecipientResolver.class)).thenReturn(messageRecipientResolver);
+        when(applicationContext.getBean(MessageServiceImpl.class)).thenReturn(mock(MessageServiceImpl.class));
+        new SpringBeanUtils().setApplicationContext(applicationContext);
+        when(afUserService.getEmployeeDetailById("u1")).thenReturn(new Employee());
+        when(afUserService.queryEffectiveEmployeeIds(anyCollection())).thenReturn(Collections.singletonList("u1"));
+        BpmProcessNotice notice = new BpmProcessNotice();
+        notice.setType(MessageSendTypeEnum.MAIL.getCode());
+        when(bpmProcessNoticeService.processNoticeList("F1")).thenReturn(Collections.singletonList(notice));
+    }
+
+    @Test
+    void approvalNoticeIsEnqueuedOnTheCallersThread() {
+        AtomicReference<Thread> enqueuedBy = new AtomicReference<>();
+        doAnswer(invocation -> {
+            enqueuedBy.set(Thread.currentThread());
+            return null;
+        }).when(processNoticeOutbox).enqueueNotices(anyList(), any());
+
+        service.sendBpmApprovalMsg(ActivitiBpmMsgVo.builder().userId("u1").processId("P1").formCode("F1").build());
+
+        assertThat(enqueuedBy.get()).isSameAs(Thread.currentThread());
+        verify(processNoticeOutbox).enqueueNotices(anyList(), eq(MessageSendTypeEnum.MAIL));
+    }
+
+    @Test
+    void noticesAreNotSentAsync() {
+        //the outbox rows have to be written in the transaction of the engine command
+        for (Method method : ActivitiBpmMsgTemplateServiceImpl.class.getDeclaredMethods()) {
+            assertThat(method.isAnnotationPresent(Async.class)).as(method.getName()).isFalse();
+        }
+        assertThat(ActivitiBpmMsgTemplateServiceImpl.class.isAnnotationPresent(Async.class)).isFalse();
+    }
+}
@@ -0,0 +1,42 @@
+package org.openoa.engine.bpmnconf.service.biz;
+
+import org.activiti.engine.TaskService;
+import org.activiti.engine.task.Task;
+import org.activiti.engine.task.TaskQuery;
+import org.junit.jupiter.api.Test;
+import org.openoa.base.interf.BpmBusinessProcessService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class BpmProcessNodeOvertimeBizServiceImplTest {
+    private final TaskService taskService = mock(TaskService.class);
+    private final BpmBusinessProcessService businessProcessService = mock(BpmBusinessProcessService.class);
+    private final BpmProcessNodeOvertimeBizServiceImpl service = new BpmProcessNodeOvertimeBizServiceImpl();
+
+    @Test
+    void processKeysOfAllTasksAreLoadedAtOnce() {
+        ReflectionTestUtils.setField(service, "taskService", taskService);
+        ReflectionTestUtils.setField(service, "businessProcessService", businessProcessService);
+        TaskQuery taskQuery = mock(TaskQuery.class);
+        when(taskService.createTaskQuery()).thenReturn(taskQuery);
+        when(taskQuery.list()).thenReturn(Arrays.asList(task("p1"), task("p2"), task("p1")));
+        when(businessProcessService.getProcessKeys(anyCollection())).thenReturn(Collections.singletonMap("p1", "LEAVE_WMA"));
+
+        service.checkTaskOvertime();
+
+        verify(businessProcessService, times(1)).getProcessKeys(anyCollection());
+        verify(businessProcessService, never()).getProcessKey(anyString());
+    }
+
+    private static Task task(String procInstId) {
+        Task task = mock(Task.class);
+        when(task.getProcessInstanceId()).thenReturn(procInstId);
+        return task;
+    }
+}
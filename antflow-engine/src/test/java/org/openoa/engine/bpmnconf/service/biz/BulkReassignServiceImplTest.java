@@ -0,0 +1,261 @@
+package org.openoa.engine.bpmnconf.service.biz;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.activiti.engine.RuntimeService;
+import org.activiti.engine.impl.cfg.multitenant.TenantIdHolder;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.openoa.base.entity.BpmReassignJob;
+import org.openoa.base.exception.AFBizException;
+import org.openoa.base.service.AfUserService;
+import org.openoa.base.util.SpringBeanUtils;
+import org.openoa.base.vo.BaseIdTranStruVo;
+import org.openoa.base.vo.BulkReassignJobVo;
+import org.openoa.base.vo.ReassignItemVo;
+import org.openoa.engine.bpmnconf.common.ProcessSearchIndex;
+import org.openoa.engine.bpmnconf.common.TaskInbox;
+import org.openoa.engine.bpmnconf.common.UserTaskCounters;
+import org.openoa.engine.bpmnconf.mapper.BpmReassignJobMapper;
+import org.openoa.engine.bpmnconf.service.interf.repository.BpmFlowrunEntrustService;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BulkReassignServiceImplTest {
+    private static final Long JOB_ID = 9L;
+
+    private final BpmReassignJobMapper jobMapper = mock(BpmReassignJobMapper.class);
+    private final AfUserService userService = mock(AfUserService.class);
+    private final RuntimeService runtimeService = mock(RuntimeService.class);
+    private final BpmFlowrunEntrustService flowrunEntrustService = mock(BpmFlowrunEntrustService.class);
+    private final UserTaskCounters userTaskCounters = mock(UserTaskCounters.class);
+    private final TaskInbox taskInbox = mock(TaskInbox.class);
+    private final ProcessSearchIndex processSearchIndex = mock(ProcessSearchIndex.class);
+    private final TenantIdHolder tenantIdHolder = mock(TenantIdHolder.class);
+    private final BulkReassignServiceImpl service = new BulkReassignServiceImpl();
+
+    @BeforeAll
+    static void initTableInfo() {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), BpmReassignJob.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        ReflectionTestUtils.setField(service, "staleSeconds", 300);
+        ReflectionTestUtils.setField(service, "noticeTypes", "MAIL");
+        ReflectionTestUtils.setField(service, "jobMapper", jobMapper);
+        ReflectionTestUtils.setField(service, "userService", userService);
+        ReflectionTestUtils.setField(service, "runtimeService", runtimeService);
+        ReflectionTestUtils.setField(service, "flowrunEntrustService", flowrunEntrustService);
+        ReflectionTestUtils.setField(service, "userTaskCounters", userTaskCounters);
+        ReflectionTestUtils.setField(service, "taskInbox", taskInbox);
+        ReflectionTestUtils.setField(service, "processSearchIndex", processSearchIndex);
+        ReflectionTestUtils.setField(service, "tenantIdHolder", tenantIdHolder);
+        ReflectionTestUtils.setField(service, "transactionManager", mock(PlatformTransactionManager.class));
+        service.init();
+        ApplicationContext applicationContext = mock(ApplicationContext.class);
+        when(applicationContext.getBean(TenantIdHolder.class)).thenReturn(tenantIdHolder);
+        new SpringBeanUtils().setApplicationContext(applicationContext);
+    }
+
+    @Test
+    void jobIsSubmittedPending() {
+        when(userService.queryUserByIds(anyCollection())).thenReturn(Arrays.asList(new BaseIdTranStruVo("u1", "张三"), new BaseIdTranStruVo("u2", "李四")));
+        when(jobMapper.insert(any(BpmReassignJob.class))).thenAnswer(invocation -> {
+            invocation.<BpmReassignJob>getArgument(0).setId(JOB_ID);
+            return 1;
+        });
+        when(jobMapper.selectById(JOB_ID)).thenReturn(job(0, 0));
+
+        service.submit(BulkReassignJobVo.builder().fromUserId("u1").toUserId("u2").build());
+
+        ArgumentCaptor<BpmReassignJob> captor = ArgumentCaptor.forClass(BpmReassignJob.class);
+        verify(jobMapper).insert(captor.capture());
+        assertThat(captor.getValue().getStatus()).isEqualTo(BpmReassignJob.STATUS_PENDING);
+        assertThat(captor.getValue().getFromUserName()).isEqualTo("张三");
+        assertThat(captor.getValue().getToUserName()).isEqualTo("李四");
+        assertThat(captor.getValue().getFormCode()).isEmpty();
+    }
+
+    @Test
+    void jobToTheSameUserIsRejected() {
+        assertThatThrownBy(() -> service.submit(BulkReassignJobVo.builder().fromUserId("u1").toUserId("u1").build()))
+                .isInstanceOf(AFBizException.class);
+        verify(jobMapper, never()).insert(any(BpmReassignJob.class));
+    }
+
+    @Test
+    void onlyFailedJobsAreResumed() {
+        when(jobMapper.update(any(), any())).thenReturn(0);
+
+        assertThatThrownBy(() -> service.resume(JOB_ID)).isInstanceOf(AFBizException.class);
+    }
+
+    @Test
+    void progressReportsThroughput() {
+        BpmReassignJob job = job(30, 10);
+        job.setTotalCount(40);
+        job.setStartTime(new Date(1700000000000L));
+        job.setEndTime(new Date(1700000020000L));
+        when(jobMapper.selectById(JOB_ID)).thenReturn(job);
+
+        BulkReassignJobVo progress = service.progress(JOB_ID);
+
+        assertThat(progress.getProcessedCount()).isEqualTo(40);
+        assertThat(progress.getThroughput()).isEqualTo(2d);
+    }
+
+    @Test
+    void tasksAreReassignedInChunksUntilNoneIsLeft() {
+        claimOnce(job(0, 0));
+        when(jobMapper.countTasks("u1", "")).thenReturn(3);
+        when(jobMapper.countFutureItems("u1", "")).thenReturn(0);
+        when(jobMapper.selectTasks("u1", "", 2)).thenReturn(
+                Arrays.asList(task("t1", "P1"), task("t2", "P1")),
+                Collections.singletonList(task("t3", "P2")),
+                Collections.emptyList());
+        when(jobMapper.selectFutureItems("u1", "", 2)).thenReturn(Collections.emptyList());
+        when(jobMapper.checkpoint(eq(JOB_ID), anyString(), any(), anyInt(), anyInt())).thenReturn(1);
+        when(jobMapper.update(any(), any())).thenReturn(1);
+        when(jobMapper.selectById(JOB_ID)).thenReturn(job(0, 0));
+
+        ReflectionTestUtils.invokeMethod(service, "runAll");
+
+        ArgumentCaptor<BpmReassignJob> totalCaptor = ArgumentCaptor.forClass(BpmReassignJob.class);
+        verify(jobMapper).updateById(totalCaptor.capture());
+        assertThat(totalCaptor.getValue().getTotalCount()).isEqualTo(3);
+        verify(jobMapper).reassignTasks(Arrays.asList("t1", "t2"), "u2", "李四");
+        verify(jobMapper).reassignTasks(Collections.singletonList("t3"), "u2", "李四");
+        verify(jobMapper).checkpoint(eq(JOB_ID), anyString(), any(), eq(2), eq(0));
+        verify(jobMapper).checkpoint(eq(JOB_ID), anyString(), any(), eq(1), eq(0));
+        verify(userTaskCounters).tasksReassigned("u1", "u2", 2);
+        verify(taskInbox).reassign(Arrays.asList("t1", "t2"), "u2");
+        verify(processSearchIndex, times(1)).touch("P1");
+        verify(processSearchIndex, times(1)).touch("P2");
+        verify(tenantIdHolder).setCurrentTenantId("");
+        verify(tenantIdHolder).clearCurrentTenantId();
+        assertThat(updatedStatus()).isEqualTo(BpmReassignJob.STATUS_DONE);
+    }
+
+    @Test
+    void resumedJobGoesOnWithWhatIsLeft() {
+        BpmReassignJob resumed = job(2, 0);
+        resumed.setTotalCount(3);
+        claimOnce(resumed);
+        when(jobMapper.selectTasks("u1", "", 2)).thenReturn(Collections.singletonList(task("t3", "P2")), Collections.emptyList());
+        when(jobMapper.selectFutureItems("u1", "", 2)).thenReturn(Collections.emptyList());
+        when(jobMapper.checkpoint(eq(JOB_ID), anyString(), any(), anyInt(), anyInt())).thenReturn(1);
+        when(jobMapper.update(any(), any())).thenReturn(1);
+        when(jobMapper.selectById(JOB_ID)).thenReturn(job(0, 0));
+
+        ReflectionTestUtils.invokeMethod(service, "runAll");
+
+        //already counted when the job was first run
+        verify(jobMapper, never()).countTasks(anyString(), anyString());
+        verify(jobMapper, never()).updateById(any(BpmReassignJob.class));
+        verify(jobMapper, times(1)).reassignTasks(anyCollection(), anyString(), anyString());
+        verify(jobMapper).reassignTasks(Collections.singletonList("t3"), "u2", "李四");
+    }
+
+    @Test
+    void futureApprovalsAndTheirVariablesAreReassigned() {
+        BpmReassignJob job = job(0, 0);
+        job.setTotalCount(2);
+        claimOnce(job);
+        ReassignItemVo single = futureItem(ReassignItemVo.KIND_SINGLE, "11", "approver1");
+        ReassignItemVo multiplayer = futureItem(ReassignItemVo.KIND_MULTIPLAYER, "12", "approvers2");
+        when(jobMapper.selectTasks("u1", "", 2)).thenReturn(Collections.emptyList());
+        when(jobMapper.selectFutureItems("u1", "", 2)).thenReturn(Arrays.asList(single, multiplayer), Collections.emptyList());
+        when(jobMapper.checkpoint(eq(JOB_ID), anyString(), any(), anyInt(), anyInt())).thenReturn(1);
+        when(jobMapper.update(any(), any())).thenReturn(1);
+        when(jobMapper.selectById(JOB_ID)).thenReturn(job(0, 0));
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("approver1", "u1");
+        variables.put("approvers2", Arrays.asList("u3", "u1"));
+        when(runtimeService.getVariables(eq("proc1"), anyCollection())).thenReturn(variables);
+
+        ReflectionTestUtils.invokeMethod(service, "runAll");
+
+        verify(jobMapper).checkpoint(eq(JOB_ID), anyString(), any(), eq(0), eq(2));
+        verify(jobMapper).reassignFutureItems("t_bpm_variable_single", Collections.singletonList("11"), "u2", "李四*");
+        verify(jobMapper).reassignFutureItems("t_bpm_variable_multiplayer_personnel", Collections.singletonList("12"), "u2", "李四*");
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(runtimeService).setVariables(eq("proc1"), captor.capture());
+        assertThat(captor.getValue()).containsEntry("approver1", "u2").containsEntry("approvers2", Arrays.asList("u3", "u2"));
+    }
+
+    @Test
+    void jobTakenOverByAnotherRunIsNotReassignedTwice() {
+        BpmReassignJob job = job(0, 0);
+        job.setTotalCount(1);
+        claimOnce(job);
+        when(jobMapper.selectTasks("u1", "", 2)).thenReturn(Collections.singletonList(task("t1", "P1")));
+        when(jobMapper.checkpoint(eq(JOB_ID), anyString(), any(), anyInt(), anyInt())).thenReturn(0);
+
+        ReflectionTestUtils.invokeMethod(service, "runAll");
+
+        verify(jobMapper, never()).reassignTasks(anyCollection(), anyString(), anyString());
+        assertThat(updatedStatus()).isEqualTo(BpmReassignJob.STATUS_FAILED);
+        verify(tenantIdHolder).clearCurrentTenantId();
+    }
+
+    private void claimOnce(BpmReassignJob job) {
+        when(jobMapper.claim(anyString(), any(), any())).thenReturn(1, 0);
+        when(jobMapper.selectOne(any())).thenReturn(job);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Integer updatedStatus() {
+        ArgumentCaptor<BpmReassignJob> captor = ArgumentCaptor.forClass(BpmReassignJob.class);
+        verify(jobMapper).update(captor.capture(), any(Wrapper.class));
+        return captor.getValue().getStatus();
+    }
+
+    private static BpmReassignJob job(int taskCount, int futureCount) {
+        BpmReassignJob job = new BpmReassignJob();
+        job.setId(JOB_ID);
+        job.setFromUser("u1");
+        job.setFromUserName("张三");
+        job.setToUser("u2");
+        job.setToUserName("李四");
+        job.setFormCode("");
+        job.setStatus(BpmReassignJob.STATUS_RUNNING);
+        job.setTaskCount(taskCount);
+        job.setFutureCount(futureCount);
+        job.setTenantId("");
+        return job;
+    }
+
+    private static ReassignItemVo task(String taskId, String processNumber) {
+        ReassignItemVo item = new ReassignItemVo();
+        item.setKind(ReassignItemVo.KIND_TASK);
+        item.setId(taskId);
+        item.setProcInstId("proc-" + processNumber);
+        item.setProcessNumber(processNumber);
+        return item;
+    }
+
+    private static ReassignItemVo futureItem(int kind, String id, String varName) {
+        ReassignItemVo item = new ReassignItemVo();
+        item.setKind(kind);
+        item.setId(id);
+        item.setProcInstId("proc1");
+        item.setNodeId("node" + id);
+        item.setVarName(varName);
+        return item;
+    }
+}
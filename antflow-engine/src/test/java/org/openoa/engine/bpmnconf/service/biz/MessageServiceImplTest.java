@@ -0,0 +1,49 @@
+package org.openoa.engine.bpmnconf.service.biz;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openoa.base.util.MailUtils;
+import org.openoa.base.vo.MailInfo;
+import org.openoa.engine.bpmnconf.common.MessageRecipientResolver;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class MessageServiceImplTest {
+    private final MessageRecipientResolver messageRecipientResolver = mock(MessageRecipientResolver.class);
+    private final MailUtils mailUtils = mock(MailUtils.class);
+    private final MessageServiceImpl messageService = new MessageServiceImpl();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(messageService, "messageRecipientResolver", messageRecipientResolver);
+        ReflectionTestUtils.setField(messageService, "mailUtils", mailUtils);
+        when(messageRecipientResolver.resolve(anyCollection())).thenReturn(Collections.emptyMap());
+    }
+
+    @Test
+    void mailsNotSentAreReportedByIndex() {
+        when(mailUtils.sendMailEach(anyList())).thenReturn(Collections.singleton(1));
+
+        Set<Integer> failedIndexes = messageService.sendMailsNow(Arrays.asList("u1", "u2", "u1"),
+                Arrays.asList(new MailInfo(), new MailInfo(), new MailInfo()));
+
+        assertThat(failedIndexes).containsExactly(1);
+        //two mails to the same user are both sent
+        verify(mailUtils).sendMailEach(argThat(mails -> mails.size() == 3));
+    }
+
+    @Test
+    void batchSendersAreAsync() throws NoSuchMethodException {
+        assertThat(MessageServiceImpl.class.getMethod("sendMailBatch", Map.class).isAnnotationPresent(Async.class)).isTrue();
+        assertThat(MessageServiceImpl.class.getMethod("sendSmsBatch", Map.class).isAnnotationPresent(Async.class)).isTrue();
+        assertThat(MessageServiceImpl.class.getMethod("sendAppPushBatch", Map.class).isAnnotationPresent(Async.class)).isTrue();
+        assertThat(MessageServiceImpl.class.getMethod("sendMailsNow", List.class, List.class).isAnnotationPresent(Async.class)).isFalse();
+    }
+}
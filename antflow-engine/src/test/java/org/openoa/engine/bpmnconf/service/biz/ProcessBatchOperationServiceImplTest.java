@@ -0,0 +1,182 @@
+package org.openoa.engine.bpmnconf.service.biz;
+
+import org.activiti.engine.impl.cfg.multitenant.TenantIdHolder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.openoa.base.constant.StringConstants;
+import org.openoa.base.constant.enums.MessageSendTypeEnum;
+import org.openoa.base.entity.BpmNoticeOutbox;
+import org.openoa.base.entity.BpmProcessNotice;
+import org.openoa.base.entity.Employee;
+import org.openoa.base.exception.AFBizException;
+import org.openoa.base.service.AfUserService;
+import org.openoa.base.util.SpringBeanUtils;
+import org.openoa.base.util.ThreadLocalContainer;
+import org.openoa.base.vo.ActivitiBpmMsgVo;
+import org.openoa.base.vo.BatchOperationResultVo;
+import org.openoa.engine.bpmnconf.common.MessageRecipientResolver;
+import org.openoa.engine.bpmnconf.common.ProcessNoticeOutbox;
+import org.openoa.engine.bpmnconf.mapper.BpmNoticeOutboxMapper;
+import org.openoa.engine.bpmnconf.mapper.UserMessageStatusMapper;
+import org.openoa.engine.bpmnconf.service.interf.biz.BpmnConfBizService;
+import org.openoa.engine.bpmnconf.service.interf.biz.BpmnConfNoticeTemplateBizService;
+import org.openoa.engine.bpmnconf.service.interf.repository.BpmProcessNoticeService;
+import org.openoa.engine.conf.async.AsyncTaskDecorator;
+import org.openoa.engine.factory.ButtonPreOperationService;
+import org.slf4j.MDC;
+import org.springframework.context.ApplicationContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ProcessBatchOperationServiceImplTest {
+    private final ButtonPreOperationService buttonPreOperationService = mock(ButtonPreOperationService.class);
+    private final BpmnConfBizService bpmnConfBizService = mock(BpmnConfBizService.class);
+    private final ProcessNoticeOutbox processNoticeOutbox = mock(ProcessNoticeOutbox.class);
+    private final TenantIdHolder tenantIdHolder = mock(TenantIdHolder.class);
+    private final ApplicationContext applicationContext = mock(ApplicationContext.class);
+    private final ProcessBatchOperationServiceImpl service = new ProcessBatchOperationServiceImpl();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "parallelism", 2);
+        ReflectionTestUtils.setField(service, "maxItems", 10);
+        ReflectionTestUtils.setField(service, "buttonPreOperationService", buttonPreOperationService);
+        ReflectionTestUtils.setField(service, "bpmnConfBizService", bpmnConfBizService);
+        ReflectionTestUtils.setField(service, "processNoticeOutbox", processNoticeOutbox);
+        ReflectionTestUtils.setField(service, "tenantIdHolder", tenantIdHolder);
+        service.init();
+        when(applicationContext.getBean(TenantIdHolder.class)).thenReturn(tenantIdHolder);
+        new SpringBeanUtils().setApplicationContext(applicationContext);
+        when(bpmnConfBizService.getBpmnConfByFormCodeBatch(any())).thenReturn(Collections.emptyList());
+        when(processNoticeOutbox.holdDispatch()).thenReturn("batch-1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+        RequestContextHolder.resetRequestAttributes();
+        MDC.clear();
+        ThreadLocalContainer.clean();
+    }
+
+    @Test
+    void operationsSeeTheRequestTheLogContextAndTheHoldKey() throws Exception {
+        RequestAttributes requestAttributes = mock(RequestAttributes.class);
+        RequestContextHolder.setRequestAttributes(requestAttributes);
+        MDC.put("traceId", "trace-1");
+        List<Object[]> seen = Collections.synchronizedList(new ArrayList<>());
+        when(buttonPreOperationService.buttonsPreOperation(anyString(), any())).thenAnswer(invocation -> {
+            seen.add(new Object[]{RequestContextHolder.getRequestAttributes(), MDC.get("traceId"),
+                    ThreadLocalContainer.get(StringConstants.NOTICE_OUTBOX_HOLD_KEY)});
+            return null;
+        });
+
+        BatchOperationResultVo result = service.buttonsOperation("[{\"formCode\":\"F1\",\"processNumber\":\"P1\"},{\"formCode\":\"F1\",\"processNumber\":\"P2\"}]");
+
+        assertThat(result.getSucceeded()).isEqualTo(2);
+        assertThat(seen).hasSize(2);
+        for (Object[] context : seen) {
+            assertThat(context[0]).isSameAs(requestAttributes);
+            assertThat(context[1]).isEqualTo("trace-1");
+            assertThat(context[2]).isEqualTo("batch-1");
+        }
+        verify(processNoticeOutbox).releaseDispatch("batch-1");
+    }
+
+    @Test
+    void workersAreResetAfterTheBatch() throws Exception {
+        RequestContextHolder.setRequestAttributes(mock(RequestAttributes.class));
+        MDC.put("traceId", "trace-1");
+
+        service.buttonsOperation("[{\"formCode\":\"F1\",\"processNumber\":\"P1\"},{\"formCode\":\"F1\",\"processNumber\":\"P2\"}]");
+
+        ExecutorService executor = (ExecutorService) ReflectionTestUtils.getField(service, "executor");
+        for (int i = 0; i < 2; i++) {
+            Object[] context = executor.submit(() -> new Object[]{RequestContextHolder.getRequestAttributes(), MDC.get("traceId"),
+                    ThreadLocalContainer.get(StringConstants.NOTICE_OUTBOX_HOLD_KEY)}).get();
+            assertThat(context).containsOnlyNulls();
+        }
+    }
+
+    @Test
+    void holdIsReleasedWhenAnOperationFails() {
+        when(buttonPreOperationService.buttonsPreOperation(anyString(), any())).thenThrow(new AFBizException("failed"));
+
+        BatchOperationResultVo result = service.buttonsOperation("[{\"formCode\":\"F1\",\"processNumber\":\"P1\"}]");
+
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getItems().get(0).getMessage()).isEqualTo("failed");
+        verify(processNoticeOutbox).releaseDispatch("batch-1");
+    }
+
+    @Test
+    void approvalNoticesSentAsyncByAnOperationAreHeld() throws Exception {
+        RequestContextHolder.setRequestAttributes(mock(RequestAttributes.class));
+        BpmNoticeOutboxMapper outboxMapper = mock(BpmNoticeOutboxMapper.class);
+        ActivitiBpmMsgTemplateServiceImpl msgTemplateService = msgTemplateService(outboxMapper);
+        //the executor of the @Async methods,see AsyncConfiguration
+        ThreadPoolTaskExecutor asyncExecutor = new ThreadPoolTaskExecutor();
+        asyncExecutor.setTaskDecorator(new AsyncTaskDecorator());
+        asyncExecutor.initialize();
+        when(buttonPreOperationService.buttonsPreOperation(anyString(), any())).thenAnswer(invocation -> {
+            asyncExecutor.submit(() -> msgTemplateService.sendBpmApprovalMsg(ActivitiBpmMsgVo.builder()
+                    .userId("u1").processId("P1").formCode("F1").build())).get();
+            return null;
+        });
+
+        BatchOperationResultVo result;
+        try {
+            result = service.buttonsOperation("[{\"formCode\":\"F1\",\"processNumber\":\"P1\"}]");
+        } finally {
+            asyncExecutor.shutdown();
+        }
+
+        assertThat(result.getSucceeded()).isEqualTo(1);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BpmNoticeOutbox>> rows = ArgumentCaptor.forClass(List.class);
+        verify(outboxMapper).insertBatch(rows.capture());
+        assertThat(rows.getValue()).extracting(BpmNoticeOutbox::getHoldKey).containsExactly("batch-1");
+    }
+
+    /**
+     * real notice template service writing to a real outbox,only the persistence is mocked
+     */
+    private ActivitiBpmMsgTemplateServiceImpl msgTemplateService(BpmNoticeOutboxMapper outboxMapper) {
+        ProcessNoticeOutbox outbox = new ProcessNoticeOutbox();
+        ReflectionTestUtils.setField(outbox, "outboxMapper", outboxMapper);
+        AfUserService afUserService = mock(AfUserService.class);
+        when(afUserService.getEmployeeDetailById("u1")).thenReturn(new Employee());
+        when(afUserService.queryEffectiveEmployeeIds(anyCollection())).thenReturn(Collections.singletonList("u1"));
+        MessageRecipientResolver messageRecipientResolver = new MessageRecipientResolver();
+        ReflectionTestUtils.setField(messageRecipientResolver, "afUserService", afUserService);
+        ReflectionTestUtils.setField(messageRecipientResolver, "userMessageStatusMapper", mock(UserMessageStatusMapper.class));
+        ReflectionTestUtils.setField(messageRecipientResolver, "expireSeconds", 30L);
+        ReflectionTestUtils.setField(messageRecipientResolver, "maximumSize", 100L);
+        messageRecipientResolver.init();
+        when(applicationContext.getBean(ProcessNoticeOutbox.class)).thenReturn(outbox);
+        when(applicationContext.getBean(MessageRecipientResolver.class)).thenReturn(messageRecipientResolver);
+        when(applicationContext.getBean(MessageServiceImpl.class)).thenReturn(mock(MessageServiceImpl.class));
+        BpmProcessNoticeService bpmProcessNoticeService = mock(BpmProcessNoticeService.class);
+        BpmProcessNotice notice = new BpmProcessNotice();
+        notice.setType(MessageSendTypeEnum.MAIL.getCode());
+        when(bpmProcessNoticeService.processNoticeList("F1")).thenReturn(Collections.singletonList(notice));
+        ActivitiBpmMsgTemplateServiceImpl msgTemplateService = new ActivitiBpmMsgTemplateServiceImpl();
+        ReflectionTestUtils.setField(msgTemplateService, "employeeService", afUserService);
+        ReflectionTestUtils.setField(msgTemplateService, "bpmProcessNoticeService", bpmProcessNoticeService);
+        ReflectionTestUtils.setField(msgTemplateService, "bpmnConfNoticeTemplateBizService", mock(BpmnConfNoticeTemplateBizService.class));
+        return msgTemplateService;
+    }
+}
@@ -0,0 +1,208 @@
+package org.openoa.engine.conf.mybatis.interceptor;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openoa.base.exception.AFBizException;
+import org.openoa.engine.conf.mybatis.LFShardRings;
+import org.openoa.engine.conf.mybatis.LFShardTopologyManager;
+import org.openoa.engine.lowflow.entity.LFMain;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LFConsistentHashingRoutingSqlInterceptorTest {
+    private static final String MAPPER = "org.openoa.engine.bpmnconf.mapper.LFMainMapper.";
+
+    private final Configuration configuration = new Configuration();
+    private final LFShardTopologyManager topologyManager = mock(LFShardTopologyManager.class);
+    private final Executor executor = mock(Executor.class);
+    private final LFConsistentHashingRoutingSqlInterceptor interceptor = new LFConsistentHashingRoutingSqlInterceptor();
+    /**
+     * sql and parameter count of the statements run by the executor
+     */
+    private final List<BoundSql> executedSqls = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(interceptor, "topologyManager", topologyManager);
+        when(topologyManager.getCurrentRings()).thenReturn(new LFShardRings(2, 2, 5));
+        when(topologyManager.getPreviousRings()).thenReturn(new LFShardRings(1, 1, 5));
+    }
+
+    @Test
+    void rowsOfBothTablesAreDedupedSortedAndLimitedAgain() throws Throwable {
+        LFMain migrating = main(3L, 50);
+        LFMain migratingCopy = main(3L, 50);
+        returnRows(Arrays.asList(main(1L, 10), main(2L, 30), migrating), Arrays.asList(migratingCopy, main(4L, 40), main(5L, 20)));
+
+        List<LFMain> firstPage = query("SELECT id, create_time FROM t_lf_main WHERE form_code = ? ORDER BY create_time DESC LIMIT ?, ?", 0, 3);
+        assertThat(firstPage).extracting(LFMain::getId).containsExactly(3L, 4L, 2L);
+        //the new table is authoritative for a row found in both
+        assertThat(firstPage.get(0)).isSameAs(migratingCopy);
+
+        List<LFMain> secondPage = query("SELECT id, create_time FROM t_lf_main WHERE form_code = ? ORDER BY create_time DESC LIMIT ?, ?", 3, 3);
+        assertThat(secondPage).extracting(LFMain::getId).containsExactly(5L, 1L);
+    }
+
+    @Test
+    void limitIsNotPushedDownWhileMigrating() throws Throwable {
+        returnRows(Collections.emptyList(), Collections.emptyList());
+
+        query("SELECT id, create_time FROM t_lf_main WHERE form_code = ? ORDER BY create_time DESC LIMIT ?, ?", 0, 10);
+
+        assertThat(executedSqls).hasSize(2);
+        //the old table is read first
+        assertThat(executedSqls.get(0).getSql()).contains("FROM t_lf_main WHERE");
+        assertThat(executedSqls.get(1).getSql()).contains("FROM t_lf_main_");
+        for (BoundSql executedSql : executedSqls) {
+            assertThat(executedSql.getSql()).doesNotContain("LIMIT").contains("ORDER BY create_time DESC");
+            assertThat(executedSql.getParameterMappings()).hasSize(1);
+        }
+    }
+
+    @Test
+    void limitIsKeptWhenRoutedToOneTable() throws Throwable {
+        when(topologyManager.getPreviousRings()).thenReturn(null);
+        returnRows(Collections.emptyList(), Collections.emptyList());
+
+        query("SELECT id, create_time FROM t_lf_main WHERE form_code = ? ORDER BY create_time DESC LIMIT ?, ?", 0, 10);
+
+        assertThat(executedSqls).hasSize(1);
+        assertThat(executedSqls.get(0).getSql()).contains("FROM t_lf_main_").endsWith("ORDER BY create_time DESC LIMIT ?, ?");
+        assertThat(executedSqls.get(0).getParameterMappings()).hasSize(3);
+    }
+
+    @Test
+    void countsOfBothTablesAreAdded() throws Throwable {
+        returnRows(Collections.singletonList(5L), Collections.singletonList(7L));
+
+        List<Long> count = query("SELECT COUNT(*) FROM t_lf_main WHERE form_code = ?");
+
+        assertThat(count).containsExactly(12L);
+    }
+
+    @Test
+    void maxOfBothTablesIsTheGreaterOne() throws Throwable {
+        returnRows(Collections.singletonList(9L), Collections.singletonList(4L));
+
+        List<Long> max = query("SELECT MAX(id) FROM t_lf_main WHERE form_code = ?");
+
+        assertThat(max).containsExactly(9L);
+    }
+
+    @Test
+    void rowsOfNotAggregateQueriesAreNotAdded() throws Throwable {
+        returnRows(Collections.singletonList(main(1L, 10)), Collections.singletonList(main(2L, 20)));
+
+        List<LFMain> rows = query("SELECT id, create_time FROM t_lf_main WHERE form_code = ?");
+
+        assertThat(rows).extracting(LFMain::getId).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void groupedAggregatesAreRejectedWhileMigrating() {
+        returnRows(Collections.emptyList(), Collections.emptyList());
+
+        assertThatThrownBy(() -> query("SELECT form_code, COUNT(*) FROM t_lf_main WHERE form_code = ? GROUP BY form_code"))
+                .isInstanceOf(AFBizException.class);
+    }
+
+    @Test
+    void affectedRowsOfBothTablesAreAdded() throws Throwable {
+        when(executor.update(any(), any())).thenReturn(1, 2);
+
+        assertThat(update()).isEqualTo(3);
+    }
+
+    @Test
+    void batchPlaceholderIsNotAdded() throws Throwable {
+        when(executor.update(any(), any())).thenReturn(BatchExecutor.BATCH_UPDATE_RETURN_VALUE);
+
+        assertThat(update()).isEqualTo(BatchExecutor.BATCH_UPDATE_RETURN_VALUE);
+    }
+
+    @Test
+    void selectShapeResolvesLimitParameters() {
+        LFConsistentHashingRoutingSqlInterceptor.SelectShape shape = LFConsistentHashingRoutingSqlInterceptor
+                .parseSelectShape("SELECT id FROM t_lf_main WHERE form_code = ? ORDER BY id LIMIT ? OFFSET ?");
+
+        assertThat(shape.aggregate).isNull();
+        assertThat(shape.unmergeable).isFalse();
+        assertThat(shape.limitParameters).isEqualTo(2);
+        assertThat(shape.rowCountPosition).isEqualTo(0);
+        assertThat(shape.offsetPosition).isEqualTo(1);
+    }
+
+    private void returnRows(List<?> previousRows, List<?> rows) {
+        try {
+            when(executor.query(any(), any(), any(), any())).thenAnswer(invocation -> {
+                MappedStatement ms = invocation.getArgument(0);
+                BoundSql boundSql = ms.getBoundSql(invocation.getArgument(1));
+                executedSqls.add(boundSql);
+                return boundSql.getSql().contains("t_lf_main_") ? rows : previousRows;
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> query(String sql, Object... limits) throws Throwable {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("formCode", "F1");
+        List<String> properties = new ArrayList<>();
+        properties.add("formCode");
+        for (int i = 0; i < limits.length; i++) {
+            parameters.put("limit" + i, limits[i]);
+            properties.add("limit" + i);
+        }
+        MappedStatement ms = statement(sql, properties, SqlCommandType.SELECT);
+        Invocation invocation = new Invocation(executor,
+                Executor.class.getMethod("query", MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class),
+                new Object[]{ms, parameters, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER});
+        return (List<T>) interceptor.intercept(invocation);
+    }
+
+    private Object update() throws Throwable {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("formCode", "F1");
+        MappedStatement ms = statement("UPDATE t_lf_main SET is_del = 1 WHERE form_code = ?", Collections.singletonList("formCode"), SqlCommandType.UPDATE);
+        Invocation invocation = new Invocation(executor,
+                Executor.class.getMethod("update", MappedStatement.class, Object.class),
+                new Object[]{ms, parameters});
+        return interceptor.intercept(invocation);
+    }
+
+    private MappedStatement statement(String sql, List<String> properties, SqlCommandType commandType) {
+        List<ParameterMapping> parameterMappings = properties.stream()
+                .map(property -> new ParameterMapping.Builder(configuration, property, Object.class).build())
+                .collect(Collectors.toList());
+        return new MappedStatement.Builder(configuration, MAPPER + commandType.name().toLowerCase(), new StaticSqlSource(configuration, sql, parameterMappings), commandType)
+                .build();
+    }
+
+    private static LFMain main(Long id, long createTime) {
+        LFMain main = new LFMain();
+        main.setId(id);
+        main.setCreateTime(new Date(createTime));
+        return main;
+    }
+}
@@ -0,0 +1,52 @@
+package org.openoa.engine.factory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openoa.base.constant.enums.CallbackTypeEnum;
+import org.openoa.base.vo.CallbackMetricsVo;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ThirdPartyCallbackTransportTest {
+    private final ThirdPartyCallbackTransport transport = new ThirdPartyCallbackTransport();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(transport, "maxConnections", 10);
+        ReflectionTestUtils.setField(transport, "maxConnectionsPerRoute", 10);
+        ReflectionTestUtils.setField(transport, "connectTimeoutMillis", 1000);
+        ReflectionTestUtils.setField(transport, "socketTimeoutMillis", 1000);
+        ReflectionTestUtils.setField(transport, "connectionRequestTimeoutMillis", 1000);
+        ReflectionTestUtils.setField(transport, "threads", 1);
+        ReflectionTestUtils.setField(transport, "queueCapacity", 1);
+        //no callback can be in flight,so every callback is rejected without a request
+        ReflectionTestUtils.setField(transport, "maxInFlightPerParty", 0);
+        transport.init();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        transport.destroy();
+    }
+
+    @Test
+    void snapshotHasTheCallbackTypesSent() {
+        transport.dispatch(CallbackTypeEnum.PROC_END_CALL_BACK, "party", "http://localhost/callback",
+                Collections.emptyMap(), "{}", response -> {
+                });
+
+        List<CallbackMetricsVo> snapshot = transport.getMetricsSnapshot();
+
+        assertThat(snapshot).hasSize(1);
+        assertThat(snapshot.get(0).getCallbackType()).isEqualTo(CallbackTypeEnum.PROC_END_CALL_BACK.getMark());
+        assertThat(snapshot.get(0).getRequests()).isEqualTo(1);
+        assertThat(snapshot.get(0).getRejected()).isEqualTo(1);
+        assertThat(snapshot.get(0).getSuccesses()).isZero();
+    }
+}
@@ -0,0 +1,245 @@
+package org.openoa.engine.lowflow.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.openoa.base.constant.enums.LFFieldTypeEnum;
+import org.openoa.base.constant.enums.ButtonTypeEnum;
+import org.openoa.base.entity.BpmnConfLfFormdata;
+import org.openoa.base.entity.BpmnConfLfFormdataField;
+import org.openoa.base.util.DateUtil;
+import org.openoa.base.vo.BpmnConfVo;
+import org.openoa.engine.bpmnconf.common.LFFieldConfCache;
+import org.openoa.engine.bpmnconf.service.impl.BpmnConfLfFormdataServiceImpl;
+import org.openoa.engine.bpmnconf.service.impl.LFMainFieldServiceImpl;
+import org.openoa.engine.bpmnconf.service.impl.LFMainServiceImpl;
+import org.openoa.engine.lowflow.entity.LFMain;
+import org.openoa.engine.lowflow.entity.LFMainField;
+import org.openoa.engine.lowflow.vo.UDLFApplyVo;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class LowFlowApprovalServiceTest {
+    private static final Long MAIN_ID = 1L;
+    private static final String FORM_CODE = "LF_TEST";
+    private static final Long CONF_ID = 2L;
+
+    private final LFMainFieldServiceImpl mainFieldService = mock(LFMainFieldServiceImpl.class);
+    private final LFMainServiceImpl mainService = mock(LFMainServiceImpl.class);
+    private final LFFieldConfCache fieldConfCache = mock(LFFieldConfCache.class);
+    private final BpmnConfLfFormdataServiceImpl lfFormdataService = mock(BpmnConfLfFormdataServiceImpl.class);
+    private final LFFormDocumentStorage documentStorage = new LFFormDocumentStorage();
+    private final LowFlowApprovalService service = new LowFlowApprovalService();
+    private final Map<String, BpmnConfLfFormdataField> fieldConfMap = new HashMap<>();
+
+    @BeforeAll
+    static void initTableInfo() {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), LFMainField.class);
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), LFMain.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "mainFieldService", mainFieldService);
+        ReflectionTestUtils.setField(service, "mainService", mainService);
+        ReflectionTestUtils.setField(service, "fieldConfCache", fieldConfCache);
+        ReflectionTestUtils.setField(service, "lfFormdataService", lfFormdataService);
+        ReflectionTestUtils.setField(service, "documentStorage", documentStorage);
+        ReflectionTestUtils.setField(documentStorage, "mainService", mainService);
+        ReflectionTestUtils.setField(documentStorage, "mainFieldService", mainFieldService);
+        ReflectionTestUtils.setField(documentStorage, "storageMode", LFFormDocumentStorage.STORAGE_MODE_FIELD);
+        BpmnConfLfFormdata formdata = new BpmnConfLfFormdata();
+        formdata.setFormdata("{}");
+        when(lfFormdataService.list(any(Wrapper.class))).thenReturn(Collections.singletonList(formdata));
+        when(fieldConfCache.getFieldConfMap(CONF_ID)).thenReturn(fieldConfMap);
+        fieldConfMap.put("title", fieldConf("title", LFFieldTypeEnum.STRING));
+        fieldConfMap.put("amount", fieldConf("amount", LFFieldTypeEnum.NUMBER));
+        fieldConfMap.put("day", fieldConf("day", LFFieldTypeEnum.DATE_TIME));
+        fieldConfMap.put("remark", fieldConf("remark", LFFieldTypeEnum.TEXT));
+    }
+
+    @Test
+    void unchangedTypedFieldsAreNotWritten() {
+        List<LFMainField> storedFields = Arrays.asList(
+                stored("title", field -> field.setFieldValue("trip")),
+                stored("amount", field -> field.setFieldValueNumber(12.5)),
+                //datetime columns come back from the driver as timestamps
+                stored("day", field -> field.setFieldValueDt(new Timestamp(DateUtil.parseStandard("2024-01-02 10:00:00").getTime()))),
+                stored("remark", field -> field.setFieldValueText("long text")));
+        Map<String, Object> submitted = new HashMap<>();
+        submitted.put("title", "trip");
+        submitted.put("amount", "12.5");
+        submitted.put("day", "2024-01-02 10:00:00");
+        submitted.put("remark", "long text");
+
+        int writtenRows = flush(submitted, storedFields);
+
+        assertThat(writtenRows).isZero();
+        verify(mainFieldService, never()).updateBatchById(anyCollection());
+        verify(mainFieldService, never()).update(any(Wrapper.class));
+    }
+
+    @Test
+    void changedNumberIsWrittenToNumberColumn() {
+        LFMainField changedField = flushOneChange("amount", field -> field.setFieldValueNumber(12.5), 13);
+
+        assertThat(changedField.getFieldValueNumber()).isEqualTo(13.0);
+        assertThat(changedField.getFieldValue()).isNull();
+    }
+
+    @Test
+    void changedDateIsWrittenToDateColumn() {
+        LFMainField changedField = flushOneChange("day", field -> field.setFieldValueDt(DateUtil.parseStandard("2024-01-02 10:00:00")), "2024-01-03 10:00:00");
+
+        assertThat(changedField.getFieldValueDt()).isEqualTo(DateUtil.parseStandard("2024-01-03 10:00:00"));
+        assertThat(changedField.getFieldValue()).isNull();
+    }
+
+    @Test
+    void changedTextIsWrittenToTextColumn() {
+        LFMainField changedField = flushOneChange("remark", field -> field.setFieldValueText("long text"), "longer text");
+
+        assertThat(changedField.getFieldValueText()).isEqualTo("longer text");
+        assertThat(changedField.getFieldValue()).isNull();
+    }
+
+    @Test
+    void changedStringIsWrittenToValueColumn() {
+        LFMainField changedField = flushOneChange("title", field -> field.setFieldValue("trip"), "meeting");
+
+        assertThat(changedField.getFieldValue()).isEqualTo("meeting");
+    }
+
+    @Test
+    void clearedNumberIsSetToNull() {
+        Map<String, Object> submitted = new HashMap<>();
+        submitted.put("amount", "");
+
+        int writtenRows = flush(submitted, Collections.singletonList(stored("amount", field -> field.setFieldValueNumber(12.5))));
+
+        assertThat(writtenRows).isEqualTo(1);
+        verify(mainFieldService, never()).updateBatchById(anyCollection());
+        verify(mainFieldService).update(any(Wrapper.class));
+    }
+
+    @Test
+    void maskedAndMissingFieldsAreLeftUntouched() {
+        Map<String, Object> submitted = new HashMap<>();
+        submitted.put("title", LFFormDocumentStorage.MASKED_VALUE);
+
+        int writtenRows = flush(submitted, Arrays.asList(stored("title", field -> field.setFieldValue("trip")),
+                stored("amount", field -> field.setFieldValueNumber(12.5))));
+
+        assertThat(writtenRows).isZero();
+        verify(mainFieldService, never()).updateBatchById(anyCollection());
+    }
+
+    @Test
+    void documentFormIsReadFromItsDocumentAfterTheModeIsSwitchedOff() {
+        LFMain documentMain = main(LFFormDocumentStorage.ROW_STORAGE_DOCUMENT, null);
+        when(mainService.getById(any())).thenReturn(documentMain);
+        when(mainService.getOne(any(Wrapper.class))).thenReturn(main(LFFormDocumentStorage.ROW_STORAGE_DOCUMENT, "{\"title\":\"trip\"}"));
+
+        UDLFApplyVo vo = service.queryData(applyVo());
+
+        assertThat(vo.getLfFields()).containsEntry("title", "trip");
+        verify(mainFieldService, never()).list(any(Wrapper.class));
+    }
+
+    @Test
+    void fieldFormIsReadFromItsFieldRowsAfterTheModeIsSwitchedOn() {
+        ReflectionTestUtils.setField(documentStorage, "storageMode", LFFormDocumentStorage.STORAGE_MODE_DOCUMENT);
+        when(mainService.getOne(any(Wrapper.class))).thenReturn(main(LFFormDocumentStorage.ROW_STORAGE_FIELD, null));
+        when(mainFieldService.list(any(Wrapper.class))).thenReturn(Collections.singletonList(stored("title", field -> field.setFieldValue("trip"))));
+
+        UDLFApplyVo vo = service.queryData(applyVo());
+
+        assertThat(vo.getLfFields()).containsEntry("title", "trip");
+    }
+
+    @Test
+    void documentFormIsMergedIntoItsDocumentAfterTheModeIsSwitchedOff() {
+        when(mainService.getById(any())).thenReturn(main(LFFormDocumentStorage.ROW_STORAGE_DOCUMENT, null));
+        when(mainService.getOne(any(Wrapper.class))).thenReturn(main(LFFormDocumentStorage.ROW_STORAGE_DOCUMENT, "{\"title\":\"trip\"}"));
+        UDLFApplyVo vo = applyVo();
+        vo.setOperationType(ButtonTypeEnum.BUTTON_TYPE_AGREE.getCode());
+        vo.setFormCode(FORM_CODE);
+        BpmnConfVo bpmnConfVo = new BpmnConfVo();
+        bpmnConfVo.setId(CONF_ID);
+        vo.setBpmnConfVo(bpmnConfVo);
+        vo.setLfFields(Collections.singletonMap("title", "meeting"));
+
+        service.consentData(vo);
+
+        ArgumentCaptor<LFMain> captor = ArgumentCaptor.forClass(LFMain.class);
+        verify(mainService).updateById(captor.capture());
+        assertThat(captor.getValue().getFormData()).contains("meeting");
+        verify(mainFieldService, never()).list(any(Wrapper.class));
+    }
+
+    private static UDLFApplyVo applyVo() {
+        UDLFApplyVo vo = new UDLFApplyVo();
+        vo.setBusinessId(MAIN_ID.toString());
+        return vo;
+    }
+
+    private static LFMain main(int storageMode, String formData) {
+        LFMain main = new LFMain();
+        main.setId(MAIN_ID);
+        main.setConfId(CONF_ID);
+        main.setFormCode(FORM_CODE);
+        main.setStorageMode(storageMode);
+        main.setFormData(formData);
+        return main;
+    }
+
+    @SuppressWarnings("unchecked")
+    private LFMainField flushOneChange(String fieldId, java.util.function.Consumer<LFMainField> storedValue, Object submittedValue) {
+        Map<String, Object> submitted = new HashMap<>();
+        submitted.put(fieldId, submittedValue);
+
+        int writtenRows = flush(submitted, Collections.singletonList(stored(fieldId, storedValue)));
+
+        assertThat(writtenRows).isEqualTo(1);
+        ArgumentCaptor<Collection<LFMainField>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(mainFieldService).updateBatchById(captor.capture());
+        assertThat(captor.getValue()).hasSize(1);
+        return captor.getValue().iterator().next();
+    }
+
+    private int flush(Map<String, Object> submitted, List<LFMainField> storedFields) {
+        Integer writtenRows = ReflectionTestUtils.invokeMethod(service, "flushChangedFields", MAIN_ID, FORM_CODE, submitted, storedFields, fieldConfMap);
+        return writtenRows;
+    }
+
+    private static LFMainField stored(String fieldId, java.util.function.Consumer<LFMainField> value) {
+        LFMainField field = new LFMainField();
+        field.setId((long) fieldId.hashCode());
+        field.setMainId(MAIN_ID);
+        field.setFormCode(FORM_CODE);
+        field.setFieldId(fieldId);
+        field.setFieldName(fieldId);
+        value.accept(field);
+        return field;
+    }
+
+    private static BpmnConfLfFormdataField fieldConf(String fieldId, LFFieldTypeEnum fieldType) {
+        BpmnConfLfFormdataField fieldConf = new BpmnConfLfFormdataField();
+        fieldConf.setFieldId(fieldId);
+        fieldConf.setFieldName(fieldId);
+        fieldConf.setFieldType(fieldType.getType());
+        return fieldConf;
+    }
+}
@@ -503,6 +503,127 @@ CREATE TABLE if not exists `t_bpm_variable_approve_remind`
 ) ENGINE = InnoDB
    COMMENT ='process remind variable';
 
+CREATE TABLE if not exists `t_bpm_timeout_remind_watermark`
+(
+    `id`          bigint       NOT NULL AUTO_INCREMENT COMMENT 'id',
+    `job_code`    varchar(50)  NOT NULL COMMENT 'job code',
+    `last_time`   timestamp(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT 'thresholds crossed before it have been handled',
+    `update_time` timestamp    NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT 'as its name says',
+    PRIMARY KEY (`id`) USING BTREE,
+    UNIQUE KEY `uk_job_code` (`job_code`) USING BTREE
+) ENGINE = InnoDB
+   COMMENT ='timeout remind watermark';
+
+CREATE TABLE if not exists `t_bpm_notice_outbox`
+(
+    `id`                bigint       NOT NULL AUTO_INCREMENT COMMENT 'id',
+    `channel`           varchar(50)  NOT NULL COMMENT 'message send type or callback channel',
+    `payload`           mediumtext   NOT NULL COMMENT 'json payload',
+    `status`            tinyint      NOT NULL DEFAULT '0' COMMENT '0:pending,1:dispatching,2:sent,3:failed',
+    `attempts`          int          NOT NULL DEFAULT '0' COMMENT 'delivery attempts',
+    `next_attempt_time` timestamp(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT 'not dispatched before it',
+    `claim_owner`       varchar(64)           DEFAULT NULL COMMENT 'dispatch round which claimed the row',
+    `claim_time`        timestamp(3) NULL     DEFAULT NULL COMMENT 'claim time',
+    `hold_key`          varchar(64)           DEFAULT NULL COMMENT 'batch operation holding the row back',
+    `last_error`        varchar(500)          DEFAULT NULL COMMENT 'last delivery error',
+    `tenant_id`         varchar(255) NOT NULL DEFAULT '' COMMENT 'tenantId',
+    `create_time`       timestamp    NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT 'as its name says',
+    `update_time`       timestamp    NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT 'as its name says',
+    PRIMARY KEY (`id`) USING BTREE,
+    KEY `idx_status_next_attempt_time` (`status`, `next_attempt_time`) USING BTREE,
+    KEY `idx_claim_owner` (`claim_owner`) USING BTREE,
+    KEY `idx_hold_key` (`hold_key`) USING BTREE
+) ENGINE = InnoDB
+   COMMENT ='process notice outbox';
+
+CREATE TABLE if not exists `t_bpm_reassign_job`
+(
+    `id`             bigint       NOT NULL AUTO_INCREMENT COMMENT 'id',
+    `from_user`      varchar(64)  NOT NULL COMMENT 'user whose tasks are reassigned',
+    `from_user_name` varchar(255)          DEFAULT NULL COMMENT 'from user name',
+    `to_user`        varchar(64)  NOT NULL COMMENT 'user the tasks are reassigned to',
+    `to_user_name`   varchar(255)          DEFAULT NULL COMMENT 'to user name',
+    `form_code`      varchar(64)  NOT NULL DEFAULT '' COMMENT 'only processes of this form code if not empty',
+    `status`         tinyint      NOT NULL DEFAULT '0' COMMENT '0:pending,1:running,2:done,3:failed',
+    `total_count`    int                   DEFAULT NULL COMMENT 'tasks and future approvals found on first run',
+    `task_count`     int          NOT NULL DEFAULT '0' COMMENT 'tasks reassigned',
+    `future_count`   int          NOT NULL DEFAULT '0' COMMENT 'future approvals reassigned',
+    `claim_owner`    varchar(64)           DEFAULT NULL COMMENT 'run which claimed the job',
+    `heartbeat_time` timestamp(3) NULL     DEFAULT NULL COMMENT 'refreshed after every chunk',
+    `start_time`     timestamp(3) NULL     DEFAULT NULL COMMENT 'first run time',
+    `end_time`       timestamp(3) NULL     DEFAULT NULL COMMENT 'finish time',
+    `last_error`     varchar(500)          DEFAULT NULL COMMENT 'last error',
+    `tenant_id`      varchar(255) NOT NULL DEFAULT '' COMMENT 'tenantId',
+    `create_user`    varchar(50)           DEFAULT '' COMMENT 'as its name says',
+    `create_time`    timestamp    NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT 'as its name says',
+    `update_time`    timestamp    NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT 'as its name says',
+    PRIMARY KEY (`id`) USING BTREE,
+    KEY `idx_status_heartbeat_time` (`status`, `heartbeat_time`) USING BTREE
+) ENGINE = InnoDB
+   COMMENT ='bulk reassignment job';
+
+CREATE TABLE if not exists `t_bpm_user_task_counter`
+(
+    `id`                  bigint       NOT NULL AUTO_INCREMENT COMMENT 'id',
+    `user_id`             varchar(64)  NOT NULL COMMENT 'user id',
+    `todo_count`          int          NOT NULL DEFAULT '0' COMMENT 'pending tasks',
+    `done_today_count`    int          NOT NULL DEFAULT '0' COMMENT 'processes approved on count date',
+    `created_today_count` int          NOT NULL DEFAULT '0' COMMENT 'processes started on count date',
+    `count_date`          date         NOT NULL COMMENT 'the day the daily counts belong to',
+    `reconcile_time`      timestamp    NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT 'last time the counts were recomputed',
+    `tenant_id`           varchar(255) NOT NULL DEFAULT '' COMMENT 'tenantId',
+    `update_time`         timestamp    NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT 'as its name says',
+    PRIMARY KEY (`id`) USING BTREE,
+    UNIQUE KEY `uk_tenant_user` (`tenant_id`, `user_id`) USING BTREE
+) ENGINE = InnoDB
+   COMMENT ='home page task counters of users';
+
+CREATE TABLE if not exists `t_bpm_task_inbox`
+(
+    `id`             bigint       NOT NULL AUTO_INCREMENT COMMENT 'id',
+    `assignee`       varchar(64)  NOT NULL COMMENT 'task assignee or process start user',
+    `kind`           tinyint      NOT NULL COMMENT '1 task,2 started process',
+    `state`          tinyint      NOT NULL DEFAULT '0' COMMENT '0 todo,1 done',
+    `task_id`        varchar(64)           DEFAULT NULL COMMENT 'engine task id',
+    `proc_inst_id`   varchar(64)  NOT NULL COMMENT 'engine process instance id',
+    `proc_def_id`    varchar(64)           DEFAULT NULL COMMENT 'engine process definition id',
+    `process_number` varchar(64)           DEFAULT NULL COMMENT 'process number',
+    `form_code`      varchar(64)           DEFAULT NULL COMMENT 'form code',
+    `node_key`       varchar(255)          DEFAULT NULL COMMENT 'task definition key',
+    `node_name`      varchar(255)          DEFAULT NULL COMMENT 'task name',
+    `sort_time`      datetime(3)  NOT NULL COMMENT 'task create time when todo,end time when done,start time of started processes',
+    `end_time`       datetime(3)           DEFAULT NULL COMMENT 'task end time',
+    `tenant_id`      varchar(255) NOT NULL DEFAULT '' COMMENT 'tenantId',
+    `create_time`    timestamp    NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT 'as its name says',
+    `update_time`    timestamp    NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT 'as its name says',
+    PRIMARY KEY (`id`) USING BTREE,
+    KEY `idx_inbox_list` (`tenant_id`, `assignee`, `kind`, `state`, `sort_time`, `id`) USING BTREE,
+    KEY `idx_task_id` (`task_id`) USING BTREE,
+    KEY `idx_proc_inst_id` (`proc_inst_id`) USING BTREE
+) ENGINE = InnoDB
+   COMMENT ='task inbox of users,read model of the todo,done and started lists';
+-- 已有库需要补充字段: alter table t_bpm_task_inbox add column proc_def_id varchar(64) null after proc_inst_id;
+
+CREATE TABLE if not exists `t_bpm_search_doc`
+(
+    `id`             bigint      NOT NULL AUTO_INCREMENT COMMENT 'id',
+    `process_number` varchar(64) NOT NULL COMMENT 'process number',
+    `content`        text COMMENT 'lower cased searchable texts of the process',
+    `update_time`    timestamp   NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT 'as its name says',
+    PRIMARY KEY (`id`) USING BTREE,
+    UNIQUE KEY `uk_process_number` (`process_number`) USING BTREE
+) ENGINE = InnoDB
+   COMMENT ='searchable text of processes';
+
+CREATE TABLE if not exists `t_bpm_search_token`
+(
+    `token`          varchar(8) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL COMMENT 'two adjacent characters of the searchable text',
+    `process_number` varchar(64) NOT NULL COMMENT 'process number',
+    PRIMARY KEY (`token`, `process_number`) USING BTREE,
+    KEY `idx_process_number` (`process_number`) USING BTREE
+) ENGINE = InnoDB
+   COMMENT ='bigram index of the searchable text of processes';
+
 CREATE TABLE if not exists `t_bpm_variable_button`
 (
     `id`               bigint          NOT NULL AUTO_INCREMENT COMMENT 'id',
@@ -1464,12 +1585,15 @@ create table if not exists t_bpmn_node_lf_formdata_field_control
 
 -- ----------------------------
 -- 此表为路由表,通过lf.main.table.count控制,默认为2个,索引从0开始,需要自己手动创建
+-- 已有库需要补充字段: alter table t_lf_main add column storage_mode tinyint default 0 not null, add column form_data longtext null;
 -- ----------------------------
 create table t_lf_main
 (
 	id bigint auto_increment,
 	conf_id bigint null,
 	form_code varchar(255) null,
+	storage_mode tinyint default 0 not null comment '0:字段行存储,1:文档存储,按保存时的模式读取',
+	form_data longtext null comment '表单数据文档,仅文档存储时使用',
 	is_del tinyint default 0 not null,
 	`tenant_id`              varchar(255)        NOT NULL DEFAULT '' COMMENT 'tenantId',
 	create_user varchar(255) null,
@@ -1507,6 +1631,25 @@ create table t_lf_main_field
 		primary key (id)
 )ENGINE=InnoDB  comment '低代码表单字段值表';
 
+-- ----------------------------
+-- 低代码表单路由表拓扑,仅lf.reshard.enabled=true时使用
+-- ----------------------------
+create table if not exists t_lf_shard_topology
+(
+	id bigint auto_increment,
+	version int not null comment '拓扑版本',
+	main_table_count int not null comment '主表数量',
+	field_table_count int not null comment '字段表数量',
+	virtual_nodes int not null comment '每张表的虚拟节点数',
+	status tinyint not null comment '0迁移中,1生效,2已退役',
+	create_time timestamp default current_timestamp,
+	update_time timestamp default current_timestamp ON UPDATE CURRENT_TIMESTAMP,
+	constraint t_lf_shard_topology_pk
+		primary key (id),
+	constraint t_lf_shard_topology_version_uk
+		unique (version)
+)ENGINE=InnoDB  comment '低代码表单路由表拓扑';
+
 create table t_dict_main
 (
     id          bigint auto_increment comment '字典主键'
@@ -1792,4 +1935,29 @@ CREATE TABLE IF NOT EXISTS  `t_biz_account_apply`
     PRIMARY KEY (`id`)
 ) ENGINE = InnoDB
   AUTO_INCREMENT = 1
-   COMMENT ='a third party account apply demo';
\ No newline at end of file
+   COMMENT ='a third party account apply demo';
+
+-- fill the inbox from the engine tables when upgrading an existing installation
+insert into t_bpm_task_inbox (assignee, kind, state, task_id, proc_inst_id, proc_def_id, process_number, form_code, node_key, node_name, sort_time, tenant_id)
+select t.ASSIGNEE_, 1, 0, t.ID_, t.PROC_INST_ID_, t.PROC_DEF_ID_, b.BUSINESS_NUMBER, b.PROCESSINESS_KEY, t.TASK_DEF_KEY_, t.NAME_, t.CREATE_TIME_, ifnull(t.TENANT_ID_, '')
+from ACT_RU_TASK t
+         join bpm_business_process b on b.PROC_INST_ID_ = t.PROC_INST_ID_
+where t.ASSIGNEE_ is not null
+  and not exists(select 1 from t_bpm_task_inbox i where i.task_id = t.ID_);
+insert into t_bpm_task_inbox (assignee, kind, state, task_id, proc_inst_id, proc_def_id, process_number, form_code, node_key, node_name, sort_time, end_time, tenant_id)
+select t.ASSIGNEE_, 1, 1, t.ID_, t.PROC_INST_ID_, t.PROC_DEF_ID_, b.BUSINESS_NUMBER, b.PROCESSINESS_KEY, t.TASK_DEF_KEY_, t.NAME_, t.END_TIME_, t.END_TIME_, ifnull(t.TENANT_ID_, '')
+from ACT_HI_TASKINST t
+         join bpm_business_process b on b.PROC_INST_ID_ = t.PROC_INST_ID_
+where t.ASSIGNEE_ is not null
+  and t.END_TIME_ is not null
+  and t.TASK_DEF_KEY_ <> 'task1418018332271'
+  and not exists(select 1 from t_bpm_task_inbox i where i.task_id = t.ID_);
+insert into t_bpm_task_inbox (assignee, kind, state, proc_inst_id, proc_def_id, process_number, form_code, sort_time, tenant_id)
+select h.START_USER_ID_, 2, 0, h.PROC_INST_ID_, h.PROC_DEF_ID_, b.BUSINESS_NUMBER, b.PROCESSINESS_KEY, h.START_TIME_, ifnull(h.TENANT_ID_, '')
+from ACT_HI_PROCINST h
+         join bpm_business_process b on b.PROC_INST_ID_ = h.PROC_INST_ID_
+where h.START_USER_ID_ is not null
+  and not exists(select 1 from t_bpm_task_inbox i where i.kind = 2 and i.proc_inst_id = h.PROC_INST_ID_);
+update t_bpm_task_inbox i join ACT_HI_PROCINST h on h.PROC_INST_ID_ = i.proc_inst_id
+set i.proc_def_id = h.PROC_DEF_ID_
+where i.proc_def_id is null;